@@ -0,0 +1,148 @@
+package org.lyj.commons.cryptograph;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+/**
+ * Authenticated AES encoder/decoder (AES/GCM).
+ * <p>
+ * Each encryption uses a random IV, written before encrypted data, so same key
+ * can be used safely for many messages.
+ * Decrypt fails (AEADBadTagException) if data was modified.
+ * <p>
+ * Output: IV (12 bytes) + encrypted data + tag (16 bytes)
+ */
+public final class GCMCipher {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    public static final int IV_SIZE = 12;
+    public static final int TAG_SIZE = 16;
+
+    private static final String PROVIDER = "AES/GCM/NoPadding";
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Cipher.getInstance is not free: one instance for thread, initialized for each message
+    private static final ThreadLocal<Cipher> CIPHERS = new ThreadLocal<>();
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    private GCMCipher() {
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public static byte[] encrypt(final SecretKey key,
+                                 final byte[] data) throws GeneralSecurityException {
+        final byte[] iv = createIV();
+        final Cipher cipher = getCipher(Cipher.ENCRYPT_MODE, key, iv);
+
+        // iv and encrypted data in same array: no copy
+        final byte[] response = new byte[IV_SIZE + cipher.getOutputSize(data.length)];
+        System.arraycopy(iv, 0, response, 0, IV_SIZE);
+        cipher.doFinal(data, 0, data.length, response, IV_SIZE);
+        return response;
+    }
+
+    public static byte[] decrypt(final SecretKey key,
+                                 final byte[] data) throws GeneralSecurityException {
+        if (null == data || data.length < IV_SIZE + TAG_SIZE) {
+            throw new GeneralSecurityException("Invalid encrypted data.");
+        }
+        final Cipher cipher = getCipher(Cipher.DECRYPT_MODE, key, data, 0);
+        return cipher.doFinal(data, IV_SIZE, data.length - IV_SIZE);
+    }
+
+    /**
+     * Encrypt a stream chunk by chunk: data is never loaded whole in memory.
+     */
+    public static void encrypt(final SecretKey key,
+                               final InputStream in,
+                               final OutputStream out) throws GeneralSecurityException, IOException {
+        final byte[] iv = createIV();
+        final Cipher cipher = getCipher(Cipher.ENCRYPT_MODE, key, iv);
+        out.write(iv);
+        final byte[] buffer = new byte[CHUNK_SIZE];
+        int count;
+        while ((count = in.read(buffer)) > 0) {
+            final byte[] chunk = cipher.update(buffer, 0, count);
+            if (null != chunk) {
+                out.write(chunk);
+            }
+        }
+        out.write(cipher.doFinal());
+    }
+
+    /**
+     * Decrypt a stream chunk by chunk.
+     * Decrypted data is written only after tag has been verified, so provider may
+     * hold decrypted data in memory until end of stream.
+     */
+    public static void decrypt(final SecretKey key,
+                               final InputStream in,
+                               final OutputStream out) throws GeneralSecurityException, IOException {
+        final byte[] iv = new byte[IV_SIZE];
+        int read = 0;
+        while (read < IV_SIZE) {
+            final int count = in.read(iv, read, IV_SIZE - read);
+            if (count < 0) {
+                throw new GeneralSecurityException("Invalid encrypted data.");
+            }
+            read += count;
+        }
+        final Cipher cipher = getCipher(Cipher.DECRYPT_MODE, key, iv);
+        final byte[] buffer = new byte[CHUNK_SIZE];
+        int count;
+        while ((count = in.read(buffer)) > 0) {
+            final byte[] chunk = cipher.update(buffer, 0, count);
+            if (null != chunk) {
+                out.write(chunk);
+            }
+        }
+        out.write(cipher.doFinal());
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private static byte[] createIV() {
+        final byte[] iv = new byte[IV_SIZE];
+        RANDOM.nextBytes(iv);
+        return iv;
+    }
+
+    private static Cipher getCipher(final int mode,
+                                    final SecretKey key,
+                                    final byte[] iv) throws GeneralSecurityException {
+        return getCipher(mode, key, iv, 0);
+    }
+
+    private static Cipher getCipher(final int mode,
+                                    final SecretKey key,
+                                    final byte[] iv,
+                                    final int iv_offset) throws GeneralSecurityException {
+        Cipher cipher = CIPHERS.get();
+        if (null == cipher) {
+            cipher = Cipher.getInstance(PROVIDER);
+            CIPHERS.set(cipher);
+        }
+        cipher.init(mode, key, new GCMParameterSpec(TAG_SIZE * 8, iv, iv_offset, IV_SIZE));
+        return cipher;
+    }
+
+}
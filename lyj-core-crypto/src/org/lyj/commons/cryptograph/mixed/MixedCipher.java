@@ -1,11 +1,14 @@
 package org.lyj.commons.cryptograph.mixed;
 
 import org.lyj.commons.cryptograph.AESCipher;
+import org.lyj.commons.cryptograph.GCMCipher;
 import org.lyj.commons.cryptograph.pem.RSAHelper;
 import org.lyj.commons.util.ByteUtils;
 
 import javax.crypto.SecretKey;
 import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 
@@ -32,7 +35,7 @@ public class MixedCipher {
 
     public static Pack encrypt(final File file,
                                final String public_key) throws Exception {
-        return encrypt(file, RSAHelper.readRSAPublicKeyFromText(public_key));
+        return encrypt(file, RSAHelper.getRSAPublicKey(public_key));
     }
 
     public static Pack encrypt(final File file,
@@ -43,7 +46,7 @@ public class MixedCipher {
 
     public static Pack encrypt(final byte[] data,
                                final String public_key) throws Exception {
-        return encrypt(data, RSAHelper.readRSAPublicKeyFromText(public_key));
+        return encrypt(data, RSAHelper.getRSAPublicKey(public_key));
     }
 
     public static Pack encrypt(final byte[] data,
@@ -62,7 +65,7 @@ public class MixedCipher {
 
     public static byte[] decrypt(final Pack pack,
                                  final String private_key) throws Exception {
-        return decrypt(pack, RSAHelper.readRSAPrivateKeyFromText(private_key));
+        return decrypt(pack, RSAHelper.getRSAPrivateKey(private_key));
     }
 
     public static byte[] decrypt(final Pack pack,
@@ -72,6 +75,49 @@ public class MixedCipher {
         return cipher.decrypt(pack.encodedData());
     }
 
+    //-- session --//
+
+    /**
+     * Encrypt data with a session key (AES/GCM).
+     * No asymmetric encryption: encoded secret of session is reused.
+     */
+    public static Pack encrypt(final byte[] data,
+                               final SessionKey session) throws Exception {
+        final byte[] encoded_data = GCMCipher.encrypt(session.use(), data);
+
+        return new Pack(session.encodedSecret(), encoded_data);
+    }
+
+    /**
+     * Decrypt data encrypted with a session key.
+     *
+     * @param secret Secret of session, already decrypted (see decryptSecret)
+     */
+    public static byte[] decrypt(final Pack pack,
+                                 final SecretKey secret) throws Exception {
+        return GCMCipher.decrypt(secret, pack.encodedData());
+    }
+
+    /**
+     * Encrypt a stream with a session key, chunk by chunk (ex: large files).
+     */
+    public static void encrypt(final InputStream in,
+                               final OutputStream out,
+                               final SessionKey session) throws Exception {
+        GCMCipher.encrypt(session.use(), in, out);
+    }
+
+    public static void decrypt(final InputStream in,
+                               final OutputStream out,
+                               final SecretKey secret) throws Exception {
+        GCMCipher.decrypt(secret, in, out);
+    }
+
+    public static SecretKey decryptSecret(final byte[] encoded_secret,
+                                          final PrivateKey private_key) throws Exception {
+        return AESCipher.createKey(RSAHelper.decrypt(encoded_secret, private_key));
+    }
+
     // ------------------------------------------------------------------------
     //                      p r i v a t e
     // ------------------------------------------------------------------------
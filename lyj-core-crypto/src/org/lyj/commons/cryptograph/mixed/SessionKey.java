@@ -0,0 +1,96 @@
+package org.lyj.commons.cryptograph.mixed;
+
+import org.lyj.commons.cryptograph.AESCipher;
+import org.lyj.commons.cryptograph.pem.RSAHelper;
+
+import javax.crypto.SecretKey;
+import java.security.PublicKey;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Symmetric key shared by many messages to same receiver.
+ * Key is encrypted with receiver public key only once, when session key is created,
+ * and encrypted key is sent with each message.
+ * Session keys should be replaced (rotated) after some time or some usages.
+ */
+public class SessionKey {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final SecretKey _secret;
+    private final byte[] _encoded_secret;
+    private final long _created;
+    private final AtomicLong _uses;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public SessionKey(final SecretKey secret,
+                      final byte[] encoded_secret) {
+        _secret = secret;
+        _encoded_secret = encoded_secret;
+        _created = System.currentTimeMillis();
+        _uses = new AtomicLong(0);
+    }
+
+    @Override
+    public String toString() {
+        return "{created: " + _created +
+                ", uses: " + _uses.get() + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r o p e r t i e s
+    // ------------------------------------------------------------------------
+
+    public SecretKey secret() {
+        return _secret;
+    }
+
+    /**
+     * Secret encrypted with public key of receiver.
+     */
+    public byte[] encodedSecret() {
+        return _encoded_secret;
+    }
+
+    public long created() {
+        return _created;
+    }
+
+    public long uses() {
+        return _uses.get();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public SecretKey use() {
+        _uses.incrementAndGet();
+        return _secret;
+    }
+
+    public boolean isExpired(final long max_age_ms,
+                             final long max_uses) {
+        return (max_age_ms > 0 && System.currentTimeMillis() - _created > max_age_ms)
+                || (max_uses > 0 && _uses.get() >= max_uses);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    public static SessionKey create(final PublicKey public_key) throws Exception {
+        final SecretKey secret = AESCipher.createKey(MixedCipher.KEY_SIZE);
+        return new SessionKey(secret, RSAHelper.encrypt(secret.getEncoded(), public_key));
+    }
+
+    public static SessionKey create(final String public_key) throws Exception {
+        return create(RSAHelper.getRSAPublicKey(public_key));
+    }
+
+}
@@ -19,6 +19,8 @@ import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.RSAPublicKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Simple utility to read private keys and generate public key
@@ -33,6 +35,10 @@ public class RSAHelper
     private static final int KEY_SIZE = 1024;
     private static final String DEFAULT_CHIPHER = "RSA/ECB/PKCS1Padding";
     private static final String DEFAULT_KEY_FACTORY = "RSA";
+    private static final int MAX_PARSED_KEYS = 1000;
+
+    // parsed keys by pem text: parsing is much slower than a lookup
+    private static final Map<String, Key> PARSED_KEYS = new ConcurrentHashMap<>();
 
     // ------------------------------------------------------------------------
     //                      p u b l i c
@@ -46,7 +52,7 @@ public class RSAHelper
             NoSuchAlgorithmException,
             InvalidKeyException, IOException, InvalidKeySpecException {
 
-        return encrypt(data, readRSAPublicKeyFromText(public_key));
+        return encrypt(data, getRSAPublicKey(public_key));
     }
 
     public static byte[] encrypt(final byte[] data, final Key public_key)
@@ -72,7 +78,7 @@ public class RSAHelper
             NoSuchAlgorithmException,
             InvalidKeyException, IOException, InvalidKeySpecException {
 
-        return decrypt(data, readRSAPrivateKeyFromText(private_key));
+        return decrypt(data, getRSAPrivateKey(private_key));
     }
 
     public static byte[] decrypt(final byte[] data, final Key private_key)
@@ -148,6 +154,36 @@ public class RSAHelper
         return kf.generatePublic(keySpec);
     }
 
+    /**
+     * Same as readRSAPublicKeyFromText, but key is parsed only first time.
+     */
+    public static PublicKey getRSAPublicKey(final String raw_pem_string) throws
+            IOException,
+            NoSuchAlgorithmException,
+            InvalidKeySpecException {
+        Key key = PARSED_KEYS.get(raw_pem_string);
+        if (!(key instanceof PublicKey)) {
+            key = readRSAPublicKeyFromText(raw_pem_string);
+            cacheKey(raw_pem_string, key);
+        }
+        return (PublicKey) key;
+    }
+
+    /**
+     * Same as readRSAPrivateKeyFromText, but key is parsed only first time.
+     */
+    public static PrivateKey getRSAPrivateKey(final String raw_pem_string) throws
+            IOException,
+            NoSuchAlgorithmException,
+            InvalidKeySpecException {
+        Key key = PARSED_KEYS.get(raw_pem_string);
+        if (!(key instanceof PrivateKey)) {
+            key = readRSAPrivateKeyFromText(raw_pem_string);
+            cacheKey(raw_pem_string, key);
+        }
+        return (PrivateKey) key;
+    }
+
     //-- g e n e r a t e --//
 
     public static KeyPair generateRSAKeyPair()
@@ -267,6 +303,14 @@ public class RSAHelper
     //                      p r i v a t e
     // ------------------------------------------------------------------------
 
+    private static void cacheKey(final String raw_pem_string,
+                                 final Key key) {
+        if (PARSED_KEYS.size() >= MAX_PARSED_KEYS) {
+            PARSED_KEYS.clear();
+        }
+        PARSED_KEYS.put(raw_pem_string, key);
+    }
+
     private static PemObject getPemObject(final String pem_string,
                                           final String description) throws IOException {
         final PemReader reader = new PemReader(new StringReader(pem_string));
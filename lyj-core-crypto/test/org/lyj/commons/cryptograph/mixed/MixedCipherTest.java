@@ -3,17 +3,25 @@ package org.lyj.commons.cryptograph.mixed;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.lyj.TestInitializer;
+import org.lyj.commons.cryptograph.GCMCipher;
 import org.lyj.commons.cryptograph.MD5;
 import org.lyj.commons.cryptograph.pem.RSAHelper;
 import org.lyj.commons.util.PathUtils;
 import org.lyj.commons.util.StringUtils;
 
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.security.GeneralSecurityException;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class MixedCipherTest {
 
@@ -50,4 +58,64 @@ public class MixedCipherTest {
         System.out.println(StringUtils.leftStr(new String(data), 50, true));
     }
 
+
+    @Test
+    public void sessionCipherTest() throws Exception {
+        final KeyPair key = RSAHelper.generateRSAKeyPair();
+        final String string_public = RSAHelper.toString(key.getPublic());
+        final String string_private = RSAHelper.toString(key.getPrivate());
+        final byte[] data = new byte[1024];
+        new Random(1).nextBytes(data);
+
+        final int COUNT = 2000;
+
+        //-- a new key for each message --//
+        long time = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            final MixedCipher.Pack pack = MixedCipher.encrypt(data, string_public);
+            assertArrayEquals(data, MixedCipher.decrypt(pack, string_private));
+        }
+        final double per_message = COUNT / ((System.nanoTime() - time) / 1e9);
+
+        //-- session key --//
+        final SessionKey session = SessionKey.create(string_public);
+        final Map<String, SecretKey> secrets = new HashMap<>();
+        time = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            final MixedCipher.Pack pack = MixedCipher.encrypt(data, session);
+            final String secret_id = MD5.encode(pack.encodedSecret());
+            SecretKey secret = secrets.get(secret_id);
+            if (null == secret) {
+                secret = MixedCipher.decryptSecret(pack.encodedSecret(), RSAHelper.getRSAPrivateKey(string_private));
+                secrets.put(secret_id, secret);
+            }
+            assertArrayEquals(data, MixedCipher.decrypt(pack, secret));
+        }
+        final double per_session = COUNT / ((System.nanoTime() - time) / 1e9);
+
+        System.out.println("MESSAGES/SEC (1KB): key per message " + (int) per_message + ", session key " + (int) per_session);
+        assertEquals(COUNT, session.uses());
+        assertTrue(per_session > per_message);
+
+        //-- modified data is rejected --//
+        final MixedCipher.Pack pack = MixedCipher.encrypt(data, session);
+        pack.encodedData()[GCMCipher.IV_SIZE] ^= 1;
+        try {
+            MixedCipher.decrypt(pack, session.secret());
+            fail("Modified data should not be decrypted");
+        } catch (GeneralSecurityException ignored) {
+        }
+
+        //-- stream --//
+        final byte[] large = new byte[1024 * 1024 + 7];
+        new Random(2).nextBytes(large);
+        final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        MixedCipher.encrypt(new ByteArrayInputStream(large), encoded, session);
+        final ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        MixedCipher.decrypt(new ByteArrayInputStream(encoded.toByteArray()), decoded, session.secret());
+        assertArrayEquals(large, decoded.toByteArray());
+        // stream and array formats are the same
+        assertArrayEquals(large, GCMCipher.decrypt(session.secret(), encoded.toByteArray()));
+    }
+
 }
\ No newline at end of file
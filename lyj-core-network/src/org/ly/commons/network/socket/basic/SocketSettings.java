@@ -1,6 +1,7 @@
 package org.ly.commons.network.socket.basic;
 
 import org.json.JSONObject;
+import org.ly.commons.network.socket.basic.message.SocketMessageReader;
 import org.lyj.commons.lang.CharEncoding;
 
 public class SocketSettings {
@@ -11,6 +12,9 @@ public class SocketSettings {
 
     public static final int DEFAULT_TIMEOUT = 10 * 1000;
     public static final int DEFAULT_PORT = 5000;
+    public static final int DEFAULT_IDLE_TIMEOUT = 60 * 1000; // open connections with no traffic are closed
+    public static final int DEFAULT_POOL_SIZE = 4; // max connections of a client
+    public static final int BUFFER_SIZE = 64 * 1024; // read buffer of a connection
 
     // change this parameter to increase chunks buffer
     public static int CHUNK_SIZE = 1000;
@@ -24,6 +28,9 @@ public class SocketSettings {
     private String _host;
     private int _port;
     private int _timeout_ms;
+    private int _idle_timeout_ms;
+    private int _max_head_size;
+    private long _max_body_size;
     private String _charset;
 
     // ------------------------------------------------------------------------
@@ -36,6 +43,9 @@ public class SocketSettings {
         _charset = CharEncoding.UTF_8;
         _port = DEFAULT_PORT;
         _timeout_ms = DEFAULT_TIMEOUT;
+        _idle_timeout_ms = DEFAULT_IDLE_TIMEOUT;
+        _max_head_size = SocketMessageReader.DEFAULT_MAX_HEAD_SIZE;
+        _max_body_size = SocketMessageReader.DEFAULT_MAX_BODY_SIZE;
     }
 
     @Override
@@ -47,6 +57,9 @@ public class SocketSettings {
         response.put("host", _host);
         response.put("port", _port);
         response.put("timeout", _timeout_ms);
+        response.put("idle_timeout", _idle_timeout_ms);
+        response.put("max_head_size", _max_head_size);
+        response.put("max_body_size", _max_body_size);
 
         return response.toString();
     }
@@ -86,6 +99,44 @@ public class SocketSettings {
         return this;
     }
 
+    public int idleTimeout() {
+        return _idle_timeout_ms;
+    }
+
+    /**
+     * Time a connection waits for next message before closing.
+     */
+    public SocketSettings idleTimeout(final int value) {
+        _idle_timeout_ms = value;
+        return this;
+    }
+
+    public int maxHeadSize() {
+        return _max_head_size;
+    }
+
+    /**
+     * Max bytes of head (fixed fields and headers) of a received message.
+     * Larger messages are rejected and connection is closed.
+     */
+    public SocketSettings maxHeadSize(final int value) {
+        _max_head_size = value;
+        return this;
+    }
+
+    public long maxBodySize() {
+        return _max_body_size;
+    }
+
+    /**
+     * Max bytes of body of a received message.
+     * Larger messages are rejected and connection is closed.
+     */
+    public SocketSettings maxBodySize(final long value) {
+        _max_body_size = value;
+        return this;
+    }
+
     public String charset() {
         return _charset;
     }
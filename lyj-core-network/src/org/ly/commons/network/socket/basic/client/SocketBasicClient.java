@@ -10,7 +10,8 @@ import java.io.File;
 import java.util.Map;
 
 public class SocketBasicClient
-        extends SocketLogger {
+        extends SocketLogger
+        implements AutoCloseable {
 
     // ------------------------------------------------------------------------
     //                      c o n s t
@@ -27,6 +28,7 @@ public class SocketBasicClient
     private String _host;
     private int _port;
     private int _timeout_ms;
+    private int _idle_timeout_ms;
     private String _charset;
 
     // ------------------------------------------------------------------------
@@ -37,6 +39,7 @@ public class SocketBasicClient
         _uid = RandomUtils.randomUUID();
         _port = SocketSettings.DEFAULT_PORT;
         _timeout_ms = SocketSettings.DEFAULT_TIMEOUT;
+        _idle_timeout_ms = SocketSettings.DEFAULT_IDLE_TIMEOUT / 2; // client closes before server does
         _charset = CharEncoding.UTF_8;
 
         _dispatcher = new SocketBasicClientDispatcher();
@@ -77,6 +80,32 @@ public class SocketBasicClient
         return this;
     }
 
+    public int idleTimeout() {
+        return _idle_timeout_ms;
+    }
+
+    /**
+     * Open connections not used for this time are closed.
+     * Should be lower than server idle timeout.
+     */
+    public SocketBasicClient idleTimeout(final int value) {
+        _idle_timeout_ms = value;
+        return this;
+    }
+
+    public int poolSize() {
+        return _dispatcher.pool().size();
+    }
+
+    /**
+     * Max connections open to server. Concurrent requests exceeding pool size
+     * are pipelined on open connections.
+     */
+    public SocketBasicClient poolSize(final int value) {
+        _dispatcher.pool().size(value);
+        return this;
+    }
+
     public String charset() {
         return _charset;
     }
@@ -90,6 +119,14 @@ public class SocketBasicClient
     //                      p u b l i c
     // ------------------------------------------------------------------------
 
+    /**
+     * Close open connections. Client can still be used: connections are open again when needed.
+     */
+    @Override
+    public void close() {
+        _dispatcher.close();
+    }
+
     /**
      * Client sent an handshake request to a target.
      * Use handshake to activate encryption.
@@ -152,11 +189,7 @@ public class SocketBasicClient
     // ------------------------------------------------------------------------
 
     private SocketSettings context() {
-        return new SocketSettings(_uid)
-                .host(this.host())
-                .port(this.port())
-                .timeout(this.timeout())
-                .charset(this.charset());
+        return this.context(this.timeout());
     }
 
     private SocketSettings context(final int timeout) {
@@ -164,6 +197,7 @@ public class SocketBasicClient
                 .host(this.host())
                 .port(this.port())
                 .timeout(timeout)
+                .idleTimeout(this.idleTimeout())
                 .charset(this.charset());
     }
 
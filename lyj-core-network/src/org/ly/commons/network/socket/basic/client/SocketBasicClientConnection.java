@@ -0,0 +1,254 @@
+package org.ly.commons.network.socket.basic.client;
+
+import org.ly.commons.network.socket.SocketLogger;
+import org.ly.commons.network.socket.basic.SocketSettings;
+import org.ly.commons.network.socket.basic.message.SocketMessageReader;
+import org.ly.commons.network.socket.basic.message.impl.SocketMessage;
+import org.ly.commons.network.socket.utils.SocketUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent connection to a server.
+ * <p>
+ * Many requests can be sent without waiting for previous responses (pipelining).
+ * Each request has a correlation id and server responses are matched to requests
+ * by id, in whatever order they arrive.
+ * Responses are read asynchronously: no thread is waiting while connection is idle.
+ */
+public class SocketBasicClientConnection
+        extends SocketLogger
+        implements AutoCloseable {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final String _host;
+    private final int _port;
+    private final AsynchronousSocketChannel _channel;
+    private final ByteBuffer _buffer;
+    private final Map<String, CompletableFuture<SocketMessage>> _pending;
+    private final AtomicLong _sequence;
+    private final AtomicBoolean _closed;
+    private final Object _write_lock;
+
+    private final int _max_head_size;
+    private final long _max_body_size;
+
+    private SocketMessageReader _reader; // accessed only by read handler
+    private volatile long _last_used;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public SocketBasicClientConnection(final SocketSettings context) throws Exception {
+        _host = context.host();
+        _port = context.port();
+        _buffer = ByteBuffer.allocate(SocketSettings.BUFFER_SIZE);
+        _pending = new ConcurrentHashMap<>();
+        _sequence = new AtomicLong(0);
+        _closed = new AtomicBoolean(false);
+        _write_lock = new Object();
+        _max_head_size = context.maxHeadSize();
+        _max_body_size = context.maxBodySize();
+        _reader = new SocketMessageReader(_max_head_size, _max_body_size);
+        _last_used = System.currentTimeMillis();
+
+        _channel = AsynchronousSocketChannel.open();
+        try {
+            _channel.connect(new InetSocketAddress(_host, _port)).get(context.timeout(), TimeUnit.MILLISECONDS);
+            _channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            _channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        } catch (Exception e) {
+            _channel.close();
+            throw e;
+        }
+
+        this.read();
+    }
+
+    @Override
+    public String toString() {
+        return "{host: " + _host +
+                ", port: " + _port +
+                ", open: " + this.isOpen() +
+                ", pending: " + this.pending() + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public boolean isOpen() {
+        return !_closed.get() && _channel.isOpen();
+    }
+
+    /**
+     * Requests waiting for a response.
+     */
+    public int pending() {
+        return _pending.size();
+    }
+
+    public boolean matches(final SocketSettings context) {
+        return _port == context.port() && null != _host && _host.equals(context.host());
+    }
+
+    /**
+     * Mark as used now: connection is not closed as idle before caller sends its request.
+     */
+    public SocketBasicClientConnection touch() {
+        _last_used = System.currentTimeMillis();
+        return this;
+    }
+
+    /**
+     * @return True if there are no pending requests and connection was not used for idle_timeout_ms
+     */
+    public boolean isIdle(final long now,
+                          final int idle_timeout_ms) {
+        return _pending.isEmpty() && now - _last_used > idle_timeout_ms;
+    }
+
+    /**
+     * Send a message already encoded. Returned future is completed with the response
+     * of server, still to decode.
+     */
+    public CompletableFuture<SocketMessage> send(final SocketMessage message,
+                                                 final int timeout_ms) {
+        final CompletableFuture<SocketMessage> future = new CompletableFuture<>();
+        final String correlation_id = String.valueOf(_sequence.incrementAndGet());
+        message.headers().correlationId(correlation_id);
+        _pending.put(correlation_id, future);
+        _last_used = System.currentTimeMillis();
+        if (_closed.get()) {
+            this.fail(correlation_id, new ClosedChannelException());
+            return future;
+        }
+        try {
+            final ByteBuffer data = ByteBuffer.wrap(message.bytes());
+            synchronized (_write_lock) {
+                SocketUtils.write(_channel, data, timeout_ms);
+            }
+        } catch (Throwable t) {
+            // a failed write leaves the stream in unknown state
+            this.close(t);
+        }
+        return future;
+    }
+
+    /**
+     * Forget a request (ex: timeout). A late response is discarded.
+     */
+    public void cancel(final SocketMessage message) {
+        _pending.remove(message.headers().correlationId());
+    }
+
+    @Override
+    public void close() {
+        this.close(new ClosedChannelException());
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private void read() {
+        try {
+            _channel.read(_buffer, null, new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(final Integer count, final Void attachment) {
+                    if (count < 0) {
+                        // closed by server (ex: idle timeout)
+                        close(new ClosedChannelException());
+                    } else if (consume()) {
+                        read();
+                    }
+                }
+
+                @Override
+                public void failed(final Throwable exc, final Void attachment) {
+                    close(exc);
+                }
+            });
+        } catch (Throwable t) {
+            this.close(t);
+        }
+    }
+
+    /**
+     * Split received bytes into messages.
+     *
+     * @return False if stream is corrupted
+     */
+    private boolean consume() {
+        _buffer.flip();
+        try {
+            while (_buffer.hasRemaining()) {
+                _reader.write(_buffer);
+                if (_reader.isComplete()) {
+                    final SocketMessage message = _reader.message();
+                    _reader.close();
+                    _reader = new SocketMessageReader(_max_head_size, _max_body_size);
+                    this.complete(message);
+                } else if (_reader.hasError()) {
+                    this.close(new IOException(_reader.errorMessage()));
+                    return false;
+                }
+            }
+        } catch (Throwable t) {
+            this.close(t);
+            return false;
+        } finally {
+            _buffer.compact();
+        }
+        return true;
+    }
+
+    private void complete(final SocketMessage message) {
+        _last_used = System.currentTimeMillis();
+        final CompletableFuture<SocketMessage> future = _pending.remove(message.headers().correlationId());
+        if (null != future) {
+            future.complete(message);
+        }
+    }
+
+    private void fail(final String correlation_id,
+                      final Throwable cause) {
+        final CompletableFuture<SocketMessage> future = _pending.remove(correlation_id);
+        if (null != future) {
+            future.completeExceptionally(cause);
+        }
+    }
+
+    private void close(final Throwable cause) {
+        if (_closed.compareAndSet(false, true)) {
+            try {
+                _channel.close();
+            } catch (Throwable ignored) {
+            }
+        }
+        // fail requests still waiting
+        final List<String> keys = new ArrayList<>(_pending.keySet());
+        for (final String key : keys) {
+            this.fail(key, cause);
+        }
+    }
+
+}
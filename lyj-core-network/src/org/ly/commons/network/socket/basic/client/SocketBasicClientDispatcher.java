@@ -2,32 +2,42 @@ package org.ly.commons.network.socket.basic.client;
 
 import org.ly.commons.network.socket.basic.AbstractMessageDispatcher;
 import org.ly.commons.network.socket.basic.SocketSettings;
+import org.ly.commons.network.socket.basic.message.chunks.ChunkFile;
 import org.ly.commons.network.socket.basic.message.chunks.ChunkManager;
 import org.ly.commons.network.socket.basic.message.cipher.impl.ClientCipher;
 import org.ly.commons.network.socket.basic.message.impl.SocketMessage;
 import org.ly.commons.network.socket.basic.message.impl.SocketMessageHandShake;
-import org.ly.commons.network.socket.utils.SocketUtils;
 import org.lyj.commons.lang.ValueObject;
 import org.lyj.commons.tokenizers.TokenInfo;
+import org.lyj.commons.util.FileUtils;
 import org.lyj.commons.util.StringUtils;
 
 import java.io.File;
-import java.net.InetSocketAddress;
-import java.net.StandardSocketOptions;
-import java.nio.ByteBuffer;
-import java.nio.channels.AsynchronousSocketChannel;
+import java.io.IOException;
+import java.util.Deque;
+import java.util.LinkedList;
 import java.util.Map;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class SocketBasicClientDispatcher
         extends AbstractMessageDispatcher {
 
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final int MAX_PARALLEL_CHUNKS = 4;
+    private static final int MAX_CHUNK_RETRIES = 3;
+
     // ------------------------------------------------------------------------
     //                      f i e l d s
     // ------------------------------------------------------------------------
 
     private final ChunkManager _chunks;
+    private final SocketBasicClientPool _pool;
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
@@ -37,6 +47,7 @@ public class SocketBasicClientDispatcher
         super(new ClientCipher());
 
         _chunks = ChunkManager.instance();
+        _pool = new SocketBasicClientPool();
 
         this.init();
     }
@@ -50,6 +61,14 @@ public class SocketBasicClientDispatcher
     //                      p u b l i c
     // ------------------------------------------------------------------------
 
+    public SocketBasicClientPool pool() {
+        return _pool;
+    }
+
+    public void close() {
+        _pool.close();
+    }
+
     public void handShake(final SocketSettings context) throws Exception {
         final byte[] public_key = super.cipher().publicKey().getBytes();
         final SocketMessageHandShake handshake = new SocketMessageHandShake(context.uid());
@@ -101,18 +120,6 @@ public class SocketBasicClientDispatcher
 
     }
 
-    private AsynchronousSocketChannel openSocket(final SocketSettings context) throws Exception {
-        final AsynchronousSocketChannel client = AsynchronousSocketChannel.open();
-        client.connect(new InetSocketAddress(context.host(), context.port())).get(context.timeout(), TimeUnit.MILLISECONDS);
-
-        //client.setOption(StandardSocketOptions.SO_RCVBUF, 2 * MESSAGE_INPUT_SIZE);
-        //client.setOption(StandardSocketOptions.SO_SNDBUF, 2 * MESSAGE_INPUT_SIZE);
-        //client.setOption(StandardSocketOptions.SO_REUSEADDR, true);
-        client.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
-
-        return client;
-    }
-
     private SocketMessage newMessage(final SocketSettings context) {
         final SocketMessage message = new SocketMessage(context.uid());
         //message.signature(_message.signature());
@@ -127,7 +134,7 @@ public class SocketBasicClientDispatcher
 
         if (message.isHandShake()) {
             // send data with no encryption and no tokenizer
-            response.content(sendData(message.bytes(), context));
+            response.content(sendData(message, context));
         } else {
 
             if (message.bodyLength() > super.chunkSize() || message.isFile()) {
@@ -136,13 +143,8 @@ public class SocketBasicClientDispatcher
                     // send chunk
                     try {
                         final SocketMessage chunk_response = sendMessage(token_message, context);
-                        if (chunk_response.isChunk()) {
-                            if (null == response.content()) {
-                                response.content(chunk_response);
-                            }
-                        } else {
-                            response.content(chunk_response);
-                        }
+                        // last chunk completes the message: its response is the response to whole message
+                        response.content(chunk_response);
                     } catch (Exception e) {
                         // error sending token
                     }
@@ -166,26 +168,124 @@ public class SocketBasicClientDispatcher
         } catch (Throwable t) {
             super.error("sendMessage", t);
         }
-        return sendData(message.bytes(), context);
+        return sendData(message, context);
     }
 
-    private SocketMessage sendData(final byte[] data,
+    /**
+     * Send on a pooled connection and wait for the response with same correlation id.
+     * Other threads may send on same connection meanwhile.
+     */
+    private SocketMessage sendData(final SocketMessage message,
                                    final SocketSettings context) throws Exception {
-        try (final AsynchronousSocketChannel socket = this.openSocket(context)) {
-            final ByteBuffer send_buffer = ByteBuffer.wrap(data);
-            final Future<Integer> futureWriteResult = socket.write(send_buffer);
-            futureWriteResult.get(context.timeout(), TimeUnit.MILLISECONDS);
-            send_buffer.clear();
+        SocketBasicClientConnection connection = _pool.connection(context);
+        SocketMessage response;
+        try {
+            response = this.sendData(connection, message, context);
+        } catch (IOException e) {
+            if (connection.isOpen()) {
+                throw e;
+            }
+            // connection closed before response (ex: by client or server idle check): once more on a new one
+            connection = _pool.connection(context);
+            response = this.sendData(connection, message, context);
+        }
+        return this.readData(response, context);
+    }
+
+    private SocketMessage sendData(final SocketBasicClientConnection connection,
+                                   final SocketMessage message,
+                                   final SocketSettings context) throws Exception {
+        try {
+            return connection.send(message, context.timeout()).get(context.timeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            connection.cancel(message);
+            throw e;
+        } catch (ExecutionException e) {
+            throw (null != e.getCause() && e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Download all chunks of a message.
+     * Up to MAX_PARALLEL_CHUNKS requests are pending at same time (on one or more pooled
+     * connections) and each chunk is written to target file at its offset, as soon as it arrives.
+     * A failed chunk is requested again from its offset.
+     */
+    private SocketMessage download(final SocketMessage message,
+                                   final SocketMessage.MessageType type,
+                                   final SocketSettings context) throws Exception {
+        final String uid = message.headers().chunkUid();
+        final long total_size = message.headers().fileSize();
+        final TokenInfo ti = new TokenInfo(total_size, (long) super.chunkSize());
+        final int chunk_count = ti.getChunkCount();
+        final long[] offsets = ti.getChunkOffsets();
+
+        final ChunkFile target = _chunks.createTarget(message);
+        try {
+            final Deque<Integer> queue = new LinkedList<>();
+            for (int i = 1; i <= chunk_count; i++) {
+                queue.add(i);
+            }
+            final int[] attempts = new int[chunk_count + 1];
+            final Deque<ChunkRequest> pending = new LinkedList<>();
+            while (!queue.isEmpty() || !pending.isEmpty()) {
+                while (pending.size() < MAX_PARALLEL_CHUNKS && !queue.isEmpty()) {
+                    final int index = queue.poll();
+                    pending.add(this.requestChunk(message, type, index, chunk_count, offsets[index - 1], context));
+                }
+                final ChunkRequest request = pending.poll();
+                try {
+                    final SocketMessage chunk = request.get(context.timeout());
+                    super.cipher().decode(chunk);
+                    target.write(request._index, request._offset, chunk.body());
+                } catch (Exception e) {
+                    attempts[request._index]++;
+                    if (attempts[request._index] > MAX_CHUNK_RETRIES) {
+                        throw e;
+                    }
+                    // resume from chunk offset
+                    queue.addFirst(request._index);
+                }
+            }
+            return _chunks.compose(message, target, type);
+        } catch (Exception e) {
+            target.close();
+            FileUtils.delete(target.file());
+            throw e;
+        }
+    }
 
-            return this.readData(socket, context);
+    private ChunkRequest requestChunk(final SocketMessage message,
+                                      final SocketMessage.MessageType type,
+                                      final int index,
+                                      final int chunk_count,
+                                      final long offset,
+                                      final SocketSettings context) throws Exception {
+        final SocketMessage request = this.newMessage(context);
+        request.type(SocketMessage.MessageType.Download);
+        request.body(message.headers().chunkUid());
+        request.headers().fileName(message.headers().fileName());
+        request.headers().fileSize(message.headers().fileSize());
+        request.headers().type(type.getValue());
+        request.headers().chunkUid(message.headers().chunkUid());
+        request.headers().chunkIndex(index);
+        request.headers().chunkCount(chunk_count);
+        request.headers().chunkLength(super.chunkSize());
+        request.headers().chunkOffset(offset);
+
+        // encode
+        try {
+            super.cipher().encode(request, request.ownerId());
+        } catch (Throwable t) {
+            super.error("requestChunk", t);
         }
 
+        final SocketBasicClientConnection connection = _pool.connection(context);
+        return new ChunkRequest(index, offset, request, connection, connection.send(request, context.timeout()));
     }
 
-    private SocketMessage readData(final AsynchronousSocketChannel socket,
+    private SocketMessage readData(final SocketMessage message,
                                    final SocketSettings context) throws Exception {
-        // read data
-        final SocketMessage message = SocketUtils.read(socket, context.timeout());
         if (null != message && !message.isHandShake()) {
 
             // decode
@@ -203,34 +303,7 @@ public class SocketBasicClientDispatcher
                 final SocketMessage.MessageType type = StringUtils.hasText(file_name)
                         ? SocketMessage.MessageType.File
                         : SocketMessage.MessageType.Text;
-                final String uid = message.headers().chunkUid();
-                final long total_size = message.headers().fileSize();
-                final TokenInfo ti = new TokenInfo(total_size, (long)super.chunkSize());
-                final long chunk_count = ti.getChunkCount();
-
-                for (int i = 0; i < chunk_count; i++) {
-                    final int index = i + 1;
-
-                    final SocketMessage download_request = this.newMessage(context);
-                    download_request.type(SocketMessage.MessageType.Download);
-                    download_request.body(uid);
-                    download_request.headers().fileName(file_name);
-                    download_request.headers().fileSize(total_size);
-                    download_request.headers().type(type.getValue());
-                    download_request.headers().chunkUid(uid);
-                    download_request.headers().chunkIndex(index);
-                    download_request.headers().chunkCount((int) chunk_count);
-                    download_request.headers().chunkLength(super.chunkSize());
-                    download_request.headers().chunkOffset(ti.getChunkOffsets()[i]);
-
-                    final SocketMessage download_response = this.sendMessage(download_request, context);
-                    if (null != download_response) {
-                        if (_chunks.add(download_response)) {
-                            // composed response
-                            return _chunks.compose(uid);
-                        }
-                    }
-                }
+                return this.download(message, type, context);
             }
 
         }
@@ -238,4 +311,41 @@ public class SocketBasicClientDispatcher
     }
 
 
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    private static class ChunkRequest {
+
+        private final int _index;
+        private final long _offset;
+        private final SocketMessage _message;
+        private final SocketBasicClientConnection _connection;
+        private final CompletableFuture<SocketMessage> _future;
+
+        private ChunkRequest(final int index,
+                             final long offset,
+                             final SocketMessage message,
+                             final SocketBasicClientConnection connection,
+                             final CompletableFuture<SocketMessage> future) {
+            _index = index;
+            _offset = offset;
+            _message = message;
+            _connection = connection;
+            _future = future;
+        }
+
+        private SocketMessage get(final int timeout_ms) throws Exception {
+            try {
+                return _future.get(timeout_ms, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                _connection.cancel(_message);
+                throw e;
+            } catch (ExecutionException e) {
+                throw (null != e.getCause() && e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+            }
+        }
+
+    }
+
 }
@@ -0,0 +1,209 @@
+package org.ly.commons.network.socket.basic.client;
+
+import org.ly.commons.network.socket.SocketLogger;
+import org.ly.commons.network.socket.basic.SocketSettings;
+import org.ly.commons.network.socket.utils.SocketUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent connections of a client.
+ * <p>
+ * A request goes to the connection with less pending requests. A new connection is
+ * open only if all connections are busy and pool is not full, otherwise requests
+ * are pipelined on existing connections.
+ * Connections are opened outside the pool lock: a slow host does not stall requests
+ * to other hosts, and requests to the same host wait for a single pending connect.
+ * Connections idle for more than idle timeout are closed.
+ */
+public class SocketBasicClientPool
+        extends SocketLogger
+        implements AutoCloseable {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final int MIN_CHECK_INTERVAL = 1000;
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final List<SocketBasicClientConnection> _connections;
+    private final Map<String, CompletableFuture<SocketBasicClientConnection>> _connecting; // by host and port
+
+    private int _size;
+    private int _idle_timeout_ms;
+    private ScheduledFuture<?> _idle_check;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public SocketBasicClientPool() {
+        _connections = new ArrayList<>();
+        _connecting = new HashMap<>();
+        _size = SocketSettings.DEFAULT_POOL_SIZE;
+        _idle_timeout_ms = SocketSettings.DEFAULT_IDLE_TIMEOUT;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "{size: " + _size +
+                ", connections: " + _connections + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r o p e r t i e s
+    // ------------------------------------------------------------------------
+
+    public synchronized int size() {
+        return _size;
+    }
+
+    public synchronized SocketBasicClientPool size(final int value) {
+        _size = Math.max(1, value);
+        return this;
+    }
+
+    /**
+     * Number of open connections.
+     */
+    public synchronized int count() {
+        return _connections.size();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get a connection to context host, opening it if needed.
+     * Returned connection is marked as used, so idle check does not close it before the request is sent.
+     */
+    public SocketBasicClientConnection connection(final SocketSettings context) throws Exception {
+        final String key = context.host() + ":" + context.port();
+        final CompletableFuture<SocketBasicClientConnection> pending;
+        synchronized (this) {
+            _idle_timeout_ms = context.idleTimeout();
+
+            SocketBasicClientConnection best = null;
+            int count = 0;
+            final Iterator<SocketBasicClientConnection> iterator = _connections.iterator();
+            while (iterator.hasNext()) {
+                final SocketBasicClientConnection connection = iterator.next();
+                if (!connection.isOpen()) {
+                    iterator.remove();
+                } else if (connection.matches(context)) {
+                    count++;
+                    if (null == best || connection.pending() < best.pending()) {
+                        best = connection;
+                    }
+                }
+            }
+            final CompletableFuture<SocketBasicClientConnection> connecting = _connecting.get(key);
+            if (null != best && (best.pending() == 0 || count >= _size || null != connecting)) {
+                return best.touch();
+            }
+            if (null != connecting) {
+                pending = connecting;
+            } else {
+                // this thread opens the connection
+                pending = null;
+                _connecting.put(key, new CompletableFuture<>());
+            }
+        }
+
+        if (null != pending) {
+            // another thread is connecting to same host
+            try {
+                return pending.get(context.timeout(), TimeUnit.MILLISECONDS).touch();
+            } catch (ExecutionException e) {
+                throw (null != e.getCause() && e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+            }
+        }
+        return this.open(key, context);
+    }
+
+    @Override
+    public synchronized void close() {
+        for (final SocketBasicClientConnection connection : _connections) {
+            connection.close();
+        }
+        _connections.clear();
+        this.cancelIdleCheck();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private SocketBasicClientConnection open(final String key,
+                                             final SocketSettings context) throws Exception {
+        final SocketBasicClientConnection connection;
+        try {
+            connection = new SocketBasicClientConnection(context);
+        } catch (Exception e) {
+            this.connected(key).completeExceptionally(e);
+            throw e;
+        }
+        synchronized (this) {
+            _connections.add(connection);
+            this.scheduleIdleCheck();
+        }
+        this.connected(key).complete(connection);
+        return connection;
+    }
+
+    private synchronized CompletableFuture<SocketBasicClientConnection> connected(final String key) {
+        return _connecting.remove(key);
+    }
+
+    /**
+     * Check runs only while pool has connections, so an unused pool holds no task.
+     */
+    private void scheduleIdleCheck() {
+        if (null == _idle_check) {
+            final long interval = Math.max(MIN_CHECK_INTERVAL, _idle_timeout_ms / 2);
+            _idle_check = SocketUtils.scheduler().scheduleWithFixedDelay(this::closeIdle, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void cancelIdleCheck() {
+        if (null != _idle_check) {
+            _idle_check.cancel(false);
+            _idle_check = null;
+        }
+    }
+
+    private synchronized void closeIdle() {
+        try {
+            final long now = System.currentTimeMillis();
+            final Iterator<SocketBasicClientConnection> iterator = _connections.iterator();
+            while (iterator.hasNext()) {
+                final SocketBasicClientConnection connection = iterator.next();
+                if (!connection.isOpen()) {
+                    iterator.remove();
+                } else if (connection.isIdle(now, _idle_timeout_ms)) {
+                    connection.close();
+                    iterator.remove();
+                }
+            }
+            if (_connections.isEmpty()) {
+                this.cancelIdleCheck();
+            }
+        } catch (Throwable t) {
+            super.error("closeIdle", t);
+        }
+    }
+
+}
@@ -27,6 +27,7 @@ public class SocketMessageHeader
     private static final String FLD_CHUNK_COUNT = "_chunk_count";
     private static final String FLD_CHUNK_OFFSET = "_chunk_offset";
     private static final String FLD_CHUNK_LENGTH = "_chunk_length";
+    private static final String FLD_CORRELATION_ID = "_correlation_id";
 
 
     // ------------------------------------------------------------------------
@@ -144,6 +145,19 @@ public class SocketMessageHeader
         return this;
     }
 
+    /**
+     * Id of a request on a connection.
+     * Response has same id of request, so responses can be sent in any order.
+     */
+    public String correlationId() {
+        return _item.getString(FLD_CORRELATION_ID);
+    }
+
+    public SocketMessageHeader correlationId(final String value) {
+        _item.put(FLD_CORRELATION_ID, value);
+        return this;
+    }
+
     public JsonItem headers() {
         if (!_item.has(FLD_HEADERS)) {
             _item.put(FLD_HEADERS, new JSONObject());
@@ -1,24 +1,56 @@
 package org.ly.commons.network.socket.basic.message;
 
 import org.ly.commons.network.socket.basic.message.impl.SocketMessage;
-import org.lyj.commons.util.ByteUtils;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Read a message and check message integrity.
+ * <p>
+ * Message is decoded while bytes arrive: size of message is known from first bytes,
+ * head (fixed fields and headers) and body are then written each in its own array,
+ * so reading a message costs a single pass over its bytes.
+ * Arrays grow with received bytes up to the declared size (never beyond), so a forged
+ * prefix cannot make the reader allocate memory that peer does not send.
+ * Body is given to the message as is, without a final copy.
+ * Bodies larger than SPILL_SIZE are written to a temporary file instead of memory.
+ * Messages with head or body larger than limits passed to constructor are rejected.
  */
 public class SocketMessageReader
         implements AutoCloseable {
 
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    public static final int SPILL_SIZE = 8 * 1024 * 1024; // bodies larger than this are written to file
+    public static final int DEFAULT_MAX_HEAD_SIZE = 1024 * 1024;
+    public static final long DEFAULT_MAX_BODY_SIZE = 256L * 1024 * 1024; // also max size of spill file
+
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+
     // ------------------------------------------------------------------------
     //                      f i e l d s
     // ------------------------------------------------------------------------
 
-    private final OutputStream _out;
     private final File _out_file;
+    private final byte[] _prefix;
+    private final int _max_head_size;
+    private final long _max_body_size;
+
+    private long _count;      // bytes written
+    private long _length;     // expected message length, -1 until prefix is read
+    private int _head_length;
+    private long _body_length;
+
+    private byte[] _head;
+    private byte[] _body;
+    private File _body_file;
+    private FileChannel _body_channel;
 
-    private boolean _initialized;
     private boolean _complete;
     private Exception _error;
 
@@ -28,60 +60,152 @@ public class SocketMessageReader
     // ------------------------------------------------------------------------
 
     public SocketMessageReader() {
-        _out = new ByteArrayOutputStream();
+        this(DEFAULT_MAX_HEAD_SIZE, DEFAULT_MAX_BODY_SIZE);
+    }
+
+    /**
+     * @param max_head_size Max bytes of message head (fixed fields and headers)
+     * @param max_body_size Max bytes of message body, in memory or spilled to file
+     */
+    public SocketMessageReader(final int max_head_size,
+                               final long max_body_size) {
         _out_file = null;
+        _prefix = new byte[SocketMessage.PREFIX_SIZE];
+        _max_head_size = max_head_size;
+        _max_body_size = max_body_size;
+        _length = -1;
     }
 
     /**
      * Use this constructor for very big messages you do not want to store in memory.
-     * Passing an out_file parameter, the file will be created and all data will be written in file.
+     * Passing an out_file parameter, the file will be created and body will be written in file.
      */
-    public SocketMessageReader(final File out_file) throws FileNotFoundException {
-        _out = new FileOutputStream(out_file);
+    public SocketMessageReader(final File out_file) throws IOException {
         _out_file = out_file;
+        _prefix = new byte[SocketMessage.PREFIX_SIZE];
+        _max_head_size = DEFAULT_MAX_HEAD_SIZE;
+        _max_body_size = Long.MAX_VALUE; // caller chose to receive the body in its own file
+        _length = -1;
+        // fail now if file cannot be created
+        new FileOutputStream(out_file).close();
+    }
+
+    @Override
+    public String toString() {
+        return "{count: " + _count +
+                ", length: " + _length +
+                ", complete: " + _complete +
+                ", on_file: " + (null != _body_channel) +
+                ", error: " + this.errorMessage() + "}";
     }
 
     // ------------------------------------------------------------------------
     //                      s t r e a m
     // ------------------------------------------------------------------------
 
-    public byte[] toByteArray() {
-        try {
-            // flush buffer
-            this.flush();
-
-            if (_out instanceof ByteArrayOutputStream) {
-                return ((ByteArrayOutputStream) _out).toByteArray();
-            } else if (_out instanceof FileOutputStream && null != _out_file) {
-                return ByteUtils.getBytes(_out_file);
+    /**
+     * Whole message bytes.
+     * Messages are read without building this array: use only for debug.
+     */
+    public synchronized byte[] toByteArray() {
+        try (final ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            if (null == _head) {
+                out.write(_prefix, 0, (int) _count);
+            } else {
+                out.write(_head, 0, (int) Math.min(_count, _head_length));
+                if (_count > _head_length) {
+                    out.write(this.body(), 0, (int) Math.min(_count - _head_length, _body_length));
+                }
+                if (_complete) {
+                    out.write(_head[0] == '<' ? '>' : 0);
+                }
             }
+            return out.toByteArray();
         } catch (Throwable ignored) {
         }
         return new byte[0];
     }
 
     public synchronized void write(final int b) throws IOException {
-        _out.write(b);
+        this.write(new byte[]{(byte) b}, 0, 1);
     }
 
     public void write(byte[] b) throws IOException {
-        _out.write(b);
+        this.write(b, 0, b.length);
     }
 
     public synchronized void write(byte[] b, int off, int len) throws IOException {
-        _out.write(b, off, len);
+        while (len > 0 && !_complete && null == _error) {
+            final int size;
+            if (_count < _prefix.length) {
+                // length of message
+                size = (int) Math.min(len, _prefix.length - _count);
+                System.arraycopy(b, off, _prefix, (int) _count, size);
+                if (_count + size == _prefix.length) {
+                    this.init();
+                }
+            } else if (_count < _head_length) {
+                size = (int) Math.min(len, _head_length - _count);
+                _head = grow(_head, (int) _count + size, _head_length);
+                System.arraycopy(b, off, _head, (int) _count, size);
+            } else if (_count < _head_length + _body_length) {
+                size = (int) Math.min(len, _head_length + _body_length - _count);
+                this.writeBody(b, off, size, _count - _head_length);
+            } else {
+                // last byte
+                size = 1;
+                this.end(b[off]);
+            }
+            _count += size;
+            off += size;
+            len -= size;
+        }
+        if (len > 0 && null == _error) {
+            _error = new IOException("Unexpected data after end of message.");
+        }
+    }
+
+    /**
+     * Consume from buffer only bytes of current message.
+     * Following bytes (next pipelined message) are left in buffer.
+     *
+     * @param buffer Buffer ready to be read
+     * @return Number of bytes consumed
+     */
+    public synchronized int write(final ByteBuffer buffer) throws IOException {
+        int result = 0;
+        // missing bytes are known only after prefix
+        int available = (int) Math.min(buffer.remaining(), this.missing());
+        while (available > 0) {
+            if (buffer.hasArray()) {
+                this.write(buffer.array(), buffer.arrayOffset() + buffer.position(), available);
+                buffer.position(buffer.position() + available);
+            } else {
+                final byte[] bytes = new byte[available];
+                buffer.get(bytes);
+                this.write(bytes, 0, available);
+            }
+            result += available;
+            available = (int) Math.min(buffer.remaining(), this.missing());
+        }
+        return result;
     }
 
     public void flush() throws IOException {
-        _out.flush();
+        if (null != _body_channel) {
+            _body_channel.force(false);
+        }
     }
 
-    public void close() throws IOException {
-        _out.flush();
-        _out.close();
-        if (null != _out_file) {
-            if (!_out_file.delete()) {
-                _out_file.deleteOnExit();
+    public synchronized void close() throws IOException {
+        if (null != _body_channel) {
+            _body_channel.close();
+            _body_channel = null;
+        }
+        final File file = null != _body_file ? _body_file : _out_file;
+        if (null != file && file.exists()) {
+            if (!file.delete()) {
+                file.deleteOnExit();
             }
         }
     }
@@ -98,37 +222,152 @@ public class SocketMessageReader
         return this.hasError() ? _error.toString() : "";
     }
 
+    /**
+     * Bytes written so far.
+     */
+    public synchronized long size() {
+        return _count;
+    }
+
+    /**
+     * Expected size of message, -1 if not yet known.
+     */
+    public synchronized long length() {
+        return _length;
+    }
+
     public synchronized boolean isComplete() {
+        return _complete;
+    }
+
+    public synchronized SocketMessage message() {
+        if (!this.hasError() && _complete) {
+            try {
+                return new SocketMessage(_head, this.body());
+            } catch (Exception e) {
+                _error = e;
+            }
+        }
+        return null;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    /**
+     * Bytes still needed to complete the message.
+     */
+    private long missing() {
+        if (_complete || null != _error) {
+            return 0;
+        }
+        return _length < 0 ? _prefix.length - _count : _length - _count;
+    }
+
+    /**
+     * Prefix is read: check declared sizes and prepare space for head and body.
+     * Arrays are allocated small and grow while bytes arrive.
+     */
+    private void init() throws IOException {
+        _length = SocketMessage.decodeMessageLength(_prefix);
+        if (_length < 0) {
+            _error = new IOException("Invalid message format.");
+            return;
+        }
+        _body_length = SocketMessage.decodeBodyLength(_prefix);
+        final long head_length = SocketMessage.decodeHeadLength(_prefix);
+        if (head_length < _prefix.length || head_length > _max_head_size) {
+            _error = new IOException("Message head of " + head_length + " bytes exceeds limit of " + _max_head_size + " bytes.");
+            return;
+        }
+        if (_body_length > _max_body_size) {
+            _error = new IOException("Message body of " + _body_length + " bytes exceeds limit of " + _max_body_size + " bytes.");
+            return;
+        }
+        _head_length = (int) head_length;
+        _head = grow(new byte[0], _prefix.length, _head_length);
+        System.arraycopy(_prefix, 0, _head, 0, _prefix.length);
+
+        if (null == _out_file && _body_length <= SPILL_SIZE) {
+            _body = new byte[0];
+        } else {
+            _body_file = null != _out_file ? _out_file : File.createTempFile("socket_message_", ".tmp");
+            _body_channel = FileChannel.open(_body_file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+    }
+
+    private void writeBody(final byte[] b,
+                           final int off,
+                           final int len,
+                           final long position) throws IOException {
+        if (null != _body) {
+            _body = grow(_body, (int) position + len, (int) _body_length);
+            System.arraycopy(b, off, _body, (int) position, len);
+        } else {
+            final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            long pos = position;
+            while (buffer.hasRemaining()) {
+                pos += _body_channel.write(buffer, pos);
+            }
+        }
+    }
+
+    private void end(final byte value) {
         try {
-            if (!_complete) {
-                _initialized = true;
-                final byte[] bytes = this.toByteArray();
-                _complete = isComplete(bytes);
+            if (SocketMessage.isEnd(value)
+                    && !SocketMessage.MessageType.Undefined.equals(SocketMessage.decodeType(_head))) {
+                _complete = true;
+            } else {
+                _error = new IOException("Invalid message format.");
             }
         } catch (Exception e) {
+            // unknown type
             _error = e;
         }
-        return _complete;
     }
 
-    public synchronized SocketMessage message() {
-        if (!this.hasError()) {
-            if (!_complete && !_initialized) {
-                this.isComplete();
-            }
-            if (_complete) {
-                return new SocketMessage(this.toByteArray());
+    private byte[] body() throws IOException {
+        if (null != _body) {
+            return _body;
+        }
+        if (null != _body_channel) {
+            // spilled body: a single read
+            final byte[] bytes = new byte[(int) Math.min(_count - _head_length, _body_length)];
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long pos = 0;
+            while (buffer.hasRemaining()) {
+                final int read = _body_channel.read(buffer, pos);
+                if (read < 0) {
+                    break;
+                }
+                pos += read;
             }
+            return bytes;
         }
-        return null;
+        return new byte[0];
     }
 
     // ------------------------------------------------------------------------
-    //                      p r i v a t e
+    //                      S T A T I C
     // ------------------------------------------------------------------------
 
-    private static boolean isComplete(final byte[] bytes) {
-        return SocketMessage.isComplete(bytes);
+    /**
+     * Array holding at least required bytes. Capacity doubles and stops at length, so when
+     * message is complete array size is exactly length.
+     */
+    private static byte[] grow(final byte[] array,
+                               final int required,
+                               final int length) {
+        if (array.length >= required) {
+            return array;
+        }
+        final int capacity = (int) Math.min(length, Math.max(required, Math.max(INITIAL_CAPACITY, 2L * array.length)));
+        final byte[] grown = new byte[capacity];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
     }
 
 }
@@ -0,0 +1,151 @@
+package org.ly.commons.network.socket.basic.message.chunks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * File read or written by chunks through a single open channel.
+ * <p>
+ * Chunks are read and written at their offset, so they can be served or received
+ * in any order (parallel transfers) and a failed chunk can be requested again
+ * without restarting the transfer.
+ */
+public class ChunkFile
+        implements AutoCloseable {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final File _file;
+    private final FileChannel _channel;
+    private final BitSet _received;  // indexes of written chunks
+
+    private volatile long _last_used;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    private ChunkFile(final File file,
+                      final FileChannel channel) {
+        _file = file;
+        _channel = channel;
+        _received = new BitSet();
+        _last_used = System.currentTimeMillis();
+    }
+
+    @Override
+    public String toString() {
+        return "{file: " + _file +
+                ", open: " + this.isOpen() + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r o p e r t i e s
+    // ------------------------------------------------------------------------
+
+    public File file() {
+        return _file;
+    }
+
+    public long size() throws IOException {
+        return _channel.size();
+    }
+
+    public boolean isOpen() {
+        return _channel.isOpen();
+    }
+
+    public boolean isIdle(final long now,
+                          final long idle_timeout_ms) {
+        return now - _last_used > idle_timeout_ms;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    /**
+     * Read a chunk. Returned array is smaller than len at end of file.
+     */
+    public byte[] read(final long offset,
+                       final int len) throws IOException {
+        _last_used = System.currentTimeMillis();
+        final long available = Math.max(0, _channel.size() - offset);
+        final byte[] bytes = new byte[(int) Math.min(len, available)];
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            final int count = _channel.read(buffer, position);
+            if (count < 0) {
+                break;
+            }
+            position += count;
+        }
+        return bytes;
+    }
+
+    /**
+     * Write a chunk at its offset.
+     *
+     * @param index Index of chunk (starting from 1), used to know when all chunks are received.
+     */
+    public void write(final int index,
+                      final long offset,
+                      final byte[] bytes) throws IOException {
+        _last_used = System.currentTimeMillis();
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += _channel.write(buffer, position);
+        }
+        synchronized (_received) {
+            _received.set(index);
+        }
+    }
+
+    public boolean isReceived(final int index) {
+        synchronized (_received) {
+            return _received.get(index);
+        }
+    }
+
+    /**
+     * @param count Number of chunks (indexes from 1 to count)
+     */
+    public boolean isComplete(final int count) {
+        synchronized (_received) {
+            return _received.nextClearBit(1) > count;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            _channel.close();
+        } catch (Throwable ignored) {
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    public static ChunkFile openRead(final File file) throws IOException {
+        return new ChunkFile(file, FileChannel.open(file.toPath(), StandardOpenOption.READ));
+    }
+
+    /**
+     * Open a file to receive chunks. Existing content is kept, so a transfer can resume.
+     */
+    public static ChunkFile openWrite(final File file) throws IOException {
+        return new ChunkFile(file, FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ));
+    }
+
+}
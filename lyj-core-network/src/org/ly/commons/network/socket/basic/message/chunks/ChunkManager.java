@@ -1,10 +1,12 @@
 package org.ly.commons.network.socket.basic.message.chunks;
 
 import org.ly.commons.network.socket.basic.message.impl.SocketMessage;
+import org.ly.commons.network.socket.utils.SocketUtils;
 import org.lyj.commons.Delegates;
 import org.lyj.commons.async.Async;
 import org.lyj.commons.tokenizers.TokenInfo;
 import org.lyj.commons.tokenizers.files.FileTokenizer;
+import org.lyj.commons.util.ByteUtils;
 import org.lyj.commons.util.FileUtils;
 import org.lyj.commons.util.PathUtils;
 import org.lyj.commons.util.RandomUtils;
@@ -12,15 +14,26 @@ import org.lyj.commons.util.StringUtils;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class ChunkManager {
 
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final int OPEN_FILE_TIMEOUT = 30 * 1000; // files not read for 30 seconds are closed
+
     // ------------------------------------------------------------------------
     //                      f i e l d s
     // ------------------------------------------------------------------------
 
     private final Map<String, ChunkList> _chunks;
     private final ChunkCache _chunk_cache;
+    private final Map<String, ChunkFile> _open_files; // files being downloaded
+
+    private ScheduledFuture<?> _idle_check;
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
@@ -29,6 +42,7 @@ public class ChunkManager {
     private ChunkManager() {
         _chunks = Collections.synchronizedMap(new HashMap<>());
         _chunk_cache = new ChunkCache();
+        _open_files = new HashMap<>();
     }
 
     // ------------------------------------------------------------------------
@@ -41,6 +55,13 @@ public class ChunkManager {
 
     public void close() {
         _chunk_cache.close();
+        synchronized (_open_files) {
+            for (final ChunkFile file : _open_files.values()) {
+                file.close();
+            }
+            _open_files.clear();
+            this.cancelIdleCheck();
+        }
     }
 
     /**
@@ -79,6 +100,57 @@ public class ChunkManager {
         return _chunk_cache.getBytes(cache_key, skip, len);
     }
 
+    /**
+     * Read a chunk of a file to download.
+     * File stays open for next chunks: it is closed after some time it is not used.
+     *
+     * @param uid       Chunk uid. If equals to file_name, file is in chunk cache.
+     * @param file_name Name of file or chunk uid
+     */
+    public byte[] read(final String uid,
+                       final String file_name,
+                       final long offset,
+                       final int len) throws IOException {
+        final File file = uid.equalsIgnoreCase(file_name) ? _chunk_cache.getFile(uid) : new File(file_name);
+        if (null == file || !file.exists()) {
+            return new byte[0];
+        }
+        return this.openRead(file).read(offset, len);
+    }
+
+    /**
+     * Create a temp file to receive chunks of a downloaded message.
+     */
+    public ChunkFile createTarget(final SocketMessage message) throws IOException {
+        return ChunkFile.openWrite(new File(getTempFileName(message)));
+    }
+
+    /**
+     * Compose a downloaded message.
+     *
+     * @param message Download message
+     * @param target  File containing all chunks
+     * @param type    Type of downloaded message: File or Text
+     */
+    public SocketMessage compose(final SocketMessage message,
+                                 final ChunkFile target,
+                                 final SocketMessage.MessageType type) throws IOException {
+        target.close();
+        final SocketMessage response = new SocketMessage(message.ownerId());
+        response.headers().putAll(message.headers());
+        response.type(type);
+        if (SocketMessage.MessageType.File.equals(type) || SocketMessage.MessageType.Binary.equals(type)) {
+            final String temp_file_name = target.file().getAbsolutePath();
+            response.headers().fileName(temp_file_name);
+            response.body(PathUtils.getFilename(temp_file_name, true));
+        } else {
+            // small text: move to body
+            response.body(ByteUtils.getBytes(target.file()));
+            FileUtils.delete(target.file());
+        }
+        return response;
+    }
+
     public boolean isComplete(final String chunk_uid) {
         synchronized (_chunks) {
             if (_chunks.containsKey(chunk_uid)) {
@@ -198,12 +270,12 @@ public class ChunkManager {
 
         final TokenInfo ti = new TokenInfo((long) info.length, (long) chunk_size);
 
-        if (!message.isFile()) {
-            // remove filename if any
-            message.headers().fileName(uid);
+        try (final InputStream is = info.input_stream) {
+            if (!message.isFile()) {
+                // remove filename if any
+                message.headers().fileName(uid);
 
-            // save content to cache for later download
-            try (final InputStream is = info.input_stream) {
+                // save content to cache for later download
                 _chunk_cache.put(uid, is);
             }
         }
@@ -221,6 +293,50 @@ public class ChunkManager {
     //                      p r i v a t e
     // ------------------------------------------------------------------------
 
+    private ChunkFile openRead(final File file) throws IOException {
+        final String key = file.getAbsolutePath();
+        synchronized (_open_files) {
+            ChunkFile chunk_file = _open_files.get(key);
+            if (null == chunk_file || !chunk_file.isOpen()) {
+                chunk_file = ChunkFile.openRead(file);
+                _open_files.put(key, chunk_file);
+                this.scheduleIdleCheck();
+            }
+            return chunk_file;
+        }
+    }
+
+    private void scheduleIdleCheck() {
+        if (null == _idle_check) {
+            _idle_check = SocketUtils.scheduler().scheduleWithFixedDelay(this::closeIdle,
+                    OPEN_FILE_TIMEOUT, OPEN_FILE_TIMEOUT / 2, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void cancelIdleCheck() {
+        if (null != _idle_check) {
+            _idle_check.cancel(false);
+            _idle_check = null;
+        }
+    }
+
+    private void closeIdle() {
+        synchronized (_open_files) {
+            final long now = System.currentTimeMillis();
+            final Iterator<ChunkFile> iterator = _open_files.values().iterator();
+            while (iterator.hasNext()) {
+                final ChunkFile file = iterator.next();
+                if (!file.isOpen() || file.isIdle(now, OPEN_FILE_TIMEOUT)) {
+                    file.close();
+                    iterator.remove();
+                }
+            }
+            if (_open_files.isEmpty()) {
+                this.cancelIdleCheck();
+            }
+        }
+    }
+
     private String getTempFileName(final SocketMessage message) {
         String response = PathUtils.getTemporaryFile(RandomUtils.randomUUID(true) + ".tmp");
         if (StringUtils.hasText(message.headers().fileName())) {
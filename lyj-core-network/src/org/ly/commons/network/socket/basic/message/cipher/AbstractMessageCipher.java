@@ -5,6 +5,8 @@ import org.ly.commons.network.socket.basic.message.impl.SocketMessage;
 import org.lyj.commons.cryptograph.mixed.MixedCipher;
 import org.lyj.commons.cryptograph.pem.RSAHelper;
 
+import javax.crypto.SecretKey;
+
 public abstract class AbstractMessageCipher
         extends SocketLogger {
 
@@ -20,6 +22,7 @@ public abstract class AbstractMessageCipher
 
     private final String _name;
     private final KeyManager _keys;
+    private final SessionKeyCache _sessions;
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
@@ -28,6 +31,7 @@ public abstract class AbstractMessageCipher
     public AbstractMessageCipher(final String name) {
         _name = name;
         _keys = new KeyManager(ROOT, name);
+        _sessions = new SessionKeyCache();
 
         this.init();
     }
@@ -57,6 +61,13 @@ public abstract class AbstractMessageCipher
         return this.publicKey().getBytes();
     }
 
+    /**
+     * Session keys: use to change rotation of keys.
+     */
+    public SessionKeyCache sessions() {
+        return _sessions;
+    }
+
     // ------------------------------------------------------------------------
     //                      p r o t e c t e d
     // ------------------------------------------------------------------------
@@ -92,6 +103,24 @@ public abstract class AbstractMessageCipher
         return MixedCipher.decrypt(pack, decode_key);
     }
 
+    //-- session --//
+
+    /**
+     * Encrypt data with session key of owner: asymmetric encryption only when session starts.
+     */
+    protected MixedCipher.Pack encryptSession(final byte[] data,
+                                              final String owner_id,
+                                              final String encode_key) throws Exception {
+        return MixedCipher.encrypt(data, _sessions.outbound(owner_id, encode_key));
+    }
+
+    protected byte[] decryptSession(final byte[] signature,
+                                    final byte[] data,
+                                    final String decode_key) throws Exception {
+        final SecretKey secret = _sessions.inbound(signature, RSAHelper.getRSAPrivateKey(decode_key));
+        return MixedCipher.decrypt(new MixedCipher.Pack(signature, data), secret);
+    }
+
     // ------------------------------------------------------------------------
     //                      p r i v a t e
     // ------------------------------------------------------------------------
@@ -0,0 +1,183 @@
+package org.ly.commons.network.socket.basic.message.cipher;
+
+import org.lyj.commons.cryptograph.mixed.MixedCipher;
+import org.lyj.commons.cryptograph.mixed.SessionKey;
+
+import javax.crypto.SecretKey;
+import java.security.PrivateKey;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Session keys of a cipher.
+ * <p>
+ * Outbound: one session key for each receiver (owner id). Secret is encrypted with
+ * receiver public key only when session starts or is rotated.
+ * Inbound: secrets already decrypted, by encrypted secret, so a receiver does
+ * asymmetric decryption only once for each session of a sender.
+ * Sender is free to rotate session keys: an unknown encrypted secret is just decrypted.
+ */
+public class SessionKeyCache {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    public static final long DEFAULT_MAX_AGE = 10 * 60 * 1000; // 10 minutes
+    public static final long DEFAULT_MAX_USES = 100000;
+
+    private static final int MAX_INBOUND = 1024;
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final Map<String, Outbound> _outbound;
+    private final Map<String, SecretKey> _inbound;
+
+    private long _max_age;
+    private long _max_uses;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public SessionKeyCache() {
+        _outbound = new ConcurrentHashMap<>();
+        _inbound = new LinkedHashMap<String, SecretKey>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, SecretKey> eldest) {
+                return size() > MAX_INBOUND;
+            }
+        };
+        _max_age = DEFAULT_MAX_AGE;
+        _max_uses = DEFAULT_MAX_USES;
+    }
+
+    @Override
+    public String toString() {
+        return "{outbound: " + _outbound.size() +
+                ", inbound: " + this.inboundSize() +
+                ", max_age: " + _max_age +
+                ", max_uses: " + _max_uses + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r o p e r t i e s
+    // ------------------------------------------------------------------------
+
+    public long maxAge() {
+        return _max_age;
+    }
+
+    /**
+     * Milliseconds before an outbound session key is replaced. 0 = never.
+     */
+    public SessionKeyCache maxAge(final long value) {
+        _max_age = value;
+        return this;
+    }
+
+    public long maxUses() {
+        return _max_uses;
+    }
+
+    /**
+     * Number of messages before an outbound session key is replaced. 0 = never.
+     */
+    public SessionKeyCache maxUses(final long value) {
+        _max_uses = value;
+        return this;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    /**
+     * Session key to encode messages for an owner.
+     * A new session starts if there is none, if current one expired or if public key
+     * of owner changed.
+     */
+    public SessionKey outbound(final String owner_id,
+                               final String public_key) throws Exception {
+        final Outbound current = _outbound.get(owner_id);
+        if (null != current && current.matches(public_key, _max_age, _max_uses)) {
+            return current.session();
+        }
+        final Outbound created = new Outbound(public_key, SessionKey.create(public_key));
+        _outbound.put(owner_id, created);
+        return created.session();
+    }
+
+    /**
+     * Secret to decode an inbound message.
+     */
+    public SecretKey inbound(final byte[] encoded_secret,
+                             final PrivateKey private_key) throws Exception {
+        final String key = Base64.getEncoder().encodeToString(encoded_secret);
+        synchronized (_inbound) {
+            final SecretKey secret = _inbound.get(key);
+            if (null != secret) {
+                return secret;
+            }
+        }
+        // decrypt out of lock: other threads can use cache meanwhile
+        final SecretKey secret = MixedCipher.decryptSecret(encoded_secret, private_key);
+        synchronized (_inbound) {
+            _inbound.put(key, secret);
+        }
+        return secret;
+    }
+
+    public void remove(final String owner_id) {
+        _outbound.remove(owner_id);
+    }
+
+    public void clear() {
+        _outbound.clear();
+        synchronized (_inbound) {
+            _inbound.clear();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private int inboundSize() {
+        synchronized (_inbound) {
+            return _inbound.size();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    private static class Outbound {
+
+        private final String _public_key;
+        private final SessionKey _session;
+
+        private Outbound(final String public_key,
+                         final SessionKey session) {
+            _public_key = public_key;
+            _session = session;
+        }
+
+        private SessionKey session() {
+            return _session;
+        }
+
+        private boolean matches(final String public_key,
+                                final long max_age,
+                                final long max_uses) {
+            return _public_key.equals(public_key) && !_session.isExpired(max_age, max_uses);
+        }
+
+    }
+
+}
@@ -9,6 +9,12 @@ import org.lyj.commons.util.StringUtils;
 public class ClientCipher
         extends AbstractMessageCipher {
 
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final String SERVER = "server"; // client has a single receiver
+
     // ------------------------------------------------------------------------
     //                      f i e l d s
     // ------------------------------------------------------------------------
@@ -54,11 +60,8 @@ public class ClientCipher
                 if (StringUtils.hasText(encode_key)) {
 
                     if(SocketSettings.CHUNK_SIZE>100) {
-                        //-- mixed --//
-                        final MixedCipher.Pack pack = new MixedCipher.Pack();
-                        pack.encodedSecret(message.signature());
-                        pack.encodedData(message.body());
-                        message.body(super.decryptMix(pack, _decode_key));
+                        //-- mixed with session key --//
+                        message.body(super.decryptSession(message.signature(), message.body(), _decode_key));
                     } else {
                         // encrypt the body using a public key
                         message.body(super.decryptAsym(message.body(), _decode_key));
@@ -79,8 +82,8 @@ public class ClientCipher
             if ( StringUtils.hasText(encode_key) ) {
 
                 if(SocketSettings.CHUNK_SIZE>100){
-                    //-- mixed encryption --//
-                    final MixedCipher.Pack pack = super.encryptMix(message.body(), encode_key);
+                    //-- mixed encryption with session key of server --//
+                    final MixedCipher.Pack pack = super.encryptSession(message.body(), SERVER, encode_key);
                     message.body(pack.encodedData());
                     message.signature(pack.encodedSecret());
                 } else {
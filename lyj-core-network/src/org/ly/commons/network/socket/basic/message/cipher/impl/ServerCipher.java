@@ -57,8 +57,8 @@ public class ServerCipher
             if (StringUtils.hasText(encode_key)) {
 
                 if (SocketSettings.CHUNK_SIZE > 100) {
-                    //-- mixed encryption --//
-                    message.body(super.decryptMix(message.signature(), message.body(), _decode_key));
+                    //-- mixed encryption with session key --//
+                    message.body(super.decryptSession(message.signature(), message.body(), _decode_key));
                 } else {
                     // encrypt the body using a public key
                     message.body(super.decryptAsym(message.body(), _decode_key));
@@ -77,8 +77,8 @@ public class ServerCipher
             if (StringUtils.hasText(encode_key)) {
 
                 if (SocketSettings.CHUNK_SIZE > 100) {
-                    //-- mixed encryption --//
-                    final MixedCipher.Pack pack = super.encryptMix(message.body(), encode_key);
+                    //-- mixed encryption with session key of owner --//
+                    final MixedCipher.Pack pack = super.encryptSession(message.body(), key_index, encode_key);
                     message.body(pack.encodedData());
                     message.signature(pack.encodedSecret());
                 } else {
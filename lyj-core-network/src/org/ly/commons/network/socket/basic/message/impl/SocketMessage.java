@@ -77,6 +77,11 @@ public class SocketMessage {
     private static final int HEADERS_SIZE = MSG_START.length + MSG_END.length +
             TYPE_SIZE + BODY_LENGHT_SIZE + HEADER_LENGHT_SIZE + HASH_SIZE + SIGNATURE_SIZE + OWNER_SIZE;
 
+    /**
+     * Bytes needed to know the size of a message: start, body length and header length.
+     */
+    public static final int PREFIX_SIZE = HEADER_LENGHT_POS_END;
+
     private static final byte[] UNSIGNED = StringUtils.fillString("", " ", SIGNATURE_SIZE).getBytes();
 
     // ------------------------------------------------------------------------
@@ -110,6 +115,20 @@ public class SocketMessage {
         this.parse(message);
     }
 
+    /**
+     * Create a message from its parts, already split by a reader.
+     * Body array is used as is, not copied.
+     *
+     * @param head Message start, fixed header fields and headers (see headLength())
+     * @param body Message body
+     */
+    public SocketMessage(final byte[] head,
+                         final byte[] body) {
+        _headers = new SocketMessageHeader();
+        this.init();
+        this.decode(head, body);
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
@@ -430,6 +449,27 @@ public class SocketMessage {
         }
     }
 
+    private void decode(final byte[] head,
+                        final byte[] body) {
+        if (hasStart(head)) {
+            final long header_length = decodeHeaderLength(head);
+            this.setType(decodeType(head));
+            if (head.length == HEADERS_POS_START + header_length && !MessageType.Undefined.equals(this.type())) {
+                _body_length = body.length;
+
+                _signature = decodeSignature(head);
+                _hash = decodeHash(head);
+                _owner_id = decodeOwnerId(head);
+
+                // set the header
+                _headers.putAll(new SocketMessageHeader(new String(decodeHeaders(head, (int) header_length))));
+
+                // set the body
+                this.setBody(body, false);
+            }
+        }
+    }
+
     // ------------------------------------------------------------------------
     //                      S T A T I C
     // ------------------------------------------------------------------------
@@ -467,6 +507,40 @@ public class SocketMessage {
         return HEADERS_SIZE + body.length + (null != header ? header.length() : 0);
     }
 
+    /**
+     * Size of whole message, decoded from first PREFIX_SIZE bytes.
+     *
+     * @return -1 if prefix is incomplete or invalid
+     */
+    public static long decodeMessageLength(final byte[] prefix) {
+        if (prefix.length >= PREFIX_SIZE && hasStart(prefix)) {
+            try {
+                final long body_length = decodeBodyLength(prefix);
+                final long header_length = decodeHeaderLength(prefix);
+                if (body_length > -1 && header_length > -1) {
+                    return HEADERS_SIZE + header_length + body_length;
+                }
+            } catch (NumberFormatException ignored) {
+                // not a message
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Size of message start, fixed header fields and headers: the part of a message before body.
+     *
+     * @return -1 if prefix is incomplete or invalid
+     */
+    public static long decodeHeadLength(final byte[] prefix) {
+        final long length = decodeMessageLength(prefix);
+        return length > -1 ? length - decodeBodyLength(prefix) - MSG_END.length : -1;
+    }
+
+    public static boolean isEnd(final byte value) {
+        return MSG_END[0] == value;
+    }
+
     public static boolean hasStart(final byte[] message) {
         if (message.length > 1) {
             return startWith(message, MSG_START);
@@ -4,6 +4,7 @@ import org.ly.commons.network.socket.SocketLogger;
 import org.ly.commons.network.socket.basic.SocketSettings;
 import org.ly.commons.network.socket.basic.message.chunks.ChunkManager;
 import org.ly.commons.network.socket.basic.message.impl.SocketMessage;
+import org.ly.commons.network.socket.utils.SocketThreadFactory;
 import org.lyj.commons.async.Async;
 import org.lyj.commons.cryptograph.MD5;
 import org.lyj.commons.cryptograph.SecurityMessageDigester;
@@ -13,9 +14,11 @@ import org.lyj.commons.util.json.JsonItem;
 
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.nio.channels.AsynchronousChannelGroup;
 import java.nio.channels.AsynchronousServerSocketChannel;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 public class SocketBasicServer
@@ -36,6 +39,8 @@ public class SocketBasicServer
         void handle(final ChannelInfo data, final SocketMessage request, final SocketMessage response);
     }
 
+    private static final String THREAD_NAME = "lyj-socket-server";
+
     // ------------------------------------------------------------------------
     //                      f i e l d s
     // ------------------------------------------------------------------------
@@ -44,9 +49,16 @@ public class SocketBasicServer
     private ExecutorService _service_alive;
     private int _port;
     private int _timeout_ms;
+    private int _idle_timeout_ms;
     private String _charset;
 
+    private int _threads;
+    private ExecutorService _executor;
+
     private AsynchronousServerSocketChannel _listener;
+    private AsynchronousChannelGroup _group;
+    private SocketBasicServerHandler _handler;
+    private ExecutorService _own_executor;
 
     private SocketBasicServer.OpenCloseCallback _callback_on_channel_open;
     private SocketBasicServer.OpenCloseCallback _callback_on_channel_close;
@@ -60,6 +72,7 @@ public class SocketBasicServer
         _uid = "server_".concat(RandomUtils.randomUUID());
         _port = SocketSettings.DEFAULT_PORT;
         _timeout_ms = SocketSettings.DEFAULT_TIMEOUT;
+        _idle_timeout_ms = SocketSettings.DEFAULT_IDLE_TIMEOUT;
         _charset = CharEncoding.UTF_8;
     }
 
@@ -100,6 +113,52 @@ public class SocketBasicServer
         return this;
     }
 
+    public int idleTimeout() {
+        return _idle_timeout_ms;
+    }
+
+    /**
+     * Client connections with no messages for this time are closed.
+     */
+    public SocketBasicServer idleTimeout(final int value) {
+        _idle_timeout_ms = value;
+        return this;
+    }
+
+    public int threads() {
+        return _threads;
+    }
+
+    /**
+     * I/O threads serving all connections. Zero to use default group of JVM.
+     * Threads never wait on a connection, so a few threads serve many connections.
+     */
+    public SocketBasicServer threads(final int value) {
+        _threads = value;
+        return this;
+    }
+
+    public ExecutorService executor() {
+        return _executor;
+    }
+
+    /**
+     * Executor running message callback (and decoding, encoding) of requests.
+     * If not set, server uses its own cached thread pool.
+     * An executor passed here is not shut down when server is closed.
+     */
+    public SocketBasicServer executor(final ExecutorService value) {
+        _executor = value;
+        return this;
+    }
+
+    /**
+     * Number of open connections.
+     */
+    public int connections() {
+        return null != _handler ? _handler.count() : 0;
+    }
+
     public String charset() {
         return _charset;
     }
@@ -117,17 +176,27 @@ public class SocketBasicServer
         try {
             // cretes chunk manager
             ChunkManager.instance().open();
+            // requests of all connections are handled here
+            if (null == _executor) {
+                _own_executor = Executors.newCachedThreadPool(new SocketThreadFactory(THREAD_NAME));
+            }
+            if (_threads > 0) {
+                _group = AsynchronousChannelGroup.withFixedThreadPool(_threads, new SocketThreadFactory(THREAD_NAME + "-io"));
+            }
             // Create an AsynchronousServerSocketChannel that will listen on port 5000
-            _listener = AsynchronousServerSocketChannel.open().bind(new InetSocketAddress(_port));
+            _listener = AsynchronousServerSocketChannel.open(_group).bind(new InetSocketAddress(_port));
+            _handler = new SocketBasicServerHandler(_listener)
+                    .executor(null != _executor ? _executor : _own_executor)
+                    .onChannelOpen(this::handleChannelOpen)
+                    .onChannelClose(this::handleChannelClose)
+                    .onChannelMessage(this::handleChannelMessage);
             _listener.accept(
                     new SocketSettings(_uid)
                             .port(this.port())
                             .charset(this.charset())
-                            .timeout(this.timeout()),
-                    new SocketBasicServerHandler(_listener)
-                            .onChannelOpen(this::handleChannelOpen)
-                            .onChannelClose(this::handleChannelClose)
-                            .onChannelMessage(this::handleChannelMessage)
+                            .timeout(this.timeout())
+                            .idleTimeout(this.idleTimeout()),
+                    _handler
             );
 
             _service_alive = Async.serviceAlive();
@@ -152,6 +221,24 @@ public class SocketBasicServer
         } finally {
             _listener = null;
         }
+        try {
+            if (null != _handler) {
+                _handler.close();
+            }
+        } catch (Throwable ignored) {
+
+        } finally {
+            _handler = null;
+        }
+        try {
+            if (null != _group) {
+                _group.shutdownNow();
+            }
+        } catch (Throwable ignored) {
+
+        } finally {
+            _group = null;
+        }
         try {
             if (null != _service_alive) {
                 _service_alive.shutdown();
@@ -161,6 +248,15 @@ public class SocketBasicServer
         } finally {
             _service_alive = null;
         }
+        try {
+            if (null != _own_executor) {
+                _own_executor.shutdown();
+            }
+        } catch (Throwable ignored) {
+
+        } finally {
+            _own_executor = null;
+        }
     }
 
     // ------------------------------------------------------------------------
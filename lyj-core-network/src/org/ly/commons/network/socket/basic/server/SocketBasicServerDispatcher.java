@@ -10,8 +10,6 @@ import org.lyj.commons.util.StringUtils;
 
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousSocketChannel;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 
 public class SocketBasicServerDispatcher
         extends AbstractMessageDispatcher {
@@ -51,17 +49,45 @@ public class SocketBasicServerDispatcher
                       final SocketSettings context,
                       final SocketMessage message,
                       final String owner_id) throws Exception {
+        SocketUtils.write(socket, this.encode(context, message, owner_id), context.timeout());
+    }
+
+    /**
+     * Decode body of a message read from a client.
+     */
+    public SocketMessage decode(final SocketMessage message) {
+        if (null != message && !message.isHandShake()) {
+
+            // decode
+            try {
+                super.cipher().decode(message);
+            } catch (Throwable t) {
+                super.error("decode", t);
+            }
+
+        }
+        return message;
+    }
 
+    /**
+     * Prepare a message to be written: large messages are moved to cache for download and
+     * body is encoded for the owner.
+     * Encoding is separated from writing, so many responses can be encoded in parallel
+     * and written to same connection one at time.
+     */
+    public ByteBuffer encode(final SocketSettings context,
+                             final SocketMessage message,
+                             final String owner_id) throws Exception {
         if (message.bodyLength() > super.chunkSize() || message.isFile()) {
 
             // tokenize data into cache
             final SocketMessage download_message = ChunkManager.instance().splitToCache(message, super.chunkSize());
 
-            // write download message data
-            this.writeData(socket, context, download_message, owner_id, context.timeout());
+            // encode download message data
+            return this.encodeData(download_message, owner_id);
         } else {
-            // write data
-            this.writeData(socket, context, message, owner_id, context.timeout());
+            // encode data
+            return this.encodeData(message, owner_id);
         }
     }
 
@@ -76,27 +102,12 @@ public class SocketBasicServerDispatcher
     private SocketMessage readData(final AsynchronousSocketChannel socket,
                                    final SocketSettings context) throws Exception {
         // read data
-
         final SocketMessage message = SocketUtils.read(socket, context.timeout());
-        if (null != message && !message.isHandShake()) {
-
-            // decode
-            try {
-                super.cipher().decode(message);
-            } catch (Throwable t) {
-                super.error("decode", t);
-            }
-
-        }
-        return message;
-
+        return this.decode(message);
     }
 
-    private void writeData(final AsynchronousSocketChannel socket,
-                           final SocketSettings context,
-                           final SocketMessage message,
-                           final String owner_id,
-                           final int timeout_ms) throws Exception {
+    private ByteBuffer encodeData(final SocketMessage message,
+                                  final String owner_id) {
 
         if (!message.isHandShake()) {
 
@@ -108,11 +119,7 @@ public class SocketBasicServerDispatcher
             }
         }
 
-        final ByteBuffer send_buffer = ByteBuffer.wrap(message.bytes());
-        final Future<Integer> futureWriteResult = socket.write(send_buffer);
-        futureWriteResult.get(timeout_ms, TimeUnit.MILLISECONDS);
-        send_buffer.clear();
-
+        return ByteBuffer.wrap(message.bytes());
     }
 
 }
@@ -2,19 +2,29 @@ package org.ly.commons.network.socket.basic.server;
 
 import org.ly.commons.network.socket.SocketLogger;
 import org.ly.commons.network.socket.basic.SocketSettings;
+import org.ly.commons.network.socket.basic.message.SocketMessageReader;
 import org.ly.commons.network.socket.basic.message.chunks.ChunkManager;
 import org.ly.commons.network.socket.basic.message.cipher.impl.ServerCipher;
 import org.ly.commons.network.socket.basic.message.impl.SocketMessage;
 import org.ly.commons.network.socket.basic.message.impl.SocketMessageHandShake;
-import org.lyj.commons.util.ByteUtils;
+import org.ly.commons.network.socket.utils.SocketUtils;
 import org.lyj.commons.util.StringUtils;
 
-import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousServerSocketChannel;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.CompletionHandler;
-import java.util.concurrent.ExecutionException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SocketBasicServerHandler
         extends SocketLogger
@@ -25,6 +35,8 @@ public class SocketBasicServerHandler
     //                      c o n s t
     // ------------------------------------------------------------------------
 
+    private static final int MAX_PIPELINED = 64; // requests of a connection in progress before reading is paused
+    private static final int MIN_CHECK_INTERVAL = 1000;
 
     // ------------------------------------------------------------------------
     //                      f i e l d s
@@ -33,12 +45,14 @@ public class SocketBasicServerHandler
     private final AsynchronousServerSocketChannel _listener;
     private final SocketBasicServerDispatcher _dispatcher;
     private final ChunkManager _chunks;
+    private final Set<Connection> _connections;
 
     private SocketBasicServer.OpenCloseCallback _callback_on_channel_open;
     private SocketBasicServer.OpenCloseCallback _callback_on_channel_close;
     private SocketBasicServer.MessageCallback _callback_on_channel_message;
 
-    private boolean _closed;
+    private ExecutorService _executor;
+    private ScheduledFuture<?> _idle_check;
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
@@ -47,7 +61,7 @@ public class SocketBasicServerHandler
     public SocketBasicServerHandler(final AsynchronousServerSocketChannel listener) {
         _chunks = ChunkManager.instance();
         _listener = listener;
-        _closed = false;
+        _connections = ConcurrentHashMap.newKeySet();
 
         _dispatcher = new SocketBasicServerDispatcher();
     }
@@ -71,124 +85,198 @@ public class SocketBasicServerHandler
         return this;
     }
 
+    /**
+     * Executor running decode, message callback and encode of requests.
+     * If null, requests are handled in I/O threads and callback must never block.
+     */
+    public SocketBasicServerHandler executor(final ExecutorService value) {
+        _executor = value;
+        return this;
+    }
+
+    /**
+     * Number of open connections.
+     */
+    public int count() {
+        return _connections.size();
+    }
+
     // ------------------------------------------------------------------------
     //                      p u b l i c
     // ------------------------------------------------------------------------
 
+    /**
+     * A new connection is open.
+     * No thread waits on the connection: reads and writes complete in callbacks, so
+     * a few I/O threads serve any number of connections, slow clients included.
+     * Connection is persistent: many messages are read until client closes it or it is idle
+     * for more than idle timeout. Each request is handled in executor, so client can send
+     * more requests without waiting for responses, that are written as soon as they
+     * are ready, in any order, each with the correlation id of its request.
+     */
     @Override
     public void completed(final AsynchronousSocketChannel channel,
                           final SocketSettings server_context) {
 
-        this.doChannelOpen(channel, server_context);
-
         // listen for nex connection
         if (null != _listener && _listener.isOpen()) {
             _listener.accept(server_context, this);
         }
 
-        try {
+        final Connection connection = new Connection(channel, server_context);
+        _connections.add(connection);
+        this.scheduleIdleCheck(server_context);
+        this.doChannelOpen(connection);
 
-            // wait for client message
-            final SocketMessage request = _dispatcher.read(channel, server_context);
-            if (null != request) {
-                // get client id from message
-                final String client_id = request.ownerId();
-
-                if (request.isHandShake()) {
-                    final String encode_key = new String(request.body(), server_context.charset());
-
-                    ((ServerCipher) _dispatcher.cipher()).encodeKey(client_id, encode_key);
-
-                    final SocketMessageHandShake response = new SocketMessageHandShake(server_context.uid());
-                    response.signature(_dispatcher.cipher().signature());
-
-                    _dispatcher.write(channel, server_context, response, "");
-                } else {
-                    if (null == _callback_on_channel_message) {
-                        // ECHO
-                        final SocketMessage response = new SocketMessage(server_context.uid());
-                        response.body(request.body());
-                        _dispatcher.write(channel, server_context, response, client_id);
-                    } else {
-                        final SocketMessage response = this.doChannelMessage(channel, server_context, request);
-                        _dispatcher.write(channel, server_context, response, client_id);
-                    }
-                }
-            } else {
-                // unable to read the request
-                super.warning("completed", "UNABLE TO READ REQUEST: Invalid request format.");
-            }
+        // wait for client messages
+        connection.read();
+    }
 
+    @Override
+    public void failed(final Throwable exc, final SocketSettings attachment) {
+        // System.out.println("FAILED: " + exc + ". "  );
+    }
 
-        } catch (Exception e) {
-            this.doChannelClose(channel, server_context, e);
+    /**
+     * Close all connections.
+     */
+    public void close() {
+        synchronized (this) {
+            if (null != _idle_check) {
+                _idle_check.cancel(false);
+                _idle_check = null;
+            }
+        }
+        for (final Connection connection : _connections) {
+            this.doChannelClose(connection, null);
         }
+    }
 
-        // this.log(ch, "\t\tEnd of conversation");
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
 
+    private synchronized void scheduleIdleCheck(final SocketSettings context) {
+        if (null == _idle_check) {
+            final long interval = Math.max(MIN_CHECK_INTERVAL, Math.min(context.idleTimeout(), context.timeout()) / 2);
+            _idle_check = SocketUtils.scheduler().scheduleWithFixedDelay(this::closeExpired, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Close idle connections and connections stuck in the middle of a message.
+     */
+    private void closeExpired() {
         try {
-            // Close the connection if we need to
-            if (channel.isOpen()) {
-                channel.close();
+            final long now = System.currentTimeMillis();
+            for (final Connection connection : _connections) {
+                if (connection.isExpired(now)) {
+                    this.doChannelClose(connection, new TimeoutException("Connection timed out."));
+                }
             }
-        } catch (Exception e) {
-            this.doChannelClose(channel, server_context, e);
+        } catch (Throwable t) {
+            super.error("closeExpired", t);
         }
+    }
 
+    /**
+     * A complete message was read.
+     */
+    private void dispatch(final Connection connection,
+                          final SocketMessage request) throws Exception {
+        if (request.isHandShake()) {
+            // next messages of client are encoded with the key: handle now, before next read
+            this.handShake(connection, request);
+        } else {
+            connection.acquire();
+            if (null != _executor) {
+                try {
+                    _executor.execute(() -> this.handle(connection, request));
+                } catch (RejectedExecutionException e) {
+                    connection.release();
+                    throw e;
+                }
+            } else {
+                this.handle(connection, request);
+            }
+        }
     }
 
-    @Override
-    public void failed(final Throwable exc, final SocketSettings attachment) {
-        // System.out.println("FAILED: " + exc + ". "  );
+    private void handShake(final Connection connection,
+                           final SocketMessage request) throws Exception {
+        final SocketSettings context = connection.context();
+        final String encode_key = new String(request.body(), context.charset());
+
+        ((ServerCipher) _dispatcher.cipher()).encodeKey(request.ownerId(), encode_key);
+
+        final SocketMessageHandShake response = new SocketMessageHandShake(context.uid());
+        response.signature(_dispatcher.cipher().signature());
+        response.headers().correlationId(request.headers().correlationId());
+
+        connection.write(response, "");
     }
 
-    // ------------------------------------------------------------------------
-    //                      p r i v a t e
-    // ------------------------------------------------------------------------
+    private void handle(final Connection connection,
+                        final SocketMessage request) {
+        try {
+            _dispatcher.decode(request);
+
+            // get client id from message
+            final String client_id = request.ownerId();
+            final SocketMessage response;
+            if (null == _callback_on_channel_message) {
+                // ECHO
+                response = new SocketMessage(connection.context().uid());
+                response.body(request.body());
+            } else {
+                response = this.doChannelMessage(connection, request);
+            }
+            response.headers().correlationId(request.headers().correlationId());
 
-    private void doChannelOpen(final AsynchronousSocketChannel ch,
-                               final SocketSettings attachment) {
+            connection.write(response, client_id);
+        } catch (Exception e) {
+            this.doChannelClose(connection, e);
+        } finally {
+            connection.release();
+        }
+    }
+
+    private void doChannelOpen(final Connection connection) {
         if (null != _callback_on_channel_open) {
-            _callback_on_channel_open.handle(new SocketBasicServer.ChannelInfo(ch, attachment));
+            _callback_on_channel_open.handle(connection.info());
         }
     }
 
-    private void doChannelClose(final AsynchronousSocketChannel ch,
-                                final SocketSettings attachment,
+    private void doChannelClose(final Connection connection,
                                 final Exception ex) {
-        if (null != ex) {
-            if (ex instanceof TimeoutException) {
-                // The user exceeded the 20 second timeout, so close the connection
-                System.out.println("Connection timed out, closing connection");
-            } else if (ex instanceof InterruptedException) {
-                // interrupted
-            } else if (ex instanceof ExecutionException) {
-                // java.io.IOException: Connection reset by peer
+        if (connection.close()) {
+            _connections.remove(connection);
+            // avoid double callback call
+            if (null != _callback_on_channel_close) {
+                _callback_on_channel_close.handle(new SocketBasicServer.ChannelInfo(connection.channel(), connection.context(), ex));
             }
         }
-
-        if (null != _callback_on_channel_close && !_closed) {
-            _closed = true; // avoid double callback call
-            _callback_on_channel_close.handle(new SocketBasicServer.ChannelInfo(ch, attachment, ex));
-        }
     }
 
-    private SocketMessage doChannelMessage(final AsynchronousSocketChannel ch,
-                                           final SocketSettings context,
+    private SocketMessage doChannelMessage(final Connection connection,
                                            final SocketMessage request) throws Exception {
         // new message
-        final SocketMessage response = new SocketMessage(context.uid());
+        final SocketMessage response = new SocketMessage(connection.context().uid());
         response.body(new byte[0]); // initialize response with empty content
 
         // chunked request?
         final SocketMessage full_request;
         if (request.isChunk()) {
             if (request.isDownload()) {
-                // DOWNLOAD
-                full_request = this.download(request, response);
+                // DOWNLOAD: response is the chunk, nothing to handle
+                return this.download(request, response);
             } else {
                 // UPLOAD
                 full_request = this.upload(request, response);
+                if (null == full_request) {
+                    // more chunks to come
+                    return response;
+                }
             }
         } else {
             full_request = request;
@@ -196,7 +284,7 @@ public class SocketBasicServerHandler
 
         // ready for callback
         if (null != _callback_on_channel_message) {
-            _callback_on_channel_message.handle(new SocketBasicServer.ChannelInfo(ch, context), full_request, response);
+            _callback_on_channel_message.handle(connection.info(), full_request, response);
         }
 
         return response;
@@ -208,7 +296,7 @@ public class SocketBasicServerHandler
             // composed response
             full_request = _chunks.compose(request.headers().chunkUid());
         } else {
-            full_request = request;
+            full_request = null;
             // add same headers to response
             response.headers().putAll(request.headers().toJson());
         }
@@ -226,9 +314,10 @@ public class SocketBasicServerHandler
             // read file
             final String uid = request.headers().chunkUid();
             final String file_name = request.headers().fileName();
-            final int offset = (int) request.headers().chunkOffset();
+            final long offset = request.headers().chunkOffset();
             final int size = request.headers().chunkLength();
-            bytes = uid.equalsIgnoreCase(file_name) ? _chunks.getBytes(uid, offset, size) : ByteUtils.getBytes(new File(file_name), offset, size);
+            // file stays open between chunk requests
+            bytes = _chunks.read(uid, file_name, offset, size);
             response.headers().type(SocketMessage.MessageType.File.getValue());
         } else {
             // get from cache
@@ -242,4 +331,226 @@ public class SocketBasicServerHandler
         return response;
     }
 
+    private static SocketMessageReader newReader(final SocketSettings context) {
+        return new SocketMessageReader(context.maxHeadSize(), context.maxBodySize());
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    /**
+     * State of an open channel: read, dispatch and write steps are chained by
+     * completion callbacks.
+     */
+    private final class Connection
+            implements CompletionHandler<Integer, Void> {
+
+        private final AsynchronousSocketChannel _channel;
+        private final SocketSettings _context;
+        private final SocketBasicServer.ChannelInfo _info;
+        private final ByteBuffer _buffer;
+        private final Queue<ByteBuffer> _out;
+        private final AtomicBoolean _writing;
+        private final AtomicBoolean _closed;
+        private final CompletionHandler<Integer, ByteBuffer> _write_handler;
+
+        private volatile SocketMessageReader _reader; // replaced only by read callback
+        private volatile long _last_activity;
+        private int _in_flight;
+        private boolean _paused;
+
+        private Connection(final AsynchronousSocketChannel channel,
+                           final SocketSettings context) {
+            _channel = channel;
+            _context = context;
+            _info = new SocketBasicServer.ChannelInfo(channel, context);
+            _buffer = ByteBuffer.allocate(SocketSettings.BUFFER_SIZE);
+            _out = new ConcurrentLinkedQueue<>();
+            _writing = new AtomicBoolean(false);
+            _closed = new AtomicBoolean(false);
+            _reader = newReader(context);
+            _last_activity = System.currentTimeMillis();
+            _write_handler = new CompletionHandler<Integer, ByteBuffer>() {
+                @Override
+                public void completed(final Integer count, final ByteBuffer data) {
+                    written(data);
+                }
+
+                @Override
+                public void failed(final Throwable exc, final ByteBuffer data) {
+                    doChannelClose(Connection.this, exc instanceof Exception ? (Exception) exc : new IOException(exc));
+                }
+            };
+        }
+
+        private AsynchronousSocketChannel channel() {
+            return _channel;
+        }
+
+        private SocketSettings context() {
+            return _context;
+        }
+
+        private SocketBasicServer.ChannelInfo info() {
+            return _info;
+        }
+
+        //-- read --//
+
+        private void read() {
+            try {
+                _channel.read(_buffer, null, this);
+            } catch (Throwable t) {
+                doChannelClose(this, t instanceof Exception ? (Exception) t : new IOException(t));
+            }
+        }
+
+        @Override
+        public void completed(final Integer count, final Void attachment) {
+            if (count < 0) {
+                // closed by client
+                doChannelClose(this, null);
+                return;
+            }
+            _last_activity = System.currentTimeMillis();
+            _buffer.flip();
+            try {
+                while (_buffer.hasRemaining()) {
+                    _reader.write(_buffer);
+                    if (_reader.isComplete()) {
+                        final SocketMessage message = _reader.message();
+                        _reader.close();
+                        _reader = newReader(_context);
+                        dispatch(this, message);
+                    } else if (_reader.hasError()) {
+                        throw new IOException(_reader.errorMessage());
+                    }
+                }
+            } catch (Throwable t) {
+                // invalid message
+                doChannelClose(this, t instanceof Exception ? (Exception) t : new IOException(t));
+                return;
+            } finally {
+                _buffer.compact();
+            }
+            if (!this.pause()) {
+                this.read();
+            }
+        }
+
+        @Override
+        public void failed(final Throwable exc, final Void attachment) {
+            // connection reset by peer or closed
+            doChannelClose(this, exc instanceof Exception ? (Exception) exc : new IOException(exc));
+        }
+
+        //-- back pressure --//
+
+        private synchronized void acquire() {
+            _in_flight++;
+        }
+
+        /**
+         * A request is done: resume reading if it was paused.
+         */
+        private void release() {
+            final boolean resume;
+            synchronized (this) {
+                _in_flight--;
+                resume = _paused && _in_flight < MAX_PIPELINED;
+                if (resume) {
+                    _paused = false;
+                }
+            }
+            if (resume) {
+                this.read();
+            }
+        }
+
+        /**
+         * Stop reading while too many requests are in progress.
+         */
+        private synchronized boolean pause() {
+            _paused = _in_flight >= MAX_PIPELINED;
+            return _paused;
+        }
+
+        private boolean isExpired(final long now) {
+            final long elapsed = now - _last_activity;
+            synchronized (this) {
+                if (_in_flight > 0 || !_out.isEmpty()) {
+                    return false;
+                }
+            }
+            return _reader.size() > 0
+                    ? elapsed > _context.timeout()       // stuck in the middle of a message
+                    : elapsed > _context.idleTimeout();  // no new messages
+        }
+
+        //-- write --//
+
+        /**
+         * Encode in caller thread, queue data to write.
+         */
+        private void write(final SocketMessage message,
+                           final String owner_id) throws Exception {
+            final ByteBuffer data = _dispatcher.encode(_context, message, owner_id);
+            _out.add(data);
+            this.flush();
+        }
+
+        /**
+         * Start writing next buffer, if no write is in progress.
+         */
+        private void flush() {
+            while (!_out.isEmpty() && !_closed.get() && _writing.compareAndSet(false, true)) {
+                final ByteBuffer data = _out.peek();
+                if (null != data) {
+                    this.write(data);
+                    return;
+                }
+                _writing.set(false);
+            }
+        }
+
+        private void write(final ByteBuffer data) {
+            try {
+                _channel.write(data, _context.timeout(), TimeUnit.MILLISECONDS, data, _write_handler);
+            } catch (Throwable t) {
+                doChannelClose(this, t instanceof Exception ? (Exception) t : new IOException(t));
+            }
+        }
+
+        private void written(final ByteBuffer data) {
+            _last_activity = System.currentTimeMillis();
+            if (data.hasRemaining()) {
+                // partial write
+                this.write(data);
+            } else {
+                _out.poll();
+                _writing.set(false);
+                this.flush();
+            }
+        }
+
+        /**
+         * @return False if already closed
+         */
+        private boolean close() {
+            if (_closed.compareAndSet(false, true)) {
+                try {
+                    if (_channel.isOpen()) {
+                        _channel.close();
+                    }
+                } catch (Throwable ignored) {
+                }
+                _out.clear();
+                return true;
+            }
+            return false;
+        }
+
+    }
+
 }
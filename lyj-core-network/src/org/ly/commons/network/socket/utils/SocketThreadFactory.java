@@ -0,0 +1,39 @@
+package org.ly.commons.network.socket.utils;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Named daemon threads: socket workers must not keep application alive.
+ */
+public class SocketThreadFactory
+        implements ThreadFactory {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final String _name;
+    private final AtomicInteger _count;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public SocketThreadFactory(final String name) {
+        _name = name;
+        _count = new AtomicInteger(0);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, _name + "-" + _count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+}
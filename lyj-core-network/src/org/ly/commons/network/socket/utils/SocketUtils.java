@@ -1,6 +1,7 @@
 package org.ly.commons.network.socket.utils;
 
 import org.ly.commons.network.socket.SocketLogger;
+import org.ly.commons.network.socket.basic.SocketSettings;
 import org.ly.commons.network.socket.basic.message.SocketMessageReader;
 import org.ly.commons.network.socket.basic.message.impl.SocketMessage;
 
@@ -10,71 +11,101 @@ import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.ReadPendingException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 public class SocketUtils {
 
-    private static final int BUFFER_SIZE = 4096*4096*8;
+    private static final int BUFFER_SIZE = SocketSettings.BUFFER_SIZE;
 
     private static final SocketLogger LOGGER = new SocketLogger();
 
+    private static ScheduledExecutorService __scheduler;
+
     // ------------------------------------------------------------------------
     //                      p u b l i c
     // ------------------------------------------------------------------------
 
     public static SocketMessage read(final AsynchronousSocketChannel channel,
                                      final int timeout_ms) {
-        long count_total_bytes = 0;
         if (channel.isOpen()) {
-            try (final SocketMessageReader reader = new SocketMessageReader();) {
-                // Allocate a byte buffer (4K) to read from the client
-                final ByteBuffer byteBuffer = ByteBuffer.allocate(BUFFER_SIZE);
-                // Read the first line
-                int count_bytes_read = read(channel, byteBuffer, timeout_ms);
-                boolean running = true;
-                while (count_bytes_read != -1 && running && !reader.isComplete()) {
-
-                    count_total_bytes += count_bytes_read;
-
-                    // Make sure that we have data to read
-                    if (byteBuffer.position() > 2) {
-                        // Make the buffer ready to read
-                        byteBuffer.flip();
-
-                        // add to stream
-                        reader.write(byteBuffer.array(), 0, count_bytes_read);
-
-                        if (reader.isComplete()) {
-                            break;
-                        }
-
-                        // Make the buffer ready to write
-                        byteBuffer.clear();
-
-                        // Read the next line
-                        count_bytes_read = read(channel, byteBuffer, timeout_ms);
-                    } else {
-                        // An empty line signifies the end of the conversation in our protocol
-                        running = false;
-                    }
-                }
-
-                return reader.message();
+            try {
+                return read(channel, ByteBuffer.allocate(BUFFER_SIZE), timeout_ms, timeout_ms);
             } catch (ReadPendingException e) {
-                LOGGER.error("read#1. Bytes read: " + count_total_bytes, e);
+                LOGGER.error("read#1", e);
             } catch (TimeoutException e) {
-                LOGGER.error("read#2. Bytes read: " + count_total_bytes, e.toString());
+                LOGGER.error("read#2", e.toString());
             } catch (IOException | ExecutionException | InterruptedException e) {
-                LOGGER.error("read#3. Bytes read: " + count_total_bytes, e);
+                LOGGER.error("read#3", e);
             }
+        }
+        return null;
+    }
 
+    /**
+     * Read next message from a channel that may carry many messages.
+     * Buffer belongs to the channel and is left in write mode: bytes of following
+     * messages (already received) stay in buffer for next read.
+     *
+     * @param channel         Channel to read
+     * @param buffer          Buffer of the channel
+     * @param idle_timeout_ms Max time to wait for first byte of the message
+     * @param timeout_ms      Max time to wait for each following read
+     * @return Null if channel was closed by peer before a new message
+     */
+    public static SocketMessage read(final AsynchronousSocketChannel channel,
+                                     final ByteBuffer buffer,
+                                     final int idle_timeout_ms,
+                                     final int timeout_ms) throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (final SocketMessageReader reader = new SocketMessageReader()) {
+            while (true) {
+                if (buffer.position() > 0) {
+                    // consume received bytes
+                    buffer.flip();
+                    reader.write(buffer);
+                    buffer.compact();
+                    if (reader.isComplete()) {
+                        return reader.message();
+                    }
+                    if (reader.hasError()) {
+                        throw new IOException(reader.errorMessage());
+                    }
+                }
+                final int count_bytes_read = read(channel, buffer, reader.size() > 0 ? timeout_ms : idle_timeout_ms);
+                if (count_bytes_read < 0) {
+                    if (reader.size() > 0) {
+                        throw new IOException("Connection closed reading message: " + reader.size() + " bytes read.");
+                    }
+                    return null;
+                }
+            }
         }
+    }
 
-        return null;
+    /**
+     * Daemon thread shared by socket timers (idle connections check).
+     * Tasks must be short.
+     */
+    public static synchronized ScheduledExecutorService scheduler() {
+        if (null == __scheduler) {
+            __scheduler = Executors.newSingleThreadScheduledExecutor(new SocketThreadFactory("lyj-socket-timer"));
+        }
+        return __scheduler;
     }
 
+    /**
+     * Write whole buffer. A single write on a socket may send only part of data.
+     */
+    public static void write(final AsynchronousSocketChannel channel,
+                             final ByteBuffer buffer,
+                             final int timeout_ms) throws InterruptedException, ExecutionException, TimeoutException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer).get(timeout_ms, TimeUnit.MILLISECONDS);
+        }
+    }
 
     // ------------------------------------------------------------------------
     //                      p r i v a t e
@@ -12,6 +12,7 @@ import org.lyj.commons.util.RandomUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.security.Key;
 
 import static org.junit.Assert.*;
@@ -92,6 +93,78 @@ public class SocketMessageTest {
         System.out.println(file_message.toString());
     }
 
+    @Test
+    public void largeMessageReader() throws Exception {
+        final byte[] data = new byte[SocketMessageReader.SPILL_SIZE + 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 127);
+        }
+        final SocketMessage message = new SocketMessage("");
+        message.headers().put("sample", "Hello header");
+        message.body(data);
+        final byte[] first = message.bytes();
+        final byte[] next = new SocketMessage("").body("next").bytes();
+
+        // two messages in same stream
+        final ByteBuffer buffer = ByteBuffer.allocate(first.length + next.length);
+        buffer.put(first).put(next).flip();
+
+        final long time = System.currentTimeMillis();
+        final SocketMessageReader reader = new SocketMessageReader();
+        while (!reader.isComplete() && !reader.hasError()) {
+            final ByteBuffer chunk = buffer.slice();
+            chunk.limit(Math.min(chunk.remaining(), 64 * 1024));
+            buffer.position(buffer.position() + reader.write(chunk));
+        }
+        assertFalse(reader.errorMessage(), reader.hasError());
+        assertEquals(first.length, reader.size());
+        final SocketMessage clone = reader.message();
+        reader.close();
+        System.out.println("READ " + first.length + " bytes in " + (System.currentTimeMillis() - time) + " ms");
+
+        assertArrayEquals(data, clone.body());
+        assertEquals("Hello header", clone.headers().get("sample"));
+        assertEquals(message.hash(), clone.hash());
+
+        // next message is still in buffer
+        final SocketMessageReader next_reader = new SocketMessageReader();
+        next_reader.write(buffer);
+        assertTrue(next_reader.isComplete());
+        assertEquals("next", new String(next_reader.message().body()));
+        next_reader.close();
+    }
+
+    @Test
+    public void limitsReader() throws Exception {
+        // forged prefix declaring a huge head: rejected before allocation
+        final SocketMessageReader forged = new SocketMessageReader();
+        forged.write(String.format("<%10d%10d", 8000000, 1900000000).getBytes());
+        assertTrue(forged.hasError());
+        assertTrue(forged.errorMessage().contains("exceeds limit"));
+        forged.close();
+
+        // declared body within limits: nothing allocated until bytes arrive
+        final SocketMessageReader waiting = new SocketMessageReader();
+        waiting.write(String.format("<%10d%10d", 8000000, 10).getBytes());
+        assertFalse(waiting.hasError());
+        assertEquals(SocketMessage.PREFIX_SIZE, waiting.size());
+        waiting.close();
+
+        // configured limits
+        final SocketMessage message = new SocketMessage("");
+        message.body(new byte[200]);
+        final SocketMessageReader limited = new SocketMessageReader(SocketMessageReader.DEFAULT_MAX_HEAD_SIZE, 100);
+        limited.write(message.bytes(), 0, SocketMessage.PREFIX_SIZE);
+        assertTrue(limited.hasError());
+        limited.close();
+
+        final SocketMessageReader allowed = new SocketMessageReader(SocketMessageReader.DEFAULT_MAX_HEAD_SIZE, 200);
+        allowed.write(message.bytes());
+        assertTrue(allowed.isComplete());
+        assertEquals(200, allowed.message().body().length);
+        allowed.close();
+    }
+
     @Test
     public void encodedMessageTest() throws Exception {
 
@@ -3,9 +3,20 @@ package org.ly.commons.network.socket.basic.server;
 import org.junit.Test;
 import org.ly.commons.network.socket.basic.client.SocketBasicClient;
 import org.ly.commons.network.socket.basic.message.impl.SocketMessage;
+import org.lyj.commons.util.FileUtils;
 import org.lyj.commons.util.RandomUtils;
 
+import java.io.File;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class SocketBasicServerTest {
 
@@ -49,6 +60,184 @@ public class SocketBasicServerTest {
         System.out.println("Stop server");
     }
 
+    @Test
+    public void persistent() throws Exception {
+        final AtomicInteger opened = new AtomicInteger(0);
+        final AtomicInteger closed = new AtomicInteger(0);
+        final SocketBasicServer server = new SocketBasicServer();
+        server.port(5010)
+                .idleTimeout(2000)
+                .onChannelOpen((info) -> opened.incrementAndGet())
+                .onChannelClose((info) -> closed.incrementAndGet())
+                .onChannelMessage((info, request, response) -> {
+                    // slow requests: responses are sent out of order
+                    final String text = new String(request.body());
+                    try {
+                        Thread.sleep(text.hashCode() % 2 == 0 ? 20 : 1);
+                    } catch (InterruptedException ignored) {
+                    }
+                    response.type(SocketMessage.MessageType.Text);
+                    response.body("echo: " + text);
+                })
+                .open();
+        try (final SocketBasicClient client = new SocketBasicClient()) {
+            client.host("127.0.0.1").port(server.port()).poolSize(1);
+
+            final AtomicInteger errors = new AtomicInteger(0);
+            final List<Thread> threads = new ArrayList<>();
+            final long start = System.currentTimeMillis();
+            for (int t = 0; t < 10; t++) {
+                final int thread_index = t;
+                final Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        final String text = thread_index + "-" + i + ": " + RandomUtils.randomAlphanumeric(100);
+                        try {
+                            final SocketMessage response = client.send(text);
+                            if (!("echo: " + text).equals(new String(response.body()))) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                            errors.incrementAndGet();
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+            System.out.println("500 requests in " + (System.currentTimeMillis() - start) + " ms");
+
+            // a large response is downloaded in chunks on same connection, into a file
+            final SocketMessage response = client.send(RandomUtils.randomAlphanumeric(10000));
+            assertTrue(response.isFile());
+            assertTrue(new File(response.headers().fileName()).length() == 10006);
+            FileUtils.delete(response.headers().fileName());
+
+            assertTrue(errors.get() == 0);
+            assertTrue(opened.get() == 1); // all requests pipelined on one connection
+
+            // server closes idle connection, client opens a new one
+            Thread.sleep(3000);
+            assertTrue(closed.get() == 1);
+            assertNotNull(client.send("after idle"));
+            assertTrue(opened.get() == 2);
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void download() throws Exception {
+        // file sent by server in many chunks, read from disk at offset
+        final File file = File.createTempFile("download_", ".dat");
+        final byte[] data = new byte[300 * 1024 + 17];
+        new Random(1).nextBytes(data);
+        Files.write(file.toPath(), data);
+
+        final SocketBasicServer server = new SocketBasicServer();
+        server.port(5030)
+                .onChannelMessage((info, request, response) -> {
+                    try {
+                        response.body(file);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                })
+                .open();
+        try (final SocketBasicClient client = new SocketBasicClient()) {
+            client.host("127.0.0.1").port(server.port());
+
+            for (int i = 0; i < 3; i++) {
+                final long start = System.currentTimeMillis();
+                final SocketMessage response = client.send("file please");
+                System.out.println("DOWNLOAD " + data.length + " bytes in " + (System.currentTimeMillis() - start) + " ms");
+                assertTrue(response.isFile());
+                final File downloaded = new File(response.headers().fileName());
+                assertArrayEquals(data, Files.readAllBytes(downloaded.toPath()));
+                FileUtils.delete(downloaded);
+            }
+        } finally {
+            server.close();
+            FileUtils.delete(file);
+        }
+    }
+
+    /**
+     * Benchmark: stalled clients do not pin I/O threads, so a few threads serve
+     * hundreds of connections.
+     */
+    @Test
+    public void connectionsPerThread() throws Exception {
+        final int stalled_count = 500;
+        final int client_count = 20;
+        final int request_count = 50;
+        for (final int threads : new int[]{1, 2, 4}) {
+            final SocketBasicServer server = new SocketBasicServer();
+            server.port(5020 + threads)
+                    .threads(threads)
+                    .onChannelMessage((info, request, response) -> response.body("echo: " + new String(request.body())))
+                    .open();
+            final List<Socket> stalled = new ArrayList<>();
+            final List<SocketBasicClient> clients = new ArrayList<>();
+            try {
+                // connections sending half a message and waiting
+                for (int i = 0; i < stalled_count; i++) {
+                    final Socket socket = new Socket("127.0.0.1", server.port());
+                    socket.getOutputStream().write("<  1000".getBytes());
+                    socket.getOutputStream().flush();
+                    stalled.add(socket);
+                }
+
+                final AtomicInteger errors = new AtomicInteger(0);
+                final List<Thread> workers = new ArrayList<>();
+                final long start = System.currentTimeMillis();
+                for (int c = 0; c < client_count; c++) {
+                    final SocketBasicClient client = new SocketBasicClient();
+                    client.host("127.0.0.1").port(server.port()).poolSize(1);
+                    clients.add(client);
+                    final Thread worker = new Thread(() -> {
+                        for (int i = 0; i < request_count; i++) {
+                            try {
+                                final SocketMessage response = client.send("message " + i);
+                                if (!("echo: message " + i).equals(new String(response.body()))) {
+                                    errors.incrementAndGet();
+                                }
+                            } catch (Exception e) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    });
+                    workers.add(worker);
+                    worker.start();
+                }
+                for (final Thread worker : workers) {
+                    worker.join();
+                }
+                final long elapsed = Math.max(1, System.currentTimeMillis() - start);
+                final int connections = server.connections();
+                System.out.println("io threads: " + threads +
+                        ", connections: " + connections +
+                        ", connections per thread: " + (connections / threads) +
+                        ", requests: " + (client_count * request_count) +
+                        ", requests/sec: " + (client_count * request_count * 1000L / elapsed));
+
+                assertTrue(errors.get() == 0);
+                assertTrue(connections >= stalled_count + client_count);
+            } finally {
+                for (final SocketBasicClient client : clients) {
+                    client.close();
+                }
+                for (final Socket socket : stalled) {
+                    socket.close();
+                }
+                server.close();
+            }
+        }
+    }
+
     private void channelMessage(SocketBasicServer.ChannelInfo channelInfo,
                                 SocketMessage request,
                                 SocketMessage response) {
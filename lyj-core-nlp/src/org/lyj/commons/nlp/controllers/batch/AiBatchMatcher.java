@@ -0,0 +1,259 @@
+package org.lyj.commons.nlp.controllers.batch;
+
+import org.json.JSONArray;
+import org.lyj.commons.nlp.controllers.AiKeywordsMatcher;
+import org.lyj.commons.nlp.controllers.domain.AiDomainMatcher;
+import org.lyj.commons.nlp.controllers.domain.DomainIndex;
+import org.lyj.commons.nlp.controllers.domain.DomainMatchList;
+import org.lyj.commons.nlp.elements.IKeywordConstants;
+import org.lyj.commons.nlp.elements.KeywordList;
+import org.lyj.commons.nlp.entities.NEntityMatcher;
+import org.lyj.commons.nlp.entities.NEntitySchema;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Match many phrases at once (ex: classify a chat history, evaluate a model on a test corpus).
+ * <p>
+ * Phrases are matched in parallel on a fork-join pool. Results are cached by normalized
+ * phrase (words separated by single space, as matchers split phrases), so repeated phrases
+ * are matched once. Cached results are shared: do not change them.
+ * Disable the cache (cacheSize(0)) if custom expression callbacks do not return always same
+ * result for same phrase.
+ * <p>
+ * Usage:
+ * <pre>
+ * final AiBatchMatcher&lt;DomainMatchList&gt; batch = AiBatchMatcher.domains(AiDomainMatcher.instance().compile(domains), null);
+ * final List&lt;DomainMatchList&gt; results = batch.match(phrases.stream());
+ * System.out.println(batch.stats());
+ * </pre>
+ *
+ * @param <T> Result of matching a phrase
+ */
+public class AiBatchMatcher<T> {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+
+    private static final Object NONE = new Object(); // cached null result
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final Function<T> _function;
+    private final BatchStats _stats;
+    private final Map<String, Object> _cache;
+
+    private ForkJoinPool _pool;
+    private int _cache_size;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public AiBatchMatcher(final Function<T> function) {
+        _function = function;
+        _stats = new BatchStats();
+        _cache_size = DEFAULT_CACHE_SIZE;
+        _cache = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Object> eldest) {
+                return size() > _cache_size;
+            }
+        };
+        _pool = ForkJoinPool.commonPool();
+    }
+
+    @Override
+    public String toString() {
+        return "{parallelism: " + _pool.getParallelism() +
+                ", cache_size: " + _cache_size +
+                ", stats: " + _stats + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r o p e r t i e s
+    // ------------------------------------------------------------------------
+
+    public ForkJoinPool pool() {
+        return _pool;
+    }
+
+    /**
+     * Pool running batches. Default is common pool.
+     */
+    public AiBatchMatcher<T> pool(final ForkJoinPool value) {
+        _pool = null != value ? value : ForkJoinPool.commonPool();
+        return this;
+    }
+
+    public int cacheSize() {
+        return _cache_size;
+    }
+
+    /**
+     * Max number of cached results. 0 = no cache.
+     */
+    public AiBatchMatcher<T> cacheSize(final int value) {
+        synchronized (_cache) {
+            _cache_size = Math.max(0, value);
+            _cache.clear();
+        }
+        return this;
+    }
+
+    public BatchStats stats() {
+        return _stats;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    /**
+     * Match all phrases in parallel.
+     *
+     * @return Results in same order of phrases
+     */
+    public List<T> match(final Stream<String> phrases) {
+        return this.run(() -> phrases.parallel()
+                .map(this::match)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Match all phrases in parallel, passing each result to consumer as soon as it is ready.
+     * Consumer is invoked by many threads at once, in no particular order.
+     */
+    public void match(final Stream<String> phrases,
+                      final BiConsumer<String, T> consumer) {
+        this.run(() -> {
+            phrases.parallel().forEach((phrase) -> consumer.accept(phrase, this.match(phrase)));
+            return null;
+        });
+    }
+
+    /**
+     * Match a single phrase, using cache.
+     */
+    @SuppressWarnings("unchecked")
+    public T match(final String phrase) {
+        final String key = normalize(phrase);
+        if (_cache_size > 0) {
+            final Object cached;
+            synchronized (_cache) {
+                cached = _cache.get(key);
+            }
+            if (null != cached) {
+                _stats.phrase(true);
+                return NONE == cached ? null : (T) cached;
+            }
+        }
+        final T result = _function.match(key, _stats);
+        _stats.phrase(false);
+        if (_cache_size > 0) {
+            synchronized (_cache) {
+                _cache.put(key, null != result ? result : NONE);
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        synchronized (_cache) {
+            _cache.clear();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private <R> R run(final Callable<R> task) {
+        final long start = System.nanoTime();
+        try {
+            // a parallel stream started from a pool thread runs in that pool
+            return _pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            final Throwable cause = null != e.getCause() ? e.getCause() : e;
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        } finally {
+            _stats.elapsed(System.nanoTime() - start);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    /**
+     * Words of phrase separated by a single space. Matchers split phrases on spaces
+     * ignoring empty words, so a normalized phrase has same matches of original one.
+     * Case is not changed: custom expressions and entity rules may be case sensitive.
+     */
+    public static String normalize(final String phrase) {
+        return null != phrase ? String.join(" ", KeywordList.split(phrase)) : "";
+    }
+
+    /**
+     * Batch for AiKeywordsMatcher: result is value of first matching item, or null.
+     */
+    public static AiBatchMatcher<Object> keywords(final JSONArray keywords,
+                                                  final IKeywordConstants.Callback callback) {
+        return new AiBatchMatcher<>((phrase, stats) -> {
+            final long start = System.nanoTime();
+            final Object result = AiKeywordsMatcher.instance().match(phrase, keywords, callback);
+            stats.domain("keywords", System.nanoTime() - start, null != result);
+            return result;
+        });
+    }
+
+    /**
+     * Batch for AiDomainMatcher. Stats are counted for each domain of index.
+     */
+    public static AiBatchMatcher<DomainMatchList> domains(final DomainIndex index,
+                                                          final IKeywordConstants.Callback callback) {
+        return new AiBatchMatcher<>((phrase, stats) ->
+                AiDomainMatcher.instance().match(phrase, index, callback, stats));
+    }
+
+    /**
+     * Batch for NEntityMatcher. Stats are counted for each entity of schema.
+     * Do not change schema while matching.
+     */
+    public static AiBatchMatcher<NEntityMatcher.Entity[]> entities(final String lang,
+                                                                   final NEntitySchema schema,
+                                                                   final IKeywordConstants.Callback callback) {
+        // rules add missing fields at first read: add them now, so threads only read schema
+        for (final String name : schema.keys()) {
+            schema.rule(name).isEmpty();
+        }
+        return new AiBatchMatcher<>((phrase, stats) ->
+                NEntityMatcher.instance().match(lang, KeywordList.split(phrase), schema, callback, stats));
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    @FunctionalInterface
+    public interface Function<T> {
+        T match(final String phrase, final BatchStats stats);
+    }
+
+}
@@ -0,0 +1,200 @@
+package org.lyj.commons.nlp.controllers.batch;
+
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a batch matching: phrases, cache usage and, for each domain
+ * (or entity), number of evaluations, matches and time spent.
+ * Domains are evaluated in parallel, so throughput of a domain is calculated on its
+ * own time (phrases per second of matching time), not on elapsed time of batch.
+ */
+public class BatchStats {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final LongAdder _phrases;
+    private final LongAdder _hits;
+    private final LongAdder _nanos;          // elapsed time of batches
+    private final Map<String, Counter> _domains;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public BatchStats() {
+        _phrases = new LongAdder();
+        _hits = new LongAdder();
+        _nanos = new LongAdder();
+        _domains = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public String toString() {
+        return this.toJson().toString();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public JSONObject toJson() {
+        final JSONObject result = new JSONObject();
+        result.put("phrases", this.phrases());
+        result.put("cache_hits", this.cacheHits());
+        result.put("elapsed_ms", this.elapsed());
+        result.put("throughput", this.throughput());
+        final JSONObject domains = new JSONObject();
+        for (final Counter counter : new TreeMap<>(_domains).values()) {
+            domains.put(counter.name(), counter.toJson());
+        }
+        result.put("domains", domains);
+        return result;
+    }
+
+    public long phrases() {
+        return _phrases.sum();
+    }
+
+    public long cacheHits() {
+        return _hits.sum();
+    }
+
+    /**
+     * @return Milliseconds spent in batches
+     */
+    public long elapsed() {
+        return _nanos.sum() / 1000000;
+    }
+
+    /**
+     * @return Phrases per second
+     */
+    public double throughput() {
+        return perSecond(this.phrases(), _nanos.sum());
+    }
+
+    public Counter domain(final String name) {
+        return _domains.computeIfAbsent(name, Counter::new);
+    }
+
+    public Map<String, Counter> domains() {
+        return new TreeMap<>(_domains);
+    }
+
+    public void reset() {
+        _phrases.reset();
+        _hits.reset();
+        _nanos.reset();
+        _domains.clear();
+    }
+
+    public void phrase(final boolean cached) {
+        _phrases.increment();
+        if (cached) {
+            _hits.increment();
+        }
+    }
+
+    public void elapsed(final long nanos) {
+        _nanos.add(nanos);
+    }
+
+    /**
+     * Count an evaluation of a domain.
+     *
+     * @param name    Name of domain
+     * @param nanos   Time spent matching phrase with domain
+     * @param matched True if phrase matched domain
+     */
+    public void domain(final String name,
+                       final long nanos,
+                       final boolean matched) {
+        this.domain(name).add(nanos, matched);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    private static double perSecond(final long count,
+                                    final long nanos) {
+        return nanos > 0 ? count * 1000000000d / nanos : 0;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    public static class Counter {
+
+        private final String _name;
+        private final LongAdder _count;
+        private final LongAdder _matches;
+        private final LongAdder _nanos;
+
+        private Counter(final String name) {
+            _name = name;
+            _count = new LongAdder();
+            _matches = new LongAdder();
+            _nanos = new LongAdder();
+        }
+
+        @Override
+        public String toString() {
+            return this.toJson().toString();
+        }
+
+        public JSONObject toJson() {
+            final JSONObject result = new JSONObject();
+            result.put("count", this.count());
+            result.put("matches", this.matches());
+            result.put("time_ms", this.time());
+            result.put("throughput", this.throughput());
+            return result;
+        }
+
+        public String name() {
+            return _name;
+        }
+
+        public long count() {
+            return _count.sum();
+        }
+
+        public long matches() {
+            return _matches.sum();
+        }
+
+        /**
+         * @return Milliseconds spent matching this domain (all threads)
+         */
+        public long time() {
+            return _nanos.sum() / 1000000;
+        }
+
+        /**
+         * @return Phrases per second of matching time
+         */
+        public double throughput() {
+            return perSecond(this.count(), _nanos.sum());
+        }
+
+        private void add(final long nanos,
+                         final boolean matched) {
+            _count.increment();
+            _nanos.add(nanos);
+            if (matched) {
+                _matches.increment();
+            }
+        }
+
+    }
+
+}
@@ -1,16 +1,21 @@
 package org.lyj.commons.nlp.controllers.domain;
 
+import org.lyj.commons.nlp.controllers.batch.BatchStats;
 import org.lyj.commons.nlp.elements.IKeywordConstants;
+import org.lyj.commons.nlp.elements.KeywordIndex;
 import org.lyj.commons.nlp.elements.KeywordsSolver;
 import org.json.JSONArray;
-import org.json.JSONObject;
 import org.lyj.commons.util.StringUtils;
 
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * Match multiple Domains (array of keywords) at once and returns a sorted list
  * (sorted by descending rating) of matching domains.
+ * <p>
+ * Domains are matched using their compiled version (see KeywordIndex).
+ * Use compile() to get an index of many domains and match phrases against it.
  */
 public class AiDomainMatcher {
 
@@ -30,6 +35,20 @@ public class AiDomainMatcher {
     //                      p u b l i c
     // ------------------------------------------------------------------------
 
+    /**
+     * Compile domains for matching. Index can be shared between threads.
+     */
+    public DomainIndex compile(final Collection<JSONArray> domains) {
+        return new DomainIndex(domains);
+    }
+
+    /**
+     * Compile named domains for matching. Names are used in statistics.
+     */
+    public DomainIndex compile(final Map<String, JSONArray> domains) {
+        return new DomainIndex(domains);
+    }
+
     public DomainMatchList match(final String text, final Collection<JSONArray> domains) {
         final DomainMatchList responses = new DomainMatchList();
 
@@ -49,7 +68,52 @@ public class AiDomainMatcher {
         return responses;
     }
 
+    public DomainMatchList match(final String text, final DomainIndex index) {
+        return this.match(text, index, null);
+    }
+
+    public DomainMatchList match(final String text,
+                                 final DomainIndex index,
+                                 final IKeywordConstants.Callback callback) {
+        return this.match(text, index, callback, null);
+    }
+
+    /**
+     * @param stats Optional. If not null, time spent and matches are counted for each domain.
+     */
+    public DomainMatchList match(final String text,
+                                 final DomainIndex index,
+                                 final IKeywordConstants.Callback callback,
+                                 final BatchStats stats) {
+        final DomainMatchList responses = new DomainMatchList();
+
+        if (null != index && !index.isEmpty()) {
+            final int count = index.size();
+            for (int i = 0; i < count; i++) {
+                final long start = null != stats ? System.nanoTime() : 0;
+                final DomainMatch match = this.matchDomain(text, index.domains().get(i), true, callback);
+                if (null != stats) {
+                    stats.domain(index.names().get(i), System.nanoTime() - start,
+                            null != match && match.rating() > 0.0);
+                }
+                if (null != match && match.rating() > 0.0) {
+                    responses.add(match);
+                    if (match.hasMatchValue() && match.hasMatchParams()) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        responses.sort();
+        return responses;
+    }
+
     public DomainMatch match(final String text, final JSONArray domain) {
+        return this.match(text, KeywordsSolver.instance().index(domain));
+    }
+
+    public DomainMatch match(final String text, final KeywordIndex domain) {
         return this.matchDomain(text, domain, true, null);
     }
 
@@ -66,44 +130,38 @@ public class AiDomainMatcher {
      * @return
      */
     private DomainMatch matchDomain(final String text,
-                                    final JSONArray domain,
+                                    final KeywordIndex domain,
                                     final boolean optimized,
                                     final IKeywordConstants.Callback callback) {
-        final int len = domain.length();
-        if (len > 0) {
+        if (domain.length() > 0) {
             final DomainMatch match = new DomainMatch();
-            for (int i = 0; i < len; i++) {
-                final Object item = domain.get(i);
-                if (item instanceof JSONObject) {
-                    final JSONObject domain_keywords = (JSONObject) item;
-                    if (KeywordsSolver.instance().hasKeywords(domain_keywords)
-                            && (KeywordsSolver.instance().hasValue(domain_keywords)
-                            || KeywordsSolver.instance().hasParams(domain_keywords))) {
-                        final boolean is_value = KeywordsSolver.instance().hasValue(domain_keywords);
-                        final String[] keywords = KeywordsSolver.instance().getKeywords(domain_keywords);
-                        final Object match_response = is_value
-                                ? KeywordsSolver.instance().matchKeywords(text, keywords, KeywordsSolver.getValue(domain_keywords), domain_keywords, callback)
-                                : KeywordsSolver.instance().matchKeywords(text, keywords, KeywordsSolver.getParams(domain_keywords), domain_keywords, callback);
-                        if (match_response instanceof String) {
-                            final String value = (String) match_response;
-                            if (is_value) {
-                                if (StringUtils.hasText(value)) {
-                                    match.addVerb(value);
-                                } else {
-                                    // add default value (fallback), but not matched
-                                    match.addVerbDefault(KeywordsSolver.instance().getValue(domain_keywords));
-
-                                    if (optimized) {
-                                        // exit because missing the match and verb does not exists
-                                        break;
-                                    }
-                                }
+            final KeywordIndex.Phrase phrase = domain.phrase(text);
+            for (final KeywordIndex.Item item : phrase.items()) {
+                if (item.hasValue() || item.hasParams()) {
+                    final boolean is_value = item.hasValue();
+                    final Object item_match = item.match(phrase, callback);
+                    final Object match_response = item_match instanceof Boolean
+                            ? (is_value ? item.value() : item.params())
+                            : item_match;
+                    if (match_response instanceof String) {
+                        final String value = (String) match_response;
+                        if (is_value) {
+                            if (StringUtils.hasText(value)) {
+                                match.addVerb(value);
                             } else {
-                                match.addParams(value);
+                                // add default value (fallback), but not matched
+                                match.addVerbDefault(item.value());
+
+                                if (optimized) {
+                                    // exit because missing the match and verb does not exists
+                                    break;
+                                }
                             }
                         } else {
-                            // no match value
+                            match.addParams(value);
                         }
+                    } else {
+                        // no match value
                     }
                 }
             }
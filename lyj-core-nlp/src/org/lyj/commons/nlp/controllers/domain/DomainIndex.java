@@ -0,0 +1,89 @@
+package org.lyj.commons.nlp.controllers.domain;
+
+import org.json.JSONArray;
+import org.lyj.commons.nlp.elements.KeywordIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled domains, ready for matching.
+ * Immutable: can be shared between threads. Compile again after changing domain definitions.
+ */
+public class DomainIndex {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final List<String> _names;
+    private final List<KeywordIndex> _domains;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public DomainIndex(final Collection<JSONArray> domains) {
+        final List<String> names = new ArrayList<>();
+        final List<KeywordIndex> list = new ArrayList<>();
+        if (null != domains) {
+            for (final JSONArray domain : domains) {
+                names.add("domain_" + list.size());
+                list.add(new KeywordIndex(domain));
+            }
+        }
+        _names = Collections.unmodifiableList(names);
+        _domains = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * @param domains Domains by name, in iteration order (ex: LinkedHashMap)
+     */
+    public DomainIndex(final Map<String, JSONArray> domains) {
+        final List<String> names = new ArrayList<>();
+        final List<KeywordIndex> list = new ArrayList<>();
+        if (null != domains) {
+            for (final Map.Entry<String, JSONArray> entry : domains.entrySet()) {
+                names.add(entry.getKey());
+                list.add(new KeywordIndex(entry.getValue()));
+            }
+        }
+        _names = Collections.unmodifiableList(names);
+        _domains = Collections.unmodifiableList(list);
+    }
+
+    @Override
+    public String toString() {
+        return "{domains: " + _domains.size() + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public int size() {
+        return _domains.size();
+    }
+
+    public boolean isEmpty() {
+        return _domains.isEmpty();
+    }
+
+    /**
+     * @return Names of domains, in same order of domains(). Unnamed domains are "domain_[index]".
+     */
+    public List<String> names() {
+        return _names;
+    }
+
+    /**
+     * @return Compiled domains, in same order of definitions.
+     */
+    public List<KeywordIndex> domains() {
+        return _domains;
+    }
+
+}
@@ -0,0 +1,465 @@
+package org.lyj.commons.nlp.elements;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.lyj.commons.nlp.elements.custom.CustomExpression;
+import org.lyj.commons.nlp.elements.statements.Statement;
+import org.lyj.commons.nlp.elements.statements.StatementExpression;
+import org.lyj.commons.util.StringUtils;
+import org.lyj.commons.util.json.JsonWrapper;
+
+import java.util.*;
+
+/**
+ * Compiled array of keyword items: [{"keys":["(scarp*|stivali) + ross*"], "value":"...", "params":"..."}, ...]
+ * <p>
+ * Keyword expressions are parsed once. Each statement (word) is indexed by its text:
+ * exact words in a map, words with wildchars in a prefix or suffix trie.
+ * A phrase is matched looking up each of its words, so matching time depends on phrase
+ * length and on matching items, not on size of the model.
+ * Expressions that can't be indexed (negations, custom expressions for external parsers)
+ * are evaluated for each phrase, as before.
+ * <p>
+ * Index is immutable and can be used by many threads at once.
+ * Results are same of KeywordList: items are returned in model order and each item is
+ * matched evaluating its keywords in order.
+ */
+public class KeywordIndex {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final int _length;                      // items in model
+    private final Item[] _items;
+    private final int[] _always;                    // items to evaluate for each phrase
+
+    private final Statement[] _statements;          // unique statements
+    private final int[][] _statement_groups;        // statement -> groups containing statement
+    private final int[] _group_expressions;         // group -> expression
+    private final int[] _expression_sizes;          // expression -> number of groups
+    private final int[] _expression_items;          // expression -> item
+
+    private final Map<String, Integer> _exact;      // statements without wildchars
+    private final Node _prefixes;                   // "text***", "te***xt"
+    private final Node _suffixes;                   // "***text" (reversed)
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public KeywordIndex(final JSONArray items) {
+        final Builder builder = new Builder();
+        final int len = null != items ? items.length() : 0;
+        _length = len;
+        for (int i = 0; i < len; i++) {
+            final Object item = items.get(i);
+            if (item instanceof JSONObject) {
+                builder.add(i, (JSONObject) item);
+            }
+        }
+
+        _items = builder.items.toArray(new Item[0]);
+        _always = toArray(builder.always);
+        _statements = builder.statements.toArray(new Statement[0]);
+        _statement_groups = new int[_statements.length][];
+        for (int i = 0; i < _statements.length; i++) {
+            _statement_groups[i] = toArray(builder.statement_groups.get(i));
+        }
+        _group_expressions = toArray(builder.group_expressions);
+        _expression_sizes = toArray(builder.expression_sizes);
+        _expression_items = toArray(builder.expression_items);
+        _exact = builder.exact;
+        _prefixes = builder.prefixes;
+        _suffixes = builder.suffixes;
+    }
+
+    @Override
+    public String toString() {
+        return "{items: " + _items.length +
+                ", statements: " + _statements.length +
+                ", expressions: " + _expression_sizes.length +
+                ", always: " + _always.length + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    /**
+     * @return Number of items in model
+     */
+    public int length() {
+        return _length;
+    }
+
+    /**
+     * @return Number of compiled items (items with keywords)
+     */
+    public int size() {
+        return _items.length;
+    }
+
+    /**
+     * Match a phrase with the index.
+     *
+     * @param text Phrase to match
+     * @return Matching phrase: tokens and candidate items, in model order.
+     */
+    public Phrase phrase(final String text) {
+        if (!StringUtils.hasText(text)) {
+            return new Phrase(new String[0], Collections.emptySet(), Collections.emptyList());
+        }
+        final String[] tokens = KeywordList.split(text);
+        final Set<Integer> expressions = this.matchExpressions(tokens);
+
+        // candidate items: items of matched expressions and items always evaluated
+        final TreeSet<Integer> indexes = new TreeSet<>();
+        for (final Integer expression : expressions) {
+            indexes.add(_expression_items[expression]);
+        }
+        for (final int index : _always) {
+            indexes.add(index);
+        }
+        final List<Item> items = new ArrayList<>(indexes.size());
+        for (final Integer index : indexes) {
+            items.add(_items[index]);
+        }
+        return new Phrase(tokens, expressions, items);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private Set<Integer> matchExpressions(final String[] tokens) {
+        final Set<Integer> response = new HashSet<>();
+        final Set<Integer> groups = new HashSet<>();
+        final Map<Integer, Integer> counts = new HashMap<>();
+        final Set<Integer> candidates = new HashSet<>();
+        for (final String token : tokens) {
+            final String clean_token = Keyword.clearKeyword(token);
+            candidates.clear();
+            this.candidates(token, candidates);
+            if (!clean_token.equals(token)) {
+                this.candidates(clean_token, candidates);
+            }
+            for (final Integer statement : candidates) {
+                if (_statements[statement].match(token, clean_token)) {
+                    for (final int group : _statement_groups[statement]) {
+                        if (groups.add(group)) {
+                            final int expression = _group_expressions[group];
+                            if (counts.merge(expression, 1, Integer::sum) == _expression_sizes[expression]) {
+                                response.add(expression);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Statements that may match a word. Exact check is done by statement.
+     */
+    private void candidates(final String word,
+                            final Set<Integer> out) {
+        final Integer exact = _exact.get(word);
+        if (null != exact) {
+            out.add(exact);
+        }
+        walk(_prefixes, word, false, out);
+        walk(_suffixes, word, true, out);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    private static void walk(final Node root,
+                             final String word,
+                             final boolean reverse,
+                             final Set<Integer> out) {
+        Node node = root;
+        out.addAll(node.statements);
+        final int len = word.length();
+        for (int i = 0; i < len && null != node; i++) {
+            node = node.children.get(word.charAt(reverse ? len - 1 - i : i));
+            if (null != node) {
+                out.addAll(node.statements);
+            }
+        }
+    }
+
+    private static int[] toArray(final List<Integer> list) {
+        final int[] response = new int[list.size()];
+        for (int i = 0; i < response.length; i++) {
+            response[i] = list.get(i);
+        }
+        return response;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    /**
+     * A phrase matched with the index.
+     */
+    public static class Phrase {
+
+        private final String[] _tokens;
+        private final Set<Integer> _expressions; // matched expressions
+        private final List<Item> _items;
+
+        private Phrase(final String[] tokens,
+                       final Set<Integer> expressions,
+                       final List<Item> items) {
+            _tokens = tokens;
+            _expressions = expressions;
+            _items = items;
+        }
+
+        public String[] tokens() {
+            return _tokens;
+        }
+
+        /**
+         * @return Items that may match the phrase, in model order. Call item.match() to check.
+         */
+        public List<Item> items() {
+            return _items;
+        }
+
+    }
+
+    /**
+     * Compiled item of model.
+     */
+    public static class Item {
+
+        private final int _index;
+        private final JSONObject _node;
+        private final String _value;
+        private final String _params;
+        private final Entry[] _entries;
+
+        private Item(final int index,
+                     final JSONObject node,
+                     final Entry[] entries) {
+            _index = index;
+            _node = node;
+            _value = KeywordsSolver.getValue(node);
+            _params = KeywordsSolver.getParams(node);
+            _entries = entries;
+        }
+
+        /**
+         * @return Position of item in model array
+         */
+        public int index() {
+            return _index;
+        }
+
+        public JSONObject node() {
+            return _node;
+        }
+
+        public String value() {
+            return _value;
+        }
+
+        public String params() {
+            return _params;
+        }
+
+        public boolean hasValue() {
+            return StringUtils.hasText(_value);
+        }
+
+        public boolean hasParams() {
+            return StringUtils.hasText(_params);
+        }
+
+        /**
+         * Same result of KeywordList.match()
+         *
+         * @return TRUE, an object returned from custom expression callback or null.
+         */
+        public Object match(final Phrase phrase,
+                            final IKeywordConstants.Callback callback) {
+            for (final Entry entry : _entries) {
+                final Object match = entry.match(phrase, callback, _node);
+                if (null != match) {
+                    if (match instanceof Boolean) {
+                        if ((Boolean) match) {
+                            return true;
+                        }
+                    } else if (match instanceof JSONArray) {
+                        if (((JSONArray) match).length() > 0) {
+                            return match;
+                        }
+                    } else if (match instanceof JSONObject) {
+                        if (((JSONObject) match).length() > 0) {
+                            return match;
+                        }
+                    } else {
+                        return match;
+                    }
+                }
+            }
+            return null;
+        }
+
+    }
+
+    /**
+     * Compiled keyword: indexed expression, not indexed expression or custom expression.
+     */
+    private static class Entry {
+
+        private final int _expression;
+        private final StatementExpression _evaluated;
+        private final CustomExpression _custom;
+
+        private Entry(final int expression,
+                      final StatementExpression evaluated,
+                      final CustomExpression custom) {
+            _expression = expression;
+            _evaluated = evaluated;
+            _custom = custom;
+        }
+
+        private Object match(final Phrase phrase,
+                             final IKeywordConstants.Callback callback,
+                             final JSONObject node) {
+            if (null != _custom) {
+                return null != callback ? callback.handle(_custom, phrase._tokens, node) : false;
+            }
+            if (null != _evaluated) {
+                return _evaluated.match(phrase._tokens);
+            }
+            return phrase._expressions.contains(_expression);
+        }
+
+    }
+
+    private static class Node {
+
+        private final Map<Character, Node> children = new HashMap<>();
+        private final List<Integer> statements = new ArrayList<>(1);
+
+        private Node child(final char c) {
+            return children.computeIfAbsent(c, key -> new Node());
+        }
+
+    }
+
+    private static class Builder {
+
+        private final List<Item> items = new ArrayList<>();
+        private final List<Integer> always = new ArrayList<>();
+        private final List<Statement> statements = new ArrayList<>();
+        private final Map<String, Integer> statement_ids = new HashMap<>();
+        private final List<List<Integer>> statement_groups = new ArrayList<>();
+        private final List<Integer> group_expressions = new ArrayList<>();
+        private final List<Integer> expression_sizes = new ArrayList<>();
+        private final List<Integer> expression_items = new ArrayList<>();
+        private final Map<String, Integer> exact = new HashMap<>();
+        private final Node prefixes = new Node();
+        private final Node suffixes = new Node();
+
+        private void add(final int index,
+                         final JSONObject node) {
+            final JSONArray keys = KeywordsSolver.getKeys(node);
+            if (null == keys || keys.length() == 0) {
+                return;
+            }
+            final int item_index = items.size();
+            final String[] keywords = JsonWrapper.toArrayOfString(keys);
+            final Entry[] entries = new Entry[keywords.length];
+            boolean evaluated = false;
+            for (int i = 0; i < keywords.length; i++) {
+                final String keyword = keywords[i];
+                if (Keyword.isCustom(keyword)) {
+                    entries[i] = new Entry(-1, null, CustomExpression.parse(keyword));
+                    evaluated = true;
+                } else {
+                    final StatementExpression expression = new StatementExpression(keyword);
+                    if (isIndexable(expression)) {
+                        entries[i] = new Entry(this.addExpression(item_index, expression), null, null);
+                    } else {
+                        entries[i] = new Entry(-1, expression, null);
+                        evaluated = true;
+                    }
+                }
+            }
+            items.add(new Item(index, node, entries));
+            if (evaluated) {
+                always.add(item_index);
+            }
+        }
+
+        private int addExpression(final int item_index,
+                                  final StatementExpression expression) {
+            final int id = expression_sizes.size();
+            expression_sizes.add(expression.size());
+            expression_items.add(item_index);
+            for (int i = 0; i < expression.size(); i++) {
+                final int group = group_expressions.size();
+                group_expressions.add(id);
+                for (final Statement statement : expression.statements(i)) {
+                    statement_groups.get(this.addStatement(statement)).add(group);
+                }
+            }
+            return id;
+        }
+
+        private int addStatement(final Statement statement) {
+            final String key = statement.text();
+            final Integer existing = statement_ids.get(key);
+            if (null != existing) {
+                return existing;
+            }
+            final int id = statements.size();
+            statements.add(statement);
+            statement_ids.put(key, id);
+            statement_groups.add(new ArrayList<>(1));
+
+            final String prefix = statement.prefix();
+            final String suffix = statement.suffix();
+            if (!statement.hasWildChars()) {
+                exact.put(key, id);
+            } else if (null != prefix) {
+                Node node = prefixes;
+                for (int i = 0; i < prefix.length(); i++) {
+                    node = node.child(prefix.charAt(i));
+                }
+                node.statements.add(id);
+            } else if (null != suffix) {
+                Node node = suffixes;
+                for (int i = suffix.length() - 1; i >= 0; i--) {
+                    node = node.child(suffix.charAt(i));
+                }
+                node.statements.add(id);
+            }
+            // else: statement never matches
+            return id;
+        }
+
+        private static boolean isIndexable(final StatementExpression expression) {
+            if (expression.size() == 0) {
+                return false; // matches any phrase
+            }
+            for (int i = 0; i < expression.size(); i++) {
+                if (expression.isNegated(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -5,10 +5,14 @@ import org.json.JSONObject;
 import org.lyj.commons.util.StringUtils;
 import org.lyj.commons.util.json.JsonWrapper;
 
-import java.util.Map;
+import java.util.*;
 
 /**
  * Solve keywords matching.
+ * <p>
+ * Models (arrays of keyword items) and keyword arrays are compiled at first use and
+ * compiled version is reused while model is in memory. Call clear() after changing
+ * a model already used for matching.
  */
 public class KeywordsSolver {
 
@@ -21,11 +25,27 @@ public class KeywordsSolver {
     private static final String FLD_VALUE = "value";
     private static final String FLD_PARAMS = "params";
 
+    private static final int MAX_LISTS = 1000; // compiled keyword arrays
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final Map<JSONArray, KeywordIndex> _indexes; // by model instance
+    private final Map<String, KeywordList> _lists;
+
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
     // ------------------------------------------------------------------------
 
     private KeywordsSolver() {
+        _indexes = new WeakHashMap<>();
+        _lists = new LinkedHashMap<String, KeywordList>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, KeywordList> eldest) {
+                return size() > MAX_LISTS;
+            }
+        };
     }
 
     // ------------------------------------------------------------------------
@@ -49,19 +69,57 @@ public class KeywordsSolver {
         return JsonWrapper.toArrayOfString(getKeys(item));
     }
 
+    /**
+     * Compiled version of a model. Model is compiled once and index is reused for same instance.
+     *
+     * @param items Array of keyword items: [{"keys":[...], "value":"...", "params":"..."}, ...]
+     */
+    public KeywordIndex index(final JSONArray items) {
+        synchronized (_indexes) {
+            KeywordIndex index = _indexes.get(items);
+            if (null == index) {
+                index = new KeywordIndex(items);
+                _indexes.put(items, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Remove compiled models and keywords.
+     */
+    public void clear() {
+        synchronized (_indexes) {
+            _indexes.clear();
+        }
+        synchronized (_lists) {
+            _lists.clear();
+        }
+    }
+
     public Object matchKeywords(final String text,
                                 final JSONArray items,
                                 final IKeywordConstants.Callback callback) {
-        final int len = items.length();
-        if (len > 0) {
-            for (int i = 0; i < len; i++) {
-                final Object item = items.get(i);
-                if (item instanceof JSONObject) {
-                    final Object response = this.matchKeywords(text, (JSONObject) item, callback);
-                    if (null != response && !(response instanceof Boolean)) {
-                        if (StringUtils.hasText(response.toString())) {
-                            return response;
-                        }
+        if (items.length() > 0) {
+            return this.matchKeywords(text, this.index(items), callback);
+        }
+        return null;
+    }
+
+    /**
+     * @return Value (or object from custom expression callback) of first item matching text.
+     */
+    public Object matchKeywords(final String text,
+                                final KeywordIndex index,
+                                final IKeywordConstants.Callback callback) {
+        final KeywordIndex.Phrase phrase = index.phrase(text);
+        for (final KeywordIndex.Item item : phrase.items()) {
+            if (item.hasValue()) {
+                final Object match = item.match(phrase, callback);
+                final Object response = match instanceof Boolean ? item.value() : match;
+                if (null != response && !(response instanceof Boolean)) {
+                    if (StringUtils.hasText(response.toString())) {
+                        return response;
                     }
                 }
             }
@@ -105,10 +163,7 @@ public class KeywordsSolver {
 
     public boolean matchKeywords(final String text,
                                  final String[] keywords) {
-        final KeywordList kl = new KeywordList(
-                new KeywordList.Parameters()
-                        .items(keywords)
-        );
+        final KeywordList kl = this.list(keywords);
         final Object match = kl.match(text);
         if (match instanceof Boolean) {
             return (Boolean) match;
@@ -118,10 +173,7 @@ public class KeywordsSolver {
 
     public int matchIndex(final String[] phrase,
                           final String[] keywords) {
-        final KeywordList kl = new KeywordList(
-                new KeywordList.Parameters()
-                        .items(keywords)
-        );
+        final KeywordList kl = this.list(keywords);
         return kl.matchIndex(phrase);
     }
 
@@ -129,6 +181,27 @@ public class KeywordsSolver {
     //                      p r i v a t e
     // ------------------------------------------------------------------------
 
+    /**
+     * Compiled keywords without callback. List is only read, so it is shared between threads.
+     */
+    private KeywordList list(final String[] keywords) {
+        final String key = String.join("\n", keywords);
+        synchronized (_lists) {
+            final KeywordList list = _lists.get(key);
+            if (null != list) {
+                return list;
+            }
+        }
+        final KeywordList list = new KeywordList(
+                new KeywordList.Parameters()
+                        .items(keywords)
+        );
+        synchronized (_lists) {
+            _lists.put(key, list);
+        }
+        return list;
+    }
+
 
     // ------------------------------------------------------------------------
     //                      S T A T I C
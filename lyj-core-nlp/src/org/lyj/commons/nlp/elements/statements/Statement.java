@@ -74,6 +74,62 @@ public class Statement
         return false;
     }
 
+    /**
+     * Same as match(text), but with clear text already calculated.
+     *
+     * @param text       Text to check for matching. ex: "mytext?"
+     * @param clean_text Result of Keyword.clearKeyword(text). ex: "mytext"
+     * @return True if text matches.
+     */
+    public boolean match(final String text,
+                         final String clean_text) {
+        return len(text) > 0 && (this.matchText(text) || this.matchText(clean_text));
+    }
+
+    public String text() {
+        return _raw_text;
+    }
+
+    public boolean hasWildChars() {
+        return _has_wildchars;
+    }
+
+    /**
+     * Text that a matching word must start with.
+     *
+     * @return Whole text if statement has no wildchars, null if statement does not constrain start of word.
+     */
+    public String prefix() {
+        if (!_has_wildchars) {
+            return _raw_text;
+        }
+        if (_mode == MODE_END) {
+            return _clean_text;
+        }
+        if (_mode == MODE_MIDDLE && _text_tokens.length == 2) {
+            return _text_tokens[0];
+        }
+        return null;
+    }
+
+    /**
+     * Text that a matching word must end with.
+     *
+     * @return Whole text if statement has no wildchars, null if statement does not constrain end of word.
+     */
+    public String suffix() {
+        if (!_has_wildchars) {
+            return _raw_text;
+        }
+        if (_mode == MODE_START) {
+            return _clean_text;
+        }
+        if (_mode == MODE_MIDDLE && _text_tokens.length == 2) {
+            return _text_tokens[1];
+        }
+        return null;
+    }
+
     // ------------------------------------------------------------------------
     //                     p r i v a t e
     // ------------------------------------------------------------------------
@@ -88,6 +88,29 @@ public class StatementExpression
         return -1;
     }
 
+    /**
+     * @return Number of statements (groups of alternative statements) that must match.
+     */
+    public int size() {
+        return _statements.size();
+    }
+
+    /**
+     * @param index Index of statement
+     * @return Alternative statements: statement matches if one of them matches a word.
+     */
+    public Statement[] statements(final int index) {
+        return _statements.get(index);
+    }
+
+    /**
+     * @param index Index of statement
+     * @return True if statement matches a word that does NOT match its alternatives.
+     */
+    public boolean isNegated(final int index) {
+        return OP_NOT.equals(CollectionUtils.get(_operators, index));
+    }
+
     // ------------------------------------------------------------------------
     //                      p r i v a t e
     // ------------------------------------------------------------------------
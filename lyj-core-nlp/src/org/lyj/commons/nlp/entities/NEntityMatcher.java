@@ -2,6 +2,7 @@ package org.lyj.commons.nlp.entities;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.lyj.commons.nlp.controllers.batch.BatchStats;
 import org.lyj.commons.nlp.elements.IKeywordConstants;
 import org.lyj.commons.nlp.elements.KeywordList;
 import org.lyj.commons.nlp.elements.KeywordsSolver;
@@ -92,16 +93,31 @@ public class NEntityMatcher {
                           final String[] phrase,
                           final NEntitySchema schema,
                           final IKeywordConstants.Callback callback) {
+        return this.match(lang, phrase, schema, callback, null);
+    }
+
+    /**
+     * @param stats Optional. If not null, time spent and matches are counted for each entity.
+     */
+    public Entity[] match(final String lang,
+                          final String[] phrase,
+                          final NEntitySchema schema,
+                          final IKeywordConstants.Callback callback,
+                          final BatchStats stats) {
         final Collection<Entity> response = new LinkedList<>();
         final Set<String> entity_names = schema.keys();
         for (final String entity_name : entity_names) {
             final NEntitySchema.Rule rule = schema.rule(entity_name);
             if (!rule.isEmpty()) {
+                final long time = null != stats ? System.nanoTime() : 0;
                 final String[] start = rule.start(); // keywords to match for a starting point into phrase
                 final String[] rules = rule.rules(); // expressions, regexp or macro
                 final String opt_intent = rule.optIntent();
                 final int start_index = KeywordsSolver.instance().matchIndex(phrase, start);
                 final Entity entity = parse(lang, entity_name, Math.max(0, start_index), phrase, rules, callback);
+                if (null != stats) {
+                    stats.domain(entity_name, System.nanoTime() - time, null != entity);
+                }
                 if (null != entity) {
                     entity.optIntent(opt_intent); // intent to infer if any
                     response.add(entity);
@@ -1,21 +1,38 @@
 package org.lyj.commons.nlp.entities.regex;
 
 import org.lyj.commons.util.RegExpUtils;
+import org.lyj.commons.util.StringUtils;
 
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 /**
- * Internal RegEx helper
+ * Internal RegEx helper.
+ * Patterns of entity rules are compiled once and reused.
  */
 public class RegExHelper {
 
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final int MAX_PATTERNS = 1000;
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final Map<String, Pattern> _patterns;
+
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
     // ------------------------------------------------------------------------
 
     private RegExHelper() {
-
+        _patterns = new ConcurrentHashMap<>();
     }
 
     // ------------------------------------------------------------------------
@@ -26,15 +43,28 @@ public class RegExHelper {
                           final String[] phrase,
                           final String pattern) {
         final Collection<String> result = new LinkedList<>();
+        final Pattern compiled = this.compile(pattern);
         for (int i = start_index; i < phrase.length; i++) {
             final String word = phrase[i];
-            if (RegExpUtils.match(word, pattern)) {
+            if (StringUtils.hasText(word) && compiled.matcher(word).find()) {
                 result.add(word);
             }
         }
         return result.toArray(new String[0]);
     }
 
+    public Pattern compile(final String pattern) {
+        Pattern compiled = _patterns.get(pattern);
+        if (null == compiled) {
+            if (_patterns.size() >= MAX_PATTERNS) {
+                _patterns.clear();
+            }
+            compiled = Pattern.compile(pattern);
+            _patterns.put(pattern, compiled);
+        }
+        return compiled;
+    }
+
     public String clear(final String word) {
         String response = word;
         // remove ending dot
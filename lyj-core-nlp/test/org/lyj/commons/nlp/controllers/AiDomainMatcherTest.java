@@ -1,12 +1,21 @@
 package org.lyj.commons.nlp.controllers;
 
 import org.lyj.commons.nlp.controllers.domain.AiDomainMatcher;
+import org.lyj.commons.nlp.controllers.domain.DomainIndex;
 import org.lyj.commons.nlp.controllers.domain.DomainMatch;
+import org.lyj.commons.nlp.controllers.domain.DomainMatchList;
 import org.json.JSONArray;
+import org.json.JSONObject;
 import org.junit.Test;
+import org.lyj.commons.nlp.elements.KeywordsSolver;
 import org.lyj.commons.timewatching.TimeWatcher;
 import org.lyj.commons.util.ClassLoaderUtils;
+import org.lyj.commons.util.StringUtils;
 
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -41,6 +50,104 @@ public class AiDomainMatcherTest {
         System.out.println("ELAPSED ms: " + watcher.elapsed());
     }
 
+    @Test
+    public void matchCompiled() throws Exception {
+        final List<JSONArray> domains = Arrays.asList(this.domain(), this.domainAdvanced());
+        final DomainIndex index = AiDomainMatcher.instance().compile(domains);
+        final String[] phrases = {
+                "voglio scarpe rosse",
+                "Vorrei delle SCARPE, rosse!",
+                "mostrami un maglione di lana merinos per donna",
+                "avete pantaloni lacoste uomo?",
+                "quanto costano gli stivali valentino",
+                "ciao come stai",
+                "prenota un tavolo per stasera",
+                "prenota un tavolo e annulla",
+                "disdici la prenotazione",
+                "",
+                "   "
+        };
+        for (final String phrase : phrases) {
+            final DomainMatchList compiled = AiDomainMatcher.instance().match(phrase, index);
+            final DomainMatchList expected = this.matchInterpreted(phrase, domains);
+            assertEquals(phrase, toString(expected), toString(compiled));
+        }
+
+        final TimeWatcher watcher = new TimeWatcher();
+        watcher.start();
+        for (int i = 0; i < 10000; i++) {
+            AiDomainMatcher.instance().match(phrases[i % phrases.length], index);
+        }
+        watcher.stop();
+        System.out.println("COMPILED ELAPSED ms: " + watcher.elapsed());
+
+        watcher.start();
+        for (int i = 0; i < 10000; i++) {
+            this.matchInterpreted(phrases[i % phrases.length], domains);
+        }
+        watcher.stop();
+        System.out.println("INTERPRETED ELAPSED ms: " + watcher.elapsed());
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    /**
+     * Matching without compiled index: each keyword of each item is parsed and matched.
+     */
+    private DomainMatchList matchInterpreted(final String text, final List<JSONArray> domains) {
+        final DomainMatchList responses = new DomainMatchList();
+        for (final JSONArray domain : domains) {
+            final DomainMatch match = new DomainMatch();
+            for (int i = 0; i < domain.length(); i++) {
+                final JSONObject item = domain.getJSONObject(i);
+                final boolean is_value = KeywordsSolver.instance().hasValue(item);
+                if (KeywordsSolver.instance().hasKeywords(item)
+                        && (is_value || KeywordsSolver.instance().hasParams(item))) {
+                    final Object response = KeywordsSolver.instance().matchKeywords(text,
+                            KeywordsSolver.instance().getKeywords(item),
+                            is_value ? KeywordsSolver.getValue(item) : KeywordsSolver.getParams(item),
+                            item, null);
+                    if (response instanceof String && StringUtils.hasText((String) response)) {
+                        if (is_value) {
+                            match.addVerb((String) response);
+                        } else {
+                            match.addParams((String) response);
+                        }
+                    }
+                }
+            }
+            if (match.rating() > 0.0) {
+                responses.add(match);
+                if (match.hasMatchValue() && match.hasMatchParams()) {
+                    break;
+                }
+            }
+        }
+        responses.sort();
+        return responses;
+    }
+
+    private static String toString(final DomainMatchList list) {
+        final StringBuilder sb = new StringBuilder();
+        for (final DomainMatch match : list) {
+            sb.append(match.toString()).append("\n");
+        }
+        return sb.toString();
+    }
+
+    private JSONArray domainAdvanced() {
+        final JSONArray domain = new JSONArray();
+        domain.put(new JSONObject().put("keys", new JSONArray().put("(prenot*|riserv*) + tavol*")).put("value", "booking"));
+        domain.put(new JSONObject().put("keys", new JSONArray().put("***ota + (ta**lo)")).put("params", "f_type=table"));
+        domain.put(new JSONObject().put("keys", new JSONArray().put("annulla - prenota")).put("params", "f_cancel=true"));
+        domain.put(new JSONObject().put("keys", new JSONArray().put("(disdici|annulla)").put("pippo")).put("value", "cancel"));
+        domain.put(new JSONObject().put("keys", new JSONArray().put("@==.tb_products.name")).put("params", "f_product=any"));
+        domain.put(new JSONObject().put("keys", new JSONArray().put("ciao")));
+        return domain;
+    }
+
     private JSONArray domain() {
         final String json = ClassLoaderUtils.getResourceAsString(null, this.getClass(),
                 "domain.json");
@@ -0,0 +1,112 @@
+package org.lyj.commons.nlp.controllers.batch;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.lyj.commons.nlp.controllers.domain.AiDomainMatcher;
+import org.lyj.commons.nlp.controllers.domain.DomainIndex;
+import org.lyj.commons.nlp.controllers.domain.DomainMatchList;
+import org.lyj.commons.nlp.entities.NEntityMatcher;
+import org.lyj.commons.nlp.entities.NEntitySchema;
+import org.lyj.commons.timewatching.TimeWatcher;
+import org.lyj.commons.util.ClassLoaderUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AiBatchMatcherTest {
+
+    private static final String[] PHRASES = {
+            "voglio scarpe rosse",
+            "Vorrei delle SCARPE, rosse!",
+            "mostrami un maglione di lana merinos per donna",
+            "avete pantaloni lacoste uomo?",
+            "quanto costano gli stivali valentino",
+            "ciao come stai"
+    };
+
+    @Test
+    public void matchDomains() throws Exception {
+        final Map<String, JSONArray> domains = new LinkedHashMap<>();
+        domains.put("shop", this.domain());
+        final DomainIndex index = AiDomainMatcher.instance().compile(domains);
+
+        // corpus with repeated phrases and different spacing
+        final List<String> corpus = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            final String phrase = PHRASES[i % PHRASES.length] + (i % 1000 == 0 ? " " + i : "");
+            corpus.add(i % 2 == 0 ? phrase : "  " + phrase.replace(" ", "  "));
+        }
+
+        final AiBatchMatcher<DomainMatchList> batch = AiBatchMatcher.domains(index, null);
+        final TimeWatcher watcher = new TimeWatcher();
+        watcher.start();
+        final List<DomainMatchList> results = batch.match(corpus.stream());
+        watcher.stop();
+
+        assertEquals(corpus.size(), results.size());
+        for (int i = 0; i < corpus.size(); i += 997) {
+            final DomainMatchList expected = AiDomainMatcher.instance().match(corpus.get(i), index);
+            assertEquals(corpus.get(i), toString(expected), toString(results.get(i)));
+        }
+        assertEquals(corpus.size(), batch.stats().phrases());
+        assertTrue(batch.stats().cacheHits() > corpus.size() / 2);
+        assertTrue(batch.stats().domain("shop").count() > 0);
+
+        System.out.println("ELAPSED ms: " + watcher.elapsed());
+        System.out.println(batch.stats());
+
+        // no cache: all phrases are matched
+        final AiBatchMatcher<DomainMatchList> no_cache = AiBatchMatcher.domains(index, null).cacheSize(0);
+        watcher.start();
+        final Map<String, DomainMatchList> consumed = new ConcurrentHashMap<>();
+        no_cache.match(IntStream.range(0, 20000).mapToObj(i -> PHRASES[i % PHRASES.length]), consumed::put);
+        watcher.stop();
+        assertEquals(PHRASES.length, consumed.size());
+        assertEquals(20000, no_cache.stats().domain("shop").count());
+        System.out.println("NO CACHE ELAPSED ms: " + watcher.elapsed());
+        System.out.println(no_cache.stats());
+    }
+
+    @Test
+    public void matchEntities() throws Exception {
+        final NEntitySchema schema = new NEntitySchema(this.schema());
+        final String phrase = "Io sono Mario Rossi ed il mio telefono è 347 78587 oppure via email a angelo@gmail.com";
+
+        final AiBatchMatcher<NEntityMatcher.Entity[]> batch = AiBatchMatcher.entities("it", schema, null);
+        final List<NEntityMatcher.Entity[]> results = batch.match(Collections.nCopies(100, phrase).stream());
+        final NEntityMatcher.Entity[] expected = NEntityMatcher.instance().match("it", phrase, schema, null);
+
+        assertEquals(100, results.size());
+        for (final NEntityMatcher.Entity[] result : results) {
+            assertEquals(Arrays.toString(expected), Arrays.toString(result));
+        }
+        assertEquals(100, batch.stats().phrases());
+        // same phrase may be matched by each thread before first result is cached
+        assertTrue(batch.stats().cacheHits() >= 99 - batch.pool().getParallelism());
+        System.out.println(batch.stats());
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private static String toString(final DomainMatchList list) {
+        return Arrays.toString(list.toArray());
+    }
+
+    private JSONArray domain() {
+        final String json = ClassLoaderUtils.getResourceAsString("org/lyj/commons/nlp/controllers/domain.json");
+        return new JSONArray(json);
+    }
+
+    private JSONObject schema() {
+        final String json = ClassLoaderUtils.getResourceAsString("org/lyj/commons/nlp/entities/schema.json");
+        return new JSONObject(json);
+    }
+
+}
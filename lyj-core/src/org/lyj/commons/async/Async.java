@@ -28,8 +28,11 @@ import org.lyj.commons.util.MathUtils;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Utility class to run async methods
@@ -90,99 +93,68 @@ public abstract class Async {
         return null;
     }
 
-    public static Thread invoke(final Delegates.VarArgsCallback handler, final Object... args) {
+    public static AsyncJob invoke(final Delegates.VarArgsCallback handler, final Object... args) {
         if (null != handler) {
-            final Thread t = wrap(handler, args);
-            t.start();
-            return t;
+            return AsyncScheduler.instance().execute("invoke", () -> handler.handle(args));
         }
         return null;
     }
 
-    public static Thread delay(final Delegates.VarArgsCallback handler, final int delay, final Object... args) {
+    public static AsyncJob delay(final Delegates.VarArgsCallback handler, final int delay, final Object... args) {
         if (null != handler) {
-            Thread t = new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        Thread.sleep(delay);
-                        handler.handle(args);
-                    } catch (Throwable ignored) {
-                    }
+            return AsyncScheduler.instance().schedule("delay", () -> {
+                try {
+                    handler.handle(args);
+                } catch (Throwable ignored) {
                 }
-            });
-            t.setName("delay-" + t.getName());
-            t.setDaemon(true);
-            t.setPriority(Thread.NORM_PRIORITY);
-            t.start();
-            return t;
+            }, delay);
         } else {
             return null;
         }
     }
 
-    public static Thread debounce(final String func_uid,
-                                  final Delegates.VarArgsCallback handler,
-                                  final int delay,
-                                  final Object... args) {
+    public static AsyncJob debounce(final String func_uid,
+                                    final Delegates.VarArgsCallback handler,
+                                    final int delay,
+                                    final Object... args) {
         if (null != handler) {
-            if (!Locker.instance().isLocked(func_uid)) {
-                final ValueObject<Long> clock = new ValueObject<>(System.currentTimeMillis());
-                Locker.instance().lock(func_uid, clock);
+            final ValueObject<Long> clock = new ValueObject<>(System.currentTimeMillis());
+            if (Locker.instance().tryLock(func_uid, clock)) {
                 try {
                     while (System.currentTimeMillis() - clock.content() < delay) {
                         Thread.sleep(delay);
                     }
-                    final Thread t = new Thread(new Runnable() {
-                        @Override
-                        public void run() {
-                            try {
-                                handler.handle(args);
-                            } catch (Throwable ignored) {
-                            }
+                    return AsyncScheduler.instance().execute("debounced", () -> {
+                        try {
+                            handler.handle(args);
+                        } catch (Throwable ignored) {
                         }
                     });
-                    t.setName("debounced-" + t.getName());
-                    t.setDaemon(true);
-                    t.setPriority(Thread.NORM_PRIORITY);
-                    t.start();
-                    return t;
                 } catch (Throwable ignored) {
                 } finally {
                     Locker.instance().unlock(func_uid);
                 }
             } else {
-                ((ValueObject<Long>) Locker.instance().getLocked(func_uid)).content(System.currentTimeMillis());
+                final Object locked = Locker.instance().getLocked(func_uid);
+                if (locked instanceof ValueObject) {
+                    ((ValueObject<Long>) locked).content(System.currentTimeMillis());
+                }
             }
         }
         return null;
 
     }
 
-    public static Thread loop(final Delegates.Function<Boolean> handler) {
+    public static AsyncJob loop(final Delegates.Function<Boolean> handler) {
         return loop(handler, 100);
     }
 
-    public static Thread loop(final Delegates.Function<Boolean> handler, final int delay) {
+    /**
+     * Invoke handler every "delay" milliseconds until it returns true.
+     */
+    public static AsyncJob loop(final Delegates.Function<Boolean> handler, final int delay) {
         if (null != handler) {
-            Thread t = new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    boolean interrupted = false;
-                    try {
-                        while (!interrupted) {
-                            Thread.sleep(delay);
-                            interrupted = handler.handle();
-                        }
-                    } catch (Throwable ignored) {
-                    }
-                }
-            });
-            t.setName("loop-" + t.getName());
-            t.setDaemon(true);
-            t.setPriority(Thread.NORM_PRIORITY);
-            t.start();
-            return t;
+            return AsyncScheduler.instance().loop("loop", handler, delay, delay);
         } else {
             return null;
         }
@@ -201,6 +173,21 @@ public abstract class Async {
         task.getSilent();
     }
 
+    /**
+     * Waits at most milliseconds (zero means forever) for the latch.
+     * If invoked from an AsyncScheduler thread, the pool is allowed to compensate the blocked worker.
+     *
+     * @return true if the latch reached zero
+     */
+    public static boolean await(final CountDownLatch latch, final long milliseconds) throws InterruptedException {
+        if (latch.getCount() > 0) {
+            final LatchBlocker blocker = new LatchBlocker(latch, milliseconds);
+            ForkJoinPool.managedBlock(blocker);
+            return blocker.isReleasable();
+        }
+        return true;
+    }
+
     public static void maxConcurrent(final Thread[] threads,
                                      final int maxConcurrentThreads) {
         maxConcurrent(threads, maxConcurrentThreads, null);
@@ -334,6 +321,34 @@ public abstract class Async {
     //               E M B E D D E D
     // --------------------------------------------------------------------
 
+    private static class LatchBlocker
+            implements ForkJoinPool.ManagedBlocker {
+
+        private final CountDownLatch _latch;
+        private final long _deadline;
+
+        private LatchBlocker(final CountDownLatch latch, final long milliseconds) {
+            _latch = latch;
+            _deadline = milliseconds > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(milliseconds) : 0;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            if (_deadline > 0) {
+                final long remaining = _deadline - System.nanoTime();
+                return remaining <= 0 || _latch.await(remaining, TimeUnit.NANOSECONDS) || System.nanoTime() >= _deadline;
+            }
+            _latch.await();
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return _latch.getCount() == 0;
+        }
+
+    }
+
     private static class CallbackThread<T> {
 
         CallbackThread(final Delegates.Callback<T> callback) {
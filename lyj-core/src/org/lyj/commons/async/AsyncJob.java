@@ -0,0 +1,181 @@
+package org.lyj.commons.async;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Handle of a job running in the shared AsyncScheduler.
+ * Replaces the Thread returned by Async methods: can be joined and interrupted,
+ * but the job does not own a thread.
+ * A job may be made of many steps (i.e. a loop), and is alive until last step completes.
+ */
+public class AsyncJob {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final String _name;
+    private final CountDownLatch _latch;
+
+    private Thread _thread;           // thread running current step
+    private HashedWheelTimer.Timeout _pending; // delayed step waiting in timer
+    private volatile boolean _interrupted;
+    private volatile Throwable _error;
+    private CompletableFuture<Void> _future;  // created on demand
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    AsyncJob(final String name) {
+        _name = name;
+        _latch = new CountDownLatch(1);
+    }
+
+    @Override
+    public String toString() {
+        return "{name: " + _name +
+                ", alive: " + this.isAlive() +
+                ", interrupted: " + _interrupted + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public String name() {
+        return _name;
+    }
+
+    public boolean isAlive() {
+        return _latch.getCount() > 0;
+    }
+
+    public boolean isInterrupted() {
+        return _interrupted;
+    }
+
+    /**
+     * Uncaught error that terminated the job, if any
+     */
+    public Throwable error() {
+        return _error;
+    }
+
+    /**
+     * Waits for the job to terminate.
+     * If invoked from a scheduler thread, the pool is allowed to compensate the blocked worker.
+     */
+    public void join() throws InterruptedException {
+        this.join(0);
+    }
+
+    /**
+     * Waits at most milliseconds for the job to terminate. Zero means wait forever.
+     *
+     * @return true if the job terminated
+     */
+    public boolean join(final long milliseconds) throws InterruptedException {
+        return Async.await(_latch, milliseconds);
+    }
+
+    /**
+     * Future completed when the job terminates, exceptionally if the job failed.
+     */
+    public CompletableFuture<Void> future() {
+        synchronized (this) {
+            if (null == _future) {
+                _future = new CompletableFuture<>();
+                if (!this.isAlive()) {
+                    complete(_future, _error);
+                }
+            }
+            return _future;
+        }
+    }
+
+    /**
+     * Cancel pending steps and interrupt the step in progress.
+     */
+    public void interrupt() {
+        final boolean running;
+        synchronized (this) {
+            _interrupted = true;
+            if (null != _pending) {
+                _pending.cancel();
+                _pending = null;
+            }
+            running = null != _thread;
+            if (running) {
+                _thread.interrupt();
+            }
+        }
+        if (!running) {
+            this.finish(null);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p a c k a g e
+    // ------------------------------------------------------------------------
+
+    synchronized void pending(final HashedWheelTimer.Timeout timeout) {
+        if (_interrupted) {
+            timeout.cancel();
+        } else {
+            _pending = timeout;
+        }
+    }
+
+    /**
+     * Bind the job to current thread.
+     *
+     * @return false if the job was interrupted or already terminated
+     */
+    synchronized boolean begin() {
+        if (_interrupted || !this.isAlive()) {
+            return false;
+        }
+        _pending = null;
+        _thread = Thread.currentThread();
+        return true;
+    }
+
+    void end() {
+        synchronized (this) {
+            _thread = null;
+        }
+        // do not leak an interrupt to next job of the worker
+        Thread.interrupted();
+    }
+
+    void finish(final Throwable error) {
+        final CompletableFuture<Void> future;
+        synchronized (this) {
+            if (!this.isAlive()) {
+                return;
+            }
+            _error = error;
+            _latch.countDown();
+            future = _future;
+        }
+        if (null != future) {
+            complete(future, error);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private static void complete(final CompletableFuture<Void> future,
+                                 final Throwable error) {
+        if (null != error) {
+            future.completeExceptionally(error);
+        } else {
+            future.complete(null);
+        }
+    }
+
+}
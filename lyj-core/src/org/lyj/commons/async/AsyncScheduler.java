@@ -0,0 +1,387 @@
+package org.lyj.commons.async;
+
+import org.json.JSONObject;
+import org.lyj.commons.Delegates;
+import org.lyj.commons.util.ConversionUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide scheduler used by Async, Task and Loop.
+ * <p>
+ * Jobs run in a work-stealing pool sized on available processors (system property "lyj.async.parallelism"),
+ * delayed jobs wait in the shared HashedWheelTimer, so no thread is created per call.
+ * Many callers block inside async handlers (streams, sleeps, joins): a watchdog checks the workers
+ * and when all of them are stuck for longer than "lyj.async.blocking" milliseconds, queued and new jobs
+ * are moved to an elastic overflow executor until the pool recovers.
+ */
+public final class AsyncScheduler {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    public static final String PROP_PARALLELISM = "lyj.async.parallelism";
+    public static final String PROP_BLOCKING = "lyj.async.blocking";
+
+    private static final int DEFAULT_PARALLELISM = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final long DEFAULT_BLOCKING = 1000;
+    private static final long WATCHDOG_INTERVAL = 100;
+    private static final long OVERFLOW_KEEP_ALIVE = 60;
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final int _parallelism;
+    private final long _blocking;
+    private final Pool _pool;
+    private final ThreadPoolExecutor _overflow;
+    private final Set<Step> _running;
+    private final AsyncSchedulerStats _stats;
+
+    private volatile boolean _saturated;
+    private volatile int _stalled;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    private AsyncScheduler(final int parallelism,
+                           final long blocking) {
+        _parallelism = parallelism > 0 ? parallelism : DEFAULT_PARALLELISM;
+        _blocking = blocking > 0 ? blocking : DEFAULT_BLOCKING;
+        _running = ConcurrentHashMap.newKeySet();
+        _stats = new AsyncSchedulerStats();
+
+        _pool = new Pool(_parallelism);
+
+        _overflow = new ThreadPoolExecutor(0, Integer.MAX_VALUE, OVERFLOW_KEEP_ALIVE, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new Factory("lyj-async-overflow-"));
+
+        HashedWheelTimer.instance().schedule(this::watchdog, WATCHDOG_INTERVAL);
+    }
+
+    @Override
+    public String toString() {
+        return this.metrics().toString();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r o p e r t i e s
+    // ------------------------------------------------------------------------
+
+    public int parallelism() {
+        return _parallelism;
+    }
+
+    /**
+     * Milliseconds after which a running job is considered blocked
+     */
+    public long blocking() {
+        return _blocking;
+    }
+
+    public AsyncSchedulerStats stats() {
+        return _stats;
+    }
+
+    /**
+     * True when all workers are blocked and jobs are running in overflow executor
+     */
+    public boolean isSaturated() {
+        return _saturated;
+    }
+
+    /**
+     * Counters and current state of pool and overflow executor.
+     */
+    public JSONObject metrics() {
+        final JSONObject result = _stats.toJson();
+        result.put("parallelism", _parallelism);
+        result.put("pool_size", _pool.getPoolSize());
+        result.put("active", _pool.getActiveThreadCount());
+        result.put("running", _running.size());
+        result.put("stalled", _stalled);
+        result.put("saturated", _saturated);
+        result.put("queued", _pool.getQueuedTaskCount() + _pool.getQueuedSubmissionCount());
+        result.put("steals", _pool.getStealCount());
+        result.put("overflow_threads", _overflow.getPoolSize());
+        return result;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public AsyncJob execute(final String name,
+                            final Runnable task) {
+        return this.schedule(name, task, 0);
+    }
+
+    /**
+     * Run task after a delay (milliseconds).
+     */
+    public AsyncJob schedule(final String name,
+                             final Runnable task,
+                             final long delay) {
+        final AsyncJob job = new AsyncJob(name);
+        this.delay(new Step(job, () -> {
+            task.run();
+            return true;
+        }, 0), delay);
+        return job;
+    }
+
+    /**
+     * Run handler after initial delay and then every interval milliseconds, until handler returns true
+     * or job is interrupted.
+     * Iterations are chained, so an iteration never overlaps the previous one.
+     */
+    public AsyncJob loop(final String name,
+                         final Delegates.Function<Boolean> handler,
+                         final long initial_delay,
+                         final long interval) {
+        final AsyncJob job = new AsyncJob(name);
+        this.delay(new Step(job, handler, interval), initial_delay);
+        return job;
+    }
+
+    /**
+     * Stop accepting new jobs. Jobs already submitted are completed, delayed jobs are moved to current scheduler.
+     */
+    public void shutdown() {
+        _pool.shutdown();
+        _overflow.shutdown();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private void delay(final Step step,
+                       final long delay) {
+        if (delay > 0) {
+            _stats.delay();
+            step.job().pending(HashedWheelTimer.instance().schedule(() -> this.submit(step), delay));
+        } else {
+            this.submit(step);
+        }
+    }
+
+    private void submit(final Step step) {
+        step.queued();
+        _stats.submit();
+        try {
+            if (_saturated) {
+                _stats.overflow();
+                _overflow.execute(step);
+            } else {
+                _pool.execute(step);
+            }
+        } catch (RejectedExecutionException ignored) {
+            // replaced by a new configuration
+            instance().submit(step);
+        }
+    }
+
+    private void watchdog() {
+        if (_pool.isShutdown()) {
+            return;
+        }
+        HashedWheelTimer.instance().schedule(this::watchdog, WATCHDOG_INTERVAL);
+        final long now = System.nanoTime();
+        final long threshold = TimeUnit.MILLISECONDS.toNanos(_blocking);
+        int stalled = 0;
+        for (final Step step : _running) {
+            if (step.pooled() && now - step.started() > threshold) {
+                stalled++;
+            }
+        }
+        _stalled = stalled;
+        _saturated = stalled >= _parallelism;
+        if (_saturated) {
+            // move waiting jobs to overflow executor
+            final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            _pool.drain(tasks);
+            for (final ForkJoinTask<?> task : tasks) {
+                _stats.overflow();
+                _overflow.execute(task::quietlyInvoke);
+            }
+        }
+    }
+
+    private static void uncaught(final Throwable error) {
+        final Thread thread = Thread.currentThread();
+        try {
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, error);
+        } catch (Throwable ignored) {
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    /**
+     * Single execution of a job.
+     */
+    private final class Step
+            implements Runnable {
+
+        private final AsyncJob _job;
+        private final Delegates.Function<Boolean> _body;
+        private final long _interval;
+
+        private volatile long _queued;
+        private volatile long _started;
+        private volatile boolean _pooled;
+
+        private Step(final AsyncJob job,
+                     final Delegates.Function<Boolean> body,
+                     final long interval) {
+            _job = job;
+            _body = body;
+            _interval = interval;
+        }
+
+        @Override
+        public void run() {
+            if (!_job.begin()) {
+                // interrupted while waiting
+                _job.finish(null);
+                return;
+            }
+            _started = System.nanoTime();
+            _pooled = Thread.currentThread() instanceof Worker;
+            _running.add(this);
+            Throwable error = null;
+            boolean done = true;
+            try {
+                done = !Boolean.FALSE.equals(_body.handle());
+            } catch (Throwable t) {
+                error = t;
+                _stats.fail();
+                uncaught(t);
+            } finally {
+                _running.remove(this);
+                _job.end();
+                _stats.complete(_started - _queued, System.nanoTime() - _started);
+            }
+            if (done || null != error || _job.isInterrupted()) {
+                _job.finish(error);
+            } else {
+                delay(new Step(_job, _body, _interval), _interval);
+            }
+        }
+
+        private AsyncJob job() {
+            return _job;
+        }
+
+        private void queued() {
+            _queued = System.nanoTime();
+        }
+
+        private long started() {
+            return _started;
+        }
+
+        private boolean pooled() {
+            return _pooled;
+        }
+
+    }
+
+    private static final class Pool
+            extends ForkJoinPool {
+
+        private Pool(final int parallelism) {
+            super(parallelism, Worker::new, null, true);
+        }
+
+        private int drain(final Collection<? super ForkJoinTask<?>> tasks) {
+            return super.drainTasksTo(tasks);
+        }
+
+    }
+
+    private static final class Worker
+            extends ForkJoinWorkerThread {
+
+        private static final AtomicInteger COUNTER = new AtomicInteger();
+
+        private Worker(final ForkJoinPool pool) {
+            super(pool);
+            super.setName("lyj-async-" + COUNTER.incrementAndGet());
+            super.setDaemon(true);
+        }
+
+    }
+
+    private static final class Factory
+            implements ThreadFactory {
+
+        private final String _prefix;
+        private final AtomicInteger _counter;
+
+        private Factory(final String prefix) {
+            _prefix = prefix;
+            _counter = new AtomicInteger();
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, _prefix + _counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    private static AsyncScheduler __instance;
+
+    public static synchronized AsyncScheduler instance() {
+        if (null == __instance) {
+            __instance = new AsyncScheduler(
+                    ConversionUtils.toInteger(System.getProperty(PROP_PARALLELISM), DEFAULT_PARALLELISM),
+                    ConversionUtils.toLong(System.getProperty(PROP_BLOCKING), DEFAULT_BLOCKING));
+        }
+        return __instance;
+    }
+
+    public static void configure(final int parallelism) {
+        configure(parallelism, DEFAULT_BLOCKING);
+    }
+
+    /**
+     * Replace the scheduler. Jobs of previous scheduler complete in their threads,
+     * delayed steps are moved to the new one.
+     */
+    public static synchronized void configure(final int parallelism,
+                                              final long blocking) {
+        final AsyncScheduler old = __instance;
+        __instance = new AsyncScheduler(parallelism, blocking);
+        if (null != old) {
+            old.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+package org.lyj.commons.async;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scheduler counters for monitoring and pool sizing.
+ */
+public class AsyncSchedulerStats {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final LongAdder _submitted;
+    private final LongAdder _completed;
+    private final LongAdder _failed;
+    private final LongAdder _delayed;
+    private final LongAdder _overflow;
+    private final LongAdder _wait_time;
+    private final LongAdder _run_time;
+    private final LongAccumulator _max_wait_time;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public AsyncSchedulerStats() {
+        _submitted = new LongAdder();
+        _completed = new LongAdder();
+        _failed = new LongAdder();
+        _delayed = new LongAdder();
+        _overflow = new LongAdder();
+        _wait_time = new LongAdder();
+        _run_time = new LongAdder();
+        _max_wait_time = new LongAccumulator(Math::max, 0);
+    }
+
+    @Override
+    public String toString() {
+        return this.toJson().toString();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public JSONObject toJson() {
+        final JSONObject result = new JSONObject();
+        result.put("submitted", this.submitted());
+        result.put("completed", this.completed());
+        result.put("failed", this.failed());
+        result.put("delayed", this.delayed());
+        result.put("overflows", this.overflows());
+        result.put("avg_wait_ms", this.avgWaitTime());
+        result.put("max_wait_ms", this.maxWaitTime());
+        result.put("avg_run_ms", this.avgRunTime());
+        return result;
+    }
+
+    public long submitted() {
+        return _submitted.sum();
+    }
+
+    public long completed() {
+        return _completed.sum();
+    }
+
+    public long failed() {
+        return _failed.sum();
+    }
+
+    /**
+     * Steps scheduled with a delay
+     */
+    public long delayed() {
+        return _delayed.sum();
+    }
+
+    /**
+     * Steps executed out of the pool because all workers were blocked
+     */
+    public long overflows() {
+        return _overflow.sum();
+    }
+
+    /**
+     * Average time (ms) a step waits in queue before running
+     */
+    public double avgWaitTime() {
+        final long count = this.completed();
+        return count > 0 ? (double) TimeUnit.NANOSECONDS.toMicros(_wait_time.sum()) / count / 1000 : 0;
+    }
+
+    public double maxWaitTime() {
+        return (double) TimeUnit.NANOSECONDS.toMicros(_max_wait_time.get()) / 1000;
+    }
+
+    /**
+     * Average time (ms) spent running a step
+     */
+    public double avgRunTime() {
+        final long count = this.completed();
+        return count > 0 ? (double) TimeUnit.NANOSECONDS.toMicros(_run_time.sum()) / count / 1000 : 0;
+    }
+
+    public void reset() {
+        _submitted.reset();
+        _completed.reset();
+        _failed.reset();
+        _delayed.reset();
+        _overflow.reset();
+        _wait_time.reset();
+        _run_time.reset();
+        _max_wait_time.reset();
+    }
+
+    public void submit() {
+        _submitted.increment();
+    }
+
+    public void delay() {
+        _delayed.increment();
+    }
+
+    public void overflow() {
+        _overflow.increment();
+    }
+
+    public void fail() {
+        _failed.increment();
+    }
+
+    public void complete(final long wait_nanos, final long run_nanos) {
+        _completed.increment();
+        _wait_time.add(wait_nanos);
+        _run_time.add(run_nanos);
+        _max_wait_time.accumulate(wait_nanos);
+    }
+
+}
@@ -1,27 +1,68 @@
 package org.lyj.commons.async;
 
+import org.json.JSONObject;
 import org.lyj.commons.Delegates;
 
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Execute threads in a fixed pool with a bounded queue to avoid memory consumption.
- * One queue is full, the queue is blocked until next action.
+ * Once queue is full, the reject policy decides: run in caller thread (default), block the caller
+ * for a while, drop oldest queued task or fail fast.
+ * <p>
+ * Queue wait and run time of each task are measured (see stats()), and an adaptive pool grows its core
+ * when queue wait exceeds targetWait() and shrinks it back when idle.
+ * Running pools are sampled by the shared PoolMonitor.
  */
 public class FixedBlockingPool {
 
+    // --------------------------------------------------------------------
+    //               c o n s t
+    // --------------------------------------------------------------------
+
+    public enum RejectPolicy {
+        /**
+         * Run the task in the submitting thread
+         */
+        CALLER_RUNS,
+        /**
+         * Wait blockTimeout() for room in queue, then fail with RejectedExecutionException
+         */
+        BLOCK,
+        /**
+         * Cancel the oldest queued task to make room
+         */
+        DROP_OLDEST,
+        /**
+         * Fail immediately with RejectedExecutionException
+         */
+        FAIL
+    }
+
+    private static final AtomicInteger COUNTER = new AtomicInteger(0);
+
     // --------------------------------------------------------------------
     //               f i e l d s
     // --------------------------------------------------------------------
 
+    private final FixedBlockingPoolStats _stats;
+
+    private String _name;
     private int _capacity;
     private int _core_pool_size;
     private int _maximum_pool_size;
     private int _keep_alive_time;
     private TimeUnit _keep_alive_time_unit;
     private int _thread_priority;
+    private ThreadFactory _thread_factory;
+    private RejectPolicy _reject_policy;
+    private long _block_timeout;
+    private boolean _adaptive;
+    private long _target_wait;
 
-    private ExecutorService __executor;
+    private volatile InstrumentedExecutor __executor;
     private ExecutorMonitor _executor_monitor;
     private Delegates.Callback<ExecutorMonitor> _monitor_callback;
 
@@ -30,6 +71,9 @@ public class FixedBlockingPool {
     // --------------------------------------------------------------------
 
     public FixedBlockingPool() {
+        _stats = new FixedBlockingPoolStats();
+        _name = "pool-" + COUNTER.incrementAndGet();
+
         _capacity = 100; // starts with 100 threads in queue
 
         _core_pool_size = 5;
@@ -37,14 +81,36 @@ public class FixedBlockingPool {
         _keep_alive_time = 30;
         _keep_alive_time_unit = TimeUnit.MINUTES;
         _thread_priority = Thread.MIN_PRIORITY;
+        _thread_factory = Executors.defaultThreadFactory();
+        _reject_policy = RejectPolicy.CALLER_RUNS;
+        _block_timeout = 30000;
+        _adaptive = false;
+        _target_wait = 100;
+    }
+
+    @Override
+    public String toString() {
+        return this.metrics().toString();
     }
 
     // --------------------------------------------------------------------
     //               p r o p e r t i e s
     // --------------------------------------------------------------------
 
+    public String name() {
+        return _name;
+    }
+
+    /**
+     * Name of the pool in PoolMonitor metrics.
+     */
+    public FixedBlockingPool name(final String value) {
+        _name = value;
+        return this;
+    }
+
     /**
-     * Queue capacity. Once queue limit is reached, other threads are blocked until queue has idle threads for the job.
+     * Queue capacity. Once queue limit is reached, reject policy is applied.
      *
      * @param value capacity of the blocking queue.
      * @return
@@ -56,7 +122,7 @@ public class FixedBlockingPool {
 
     /**
      * The number of threads to keep in the pool, even
-     * if they are idle.
+     * if they are idle. Minimum core size for an adaptive pool.
      *
      * @param value
      * @return
@@ -92,10 +158,74 @@ public class FixedBlockingPool {
         return this;
     }
 
+    public FixedBlockingPool threadFactory(final ThreadFactory value) {
+        if (null != value) {
+            _thread_factory = value;
+        }
+        return this;
+    }
+
+    public FixedBlockingPool rejectPolicy(final RejectPolicy value) {
+        if (null != value) {
+            _reject_policy = value;
+        }
+        return this;
+    }
+
+    /**
+     * Max milliseconds a caller waits for room in queue with BLOCK policy.
+     */
+    public FixedBlockingPool blockTimeout(final long value) {
+        _block_timeout = value;
+        return this;
+    }
+
+    /**
+     * Adaptive pool: core size moves between corePoolSize and maximumPoolSize
+     * following measured queue wait.
+     */
+    public FixedBlockingPool adaptive(final boolean value) {
+        _adaptive = value;
+        return this;
+    }
+
+    /**
+     * Queue wait (milliseconds) an adaptive pool tries to stay below.
+     */
+    public FixedBlockingPool targetWait(final long value) {
+        _target_wait = value;
+        return this;
+    }
+
+    public FixedBlockingPoolStats stats() {
+        return _stats;
+    }
+
+    public JSONObject metrics() {
+        final JSONObject result = _stats.toJson();
+        result.put("name", _name);
+        result.put("policy", _reject_policy.name());
+        result.put("adaptive", _adaptive);
+        result.put("capacity", _capacity);
+        result.put("active", this.getActiveCount());
+        result.put("queued", this.getQueuedCount());
+        final InstrumentedExecutor executor = __executor;
+        if (null != executor) {
+            result.put("pool_size", executor.getPoolSize());
+            result.put("core_pool_size", executor.getCorePoolSize());
+            result.put("largest_pool_size", executor.getLargestPoolSize());
+            result.put("maximum_pool_size", executor.getMaximumPoolSize());
+        }
+        return result;
+    }
+
     // --------------------------------------------------------------------
     //               p u b l i c
     // --------------------------------------------------------------------
 
+    /**
+     * Callback invoked by PoolMonitor at each sampling interval while the pool is running.
+     */
     public FixedBlockingPool monitor(final Delegates.Callback<ExecutorMonitor> callback) {
         _monitor_callback = callback;
         return this;
@@ -122,99 +252,179 @@ public class FixedBlockingPool {
         return null;
     }
 
+    /**
+     * Submit a task and return a future to compose with other async operations.
+     * Future fails if the task fails or if the pool is stopped.
+     */
+    public <T> CompletableFuture<T> supply(final Callable<T> callable) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            this.run(() -> {
+                if (!result.isDone()) {
+                    try {
+                        result.complete(callable.call());
+                    } catch (Throwable t) {
+                        result.completeExceptionally(t);
+                    }
+                }
+                return null;
+            }).whenCancelled(() -> result.cancel(false));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Executor service of this pool, i.e. for libraries requiring an ExecutorService.
+     */
+    public ExecutorService service() {
+        return this.executor();
+    }
+
     public FixedBlockingPool stop() {
         return this.stop(true);
     }
 
     public FixedBlockingPool stop(final boolean interruptIfRunning) {
-        if (null != __executor) {
+        final InstrumentedExecutor executor = __executor;
+        if (null != executor) {
             if (interruptIfRunning) {
-                __executor.shutdownNow();
+                // discarded tasks are cancelled: nobody waits for them forever
+                for (final Runnable task : executor.shutdownNow()) {
+                    if (task instanceof Future) {
+                        ((Future<?>) task).cancel(false);
+                    }
+                }
             } else {
-                __executor.shutdown();
+                executor.shutdown();
             }
-            if (__executor instanceof ThreadPoolExecutor) {
-                ((ThreadPoolExecutor) __executor).purge();
-            }
-        }
-        if (null != _executor_monitor) {
-            _executor_monitor.stop();
+            executor.purge();
         }
+        PoolMonitor.instance().unregister(this);
         return this;
     }
 
     public void join(final long timeout) throws InterruptedException {
-        if (null != __executor && !__executor.isTerminated()) {
-            __executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
-        }
-        if (null != _executor_monitor) {
-            _executor_monitor.stop();
+        final InstrumentedExecutor executor = __executor;
+        if (null != executor && !executor.isTerminated()) {
+            executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
         }
     }
 
     public boolean isTerminated() {
-        if (null != __executor) {
-            return __executor.isTerminated();
+        final InstrumentedExecutor executor = __executor;
+        if (null != executor) {
+            return executor.isTerminated();
         }
         return true;
     }
 
     public int getActiveCount() {
-        if (__executor instanceof ThreadPoolExecutor) {
-            return ((ThreadPoolExecutor) __executor).getActiveCount();
+        final InstrumentedExecutor executor = __executor;
+        if (null != executor) {
+            return executor.getActiveCount();
+        }
+        return 0;
+    }
+
+    public int getQueuedCount() {
+        final InstrumentedExecutor executor = __executor;
+        if (null != executor) {
+            return executor.getQueue().size();
         }
         return 0;
     }
 
     public long getCompletedCount() {
-        if (__executor instanceof ThreadPoolExecutor) {
-            return ((ThreadPoolExecutor) __executor).getCompletedTaskCount();
+        final InstrumentedExecutor executor = __executor;
+        if (null != executor) {
+            return executor.getCompletedTaskCount();
         }
         return 0;
     }
 
+    // --------------------------------------------------------------------
+    //               p a c k a g e
+    // --------------------------------------------------------------------
+
+    /**
+     * Invoked by PoolMonitor at each interval.
+     */
+    void sample() {
+        final InstrumentedExecutor executor = __executor;
+        if (null == executor) {
+            return;
+        }
+        if (executor.isShutdown()) {
+            PoolMonitor.instance().unregister(this);
+            return;
+        }
+        if (_adaptive) {
+            this.adapt(executor);
+        }
+        if (null != _monitor_callback) {
+            Delegates.invoke(_monitor_callback, _executor_monitor);
+        }
+    }
+
     // --------------------------------------------------------------------
     //               p r i v a t e
     // --------------------------------------------------------------------
 
-    private ExecutorService executor() {
+    private InstrumentedExecutor executor() {
         if (null == __executor) {
-            final BlockingQueue<Runnable> linkedBlockingDeque = new LinkedBlockingDeque<>(_capacity);
-            ThreadFactory threadFactory = Executors.defaultThreadFactory();
-            __executor = new ThreadPoolExecutor(_core_pool_size, _maximum_pool_size,
-                    _keep_alive_time, _keep_alive_time_unit,
-                    linkedBlockingDeque,
-                    threadFactory,
-                    new ThreadPoolExecutor.CallerRunsPolicy());
+            synchronized (this) {
+                if (null == __executor) {
+                    final int maximum = Math.max(1, _maximum_pool_size);
+                    final InstrumentedExecutor executor = new InstrumentedExecutor(
+                            Math.min(Math.max(0, _core_pool_size), maximum), maximum,
+                            _keep_alive_time, _keep_alive_time_unit,
+                            new LinkedBlockingQueue<>(Math.max(1, _capacity)),
+                            _thread_factory);
+                    _executor_monitor = new ExecutorMonitor(this, executor);
+                    __executor = executor;
+                    PoolMonitor.instance().register(this);
+                }
+            }
         }
         return __executor;
     }
 
-    private Future<?> run(final Delegates.Handler callback) {
-        final Future<?> future = this.executor().submit(new WorkerThread(_thread_priority, callback));
-        if (null != _monitor_callback) {
-            _executor_monitor = new ExecutorMonitor(this.executor(), _monitor_callback);
-            _executor_monitor.run();
+    /**
+     * Grow core when tasks wait in queue longer than target, shrink it by one thread when the pool is idle.
+     */
+    private void adapt(final InstrumentedExecutor executor) {
+        final long target = TimeUnit.MILLISECONDS.toNanos(_target_wait);
+        final long count = executor._window_count.sumThenReset();
+        final long total = executor._window_wait.sumThenReset();
+        // head of queue tells about tasks still waiting (i.e. all threads busy on long tasks)
+        final long wait = Math.max(count > 0 ? total / count : 0, executor.oldestWait());
+
+        final int core = executor.getCorePoolSize();
+        final int minimum = Math.min(Math.max(0, _core_pool_size), executor.getMaximumPoolSize());
+        int size = core;
+        if (wait > target && !executor.getQueue().isEmpty()) {
+            size = Math.min(executor.getMaximumPoolSize(), core + Math.max(1, core / 2));
+        } else if (wait < target / 4 && executor.getQueue().isEmpty() && executor.getActiveCount() < core / 2) {
+            size = Math.max(minimum, core - 1);
+        }
+        if (size != core) {
+            executor.setCorePoolSize(size);
+            _stats.resize();
         }
-        return future;
     }
 
-    private <T> Future<T> run(final Callable<T> task) {
-        final Future<T> future = this.executor().submit(task);
-        if (null != _monitor_callback) {
-            _executor_monitor = new ExecutorMonitor(this.executor(), _monitor_callback);
-            _executor_monitor.run();
-        }
-        return future;
+    private Future<?> run(final Delegates.Handler callback) {
+        return this.executor().submit(new WorkerThread(_thread_priority, callback));
+    }
+
+    private <T> TimedTask<T> run(final Callable<T> task) {
+        return (TimedTask<T>) this.executor().submit(task);
     }
 
     private Future<?> run(final Runnable task) {
-        final Future<?> future = this.executor().submit(task);
-        if (null != _monitor_callback) {
-            _executor_monitor = new ExecutorMonitor(this.executor(), _monitor_callback);
-            _executor_monitor.run();
-        }
-        return future;
+        return this.executor().submit(task);
     }
 
     // --------------------------------------------------------------------
@@ -230,7 +440,169 @@ public class FixedBlockingPool {
     // --------------------------------------------------------------------
 
     // --------------------------------------------------------------------
-    //               ExecutorMonitor
+    //               InstrumentedExecutor
+    // --------------------------------------------------------------------
+
+    /**
+     * Measures queue wait and run time of tasks, and applies reject policy of the pool.
+     */
+    private final class InstrumentedExecutor
+            extends ThreadPoolExecutor
+            implements RejectedExecutionHandler {
+
+        // wait of tasks started since last sample
+        private final LongAdder _window_wait;
+        private final LongAdder _window_count;
+
+        private InstrumentedExecutor(final int core_pool_size,
+                                     final int maximum_pool_size,
+                                     final long keep_alive_time,
+                                     final TimeUnit unit,
+                                     final BlockingQueue<Runnable> queue,
+                                     final ThreadFactory factory) {
+            super(core_pool_size, maximum_pool_size, keep_alive_time, unit, queue, factory);
+            super.setRejectedExecutionHandler(this);
+            _window_wait = new LongAdder();
+            _window_count = new LongAdder();
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            final Runnable task = command instanceof TimedTask ? command : this.newTaskFor(command, null);
+            _stats.submit();
+            super.execute(task);
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(final Runnable runnable, final T value) {
+            return new TimedTask<>(Executors.callable(runnable, value));
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(final Callable<T> callable) {
+            return new TimedTask<>(callable);
+        }
+
+        @Override
+        protected void beforeExecute(final Thread thread, final Runnable runnable) {
+            super.beforeExecute(thread, runnable);
+            if (runnable instanceof TimedTask) {
+                final TimedTask<?> task = (TimedTask<?>) runnable;
+                task._started = System.nanoTime();
+                final long wait = task._started - task._queued;
+                _stats.start(wait);
+                _window_wait.add(wait);
+                _window_count.increment();
+            }
+        }
+
+        @Override
+        protected void afterExecute(final Runnable runnable, final Throwable error) {
+            super.afterExecute(runnable, error);
+            if (runnable instanceof TimedTask) {
+                final TimedTask<?> task = (TimedTask<?>) runnable;
+                if (task._started > 0) {
+                    _stats.complete(System.nanoTime() - task._started, null != error || task._failed);
+                }
+            }
+        }
+
+        @Override
+        public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                _stats.reject();
+                throw new RejectedExecutionException("Pool '" + _name + "' is stopped.");
+            }
+            switch (_reject_policy) {
+                case BLOCK:
+                    _stats.block();
+                    try {
+                        if (!executor.getQueue().offer(runnable, _block_timeout, TimeUnit.MILLISECONDS)) {
+                            _stats.reject();
+                            throw new RejectedExecutionException("Pool '" + _name + "' queue full after ms: " + _block_timeout);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        _stats.reject();
+                        throw new RejectedExecutionException("Pool '" + _name + "' interrupted waiting for queue.");
+                    }
+                    if (executor.isShutdown() && executor.getQueue().remove(runnable)) {
+                        _stats.reject();
+                        throw new RejectedExecutionException("Pool '" + _name + "' is stopped.");
+                    }
+                    break;
+                case DROP_OLDEST:
+                    final Runnable oldest = executor.getQueue().poll();
+                    if (oldest instanceof Future) {
+                        ((Future<?>) oldest).cancel(false);
+                    }
+                    if (null != oldest) {
+                        _stats.drop();
+                    }
+                    super.execute(runnable);
+                    break;
+                case FAIL:
+                    _stats.reject();
+                    throw new RejectedExecutionException("Pool '" + _name + "' queue full.");
+                default:
+                    _stats.callerRun();
+                    runnable.run();
+            }
+        }
+
+        /**
+         * Nanoseconds the head of the queue is waiting
+         */
+        private long oldestWait() {
+            final Runnable head = super.getQueue().peek();
+            return head instanceof TimedTask ? System.nanoTime() - ((TimedTask<?>) head)._queued : 0;
+        }
+
+    }
+
+    // --------------------------------------------------------------------
+    //               TimedTask
+    // --------------------------------------------------------------------
+
+    private static final class TimedTask<T>
+            extends FutureTask<T> {
+
+        private final long _queued;
+        private volatile long _started;
+        private volatile boolean _failed;
+        private volatile Runnable _on_cancel;
+
+        private TimedTask(final Callable<T> callable) {
+            super(callable);
+            _queued = System.nanoTime();
+        }
+
+        private TimedTask<T> whenCancelled(final Runnable callback) {
+            _on_cancel = callback;
+            if (super.isCancelled()) {
+                callback.run();
+            }
+            return this;
+        }
+
+        @Override
+        protected void setException(final Throwable error) {
+            _failed = true;
+            super.setException(error);
+        }
+
+        @Override
+        protected void done() {
+            final Runnable callback = _on_cancel;
+            if (null != callback && super.isCancelled()) {
+                callback.run();
+            }
+        }
+
+    }
+
+    // --------------------------------------------------------------------
+    //               WorkerThread
     // --------------------------------------------------------------------
 
     public static class WorkerThread extends Thread {
@@ -264,87 +636,66 @@ public class FixedBlockingPool {
     //               ExecutorMonitor
     // --------------------------------------------------------------------
 
+    /**
+     * State of a pool passed to monitor callback.
+     */
     public static class ExecutorMonitor {
 
-        private ThreadPoolExecutor _executor;
-        private Delegates.Callback<ExecutorMonitor> _callback;
-        private boolean _stopped;
+        private final FixedBlockingPool _pool;
+        private final ThreadPoolExecutor _executor;
 
-        private ExecutorMonitor(final ExecutorService executor, final Delegates.Callback<ExecutorMonitor> callback) {
-            if (executor instanceof ThreadPoolExecutor) {
-                _executor = (ThreadPoolExecutor) executor;
-            }
-            _callback = callback;
-            _stopped = false;
+        private ExecutorMonitor(final FixedBlockingPool pool,
+                                final ThreadPoolExecutor executor) {
+            _pool = pool;
+            _executor = executor;
         }
 
-        private void run() {
-            if (null == _callback || null == _executor) {
-                return;
-            }
-            new Thread(() -> {
-                try {
-                    while (!_stopped) {
-                        Delegates.invoke(_callback, this);
-                        Thread.sleep(3000);
-                    }
-                } catch (Throwable ignored) {
-                    _stopped = true;
-                }
-            }).start();
+        public String name() {
+            return _pool.name();
         }
 
-        private void stop() {
-            _stopped = true;
+        public FixedBlockingPoolStats stats() {
+            return _pool.stats();
+        }
+
+        public JSONObject metrics() {
+            return _pool.metrics();
         }
 
         public int activeCount() {
-            if (null != _executor) {
-                return _executor.getActiveCount();
-            }
-            return 0;
+            return _executor.getActiveCount();
+        }
+
+        public int queuedCount() {
+            return _executor.getQueue().size();
+        }
+
+        public int remainingCapacity() {
+            return _executor.getQueue().remainingCapacity();
         }
 
         public long completedCount() {
-            if (null != _executor) {
-                return _executor.getCompletedTaskCount();
-            }
-            return 0;
+            return _executor.getCompletedTaskCount();
         }
 
         public long taskCount() {
-            if (null != _executor) {
-                return _executor.getTaskCount();
-            }
-            return 0;
+            return _executor.getTaskCount();
         }
 
         public int poolSize() {
-            if (null != _executor) {
-                return _executor.getPoolSize();
-            }
-            return 0;
+            return _executor.getPoolSize();
         }
 
         public int corePoolSize() {
-            if (null != _executor) {
-                return _executor.getCorePoolSize();
-            }
-            return 0;
+            return _executor.getCorePoolSize();
         }
 
         public int largestPoolSize() {
-            if (null != _executor) {
-                return _executor.getLargestPoolSize();
-            }
-            return 0;
+            return _executor.getLargestPoolSize();
         }
 
         public int maximumPoolSize() {
-            if (null != _executor) {
-                return _executor.getMaximumPoolSize();
-            }
-            return 0;
+            return _executor.getMaximumPoolSize();
         }
 
     }
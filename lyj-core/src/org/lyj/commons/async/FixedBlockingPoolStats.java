@@ -0,0 +1,177 @@
+package org.lyj.commons.async;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool counters for monitoring.
+ * Wait is the time a task spent in queue, run is the time a pool thread spent executing it.
+ */
+public class FixedBlockingPoolStats {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final LongAdder _submitted;
+    private final LongAdder _completed;
+    private final LongAdder _failed;
+    private final LongAdder _rejected;
+    private final LongAdder _dropped;
+    private final LongAdder _caller_runs;
+    private final LongAdder _blocked;
+    private final LongAdder _resizes;
+    private final TimeHistogram _wait_time;
+    private final TimeHistogram _run_time;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public FixedBlockingPoolStats() {
+        _submitted = new LongAdder();
+        _completed = new LongAdder();
+        _failed = new LongAdder();
+        _rejected = new LongAdder();
+        _dropped = new LongAdder();
+        _caller_runs = new LongAdder();
+        _blocked = new LongAdder();
+        _resizes = new LongAdder();
+        _wait_time = new TimeHistogram();
+        _run_time = new TimeHistogram();
+    }
+
+    @Override
+    public String toString() {
+        return this.toJson().toString();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public JSONObject toJson() {
+        final JSONObject result = new JSONObject();
+        result.put("submitted", this.submitted());
+        result.put("completed", this.completed());
+        result.put("failed", this.failed());
+        result.put("rejected", this.rejected());
+        result.put("dropped", this.dropped());
+        result.put("caller_runs", this.callerRuns());
+        result.put("blocked", this.blocked());
+        result.put("resizes", this.resizes());
+        result.put("wait", _wait_time.toJson());
+        result.put("run", _run_time.toJson());
+        return result;
+    }
+
+    public long submitted() {
+        return _submitted.sum();
+    }
+
+    public long completed() {
+        return _completed.sum();
+    }
+
+    /**
+     * Tasks completed with an error
+     */
+    public long failed() {
+        return _failed.sum();
+    }
+
+    /**
+     * Tasks refused because queue was full
+     */
+    public long rejected() {
+        return _rejected.sum();
+    }
+
+    /**
+     * Queued tasks discarded (and cancelled) to make room for newer ones
+     */
+    public long dropped() {
+        return _dropped.sum();
+    }
+
+    /**
+     * Tasks executed by the submitting thread because queue was full
+     */
+    public long callerRuns() {
+        return _caller_runs.sum();
+    }
+
+    /**
+     * Submissions that had to wait for room in queue
+     */
+    public long blocked() {
+        return _blocked.sum();
+    }
+
+    /**
+     * Core size changes of an adaptive pool
+     */
+    public long resizes() {
+        return _resizes.sum();
+    }
+
+    public TimeHistogram waitTime() {
+        return _wait_time;
+    }
+
+    public TimeHistogram runTime() {
+        return _run_time;
+    }
+
+    public void reset() {
+        _submitted.reset();
+        _completed.reset();
+        _failed.reset();
+        _rejected.reset();
+        _dropped.reset();
+        _caller_runs.reset();
+        _blocked.reset();
+        _resizes.reset();
+        _wait_time.reset();
+        _run_time.reset();
+    }
+
+    public void submit() {
+        _submitted.increment();
+    }
+
+    public void start(final long wait_nanos) {
+        _wait_time.record(wait_nanos);
+    }
+
+    public void complete(final long run_nanos,
+                         final boolean failed) {
+        _completed.increment();
+        _run_time.record(run_nanos);
+        if (failed) {
+            _failed.increment();
+        }
+    }
+
+    public void reject() {
+        _rejected.increment();
+    }
+
+    public void drop() {
+        _dropped.increment();
+    }
+
+    public void callerRun() {
+        _caller_runs.increment();
+    }
+
+    public void block() {
+        _blocked.increment();
+    }
+
+    public void resize() {
+        _resizes.increment();
+    }
+
+}
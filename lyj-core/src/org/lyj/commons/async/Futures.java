@@ -0,0 +1,271 @@
+package org.lyj.commons.async;
+
+import org.lyj.commons.async.future.Task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Non blocking composition of async operations.
+ * <p>
+ * Helpers return CompletableFuture running on AsyncScheduler pool, so pipelines can be composed
+ * with thenApply, thenCompose, etc. (use thenApplyAsync(fn, Futures.executor()) to hop to the pool).
+ * Timeouts and delays use the shared HashedWheelTimer: no thread waits for them.
+ * <p>
+ * Sample usage:
+ * <code>
+ * Futures.map(urls, 10, (url) -> new HttpClient().url(url).sendAsync())<br>
+ * .thenApply((responses) -> responses.size());<br>
+ * </code>
+ */
+public abstract class Futures {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final Executor EXECUTOR = (task) -> AsyncScheduler.instance().execute("future", task);
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    /**
+     * Executor of AsyncScheduler pool, to use with *Async methods of CompletableFuture.
+     */
+    public static Executor executor() {
+        return EXECUTOR;
+    }
+
+    public static CompletableFuture<Void> run(final Runnable task) {
+        return CompletableFuture.runAsync(task, EXECUTOR);
+    }
+
+    public static <T> CompletableFuture<T> supply(final Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, EXECUTOR);
+    }
+
+    public static <T> CompletableFuture<T> call(final Callable<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, EXECUTOR);
+    }
+
+    public static <T> CompletableFuture<T> completed(final T value) {
+        return CompletableFuture.completedFuture(value);
+    }
+
+    public static <T> CompletableFuture<T> failed(final Throwable error) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        result.completeExceptionally(error);
+        return result;
+    }
+
+    /**
+     * Run a Task and complete when the interruptor succeeds or fails.
+     */
+    public static <T> CompletableFuture<T> from(final Task<T> task) {
+        return task.future();
+    }
+
+    /**
+     * Complete after a delay, without sleeping.
+     */
+    public static CompletableFuture<Void> delay(final long milliseconds) {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        HashedWheelTimer.instance().scheduleAsync("future-delay", () -> result.complete(null),
+                milliseconds, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    /**
+     * Complete the future with a TimeoutException if not completed within milliseconds.
+     *
+     * @return the same future
+     */
+    public static <T> CompletableFuture<T> timeout(final CompletableFuture<T> future,
+                                                   final long milliseconds) {
+        if (!future.isDone()) {
+            final HashedWheelTimer.Timeout timeout = HashedWheelTimer.instance().scheduleAsync("future-timeout", () -> {
+                future.completeExceptionally(new TimeoutException("Future timeout ms: " + milliseconds));
+            }, milliseconds, TimeUnit.MILLISECONDS);
+            future.whenComplete((value, error) -> timeout.cancel());
+        }
+        return future;
+    }
+
+    /**
+     * Complete the future with a default value if not completed within milliseconds.
+     *
+     * @return the same future
+     */
+    public static <T> CompletableFuture<T> timeout(final CompletableFuture<T> future,
+                                                   final long milliseconds,
+                                                   final T value) {
+        if (!future.isDone()) {
+            final HashedWheelTimer.Timeout timeout = HashedWheelTimer.instance().scheduleAsync("future-timeout", () -> {
+                future.complete(value);
+            }, milliseconds, TimeUnit.MILLISECONDS);
+            future.whenComplete((result, error) -> timeout.cancel());
+        }
+        return future;
+    }
+
+    /**
+     * Complete when all futures complete, with results in same order.
+     * Fails with the error of first failed future (after all futures are completed).
+     */
+    public static <T> CompletableFuture<List<T>> allOf(final Collection<? extends CompletableFuture<? extends T>> futures) {
+        final List<CompletableFuture<? extends T>> list = new ArrayList<>(futures);
+        return CompletableFuture.allOf(list.toArray(new CompletableFuture<?>[list.size()])).thenApply((ignored) -> {
+            final List<T> result = new ArrayList<>(list.size());
+            for (final CompletableFuture<? extends T> future : list) {
+                result.add(future.join());
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Complete with first completed future, failed or not.
+     * With no futures the result never completes.
+     */
+    public static <T> CompletableFuture<T> anyOf(final Collection<? extends CompletableFuture<? extends T>> futures) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        for (final CompletableFuture<? extends T> future : futures) {
+            future.whenComplete((value, error) -> {
+                if (null != error) {
+                    result.completeExceptionally(unwrap(error));
+                } else {
+                    result.complete(value);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Fan-out: apply an async function to all items, with at most "concurrency" operations in progress.
+     * Results are in same order of items. On first error, no more items are started and the result fails.
+     */
+    public static <I, O> CompletableFuture<List<O>> map(final Collection<? extends I> items,
+                                                        final int concurrency,
+                                                        final Function<? super I, ? extends CompletableFuture<? extends O>> function) {
+        return new FanOut<I, O>(items, concurrency, function).start();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private static Throwable unwrap(final Throwable error) {
+        return error instanceof CompletionException && null != error.getCause() ? error.getCause() : error;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    private static final class FanOut<I, O> {
+
+        private final Iterator<? extends I> _items;
+        private final int _concurrency;
+        private final Function<? super I, ? extends CompletableFuture<? extends O>> _function;
+        private final AtomicReferenceArray<O> _results;
+        private final AtomicInteger _remaining;
+        private final AtomicInteger _running;
+        private final AtomicInteger _pumping;
+        private final CompletableFuture<List<O>> _result;
+
+        private int _index; // accessed while pumping
+
+        private FanOut(final Collection<? extends I> items,
+                       final int concurrency,
+                       final Function<? super I, ? extends CompletableFuture<? extends O>> function) {
+            _items = items.iterator();
+            _concurrency = concurrency > 0 ? concurrency : Integer.MAX_VALUE;
+            _function = function;
+            _results = new AtomicReferenceArray<>(items.size());
+            _remaining = new AtomicInteger(items.size());
+            _running = new AtomicInteger();
+            _pumping = new AtomicInteger();
+            _result = new CompletableFuture<>();
+        }
+
+        private CompletableFuture<List<O>> start() {
+            if (_remaining.get() == 0) {
+                _result.complete(Collections.emptyList());
+            } else {
+                this.pump();
+            }
+            return _result;
+        }
+
+        /**
+         * Start items until concurrency limit.
+         * Only one thread at a time pumps, others ask it to loop again: completions of
+         * already completed futures do not recurse.
+         */
+        private void pump() {
+            if (_pumping.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (!_result.isDone() && _running.get() < _concurrency && _items.hasNext()) {
+                    _running.incrementAndGet();
+                    this.launch(_index++, _items.next());
+                }
+            } while (_pumping.decrementAndGet() != 0);
+        }
+
+        private void launch(final int index, final I item) {
+            CompletableFuture<? extends O> future;
+            try {
+                future = _function.apply(item);
+            } catch (Throwable t) {
+                future = failed(t);
+            }
+            if (null == future) {
+                future = completed(null);
+            }
+            future.whenComplete((value, error) -> {
+                _running.decrementAndGet();
+                if (null != error) {
+                    _result.completeExceptionally(unwrap(error));
+                } else {
+                    _results.set(index, value);
+                    if (_remaining.decrementAndGet() == 0) {
+                        final List<O> list = new ArrayList<>(_results.length());
+                        for (int i = 0; i < _results.length(); i++) {
+                            list.add(_results.get(i));
+                        }
+                        _result.complete(list);
+                    } else {
+                        this.pump();
+                    }
+                }
+            });
+        }
+
+    }
+
+}
@@ -0,0 +1,403 @@
+package org.lyj.commons.async;
+
+import org.json.JSONObject;
+import org.lyj.commons.util.ConversionUtils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide timer shared by Timed, Cicles, AsyncScheduler and other periodic tasks.
+ * <p>
+ * Timeouts are hashed into a wheel of buckets (one bucket per tick), so schedule and cancel are O(1)
+ * and a single daemon thread serves any number of timers.
+ * Precision is one tick (system property "lyj.timer.tick", default 10ms): a timeout never expires
+ * before its deadline and expires at most a tick later.
+ * <p>
+ * Tasks passed to schedule() run in timer thread and must be short, tasks passed to
+ * scheduleAsync() run in AsyncScheduler pool.
+ */
+public final class HashedWheelTimer {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    public static final String PROP_TICK = "lyj.timer.tick";
+    public static final String PROP_WHEEL = "lyj.timer.wheel";
+
+    private static final long DEFAULT_TICK = 10;
+    private static final int DEFAULT_WHEEL = 512;
+    private static final int MAX_TRANSFER = 100000; // timeouts moved from queue to wheel at each tick
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final long _tick_duration;
+    private final Bucket[] _wheel;
+    private final int _mask;
+    private final Queue<Timeout> _queue;
+    private final Queue<Timeout> _cancelled;
+    private final AtomicLong _pending;
+    private final HashedWheelTimerStats _stats;
+    private final long _start_time;
+    private final Thread _worker;
+
+    private long _tick; // accessed only by worker
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    private HashedWheelTimer(final long tick_ms,
+                             final int wheel_size) {
+        _tick_duration = TimeUnit.MILLISECONDS.toNanos(tick_ms > 0 ? tick_ms : DEFAULT_TICK);
+        _wheel = new Bucket[normalize(wheel_size > 0 ? wheel_size : DEFAULT_WHEEL)];
+        for (int i = 0; i < _wheel.length; i++) {
+            _wheel[i] = new Bucket();
+        }
+        _mask = _wheel.length - 1;
+        _queue = new ConcurrentLinkedQueue<>();
+        _cancelled = new ConcurrentLinkedQueue<>();
+        _pending = new AtomicLong();
+        _stats = new HashedWheelTimerStats();
+        _start_time = System.nanoTime();
+
+        _worker = new Thread(this::work, "lyj-timer");
+        _worker.setDaemon(true);
+        _worker.start();
+    }
+
+    @Override
+    public String toString() {
+        return this.metrics().toString();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r o p e r t i e s
+    // ------------------------------------------------------------------------
+
+    /**
+     * Tick duration in milliseconds
+     */
+    public long tickDuration() {
+        return TimeUnit.NANOSECONDS.toMillis(_tick_duration);
+    }
+
+    public int wheelSize() {
+        return _wheel.length;
+    }
+
+    /**
+     * Timeouts waiting for expiration
+     */
+    public long pending() {
+        return _pending.get();
+    }
+
+    public HashedWheelTimerStats stats() {
+        return _stats;
+    }
+
+    public JSONObject metrics() {
+        final JSONObject result = _stats.toJson();
+        result.put("tick_ms", this.tickDuration());
+        result.put("wheel_size", _wheel.length);
+        result.put("pending", this.pending());
+        return result;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public Timeout schedule(final Runnable task,
+                            final long delay_ms) {
+        return this.schedule(task, delay_ms, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run a short task in timer thread after a delay.
+     */
+    public Timeout schedule(final Runnable task,
+                            final long delay,
+                            final TimeUnit unit) {
+        return this.add(new Timeout(this, task, null, deadline(delay, unit)));
+    }
+
+    /**
+     * Run a task in AsyncScheduler pool after a delay.
+     */
+    public Timeout scheduleAsync(final String name,
+                                 final Runnable task,
+                                 final long delay,
+                                 final TimeUnit unit) {
+        return this.add(new Timeout(this, task, null != name ? name : "timer", deadline(delay, unit)));
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private Timeout add(final Timeout timeout) {
+        _pending.incrementAndGet();
+        _stats.schedule();
+        _queue.add(timeout);
+        return timeout;
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            final long now = this.waitForNextTick();
+            this.removeCancelled();
+            this.transfer();
+            _wheel[(int) (_tick & _mask)].expire(now);
+            _tick++;
+        }
+    }
+
+    /**
+     * Sleep until end of current tick.
+     *
+     * @return current time
+     */
+    private long waitForNextTick() {
+        final long expected = _start_time + (_tick + 1) * _tick_duration;
+        while (true) {
+            final long now = System.nanoTime();
+            final long sleep = expected - now;
+            if (sleep <= 0) {
+                _stats.tick(now - expected);
+                return now;
+            }
+            try {
+                Thread.sleep(TimeUnit.NANOSECONDS.toMillis(sleep + 999999));
+            } catch (InterruptedException ignored) {
+                // timer thread never stops
+            }
+        }
+    }
+
+    private void transfer() {
+        for (int i = 0; i < MAX_TRANSFER; i++) {
+            final Timeout timeout = _queue.poll();
+            if (null == timeout) {
+                break;
+            }
+            if (timeout.isPending()) {
+                final long calculated = (timeout._deadline - _start_time) / _tick_duration;
+                final long ticks = Math.max(calculated, _tick);
+                timeout._rounds = (ticks - _tick) / _wheel.length;
+                _wheel[(int) (ticks & _mask)].add(timeout);
+            }
+        }
+    }
+
+    private void removeCancelled() {
+        while (true) {
+            final Timeout timeout = _cancelled.poll();
+            if (null == timeout) {
+                break;
+            }
+            if (null != timeout._bucket) {
+                timeout._bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void run(final Timeout timeout) {
+        final Runnable task = timeout._task;
+        final long deadline = timeout._deadline;
+        if (null == timeout._async) {
+            this.invoke(task, deadline, System.nanoTime());
+        } else {
+            AsyncScheduler.instance().execute(timeout._async, () -> {
+                this.invoke(task, deadline, System.nanoTime());
+            });
+        }
+    }
+
+    private void invoke(final Runnable task,
+                        final long deadline,
+                        final long started) {
+        try {
+            task.run();
+        } catch (Throwable ignored) {
+        } finally {
+            final long latency = Math.max(0, started - deadline);
+            _stats.expire(latency, System.nanoTime() - started, latency > _tick_duration);
+        }
+    }
+
+    private static long deadline(final long delay,
+                                 final TimeUnit unit) {
+        return System.nanoTime() + Math.max(0, unit.toNanos(delay));
+    }
+
+    private static int normalize(final int wheel_size) {
+        int size = 1;
+        while (size < wheel_size) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static final class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final HashedWheelTimer _timer;
+        private final Runnable _task;
+        private final String _async;
+        private final long _deadline;
+        private final AtomicInteger _state;
+
+        // accessed only by worker
+        private long _rounds;
+        private Bucket _bucket;
+        private Timeout _next;
+        private Timeout _prev;
+
+        private Timeout(final HashedWheelTimer timer,
+                        final Runnable task,
+                        final String async,
+                        final long deadline) {
+            _timer = timer;
+            _task = task;
+            _async = async;
+            _deadline = deadline;
+            _state = new AtomicInteger(PENDING);
+        }
+
+        public boolean isPending() {
+            return _state.get() == PENDING;
+        }
+
+        public boolean isCancelled() {
+            return _state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return _state.get() == EXPIRED;
+        }
+
+        public long getDelay(final TimeUnit unit) {
+            return unit.convert(_deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * @return false if task already expired or cancelled
+         */
+        public boolean cancel() {
+            if (_state.compareAndSet(PENDING, CANCELLED)) {
+                _timer._pending.decrementAndGet();
+                _timer._stats.cancel();
+                _timer._cancelled.add(this);
+                return true;
+            }
+            return false;
+        }
+
+        private boolean expire() {
+            if (_state.compareAndSet(PENDING, EXPIRED)) {
+                _timer._pending.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * Double linked list of timeouts in a wheel slot
+     */
+    private final class Bucket {
+
+        private Timeout _head;
+        private Timeout _tail;
+
+        private void add(final Timeout timeout) {
+            timeout._bucket = this;
+            if (null == _head) {
+                _head = _tail = timeout;
+            } else {
+                _tail._next = timeout;
+                timeout._prev = _tail;
+                _tail = timeout;
+            }
+        }
+
+        private Timeout remove(final Timeout timeout) {
+            final Timeout next = timeout._next;
+            if (null != timeout._prev) {
+                timeout._prev._next = next;
+            }
+            if (null != timeout._next) {
+                timeout._next._prev = timeout._prev;
+            }
+            if (timeout == _head) {
+                _head = next;
+            }
+            if (timeout == _tail) {
+                _tail = timeout._prev;
+            }
+            timeout._prev = null;
+            timeout._next = null;
+            timeout._bucket = null;
+            return next;
+        }
+
+        private void expire(final long now) {
+            Timeout timeout = _head;
+            while (null != timeout) {
+                if (!timeout.isPending()) {
+                    timeout = this.remove(timeout);
+                } else if (timeout._rounds <= 0) {
+                    final Timeout next = this.remove(timeout);
+                    if (timeout._deadline <= now) {
+                        if (timeout.expire()) {
+                            run(timeout);
+                        }
+                    } else {
+                        // not yet: wheel it again
+                        _queue.add(timeout);
+                    }
+                    timeout = next;
+                } else {
+                    timeout._rounds--;
+                    timeout = timeout._next;
+                }
+            }
+        }
+
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    private static HashedWheelTimer __instance;
+
+    public static synchronized HashedWheelTimer instance() {
+        if (null == __instance) {
+            __instance = new HashedWheelTimer(
+                    ConversionUtils.toLong(System.getProperty(PROP_TICK), DEFAULT_TICK),
+                    ConversionUtils.toInteger(System.getProperty(PROP_WHEEL), DEFAULT_WHEEL));
+        }
+        return __instance;
+    }
+
+}
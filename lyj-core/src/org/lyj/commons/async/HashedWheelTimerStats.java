@@ -0,0 +1,174 @@
+package org.lyj.commons.async;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timer counters for monitoring.
+ * Drift is the delay of a tick from its expected time, latency is the delay of a callback from its deadline.
+ */
+public class HashedWheelTimerStats {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final LongAdder _scheduled;
+    private final LongAdder _cancelled;
+    private final LongAdder _expired;
+    private final LongAdder _late;
+    private final LongAdder _ticks;
+    private final LongAdder _drift;
+    private final LongAdder _latency;
+    private final LongAdder _run_time;
+    private final LongAccumulator _max_drift;
+    private final LongAccumulator _max_latency;
+    private final LongAccumulator _max_run_time;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public HashedWheelTimerStats() {
+        _scheduled = new LongAdder();
+        _cancelled = new LongAdder();
+        _expired = new LongAdder();
+        _late = new LongAdder();
+        _ticks = new LongAdder();
+        _drift = new LongAdder();
+        _latency = new LongAdder();
+        _run_time = new LongAdder();
+        _max_drift = new LongAccumulator(Math::max, 0);
+        _max_latency = new LongAccumulator(Math::max, 0);
+        _max_run_time = new LongAccumulator(Math::max, 0);
+    }
+
+    @Override
+    public String toString() {
+        return this.toJson().toString();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public JSONObject toJson() {
+        final JSONObject result = new JSONObject();
+        result.put("scheduled", this.scheduled());
+        result.put("cancelled", this.cancelled());
+        result.put("expired", this.expired());
+        result.put("late", this.late());
+        result.put("ticks", this.ticks());
+        result.put("avg_drift_ms", this.avgDrift());
+        result.put("max_drift_ms", this.maxDrift());
+        result.put("avg_latency_ms", this.avgLatency());
+        result.put("max_latency_ms", this.maxLatency());
+        result.put("avg_run_ms", this.avgRunTime());
+        result.put("max_run_ms", this.maxRunTime());
+        return result;
+    }
+
+    public long scheduled() {
+        return _scheduled.sum();
+    }
+
+    public long cancelled() {
+        return _cancelled.sum();
+    }
+
+    public long expired() {
+        return _expired.sum();
+    }
+
+    /**
+     * Callbacks started more than a tick after their deadline: the timer thread or the pool is overloaded
+     */
+    public long late() {
+        return _late.sum();
+    }
+
+    public long ticks() {
+        return _ticks.sum();
+    }
+
+    public double avgDrift() {
+        return avg(_drift.sum(), this.ticks());
+    }
+
+    public double maxDrift() {
+        return millis(_max_drift.get());
+    }
+
+    public double avgLatency() {
+        return avg(_latency.sum(), this.expired());
+    }
+
+    public double maxLatency() {
+        return millis(_max_latency.get());
+    }
+
+    public double avgRunTime() {
+        return avg(_run_time.sum(), this.expired());
+    }
+
+    public double maxRunTime() {
+        return millis(_max_run_time.get());
+    }
+
+    public void reset() {
+        _scheduled.reset();
+        _cancelled.reset();
+        _expired.reset();
+        _late.reset();
+        _ticks.reset();
+        _drift.reset();
+        _latency.reset();
+        _run_time.reset();
+        _max_drift.reset();
+        _max_latency.reset();
+        _max_run_time.reset();
+    }
+
+    public void schedule() {
+        _scheduled.increment();
+    }
+
+    public void cancel() {
+        _cancelled.increment();
+    }
+
+    public void tick(final long drift_nanos) {
+        _ticks.increment();
+        _drift.add(drift_nanos);
+        _max_drift.accumulate(drift_nanos);
+    }
+
+    public void expire(final long latency_nanos,
+                       final long run_nanos,
+                       final boolean late) {
+        _expired.increment();
+        _latency.add(latency_nanos);
+        _run_time.add(run_nanos);
+        _max_latency.accumulate(latency_nanos);
+        _max_run_time.accumulate(run_nanos);
+        if (late) {
+            _late.increment();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private static double avg(final long nanos, final long count) {
+        return count > 0 ? millis(nanos) / count : 0;
+    }
+
+    private static double millis(final long nanos) {
+        return (double) TimeUnit.NANOSECONDS.toMicros(nanos) / 1000;
+    }
+
+}
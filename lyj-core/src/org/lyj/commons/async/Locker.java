@@ -1,12 +1,19 @@
 package org.lyj.commons.async;
 
-import java.util.Collections;
-import java.util.HashMap;
+import org.lyj.commons.async.lock.KeyedLock;
+import org.lyj.commons.async.lock.KeyedLockManager;
+import org.lyj.commons.async.lock.LockStats;
+
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Lock/Unlock a key (string)
  * Useful to lock access to a file or to something we need is accessed only from a single thread.
+ * <p>
+ * Waiting threads are parked and served in arrival order. A key can be unlocked
+ * from a thread other than the one that locked it.
  */
 public class Locker {
 
@@ -15,26 +22,37 @@ public class Locker {
     //                      f i e l d s
     // ------------------------------------------------------------------------
 
-    private final Map<String, Object> _locks;
+    private final KeyedLockManager _manager;
+    private final Map<String, Held> _locks;
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
     // ------------------------------------------------------------------------
 
     private Locker() {
-        _locks = Collections.synchronizedMap(new HashMap<>());
+        _manager = new KeyedLockManager(true);
+        _locks = new ConcurrentHashMap<>();
     }
 
     // ------------------------------------------------------------------------
     //                      p u b l i c
     // ------------------------------------------------------------------------
 
+    public KeyedLockManager manager() {
+        return _manager;
+    }
+
+    public LockStats stats() {
+        return _manager.stats();
+    }
+
     public boolean isLocked(final String key) {
-        return _locks.containsKey(key);
+        return _manager.isLocked(key);
     }
 
     public Object getLocked(final String key) {
-        return _locks.get(key);
+        final Held held = _locks.get(key);
+        return null != held ? held.obj : null;
     }
 
     public void lock(final String key) {
@@ -42,44 +60,44 @@ public class Locker {
     }
 
     public void lock(final String key, final Object obj) {
-        this.await(key);
-        this.add(key, obj);
+        final KeyedLock lock = _manager.lock(key);
+        _locks.put(key, new Held(lock, obj));
     }
 
-    public Object unlock(final String key) {
-        return this.remove(key);
+    /**
+     * Lock only if key is free.
+     *
+     * @return True if locked
+     */
+    public boolean tryLock(final String key, final Object obj) {
+        return this.tryLock(key, obj, 0);
     }
 
-
-    // ------------------------------------------------------------------------
-    //                      p r i v a t e
-    // ------------------------------------------------------------------------
-
-    private void await(final String key) {
+    /**
+     * Lock waiting at most timeout milliseconds.
+     *
+     * @return True if locked
+     */
+    public boolean tryLock(final String key, final Object obj, final long timeout) {
         try {
-            while (_locks.containsKey(key)) {
-                Thread.sleep(100);
+            final KeyedLock lock = _manager.tryLock(key, timeout, TimeUnit.MILLISECONDS);
+            if (null != lock) {
+                _locks.put(key, new Held(lock, obj));
+                return true;
             }
-        } catch (Throwable t) {
-
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        return false;
     }
 
-    private void add(final String key, final Object obj) {
-        synchronized (_locks) {
-            if (!_locks.containsKey(key)) {
-                _locks.put(key, obj);
-            }
-        }
-    }
-
-    private Object remove(final String key) {
-        synchronized (_locks) {
-            if (_locks.containsKey(key)) {
-                return _locks.remove(key);
-            }
-            return null;
+    public Object unlock(final String key) {
+        final Held held = _locks.remove(key);
+        if (null != held) {
+            held.lock.unlock();
+            return held.obj;
         }
+        return null;
     }
 
     // ------------------------------------------------------------------------
@@ -95,4 +113,19 @@ public class Locker {
         return __instance;
     }
 
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    private static final class Held {
+
+        final KeyedLock lock;
+        final Object obj;
+
+        Held(final KeyedLock lock, final Object obj) {
+            this.lock = lock;
+            this.obj = obj;
+        }
+    }
+
 }
@@ -0,0 +1,138 @@
+package org.lyj.commons.async;
+
+import org.json.JSONObject;
+import org.lyj.commons.util.ConversionUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single monitor shared by all FixedBlockingPool instances.
+ * <p>
+ * Started pools register here until stopped. At each interval (system property "lyj.pool.monitor.interval",
+ * default 1000ms) the monitor samples every pool from the shared HashedWheelTimer: adaptive pools
+ * resize their core and monitor callbacks are invoked. No thread is created per pool.
+ */
+public final class PoolMonitor {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    public static final String PROP_INTERVAL = "lyj.pool.monitor.interval";
+
+    private static final long DEFAULT_INTERVAL = 1000;
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final long _interval;
+    private final Set<FixedBlockingPool> _pools;
+
+    private boolean _scheduled; // guarded by this
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    private PoolMonitor(final long interval) {
+        _interval = interval > 0 ? interval : DEFAULT_INTERVAL;
+        _pools = ConcurrentHashMap.newKeySet();
+        _scheduled = false;
+    }
+
+    @Override
+    public String toString() {
+        return this.metrics().toString();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r o p e r t i e s
+    // ------------------------------------------------------------------------
+
+    /**
+     * Sampling interval in milliseconds
+     */
+    public long interval() {
+        return _interval;
+    }
+
+    public Collection<FixedBlockingPool> pools() {
+        return new ArrayList<>(_pools);
+    }
+
+    /**
+     * Metrics of all running pools, by name.
+     */
+    public JSONObject metrics() {
+        final JSONObject pools = new JSONObject();
+        for (final FixedBlockingPool pool : _pools) {
+            pools.put(pool.name(), pool.metrics());
+        }
+        final JSONObject result = new JSONObject();
+        result.put("interval_ms", _interval);
+        result.put("pools", pools);
+        return result;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p a c k a g e
+    // ------------------------------------------------------------------------
+
+    void register(final FixedBlockingPool pool) {
+        _pools.add(pool);
+        synchronized (this) {
+            if (!_scheduled) {
+                _scheduled = true;
+                this.schedule();
+            }
+        }
+    }
+
+    void unregister(final FixedBlockingPool pool) {
+        _pools.remove(pool);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private void schedule() {
+        HashedWheelTimer.instance().scheduleAsync("pool-monitor", this::sample, _interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void sample() {
+        for (final FixedBlockingPool pool : _pools) {
+            try {
+                pool.sample();
+            } catch (Throwable ignored) {
+                // a failing callback does not stop monitoring of other pools
+            }
+        }
+        synchronized (this) {
+            if (_pools.isEmpty()) {
+                _scheduled = false;
+            } else {
+                this.schedule();
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    private static PoolMonitor __instance;
+
+    public static synchronized PoolMonitor instance() {
+        if (null == __instance) {
+            __instance = new PoolMonitor(ConversionUtils.toLong(System.getProperty(PROP_INTERVAL), DEFAULT_INTERVAL));
+        }
+        return __instance;
+    }
+
+}
@@ -0,0 +1,150 @@
+package org.lyj.commons.async;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations.
+ * Buckets grow in powers of two of microseconds (bucket i counts durations below 2^i µs),
+ * so percentiles are approximated by bucket upper bound: error is below 2x, enough to tune a pool.
+ */
+public class TimeHistogram {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final int BUCKETS = 32; // last bucket holds anything over ~35 minutes
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final LongAdder[] _buckets;
+    private final LongAdder _count;
+    private final LongAdder _total;
+    private final LongAccumulator _max;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public TimeHistogram() {
+        _buckets = new LongAdder[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            _buckets[i] = new LongAdder();
+        }
+        _count = new LongAdder();
+        _total = new LongAdder();
+        _max = new LongAccumulator(Math::max, 0);
+    }
+
+    @Override
+    public String toString() {
+        return this.toJson().toString();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public JSONObject toJson() {
+        final JSONObject result = new JSONObject();
+        result.put("count", this.count());
+        result.put("avg_ms", this.avg());
+        result.put("max_ms", this.max());
+        result.put("p50_ms", this.percentile(50));
+        result.put("p90_ms", this.percentile(90));
+        result.put("p99_ms", this.percentile(99));
+        final JSONObject buckets = new JSONObject();
+        for (int i = 0; i < BUCKETS; i++) {
+            final long count = _buckets[i].sum();
+            if (count > 0) {
+                buckets.put("<" + upper(i), count);
+            }
+        }
+        result.put("buckets_ms", buckets);
+        return result;
+    }
+
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        _buckets[bucket(value)].increment();
+        _count.increment();
+        _total.add(value);
+        _max.accumulate(value);
+    }
+
+    public long count() {
+        return _count.sum();
+    }
+
+    /**
+     * Average in milliseconds
+     */
+    public double avg() {
+        final long count = this.count();
+        return count > 0 ? millis(_total.sum()) / count : 0;
+    }
+
+    /**
+     * Max in milliseconds
+     */
+    public double max() {
+        return millis(_max.get());
+    }
+
+    /**
+     * Approximated percentile in milliseconds (upper bound of the bucket), never above max.
+     *
+     * @param percent 0-100
+     */
+    public double percentile(final double percent) {
+        final long count = this.count();
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, Math.max(0, percent)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += _buckets[i].sum();
+            if (seen >= rank) {
+                return Math.min(upper(i), this.max());
+            }
+        }
+        return this.max();
+    }
+
+    public void reset() {
+        for (final LongAdder bucket : _buckets) {
+            bucket.reset();
+        }
+        _count.reset();
+        _total.reset();
+        _max.reset();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private static int bucket(final long nanos) {
+        final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * Upper bound of bucket in milliseconds
+     */
+    private static double upper(final int bucket) {
+        return (double) (1L << bucket) / 1000;
+    }
+
+    private static double millis(final long nanos) {
+        return (double) TimeUnit.NANOSECONDS.toMicros(nanos) / 1000;
+    }
+
+}
@@ -1,12 +1,18 @@
 package org.lyj.commons.async.future;
 
+import org.lyj.commons.async.Async;
+import org.lyj.commons.async.HashedWheelTimer;
+
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Cicles is a Loop controller that handle a single loop invoking many sync tasks.
- * At each loop tick this controller check for all added tasks and evaluate
- * if run method must be called.
+ * Cicles is a controller that handle many periodic tasks without a thread for each of them.
+ * Each task is scheduled in the shared HashedWheelTimer when expires (interval from end of last run)
+ * and runs in the AsyncScheduler pool. A task never overlaps itself.
+ * Loop tick is the minimum interval between two runs of a task.
  */
 public class Cicles {
 
@@ -14,7 +20,7 @@ public class Cicles {
     //                      c o n s t
     // ------------------------------------------------------------------------
 
-    private static final int TICK_MS = 10; // loop tick
+    private static final int TICK_MS = 10; // loop tick (minimum interval)
 
     // ------------------------------------------------------------------------
     //                      f i e l d s
@@ -23,7 +29,9 @@ public class Cicles {
     private final Set<Runner> _delegates;
 
     private int _loop_tick;
-    private Loop _loop;
+    private boolean _running;
+    private int _generation; // changes at each start or clear, to drop runs scheduled before
+    private CountDownLatch _stopped;
 
 
     // ------------------------------------------------------------------------
@@ -44,7 +52,9 @@ public class Cicles {
     // ------------------------------------------------------------------------
 
     public boolean isRunning() {
-        return null != _loop && _loop.isRunning();
+        synchronized (_delegates) {
+            return _running;
+        }
     }
 
     public int loopTick() {
@@ -61,18 +71,21 @@ public class Cicles {
 
     public Cicles start() {
         this.stop();
-        if (null == _loop) {
-            _loop = new Loop(_loop_tick).start(this::tick);
+        synchronized (_delegates) {
+            _running = true;
+            _generation++;
+            _stopped = new CountDownLatch(1);
+            _delegates.forEach(this::schedule);
         }
         return this;
     }
 
     public Cicles stop() {
-        if (null != _loop) {
-            try {
-                _loop.interrupt();
-            } finally {
-                _loop = null;
+        synchronized (_delegates) {
+            if (_running) {
+                _running = false;
+                _delegates.forEach(Runner::cancel);
+                _stopped.countDown();
             }
         }
         return this;
@@ -90,14 +103,23 @@ public class Cicles {
 
     public Cicles clear() {
         synchronized (_delegates) {
+            _delegates.forEach(Runner::cancel);
             _delegates.clear();
+            _generation++;
             return this;
         }
     }
 
     public void join(final long timeout) {
-        if (null != _loop) {
-            _loop.join(timeout);
+        final CountDownLatch stopped;
+        synchronized (_delegates) {
+            stopped = _stopped;
+        }
+        if (null != stopped) {
+            try {
+                Async.await(stopped, timeout);
+            } catch (InterruptedException ignored) {
+            }
         }
     }
 
@@ -112,24 +134,27 @@ public class Cicles {
     private void addRunner(final Runner runner) {
         synchronized (_delegates) {
             if (null != runner && runner._interval > 0 && null != runner._task) {
-                _delegates.add(runner);
+                if (_delegates.add(runner) && _running) {
+                    this.schedule(runner);
+                }
             }
         }
     }
 
-    private void tick(final Loop.LoopInterruptor interruptor) {
-        synchronized (_delegates) {
-            _delegates.forEach((runner) -> {
-                try {
-                    if (null != runner && runner.expired()) {
-                        runner.run();
-                    }
-                } catch (final Throwable t) {
-                    // error running the task
+    private void schedule(final Runner runner) {
+        final int generation = _generation;
+        runner.schedule(Math.max(runner.remaining(), _loop_tick - runner.elapsed()), () -> {
+            try {
+                runner.run();
+            } catch (final Throwable t) {
+                // error running the task
+            }
+            synchronized (_delegates) {
+                if (_running && generation == _generation && _delegates.contains(runner)) {
+                    this.schedule(runner);
                 }
-            });
-
-        }
+            }
+        });
     }
 
     // ------------------------------------------------------------------------
@@ -154,7 +179,8 @@ public class Cicles {
 
         private Runnable _task;
         private final int _interval;
-        private long _last_tick;
+        private volatile long _last_tick;
+        private HashedWheelTimer.Timeout _timeout;
 
         public Runner(final int interval) {
             this(interval, null);
@@ -174,13 +200,18 @@ public class Cicles {
 
         public boolean expired() {
             if (_interval > 0) {
-                final long curr_tick = System.currentTimeMillis();
-                final long diff = curr_tick - _last_tick;
-                return diff >= _interval;
+                return this.elapsed() >= _interval;
             }
             return false;
         }
 
+        /**
+         * Milliseconds to expiration
+         */
+        public long remaining() {
+            return Math.max(0, _interval - this.elapsed());
+        }
+
         @Override
         public void run() {
             if (null != _task) {
@@ -191,6 +222,21 @@ public class Cicles {
                 }
             }
         }
+
+        private long elapsed() {
+            return System.currentTimeMillis() - _last_tick;
+        }
+
+        private synchronized void schedule(final long delay, final Runnable task) {
+            _timeout = HashedWheelTimer.instance().scheduleAsync("cicles", task, delay, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void cancel() {
+            if (null != _timeout) {
+                _timeout.cancel();
+                _timeout = null;
+            }
+        }
     }
 
 }
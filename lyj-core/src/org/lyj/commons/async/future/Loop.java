@@ -1,7 +1,11 @@
 package org.lyj.commons.async.future;
 
+import org.lyj.commons.async.AsyncJob;
+import org.lyj.commons.async.AsyncScheduler;
+
 /**
- * Infinite Loop
+ * Infinite Loop.
+ * Iterations run in the shared AsyncScheduler, so a loop does not own a thread.
  */
 public class Loop {
 
@@ -30,13 +34,13 @@ public class Loop {
     private int _timeout;
     private int _priority;
 
-    private long _time_start;
-    private long _time_end;
+    private volatile long _time_start;
+    private volatile long _time_end;
 
     private final LoopInterruptor _interruptor;
     private LoopHandler _callback;
-    private Thread _thread;
-    private Throwable _error;
+    private volatile AsyncJob _job;
+    private volatile Throwable _error;
 
     // --------------------------------------------------------------------
     //               c o n s t r u c t o r
@@ -67,6 +71,9 @@ public class Loop {
     //               p u b l i c
     // --------------------------------------------------------------------
 
+    /**
+     * Kept for compatibility: iterations run in the scheduler pool at normal priority.
+     */
     public int priority() {
         return _priority;
     }
@@ -130,12 +137,9 @@ public class Loop {
 
     public void join(final long milliseconds) {
         try {
-            if (this.isRunning()) {
-                if (milliseconds > 0) {
-                    _thread.join(milliseconds);
-                } else {
-                    _thread.join();
-                }
+            final AsyncJob job = _job;
+            if (null != job) {
+                job.join(milliseconds);
             }
         } catch (Throwable t) {
             _error = t;
@@ -143,7 +147,8 @@ public class Loop {
     }
 
     public boolean isRunning() {
-        return null != _thread && _thread.isAlive() && !_thread.isInterrupted();
+        final AsyncJob job = _job;
+        return null != job && job.isAlive() && !job.isInterrupted();
     }
 
     public long duration() {
@@ -156,50 +161,44 @@ public class Loop {
 
     private void run() {
         this.stop();
-        _thread = new Thread((Runnable) () -> {
+        _time_start = System.currentTimeMillis();
+        _time_end = _time_start;
+        _job = AsyncScheduler.instance().loop("loop", () -> {
             try {
-                _time_start = System.currentTimeMillis();
-                // initial delay
-                if (_initial_delay > 0) {
-                    Thread.sleep(_initial_delay);
+                if (_interruptor.isStopped()) {
+                    return true;
                 }
-                // loop
-                while (!_interruptor.isStopped()) {
-                    // counter
-                    _interruptor.inc();
-
-                    if (null != _callback) {
-                        if (!_interruptor.isPaused()) {
-                            _callback.handle(_interruptor);
-                        }
-                    } else {
-                        _interruptor.stop();
-                    }
 
-                    // run delay
-                    if (_run_interval > 0) {
-                        Thread.sleep(_run_interval);
-                    }
+                // counter
+                _interruptor.inc();
 
-                    // timeout
-                    if (_timeout > 0 && System.currentTimeMillis() - _time_start > _timeout) {
-                        _interruptor.stop();
+                if (null != _callback) {
+                    if (!_interruptor.isPaused()) {
+                        _callback.handle(_interruptor);
                     }
+                } else {
+                    _interruptor.stop();
+                }
+
+                // timeout
+                if (_timeout > 0 && System.currentTimeMillis() - _time_start > _timeout) {
+                    _interruptor.stop();
                 }
             } catch (Throwable t) {
                 _error = t;
+                _interruptor.stop();
             } finally {
                 _time_end = System.currentTimeMillis();
             }
-        });
-        _thread.setPriority(_priority);
-        _thread.start();
+            return _interruptor.isStopped();
+        }, _initial_delay, _run_interval);
     }
 
     private void stop() {
-        if (null != _thread) {
-            _thread.interrupt();
-            _thread = null;
+        final AsyncJob job = _job;
+        if (null != job) {
+            job.interrupt();
+            _job = null;
         }
     }
 
@@ -209,9 +208,9 @@ public class Loop {
 
     public static class LoopInterruptor {
 
-        private boolean _stopped;
-        private boolean _paused;
-        private long _count;
+        private volatile boolean _stopped;
+        private volatile boolean _paused;
+        private volatile long _count;
 
         public void reset() {
             _count = 0;
@@ -1,13 +1,18 @@
 package org.lyj.commons.async.future;
 
 import org.lyj.commons.async.Async;
+import org.lyj.commons.async.AsyncJob;
+import org.lyj.commons.async.AsyncScheduler;
 import org.lyj.commons.logging.AbstractLogEmitter;
 import org.lyj.commons.util.RandomUtils;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeoutException;
 
 /**
- * functional async action
+ * functional async action.
+ * Action runs in the shared AsyncScheduler and signals completion through the TaskInterruptor.
  */
 public class Task<T>
         extends AbstractLogEmitter {
@@ -40,9 +45,9 @@ public class Task<T>
 
     private final Long _id;
     private final String _name;
-    private final Thread _thread;
     private final TaskInterruptor<T> _interruptor;
-
+    private final CountDownLatch _latch;
+    private final CompletableFuture<T> _future;
 
     // callbacks
     private ActionCallback<T> _callback_action;
@@ -51,13 +56,13 @@ public class Task<T>
     private ExitCallback<T> _callback_exit;
 
     private boolean _debug = false;
-    private boolean _running;
-    private Exception _error;
-    private T _data;
-    private TaskState _state;
+    private volatile boolean _running;
+    private volatile Exception _error;
+    private volatile T _data;
+    private volatile TaskState _state;
     private long _execution_timeout;
     private int _initial_delay;
-    private int _sleep;
+    private volatile AsyncJob _timeout_job;
 
     private long _time_start;
     private long _time_end;
@@ -86,6 +91,9 @@ public class Task<T>
         this(name, callback, 0, 100, timeout);
     }
 
+    /**
+     * @param sleep Not used: completion is notified by the interruptor, no more polled.
+     */
     public Task(final String name, final ActionCallback<T> callback,
                 final int initialDelay, final int sleep, final int timeout) {
         _name = null != name ? name : RandomUtils.randomUUID();
@@ -95,11 +103,11 @@ public class Task<T>
         _id = RandomUtils.getTimeBasedRandomLong(true, true);
 
         _initial_delay = initialDelay;
-        _sleep = sleep;
         _execution_timeout = timeout;
 
-        _interruptor = new TaskInterruptor<T>();
-        _thread = new InternalJob<T>(this);
+        _interruptor = new TaskInterruptor<T>(this::threadStop);
+        _latch = new CountDownLatch(1);
+        _future = new CompletableFuture<>();
 
         _running = false;
 
@@ -170,7 +178,7 @@ public class Task<T>
         this.run();
         // join execution
         try {
-            _thread.join();
+            Async.await(_latch, 0);
         } catch (InterruptedException e) {
             // interrupted
             //-- TIMEOUT --//
@@ -185,6 +193,15 @@ public class Task<T>
         return _data;
     }
 
+    /**
+     * Run the task and return a future completed with data passed at "success" or error passed at "fail".
+     * Does not block: use it to compose tasks with other async operations.
+     */
+    public CompletableFuture<T> future() {
+        this.run();
+        return _future;
+    }
+
     public T getSilent() {
         T result = null;
         try {
@@ -217,7 +234,7 @@ public class Task<T>
     // ------------------------------------------------------------------------
 
     private boolean threadRunning() {
-        return _running || (null != _thread && _thread.isAlive() && !_thread.isInterrupted());
+        return _running;
     }
 
     private void threadRun() {
@@ -225,15 +242,58 @@ public class Task<T>
         if (null == _callback_action) {
             _interruptor.fail(new Exception("Missing action."));
         } else {
-            _thread.start();
+            _state = TaskState.RUNNABLE;
+            _time_start = System.currentTimeMillis();
+
+            final AsyncScheduler scheduler = AsyncScheduler.instance();
+            if (_execution_timeout > 0) {
+                _timeout_job = scheduler.schedule("task-timeout", () -> {
+                    _interruptor.fail(new TimeoutException("Task Action timeout ms: " + _execution_timeout));
+                }, _execution_timeout);
+            }
+            scheduler.schedule("task", () -> {
+                if (!_interruptor.finished()) {
+                    try {
+                        _callback_action.handle(_interruptor);
+                    } catch (Exception ex_error) {
+                        _interruptor.fail(ex_error);
+                    }
+                }
+            }, _initial_delay);
         }
     }
 
+    /**
+     * Invoked once, by first success or fail of the interruptor.
+     */
     private void threadStop() {
-        _state = TaskState.TERMINATED;
-        if (null != _thread) {
-            if (_thread.isAlive() && !_thread.isInterrupted()) {
-                _thread.interrupt();
+        try {
+            this.log("STOP", this.toString());
+
+            _time_end = System.currentTimeMillis();
+            _error = _interruptor.error();
+            _data = _interruptor.data();
+
+            if (null != _error) {
+                this.fail(_error, _data);
+            } else {
+                this.success(_data);
+            }
+
+            // invoke exit callback if any
+            if (null != _callback_exit) {
+                _callback_exit.handle(_error, _data);
+            }
+        } finally {
+            _state = TaskState.TERMINATED;
+            if (null != _timeout_job) {
+                _timeout_job.interrupt();
+            }
+            _latch.countDown();
+            if (null != _error) {
+                _future.completeExceptionally(_error);
+            } else {
+                _future.complete(_data);
             }
         }
     }
@@ -295,22 +355,24 @@ public class Task<T>
 
     public static class TaskInterruptor<T> {
 
+        private final Runnable _on_stop;
+
         private Exception _error;
         private T _data;
         private boolean _stopped = false;
 
 
-        private TaskInterruptor() {
-
+        private TaskInterruptor(final Runnable on_stop) {
+            _on_stop = on_stop;
         }
 
         //-- PROPERTIES --//
 
-        private Exception error() {
+        private synchronized Exception error() {
             return _error;
         }
 
-        private T data() {
+        private synchronized T data() {
             return _data;
         }
 
@@ -320,119 +382,51 @@ public class Task<T>
 
         //-- CALLBACK --//
 
-        public synchronized void fail(final String cause) {
+        public void fail(final String cause) {
             this.fail(new Exception(cause));
         }
 
-        public synchronized void fail(final String cause, final T data) {
+        public void fail(final String cause, final T data) {
             this.fail(new Exception(cause), data);
         }
 
-        public synchronized void fail(final Throwable cause) {
+        public void fail(final Throwable cause) {
             this.fail(new Exception(cause));
         }
 
-        public synchronized void fail(final Throwable cause, final T data) {
+        public void fail(final Throwable cause, final T data) {
             this.fail(new Exception(cause), data);
         }
 
-        public synchronized void fail(final Exception cause) {
+        public void fail(final Exception cause) {
             this.fail(cause, null);
         }
 
-        public synchronized void fail(final Exception cause, final T data) {
-            _error = cause;
-            _data = data;
-            _stopped = true;
-        }
-
-        public synchronized void success(final T data) {
-            _data = data;
-            _stopped = true;
-        }
-
-    }
-
-    // --------------------------------------------------------------------
-    //               E M B E D D E D
-    // --------------------------------------------------------------------
-
-    private static class InternalJob<T>
-            extends Thread {
-
-        private Task<T> _owner;
-        private TaskInterruptor<T> _interruptor;
-
-        public InternalJob(final Task<T> task) {
-            super();
-            _owner = task;
-            _interruptor = _owner._interruptor;
+        public void fail(final Exception cause, final T data) {
+            if (this.stop(cause, data)) {
+                _on_stop.run();
+            }
         }
 
-        @Override
-        public String toString() {
-            return "id:" + _owner.getId();
+        public void success(final T data) {
+            if (this.stop(null, data)) {
+                _on_stop.run();
+            }
         }
 
-        @Override
-        public void run() {
-            try {
-                _owner._state = TaskState.RUNNABLE;
-                _owner._time_start = System.currentTimeMillis();
-
-                // initial delay
-                if (_owner._initial_delay > 0) {
-                    Thread.sleep(_owner._initial_delay);
-                }
-
-                Async.invoke((args) -> {
-                    try {
-                        _owner._callback_action.handle(_interruptor);
-                    } catch (Exception ex_error) {
-                        _interruptor.fail(ex_error);
-                    }
-                });
-
-                // wait finish
-                while (!_interruptor.finished() && !_owner._state.equals(TaskState.TERMINATED) && _owner.threadRunning()) {
-
-                    _owner.log("LOOP", _owner.toString());
-
-                    // run delay
-                    if (_owner._sleep > 0) {
-                        Thread.sleep(_owner._sleep);
-                    }
-
-                    // timeout
-                    if (_owner._execution_timeout > 0 && System.currentTimeMillis() - _owner._time_start > _owner._execution_timeout) {
-                        _interruptor.fail(new TimeoutException("Task Action timeout ms: " + _owner._execution_timeout));
-                    }
-                }
-
-            } catch (Exception t) {
-                _owner._error = t;
-            } finally {
-
-                _owner.log("EXIT LOOP", _owner.toString());
-
-                _owner._time_end = System.currentTimeMillis();
-                _owner._error = _interruptor.error();
-                _owner._data = _interruptor.data();
-
-                if (null != _owner._error) {
-                    _owner.fail(_owner._error, _owner._data);
-                } else {
-                    _owner.success(_owner._data);
-                }
-
-                // invoke exit callback if any
-                if (null != _owner._callback_exit) {
-                    _owner._callback_exit.handle(_owner._error, _owner._data);
-                }
-
-                _owner.threadStop();
+        /**
+         * First call wins (i.e. a success after the timeout is ignored).
+         */
+        private synchronized boolean stop(final Exception cause, final T data) {
+            if (_stopped) {
+                return false;
             }
+            _error = cause;
+            _data = data;
+            _stopped = true;
+            return true;
         }
+
     }
 
 }
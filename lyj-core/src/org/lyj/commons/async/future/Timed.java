@@ -20,12 +20,20 @@
 
 package org.lyj.commons.async.future;
 
+import org.lyj.commons.async.Async;
+import org.lyj.commons.async.HashedWheelTimer;
 import org.lyj.commons.logging.AbstractLogEmitter;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Act as a timer,
@@ -37,6 +45,9 @@ import java.util.concurrent.*;
  * <li>Stop after a specific number of cicles</li>
  * </ol>
  * <p>
+ * All Timed instances share the HashedWheelTimer (precision is a timer tick) and run callbacks in the
+ * AsyncScheduler pool. Non daemon timers keep the JVM alive while running.
+ * <p>
  * <br>
  * Sample usage:
  * <code>
@@ -58,7 +69,7 @@ public class Timed
     // --------------------------------------------------------------------
 
     /**
-     * If invocations might overlap, you can specify more than a single thread.
+     * Kept for compatibility: a task never overlaps itself and runs in the shared pool.
      */
     private static final int MAX_THREADS = 1;
 
@@ -66,10 +77,12 @@ public class Timed
     //               f i e l d s
     // --------------------------------------------------------------------
 
-    private final List<ScheduledFuture<?>> _tasks;
-    private ScheduledFuture<?> _stop_task;
-    private ScheduledExecutorService __scheduler;
+    private final List<RunTask> _tasks;
+    private HashedWheelTimer.Timeout _stop_task;
     private int _count;
+    private boolean _running;
+    private boolean _shutdown;
+    private boolean _retained;
 
     //-- properties --//
     private int _max_threads;
@@ -103,7 +116,7 @@ public class Timed
         _stop_after_time = stopAfterTime;
         _stop_after_count = stopAfterCount;
 
-        _tasks = new LinkedList<ScheduledFuture<?>>();
+        _tasks = new LinkedList<RunTask>();
     }
 
     // --------------------------------------------------------------------
@@ -129,7 +142,7 @@ public class Timed
     }
 
     /**
-     * Set to true if you want that tasks works as Daemon
+     * Set to true if you want that tasks works as Daemon (do not keep JVM alive)
      *
      * @param value boolean
      */
@@ -195,74 +208,64 @@ public class Timed
     }
 
     public void stop(final boolean interrupt_if_running) {
-        getScheduler().schedule(new StopTask(this, interrupt_if_running),
-                0, TimeUnit.MILLISECONDS);
+        this.finish(interrupt_if_running);
     }
 
     public void join() {
+        final List<RunTask> tasks;
         synchronized (this) {
-            for (final ScheduledFuture<?> task : _tasks) {
-                try {
-                    if (!task.isDone() && !task.isCancelled()) {
-                        task.get();
-                    }
-                } catch (Exception ignored) {
+            tasks = new ArrayList<>(_tasks);
+        }
+        for (final RunTask task : tasks) {
+            try {
+                if (!task.isDone() && !task.isCancelled()) {
+                    task.get();
                 }
+            } catch (Exception ignored) {
             }
         }
     }
 
-    public boolean isRunning() {
-        return null != __scheduler && !__scheduler.isShutdown() && !__scheduler.isTerminated();
+    public synchronized boolean isRunning() {
+        return _running;
     }
 
-    public boolean isShutdown() {
-        return null != __scheduler && __scheduler.isShutdown();
+    public synchronized boolean isShutdown() {
+        return _shutdown;
     }
 
-    public boolean isTerminated() {
-        return null != __scheduler && __scheduler.isTerminated();
+    public synchronized boolean isTerminated() {
+        return _shutdown && _tasks.isEmpty();
     }
 
     // --------------------------------------------------------------------
     //               p r i v a t e
     // --------------------------------------------------------------------
 
-    private ScheduledExecutorService getScheduler() {
-        this.init();
-        return __scheduler;
-    }
-
-    private void init() {
-        if (null == __scheduler) {
-            __scheduler = Executors.newScheduledThreadPool(this.getMaxThreads(), new Factory(this));
-        }
-    }
-
     private void finish(final boolean interrupt_if_running) {
-        try {
-            for (final ScheduledFuture<?> task : _tasks) {
-                if (!task.isCancelled() || !task.isDone()) {
-                    task.cancel(interrupt_if_running);
-                }
-            }
-        } catch (Throwable ignored) {
-        } finally {
+        final List<RunTask> tasks;
+        synchronized (this) {
+            tasks = new ArrayList<>(_tasks);
             _tasks.clear();
+            if (null != _stop_task) {
+                _stop_task.cancel();
+                _stop_task = null;
+            }
+            if (_running) {
+                _shutdown = true;
+            }
+            _running = false;
+            if (_retained) {
+                _retained = false;
+                release();
+            }
         }
         //-- stop all tasks--//
-        try {
-            if (null != __scheduler) {
-                if (interrupt_if_running) {
-                    __scheduler.shutdownNow();
-                } else {
-                    __scheduler.shutdown();
-                }
+        for (final RunTask task : tasks) {
+            try {
+                task.cancel(interrupt_if_running);
+            } catch (Throwable ignored) {
             }
-        } catch (Throwable ignored) {
-        } finally {
-            __scheduler = null;
-            _stop_task = null;
         }
     }
 
@@ -270,21 +273,29 @@ public class Timed
         if (_initial_delay == 0 && _interval == 0) {
             _stop_after_count = 1; // avoid infinite loop at no interval
         }
-        final ScheduledFuture<?> future = getScheduler().scheduleWithFixedDelay(
-                new RunTask(this, callback), _initial_delay, _interval, _time_unit
-        );
-        // add to internal list
-        _tasks.add(future);
-
-        //-- eval if run count-down--//
-        if (_stop_after_time > 0 && null == _stop_task) {
-            _stop_task = getScheduler().schedule(new StopTask(this, false), _stop_after_time, _time_unit);
+        final RunTask task = new RunTask(this, callback);
+        synchronized (this) {
+            // add to internal list
+            _tasks.add(task);
+            _running = true;
+            _shutdown = false;
+            if (!_daemon && !_retained) {
+                _retained = true;
+                retain();
+            }
+
+            //-- eval if run count-down--//
+            if (_stop_after_time > 0 && null == _stop_task) {
+                _stop_task = HashedWheelTimer.instance().scheduleAsync("timed-stop",
+                        new StopTask(this, false), _stop_after_time, _time_unit);
+            }
         }
+        task.schedule(_initial_delay);
 
-        return future;
+        return task;
     }
 
-    private int incCount() {
+    private synchronized int incCount() {
         if (_count == Integer.MAX_VALUE) {
             _count = 0; // reset counter to avoid errors
         }
@@ -292,10 +303,6 @@ public class Timed
         return _count;
     }
 
-    private void onTaskFinish() {
-
-    }
-
     // --------------------------------------------------------------------
     //               S T A T I C
     // --------------------------------------------------------------------
@@ -315,31 +322,47 @@ public class Timed
         return date.getTime() - System.currentTimeMillis();
     }
 
-    // --------------------------------------------------------------------
-    //               E M B E D D E D
-    // --------------------------------------------------------------------
+    private static final Object KEEP_ALIVE = new Object();
+    private static int __keep_alive_count;
 
     /**
-     * Thread Factory
+     * A single non daemon thread waits while at least one non daemon Timed is running.
      */
-    private static final class Factory
-            implements ThreadFactory {
-
-        private final Timed _sender;
-
-        public Factory(final Timed sender) {
-            _sender = sender;
+    private static void retain() {
+        synchronized (KEEP_ALIVE) {
+            __keep_alive_count++;
+            if (__keep_alive_count == 1) {
+                final Thread t = new Thread(() -> {
+                    synchronized (KEEP_ALIVE) {
+                        while (__keep_alive_count > 0) {
+                            try {
+                                KEEP_ALIVE.wait();
+                            } catch (InterruptedException ignored) {
+                            }
+                        }
+                    }
+                }, "lyj-timed-keepalive");
+                t.setDaemon(false);
+                t.start();
+            }
         }
+    }
 
-        @Override
-        public Thread newThread(final Runnable r) {
-            final Thread t = new Thread(r);
-            t.setPriority(Thread.NORM_PRIORITY);
-            t.setDaemon(_sender.isDaemon());
-            return t;
+    private static void release() {
+        synchronized (KEEP_ALIVE) {
+            if (__keep_alive_count > 0) {
+                __keep_alive_count--;
+                if (__keep_alive_count == 0) {
+                    KEEP_ALIVE.notifyAll();
+                }
+            }
         }
     }
 
+    // --------------------------------------------------------------------
+    //               E M B E D D E D
+    // --------------------------------------------------------------------
+
     public static final class TaskInterruptor {
 
         private boolean _interrupted = false;
@@ -374,23 +397,105 @@ public class Timed
     }
 
     /**
-     * Task Runner
+     * Task Runner.
+     * Each run schedules the next one after the interval (fixed delay), so runs never overlap.
      */
     private static final class RunTask
-            implements Runnable {
+            implements Runnable, ScheduledFuture<Object> {
 
         private final Handler _callback;
         private final Timed _sender;
+        private final CountDownLatch _done;
+
+        private HashedWheelTimer.Timeout _timeout;
+        private Thread _thread;
+        private boolean _cancelled;
 
         public RunTask(final Timed sender,
                        final Handler callback) {
             _sender = sender;
             _callback = callback;
+            _done = new CountDownLatch(1);
         }
 
         @Override
         public void run() {
-            this.invoke();
+            synchronized (this) {
+                if (_cancelled) {
+                    return;
+                }
+                _thread = Thread.currentThread();
+            }
+            try {
+                this.invoke();
+            } finally {
+                synchronized (this) {
+                    _thread = null;
+                }
+            }
+            this.schedule(_sender.getInterval());
+        }
+
+        @Override
+        public long getDelay(final TimeUnit unit) {
+            final HashedWheelTimer.Timeout timeout;
+            synchronized (this) {
+                timeout = _timeout;
+            }
+            return null != timeout && timeout.isPending() ? timeout.getDelay(unit) : 0;
+        }
+
+        @Override
+        public int compareTo(final Delayed other) {
+            return Long.compare(this.getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public boolean cancel(final boolean interrupt_if_running) {
+            synchronized (this) {
+                if (_cancelled) {
+                    return false;
+                }
+                _cancelled = true;
+                if (null != _timeout) {
+                    _timeout.cancel();
+                }
+                if (interrupt_if_running && null != _thread && _thread != Thread.currentThread()) {
+                    _thread.interrupt();
+                }
+            }
+            _done.countDown();
+            return true;
+        }
+
+        @Override
+        public synchronized boolean isCancelled() {
+            return _cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return _done.getCount() == 0;
+        }
+
+        @Override
+        public Object get() throws InterruptedException {
+            Async.await(_done, 0);
+            throw new CancellationException();
+        }
+
+        @Override
+        public Object get(final long timeout, final TimeUnit unit) throws InterruptedException, TimeoutException {
+            if (!Async.await(_done, unit.toMillis(timeout))) {
+                throw new TimeoutException();
+            }
+            throw new CancellationException();
+        }
+
+        private synchronized void schedule(final long delay) {
+            if (!_cancelled) {
+                _timeout = HashedWheelTimer.instance().scheduleAsync("timed", this, delay, _sender.getTimeUnit());
+            }
         }
 
         private void invoke() {
@@ -0,0 +1,74 @@
+package org.lyj.commons.async.lock;
+
+/**
+ * A lock held on a key of a KeyedLockManager.
+ * <p>
+ * Not bound to the thread that acquired it: can be released from any thread,
+ * but only once. Use with try-with-resources:
+ * <code>try (KeyedLock lock = manager.lock(key)) {... code ...}</code>
+ */
+public final class KeyedLock
+        implements AutoCloseable {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final KeyedLockManager _manager;
+    private final Object _key;
+    private final int _permits;
+    private boolean _released;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    KeyedLock(final KeyedLockManager manager,
+              final Object key,
+              final int permits) {
+        _manager = manager;
+        _key = key;
+        _permits = permits;
+        _released = false;
+    }
+
+    @Override
+    public String toString() {
+        return "{key: " + _key + ", " + (this.isExclusive() ? "write" : "read") + ", released: " + _released + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public Object key() {
+        return _key;
+    }
+
+    public boolean isExclusive() {
+        return _permits > 1;
+    }
+
+    public synchronized boolean isReleased() {
+        return _released;
+    }
+
+    /**
+     * Release the lock. Further calls have no effect.
+     */
+    public void unlock() {
+        synchronized (this) {
+            if (_released) {
+                return;
+            }
+            _released = true;
+        }
+        _manager.release(_key, _permits);
+    }
+
+    @Override
+    public void close() {
+        this.unlock();
+    }
+
+}
@@ -0,0 +1,224 @@
+package org.lyj.commons.async.lock;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read/write locks by key.
+ * <p>
+ * Every key gets a fair read/write lock built on a semaphore: readers share it,
+ * a writer excludes everyone and waiting threads are parked and served in arrival
+ * order, so a waiting writer is never starved by new readers.
+ * Locks are not reentrant and not bound to the acquiring thread.
+ * <p>
+ * Keys are reference counted (holders and waiters) and removed as soon as nobody
+ * uses them, so the manager holds memory only for keys in use.
+ */
+public class KeyedLockManager {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final int WRITE_PERMITS = Integer.MAX_VALUE;
+    private static final int READ_PERMITS = 1;
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final boolean _fair;
+    private final Map<Object, Entry> _entries;
+    private final LockStats _stats;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public KeyedLockManager() {
+        this(true);
+    }
+
+    public KeyedLockManager(final boolean fair) {
+        _fair = fair;
+        _entries = new ConcurrentHashMap<>();
+        _stats = new LockStats();
+    }
+
+    @Override
+    public String toString() {
+        return "{fair: " + _fair + ", keys: " + this.size() + ", stats: " + _stats + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public boolean isFair() {
+        return _fair;
+    }
+
+    public LockStats stats() {
+        return _stats;
+    }
+
+    /**
+     * Number of keys currently locked or waited.
+     */
+    public int size() {
+        return _entries.size();
+    }
+
+    public boolean isLocked(final Object key) {
+        final Entry entry = _entries.get(key);
+        return null != entry && entry.permits.availablePermits() < WRITE_PERMITS;
+    }
+
+    public boolean isWriteLocked(final Object key) {
+        final Entry entry = _entries.get(key);
+        return null != entry && entry.permits.availablePermits() == 0;
+    }
+
+    /**
+     * Exclusive lock. Waits until acquired, ignoring interrupts.
+     */
+    public KeyedLock lock(final Object key) {
+        return this.acquire(key, WRITE_PERMITS);
+    }
+
+    public KeyedLock writeLock(final Object key) {
+        return this.acquire(key, WRITE_PERMITS);
+    }
+
+    /**
+     * Shared lock. Waits until acquired, ignoring interrupts.
+     */
+    public KeyedLock readLock(final Object key) {
+        return this.acquire(key, READ_PERMITS);
+    }
+
+    /**
+     * Exclusive lock with timeout.
+     *
+     * @return Lock or null if timeout elapsed.
+     */
+    public KeyedLock tryLock(final Object key,
+                             final long timeout,
+                             final TimeUnit unit) throws InterruptedException {
+        return this.tryAcquire(key, WRITE_PERMITS, timeout, unit);
+    }
+
+    public KeyedLock tryWriteLock(final Object key,
+                                  final long timeout,
+                                  final TimeUnit unit) throws InterruptedException {
+        return this.tryAcquire(key, WRITE_PERMITS, timeout, unit);
+    }
+
+    public KeyedLock tryReadLock(final Object key,
+                                 final long timeout,
+                                 final TimeUnit unit) throws InterruptedException {
+        return this.tryAcquire(key, READ_PERMITS, timeout, unit);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p a c k a g e
+    // ------------------------------------------------------------------------
+
+    void release(final Object key, final int permits) {
+        final Entry entry = _entries.get(key);
+        if (null != entry) {
+            entry.permits.release(permits);
+            this.unref(key);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private KeyedLock acquire(final Object key,
+                              final int permits) {
+        final Entry entry = this.ref(key);
+        long wait = 0;
+        if (!this.tryAcquireNow(entry, permits)) {
+            final long start = System.nanoTime();
+            entry.permits.acquireUninterruptibly(permits);
+            wait = Math.max(1, System.nanoTime() - start);
+        }
+        _stats.acquired(wait);
+        return new KeyedLock(this, key, permits);
+    }
+
+    private KeyedLock tryAcquire(final Object key,
+                                 final int permits,
+                                 final long timeout,
+                                 final TimeUnit unit) throws InterruptedException {
+        final Entry entry = this.ref(key);
+        boolean acquired = false;
+        try {
+            long wait = 0;
+            if (this.tryAcquireNow(entry, permits)) {
+                acquired = true;
+            } else {
+                final long start = System.nanoTime();
+                acquired = entry.permits.tryAcquire(permits, timeout, unit);
+                wait = Math.max(1, System.nanoTime() - start);
+            }
+            if (acquired) {
+                _stats.acquired(wait);
+                return new KeyedLock(this, key, permits);
+            }
+            _stats.timeout();
+            return null;
+        } finally {
+            if (!acquired) {
+                this.unref(key);
+            }
+        }
+    }
+
+    private boolean tryAcquireNow(final Entry entry,
+                                  final int permits) {
+        if (!_fair) {
+            return entry.permits.tryAcquire(permits);
+        }
+        // untimed tryAcquire barges even on fair semaphores
+        try {
+            return entry.permits.tryAcquire(permits, 0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Entry ref(final Object key) {
+        return _entries.compute(key, (k, entry) -> {
+            final Entry result = null != entry ? entry : new Entry(_fair);
+            result.refs++;
+            return result;
+        });
+    }
+
+    private void unref(final Object key) {
+        _entries.computeIfPresent(key, (k, entry) -> --entry.refs > 0 ? entry : null);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    private static final class Entry {
+
+        // all permits free: unlocked; zero permits: write locked
+        final Semaphore permits;
+        int refs; // guarded by map compute
+
+        Entry(final boolean fair) {
+            this.permits = new Semaphore(WRITE_PERMITS, fair);
+            this.refs = 0;
+        }
+    }
+
+}
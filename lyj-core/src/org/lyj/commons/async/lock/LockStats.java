@@ -0,0 +1,107 @@
+package org.lyj.commons.async.lock;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock counters for monitoring.
+ * A lock is contended when it could not be acquired without waiting.
+ */
+public class LockStats {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final LongAdder _acquired;
+    private final LongAdder _contended;
+    private final LongAdder _timeouts;
+    private final LongAdder _wait_nanos;
+    private final LongAccumulator _max_wait_nanos;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public LockStats() {
+        _acquired = new LongAdder();
+        _contended = new LongAdder();
+        _timeouts = new LongAdder();
+        _wait_nanos = new LongAdder();
+        _max_wait_nanos = new LongAccumulator(Math::max, 0);
+    }
+
+    @Override
+    public String toString() {
+        return this.toJson().toString();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public JSONObject toJson() {
+        final JSONObject result = new JSONObject();
+        result.put("acquired", this.acquired());
+        result.put("contended", this.contended());
+        result.put("contention_rate", this.contentionRate());
+        result.put("timeouts", this.timeouts());
+        result.put("avg_wait_ms", this.avgWaitMillis());
+        result.put("max_wait_ms", this.maxWaitMillis());
+        return result;
+    }
+
+    public long acquired() {
+        return _acquired.sum();
+    }
+
+    public long contended() {
+        return _contended.sum();
+    }
+
+    public long timeouts() {
+        return _timeouts.sum();
+    }
+
+    public double contentionRate() {
+        final long acquired = this.acquired();
+        return acquired > 0 ? (double) this.contended() / acquired : 0;
+    }
+
+    /**
+     * Average wait of contended acquisitions.
+     */
+    public double avgWaitMillis() {
+        final long contended = this.contended();
+        return contended > 0 ? (double) _wait_nanos.sum() / contended / 1000000d : 0;
+    }
+
+    public long maxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(_max_wait_nanos.get());
+    }
+
+    public void reset() {
+        _acquired.reset();
+        _contended.reset();
+        _timeouts.reset();
+        _wait_nanos.reset();
+        _max_wait_nanos.reset();
+    }
+
+    public void acquired(final long wait_nanos) {
+        _acquired.increment();
+        if (wait_nanos > 0) {
+            _contended.increment();
+            _wait_nanos.add(wait_nanos);
+            _max_wait_nanos.accumulate(wait_nanos);
+        }
+    }
+
+    public void timeout() {
+        _timeouts.increment();
+    }
+
+}
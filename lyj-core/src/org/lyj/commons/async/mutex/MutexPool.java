@@ -20,10 +20,15 @@
 
 package org.lyj.commons.async.mutex;
 
+import org.lyj.commons.async.lock.KeyedLock;
+import org.lyj.commons.async.lock.KeyedLockManager;
+import org.lyj.commons.async.lock.LockStats;
+
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main mutex dispenser.
@@ -31,16 +36,23 @@ import java.util.Map;
  * <code>synchronize(mymutex){... code ...}</code>
  * <p/>
  * To retrieve a mutex object call get().
+ * <p/>
+ * Alternatively lock() and readLock() return a key lock to release when done:
+ * <code>try (KeyedLock lock = pool.lock(key)){... code ...}</code>
+ * Key locks support timeouts and shared readers, and are removed as soon as released,
+ * without waiting for the garbage collector.
  */
 public class MutexPool {
 
     private static final long TIMEOUT = 30 * 1000;
 
     private final Map<Object, Mutex> _pool;
+    private final KeyedLockManager _locks;
     private MutexGarbageCollector _gc;
 
     public MutexPool() {
         _pool = Collections.synchronizedMap(new HashMap<Object, Mutex>());
+        _locks = new KeyedLockManager(true);
         _gc = new MutexGarbageCollector(this);
         _gc.start();
     }
@@ -79,6 +91,33 @@ public class MutexPool {
         }
     }
 
+    public LockStats stats() {
+        return _locks.stats();
+    }
+
+    public KeyedLock lock(final Object key) {
+        return _locks.lock(key);
+    }
+
+    public KeyedLock readLock(final Object key) {
+        return _locks.readLock(key);
+    }
+
+    /**
+     * @return Lock or null if timeout elapsed
+     */
+    public KeyedLock tryLock(final Object key, final long timeout_ms) throws InterruptedException {
+        return _locks.tryLock(key, timeout_ms, TimeUnit.MILLISECONDS);
+    }
+
+    public KeyedLock tryReadLock(final Object key, final long timeout_ms) throws InterruptedException {
+        return _locks.tryReadLock(key, timeout_ms, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isLocked(final Object key) {
+        return _locks.isLocked(key);
+    }
+
     // ------------------------------------------------------------------------
     //                      p r i v a t e
     // ------------------------------------------------------------------------
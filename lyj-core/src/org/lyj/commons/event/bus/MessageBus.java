@@ -1,6 +1,7 @@
 package org.lyj.commons.event.bus;
 
 import org.lyj.commons.event.Event;
+import org.lyj.commons.event.bus.utils.MessageBusDispatcher;
 import org.lyj.commons.event.bus.utils.MessageBusEvents;
 import org.lyj.commons.event.bus.utils.MessageBusListeners;
 import org.lyj.commons.util.RandomUtils;
@@ -17,9 +18,29 @@ import org.lyj.commons.util.RandomUtils;
  * <p>
  * MessageBus can be used as a singleton object or creating new instances.
  * Each event bus has an internal thread that works as a garbage collector.
+ * <p>
+ * Two dispatch modes are available:
+ * <ul>
+ * <li>POLLING (default): events are stored and listeners check for them at fixed interval.
+ * Listeners created after an emit still receive events not yet expired.</li>
+ * <li>PUSH: events are routed on emit to listeners indexed by tag and name,
+ * and delivered from a pool of workers. Events are not stored.</li>
+ * </ul>
  */
 public class MessageBus {
 
+    public enum DispatchMode {
+        /**
+         * Listeners check stored events at fixed interval.
+         */
+        POLLING,
+
+        /**
+         * Events are delivered immediately to matching listeners.
+         */
+        PUSH
+    }
+
     // ------------------------------------------------------------------------
     //                      c o n s t
     // ------------------------------------------------------------------------
@@ -27,6 +48,7 @@ public class MessageBus {
     private static final int DEF_EVENT_TIMEOUT = 5 * 1000;  // default timeout
     private static final int DEF_GC_INTERVAL = 2 * 1000;
     private static final int DEF_LISTEN_INTERVAL = 500;
+    private static final int DEF_WORKERS = Runtime.getRuntime().availableProcessors();
 
     // ------------------------------------------------------------------------
     //                      f i e l d s
@@ -35,6 +57,8 @@ public class MessageBus {
     private final MessageBusEvents _events;
     private final String _id;
     private final MessageBusListeners _listeners;
+    private final MessageBusDispatcher _dispatcher;
+    private final DispatchMode _mode;
 
     private boolean _disposed;
 
@@ -47,10 +71,28 @@ public class MessageBus {
     }
 
     public MessageBus(final int eventTimeout, final int gcInterval, final int listenInterval) {
+        this(DispatchMode.POLLING, eventTimeout, gcInterval, listenInterval, DEF_WORKERS);
+    }
+
+    /**
+     * Creates a bus with default timeouts.
+     *
+     * @param mode    Dispatch mode
+     * @param workers Number of threads delivering events in PUSH mode
+     */
+    public MessageBus(final DispatchMode mode, final int workers) {
+        this(mode, DEF_EVENT_TIMEOUT, DEF_GC_INTERVAL, DEF_LISTEN_INTERVAL, workers);
+    }
+
+    public MessageBus(final DispatchMode mode,
+                      final int eventTimeout, final int gcInterval, final int listenInterval,
+                      final int workers) {
         _id = RandomUtils.randomUUID();
         _disposed = false;
+        _mode = null != mode ? mode : DispatchMode.POLLING;
         _listeners = new MessageBusListeners(this, listenInterval);
         _events = new MessageBusEvents(this, eventTimeout, gcInterval);
+        _dispatcher = new MessageBusDispatcher(this, workers);
     }
 
     @Override
@@ -59,6 +101,7 @@ public class MessageBus {
             _disposed = true;
             _events.clear();
             _listeners.clear();
+            _dispatcher.stop();
         } catch (Throwable ignored) {
             // nothing useful to do here
         } finally {
@@ -69,7 +112,7 @@ public class MessageBus {
     @Override
     public String toString() {
         return this.getClass().getSimpleName() + " [" + _id + "] " +
-                _events.toString();
+                (this.isPush() ? _dispatcher.toString() : _events.toString());
     }
 
     // ------------------------------------------------------------------------
@@ -80,6 +123,14 @@ public class MessageBus {
         return _disposed;
     }
 
+    public DispatchMode getMode() {
+        return _mode;
+    }
+
+    public boolean isPush() {
+        return _mode == DispatchMode.PUSH;
+    }
+
     public MessageBusListeners listeners() {
         return _listeners;
     }
@@ -88,14 +139,23 @@ public class MessageBus {
         return _events;
     }
 
+    public MessageBusDispatcher dispatcher() {
+        return _dispatcher;
+    }
+
     public MessageBus emit(final Event event) {
-        _events.add(event);
+        if (this.isPush()) {
+            _dispatcher.dispatch(event);
+        } else {
+            _events.add(event);
+        }
         return this;
     }
 
     public void clearAll() {
         _listeners.clear();
         _events.clear();
+        _dispatcher.clear();
     }
 
     //-- factory --//
@@ -103,9 +163,24 @@ public class MessageBus {
     public MessageListener createListener() {
         // create listener
         final MessageListener listener = new MessageListener();
+        if (this.isPush()) {
+            listener.setFilterObserver(_dispatcher::reindex);
+            return _dispatcher.add(listener);
+        }
         return _listeners.add(listener);
     }
 
+    public MessageListener removeListener(final MessageListener listener) {
+        if (null != listener) {
+            if (this.isPush()) {
+                listener.setFilterObserver(null);
+                return _dispatcher.remove(listener);
+            }
+            return _listeners.remove(listener);
+        }
+        return null;
+    }
+
     // ------------------------------------------------------------------------
     //                      p a c k a g e
     // ------------------------------------------------------------------------
@@ -1,5 +1,6 @@
 package org.lyj.commons.event.bus;
 
+import org.lyj.commons.Delegates;
 import org.lyj.commons.event.EventListeners;
 import org.lyj.commons.event.IEventListener;
 import org.lyj.commons.util.RandomUtils;
@@ -26,6 +27,7 @@ public class MessageListener {
     private String _event_name;
 
     private boolean _initialized;
+    private Delegates.Callback<MessageListener> _filter_observer;
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
@@ -73,6 +75,7 @@ public class MessageListener {
 
     public MessageListener addEventTag(final String value) {
         _event_tags.add(value);
+        this.filterChanged();
         return this;
     }
 
@@ -96,6 +99,7 @@ public class MessageListener {
      */
     public MessageListener setEventName(final String value) {
         _event_name = value;
+        this.filterChanged();
         return this;
     }
 
@@ -135,9 +139,21 @@ public class MessageListener {
         }
     }
 
+    /**
+     * Notified when tag or name filter changes.
+     * Used from push dispatcher to keep its index aligned.
+     */
+    void setFilterObserver(final Delegates.Callback<MessageListener> callback) {
+        _filter_observer = callback;
+    }
+
     // ------------------------------------------------------------------------
     //                      p r i v a t e
     // ------------------------------------------------------------------------
 
+    private void filterChanged() {
+        Delegates.invoke(_filter_observer, this);
+    }
+
 
 }
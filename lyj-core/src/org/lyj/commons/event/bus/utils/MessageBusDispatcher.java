@@ -0,0 +1,371 @@
+package org.lyj.commons.event.bus.utils;
+
+import org.lyj.commons.event.Event;
+import org.lyj.commons.event.IEventListener;
+import org.lyj.commons.event.bus.MessageBus;
+import org.lyj.commons.event.bus.MessageListener;
+import org.lyj.commons.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Push dispatcher for MessageBus.
+ * <p>
+ * Listeners are indexed by (tag, name) and each event is routed on emit to the
+ * matching subscriptions only. Every subscription owns a concurrent queue drained
+ * by a worker pool, so a listener receives its events in order and never concurrently.
+ * <p>
+ * Unlike polling mode, events are not retained: listeners created after an emit
+ * do not receive it.
+ */
+public class MessageBusDispatcher {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final String ANY = "";
+    private static final int MAX_DRAIN_BATCH = 64; // events drained before yielding the worker
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final MessageBus _bus;
+    private final int _workers;
+    private final Map<String, Map<String, Set<Subscription>>> _index; // tag -> name -> subscriptions
+    private final Map<String, Subscription> _subscriptions; // listener id -> subscription
+
+    private volatile ExecutorService __executor;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public MessageBusDispatcher(final MessageBus bus, final int workers) {
+        _bus = bus;
+        _workers = workers > 0 ? workers : 1;
+        _index = new ConcurrentHashMap<>();
+        _subscriptions = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public String toString() {
+        return "{workers: " + _workers + ", listeners: " + _subscriptions.size() + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public int getWorkers() {
+        return _workers;
+    }
+
+    public int size() {
+        return _subscriptions.size();
+    }
+
+    /**
+     * Number of events waiting to be delivered in all subscription queues.
+     */
+    public int pending() {
+        int result = 0;
+        for (final Subscription subscription : _subscriptions.values()) {
+            result += subscription.pending();
+        }
+        return result;
+    }
+
+    public void clear() {
+        synchronized (_subscriptions) {
+            for (final Subscription subscription : _subscriptions.values()) {
+                subscription.close();
+            }
+            _subscriptions.clear();
+            _index.clear();
+        }
+    }
+
+    public void stop() {
+        this.clear();
+        synchronized (this) {
+            if (null != __executor) {
+                __executor.shutdownNow();
+                __executor = null;
+            }
+        }
+    }
+
+    public MessageListener add(final MessageListener listener) {
+        synchronized (_subscriptions) {
+            if (!_subscriptions.containsKey(listener.getId())) {
+                final Subscription subscription = new Subscription(this, listener);
+                _subscriptions.put(listener.getId(), subscription);
+                this.index(subscription);
+            }
+            return listener;
+        }
+    }
+
+    public MessageListener remove(final MessageListener listener) {
+        synchronized (_subscriptions) {
+            final Subscription subscription = _subscriptions.remove(listener.getId());
+            if (null != subscription) {
+                this.unindex(subscription);
+                subscription.close();
+            }
+            return listener;
+        }
+    }
+
+    /**
+     * Refresh index of a listener after its tag or name filter changed.
+     */
+    public void reindex(final MessageListener listener) {
+        synchronized (_subscriptions) {
+            final Subscription subscription = _subscriptions.get(listener.getId());
+            if (null != subscription) {
+                this.unindex(subscription);
+                this.index(subscription);
+            }
+        }
+    }
+
+    public void dispatch(final Event event) {
+        if (null != event && !_bus.isDisposed() && !_subscriptions.isEmpty()) {
+            final String tag = event.getTag();
+            final String name = event.getName();
+            if (StringUtils.hasText(tag)) {
+                this.dispatch(_index.get(tag), name, event);
+            }
+            this.dispatch(_index.get(ANY), name, event);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private ExecutorService executor() {
+        if (null == __executor) {
+            synchronized (this) {
+                if (null == __executor) {
+                    __executor = Executors.newFixedThreadPool(_workers, new Factory());
+                }
+            }
+        }
+        return __executor;
+    }
+
+    private void dispatch(final Map<String, Set<Subscription>> names, final String name, final Event event) {
+        if (null != names) {
+            if (StringUtils.hasText(name)) {
+                this.enqueue(names.get(name), event);
+            }
+            this.enqueue(names.get(ANY), event);
+        }
+    }
+
+    private void enqueue(final Set<Subscription> subscriptions, final Event event) {
+        if (null != subscriptions) {
+            for (final Subscription subscription : subscriptions) {
+                subscription.offer(event);
+            }
+        }
+    }
+
+    private void index(final Subscription subscription) {
+        final List<String[]> keys = keys(subscription.listener());
+        for (final String[] key : keys) {
+            _index.computeIfAbsent(key[0], (k) -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(key[1], (k) -> ConcurrentHashMap.newKeySet())
+                    .add(subscription);
+        }
+        subscription.keys(keys);
+    }
+
+    private void unindex(final Subscription subscription) {
+        for (final String[] key : subscription.keys()) {
+            final Map<String, Set<Subscription>> names = _index.get(key[0]);
+            if (null != names) {
+                final Set<Subscription> subscriptions = names.get(key[1]);
+                if (null != subscriptions) {
+                    subscriptions.remove(subscription);
+                    if (subscriptions.isEmpty()) {
+                        names.remove(key[1]);
+                    }
+                }
+                if (names.isEmpty()) {
+                    _index.remove(key[0]);
+                }
+            }
+        }
+        subscription.keys(new ArrayList<>());
+    }
+
+    private void execute(final Runnable task) {
+        try {
+            this.executor().execute(task);
+        } catch (Throwable ignored) {
+            // dispatcher stopped
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    private static List<String[]> keys(final MessageListener listener) {
+        final List<String[]> result = new ArrayList<>();
+        final String name = StringUtils.hasText(listener.getEventName()) ? listener.getEventName() : ANY;
+        final String[] tags = listener.getEventTags();
+        boolean any_tag = tags.length == 0;
+        for (final String tag : tags) {
+            if (!StringUtils.hasText(tag)) {
+                any_tag = true; // empty tag matches everything
+                break;
+            }
+        }
+        if (any_tag) {
+            result.add(new String[]{ANY, name});
+        } else {
+            for (final String tag : tags) {
+                result.add(new String[]{tag, name});
+            }
+        }
+        return result;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    private static final class Factory
+            implements ThreadFactory {
+
+        private final AtomicInteger _count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r);
+            t.setName("bus-dispatcher-" + _count.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY);
+            return t;
+        }
+    }
+
+    /**
+     * Listener wrapper with own event queue.
+     */
+    private static final class Subscription
+            implements Runnable {
+
+        private final MessageBusDispatcher _dispatcher;
+        private final MessageListener _listener;
+        private final Queue<Event> _queue;
+        private final AtomicBoolean _scheduled;
+        private final AtomicInteger _pending;
+        private volatile List<String[]> _keys;
+        private volatile boolean _closed;
+
+        public Subscription(final MessageBusDispatcher dispatcher,
+                            final MessageListener listener) {
+            _dispatcher = dispatcher;
+            _listener = listener;
+            _queue = new ConcurrentLinkedQueue<>();
+            _scheduled = new AtomicBoolean(false);
+            _pending = new AtomicInteger(0);
+            _keys = new ArrayList<>();
+        }
+
+        public MessageListener listener() {
+            return _listener;
+        }
+
+        public List<String[]> keys() {
+            return _keys;
+        }
+
+        public void keys(final List<String[]> value) {
+            _keys = value;
+        }
+
+        public int pending() {
+            return _pending.get();
+        }
+
+        public void close() {
+            _closed = true;
+            _queue.clear();
+            _pending.set(0);
+        }
+
+        public void offer(final Event event) {
+            if (_closed) {
+                return;
+            }
+            _queue.offer(event);
+            _pending.incrementAndGet();
+            this.schedule();
+        }
+
+        @Override
+        public void run() {
+            try {
+                int count = 0;
+                Event event;
+                while (count < MAX_DRAIN_BATCH && null != (event = _queue.poll())) {
+                    _pending.decrementAndGet();
+                    count++;
+                    this.invoke(event);
+                }
+            } finally {
+                _scheduled.set(false);
+                if (!_queue.isEmpty()) {
+                    this.schedule();
+                }
+            }
+        }
+
+        private void schedule() {
+            if (_scheduled.compareAndSet(false, true)) {
+                _dispatcher.execute(this);
+            }
+        }
+
+        private void invoke(final Event event) {
+            if (_closed) {
+                return;
+            }
+            if (_listener.isEmpty()) {
+                // remove because has no executors
+                _dispatcher.remove(_listener);
+                return;
+            }
+            final IEventListener[] executors = _listener.listeners();
+            for (final IEventListener executor : executors) {
+                try {
+                    executor.on(event);
+                } catch (Throwable t) {
+                    _dispatcher.remove(_listener); // dead listener
+                    return;
+                }
+            }
+        }
+
+    }
+
+}
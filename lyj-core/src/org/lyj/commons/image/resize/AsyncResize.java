@@ -23,6 +23,7 @@
  */
 package org.lyj.commons.image.resize;
 
+import org.lyj.commons.async.FixedBlockingPool;
 import org.lyj.commons.image.resize.Resize.Method;
 import org.lyj.commons.image.resize.Resize.Mode;
 import org.lyj.commons.image.resize.Resize.Rotation;
@@ -60,6 +61,24 @@ public class AsyncResize {
     public static final int THREAD_COUNT = Integer.getInteger(
             THREAD_COUNT_PROPERTY_NAME, 2);
 
+    /**
+     * System property name used to set the number of scale requests the
+     * default underlying {@link ExecutorService} will queue before callers
+     * have to wait.
+     * <p/>
+     * Value is "<code>imgscalr.async.queueCapacity</code>".
+     */
+    public static final String QUEUE_CAPACITY_PROPERTY_NAME = "imgscalr.async.queueCapacity";
+
+    /**
+     * Number of scale requests waiting for a thread. Once the queue is full,
+     * callers wait for room (see {@link FixedBlockingPool.RejectPolicy#BLOCK}).
+     * <p/>
+     * Default value is <code>1000</code>.
+     */
+    public static final int QUEUE_CAPACITY = Integer.getInteger(
+            QUEUE_CAPACITY_PROPERTY_NAME, 1000);
+
     /**
      * Initializer used to verify the THREAD_COUNT system property.
      */
@@ -324,7 +343,15 @@ public class AsyncResize {
         if (factory == null)
             throw new IllegalArgumentException("factory cannot be null");
 
-        return Executors.newFixedThreadPool(THREAD_COUNT, factory);
+        // bounded queue, metrics available from PoolMonitor
+        return FixedBlockingPool.create()
+                .name("resize")
+                .corePoolSize(THREAD_COUNT)
+                .maximumPoolSize(THREAD_COUNT)
+                .capacity(QUEUE_CAPACITY)
+                .rejectPolicy(FixedBlockingPool.RejectPolicy.BLOCK)
+                .threadFactory(factory)
+                .service();
     }
 
     /**
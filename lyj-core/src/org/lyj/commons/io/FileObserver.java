@@ -302,9 +302,14 @@ public class FileObserver {
             synchronized (_observers) {
                 if (!_observers.containsKey(key)) {
                     //-- register watch --//
-                    final WatchKey wkey = this.registerWatch(path, observer.isVerbose(), observer.getMask());
-                    if (null != wkey) {
-                        observer.addKey(wkey);
+                    if (observer.isRecursive() && observer.isDirectory()) {
+                        // existing sub-directories too, new ones are registered on create
+                        observer.addKeys(this.registerAll(path, observer.isVerbose(), observer.getMask()));
+                    } else {
+                        final WatchKey wkey = this.registerWatch(path, observer.isVerbose(), observer.getMask());
+                        if (null != wkey) {
+                            observer.addKey(wkey);
+                        }
                     }
                     //-- add observer for main loop --//
                     final WeakReference<FileObserver> ref = new WeakReference<FileObserver>(observer);
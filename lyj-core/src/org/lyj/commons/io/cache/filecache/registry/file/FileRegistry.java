@@ -21,6 +21,8 @@
 package org.lyj.commons.io.cache.filecache.registry.file;
 
 import org.lyj.Lyj;
+import org.lyj.commons.async.Async;
+import org.lyj.commons.async.HashedWheelTimer;
 import org.lyj.commons.io.cache.filecache.registry.IRegistry;
 import org.lyj.commons.io.cache.filecache.registry.IRegistryItem;
 import org.lyj.commons.io.db.filedb.FileDB;
@@ -35,6 +37,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -50,7 +54,8 @@ public class FileRegistry
     private final String _path_data;
 
     private final JsonWrapper _settings;
-    private Thread _registryThread;
+    private HashedWheelTimer.Timeout _registryTask;
+    private CountDownLatch _registryStopped;
 
     private FileDB _db;
     private FileDBCollection _collection;
@@ -101,25 +106,32 @@ public class FileRegistry
     public void start() {
         this.interrupt();
         this.initDB();
-        _registryThread = this.startRegistryThread(this);
+        this.startRegistryTask();
     }
 
-    public void interrupt() {
+    public synchronized void interrupt() {
         try {
-            if (null != _registryThread) {
-                _registryThread.interrupt();
+            if (null != _registryTask) {
+                _registryTask.cancel();
+            }
+            if (null != _registryStopped) {
+                _registryStopped.countDown();
             }
         } catch (Throwable ignored) {
 
         } finally {
-            _registryThread = null;
+            _registryTask = null;
         }
     }
 
     public void join() {
-        if (null != _registryThread) {
+        final CountDownLatch stopped;
+        synchronized (this) {
+            stopped = _registryStopped;
+        }
+        if (null != stopped) {
             try {
-                _registryThread.join();
+                Async.await(stopped, 0);
             } catch (InterruptedException ignored) {
             }
         }
@@ -296,39 +308,31 @@ public class FileRegistry
         return false;
     }
 
-    private Thread startRegistryThread(final IRegistry registry) {
-        // creates thread that check for expired items
-        final Thread t = new Thread(new Runnable() {
-            boolean _interrupted = false;
-
-            @Override
-            public void run() {
-                while (!_interrupted) {
-                    try {
-
-                        //-- check registry items --//
-                        final String[] expired = registry.removeExpired();
-                        if (expired.length > 0) {
-                            try {
-                                registry.save();
-                            } catch (Throwable ignored) {
-                            }
-                        }
-
-                        final long sleep = registry.getCheck();
-                        Thread.sleep(sleep);
+    private synchronized void startRegistryTask() {
+        _registryStopped = new CountDownLatch(1);
+        this.scheduleRegistryTask(_registryStopped, 0);
+    }
 
-                    } catch (Exception ignored) {
-                        _interrupted = true;
+    private synchronized void scheduleRegistryTask(final CountDownLatch stopped, final long delay) {
+        // check expired items on shared timer, until interrupted or restarted
+        if (stopped == _registryStopped && stopped.getCount() > 0) {
+            _registryTask = HashedWheelTimer.instance().scheduleAsync("file-registry", () -> {
+                try {
+                    //-- check registry items --//
+                    final String[] expired = this.removeExpired();
+                    if (expired.length > 0) {
+                        try {
+                            this.save();
+                        } catch (Throwable ignored) {
+                        }
                     }
-                }
-            }
-        });
-        t.setDaemon(true);
-        t.setPriority(Thread.NORM_PRIORITY);
-        t.start();
 
-        return t;
+                    this.scheduleRegistryTask(stopped, this.getCheck());
+                } catch (Exception ignored) {
+                    stopped.countDown();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
     }
 
 
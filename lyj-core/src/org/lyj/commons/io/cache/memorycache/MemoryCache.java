@@ -1,12 +1,20 @@
 package org.lyj.commons.io.cache.memorycache;
 
+import org.lyj.commons.io.cache.memorycache.engines.IMemoryCacheEngine;
+import org.lyj.commons.io.cache.memorycache.engines.MemoryCacheEngineConcurrent;
+import org.lyj.commons.io.cache.memorycache.engines.MemoryCacheEngineDefault;
+import org.lyj.commons.io.cache.memorycache.eviction.EvictionPolicyTinyLFU;
+
 import java.util.Set;
-import java.util.TreeMap;
 
 /**
  * Cache items in memory.
  * To refresh item status just put the item again in cache with same key, ore invoke wakeUp method.
  * Both (put again or invoking wakeUp) get same result.
+ * <p>
+ * Storage is delegated to an engine. Default engine is an unbounded map under a single lock.
+ * Use MemoryCacheEngineConcurrent (or MemoryCache.bounded()) for a concurrent cache with
+ * maximum size, eviction policy and automatic removal of expired items.
  */
 public class MemoryCache<T> {
 
@@ -20,14 +28,21 @@ public class MemoryCache<T> {
     //                      f i e l d s
     // ------------------------------------------------------------------------
 
-    private final TreeMap<String, MemoryCacheItem<T>> _cache;
+    private final IMemoryCacheEngine<T> _cache;
+    private final MemoryCacheStats _stats;
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
     // ------------------------------------------------------------------------
 
     public MemoryCache() {
-        _cache = new TreeMap<>();
+        this(new MemoryCacheEngineDefault<>());
+    }
+
+    public MemoryCache(final IMemoryCacheEngine<T> engine) {
+        _cache = engine;
+        _stats = new MemoryCacheStats();
+        _cache.stats(_stats);
     }
 
     @Override
@@ -39,34 +54,37 @@ public class MemoryCache<T> {
     //                      p u b l i c
     // ------------------------------------------------------------------------
 
+    public IMemoryCacheEngine<T> engine() {
+        return _cache;
+    }
+
+    public MemoryCacheStats stats() {
+        return _stats;
+    }
+
     public int size() {
         return _cache.size();
     }
 
     public Set<String> keys() {
-        synchronized (_cache) {
-            return _cache.keySet();
-        }
+        return _cache.keys();
     }
 
     public void clear() {
-        synchronized (_cache) {
-            _cache.clear();
-        }
+        _cache.clear();
     }
 
     public MemoryCacheItem<T> put(final String key,
                                   final MemoryCacheItem<T> item) {
-        synchronized (_cache) {
-            if (!_cache.containsKey(key)) {
-                // insert
-                _cache.put(key, item);
-            } else {
-                // update
-                _cache.get(key).wakeUp();
-            }
-            return _cache.get(key);
+        final MemoryCacheItem<T> existing = _cache.putIfAbsent(key, item);
+        if (null == existing) {
+            // insert
+            return item;
         }
+        // update
+        existing.wakeUp();
+        _cache.update(key);
+        return existing;
     }
 
     public MemoryCacheItem<T> put(final String key,
@@ -77,49 +95,47 @@ public class MemoryCache<T> {
     public MemoryCacheItem<T> put(final String key,
                                   final T item,
                                   final boolean wakeup) {
-        synchronized (_cache) {
-            if (!_cache.containsKey(key)) {
-                // insert
-                _cache.put(key, new MemoryCacheItem<T>().item(item, wakeup));
-            } else {
-                // update
-                _cache.get(key).item(item);
-            }
-            return _cache.get(key);
+        final MemoryCacheItem<T> cache_item = new MemoryCacheItem<T>().item(item, wakeup);
+        final MemoryCacheItem<T> existing = _cache.putIfAbsent(key, cache_item);
+        if (null == existing) {
+            // insert
+            return cache_item;
         }
+        // update
+        existing.item(item);
+        _cache.update(key);
+        return existing;
     }
 
     public MemoryCacheItem<T> remove(final String key) {
-        synchronized (_cache) {
-            return _cache.remove(key);
-        }
+        return _cache.remove(key);
     }
 
     public MemoryCacheItem<T> get(final String key) {
-        synchronized (_cache) {
-            return _cache.get(key);
+        final MemoryCacheItem<T> item = _cache.get(key);
+        if (null != item) {
+            _stats.hit();
+        } else {
+            _stats.miss();
         }
+        return item;
     }
 
     public boolean containsKey(final String key) {
-        synchronized (_cache) {
-            return _cache.containsKey(key);
-        }
+        return _cache.containsKey(key);
     }
 
     public boolean isExpired(final String key) {
-        synchronized (_cache) {
-            return !_cache.containsKey(key) || (null != _cache.get(key) && _cache.get(key).expired());
-        }
+        final MemoryCacheItem<T> item = _cache.get(key);
+        return null == item || item.expired();
     }
 
     public MemoryCacheItem<T> wakeUp(final String key) {
-        synchronized (_cache) {
-            if (_cache.containsKey(key)) {
-                return _cache.get(key).wakeUp();
-            }
-            return null;
+        final MemoryCacheItem<T> item = _cache.get(key);
+        if (null != item) {
+            return item.wakeUp();
         }
+        return null;
     }
 
     // ------------------------------------------------------------------------
@@ -127,6 +143,19 @@ public class MemoryCache<T> {
     // ------------------------------------------------------------------------
 
 
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    /**
+     * Creates a concurrent cache holding at most maximumSize items, evicted with W-TinyLFU policy.
+     */
+    public static <T> MemoryCache<T> bounded(final long maximumSize) {
+        return new MemoryCache<>(new MemoryCacheEngineConcurrent<T>()
+                .maximumSize(maximumSize)
+                .eviction(new EvictionPolicyTinyLFU()));
+    }
+
     // ------------------------------------------------------------------------
     //                      S I N G L E T O N
     // ------------------------------------------------------------------------
@@ -1,6 +1,5 @@
 package org.lyj.commons.io.cache.memorycache;
 
-import org.lyj.commons.util.ConversionUtils;
 import org.lyj.commons.util.converters.JsonConverter;
 
 import java.util.Map;
@@ -25,20 +24,27 @@ public class MemoryCacheItem<T> {
     //                      f i e l d s
     // ------------------------------------------------------------------------
 
-    private final Map<String, Object> _data;
+    private volatile long _timestamp;
+    private volatile long _duration;
+    private volatile T _item;
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
     // ------------------------------------------------------------------------
 
     public MemoryCacheItem() {
-        _data = new TreeMap<>();
         this.duration(DEFAULT_LIFE);
     }
 
     @Override
     public String toString() {
-        return JsonConverter.toObject(_data).toString();
+        final Map<String, Object> data = new TreeMap<>();
+        data.put(TIMESTAMP, _timestamp);
+        data.put(DURATION, _duration);
+        if (null != _item) {
+            data.put(ITEM, _item);
+        }
+        return JsonConverter.toObject(data).toString();
     }
 
     // ------------------------------------------------------------------------
@@ -46,26 +52,36 @@ public class MemoryCacheItem<T> {
     // ------------------------------------------------------------------------
 
     public long timestamp() {
-        return ConversionUtils.toLong(_data.get(TIMESTAMP));
+        return _timestamp;
     }
 
     public long duration() {
-        return ConversionUtils.toLong(_data.get(DURATION));
+        return _duration;
     }
 
     public MemoryCacheItem<T> duration(final long value) {
-        _data.put(DURATION, value);
+        _duration = value;
         return this;
     }
 
+    /**
+     * Time (millis) when item expires.
+     */
+    public long deadline() {
+        return _timestamp + _duration;
+    }
+
     public MemoryCacheItem<T> wakeUp() {
-        _data.put(TIMESTAMP, System.currentTimeMillis());
+        _timestamp = System.currentTimeMillis();
         return this;
     }
 
     public boolean expired() {
-        final long now = System.currentTimeMillis();
-        return now - this.timestamp() > this.duration();
+        return this.expired(System.currentTimeMillis());
+    }
+
+    public boolean expired(final long now) {
+        return now - _timestamp > _duration;
     }
 
     public MemoryCacheItem<T> item(final T item) {
@@ -73,15 +89,15 @@ public class MemoryCacheItem<T> {
     }
 
     public MemoryCacheItem<T> item(final T item, final boolean wakeup) {
-        _data.put(ITEM, item);
+        _item = item;
         if (wakeup) {
-            _data.put(TIMESTAMP, System.currentTimeMillis());
+            _timestamp = System.currentTimeMillis();
         }
         return this;
     }
 
     public T item() {
-        return (T) _data.get(ITEM);
+        return _item;
     }
 
 
@@ -0,0 +1,96 @@
+package org.lyj.commons.io.cache.memorycache;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache counters for monitoring.
+ */
+public class MemoryCacheStats {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final LongAdder _hits;
+    private final LongAdder _misses;
+    private final LongAdder _evictions;
+    private final LongAdder _expirations;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public MemoryCacheStats() {
+        _hits = new LongAdder();
+        _misses = new LongAdder();
+        _evictions = new LongAdder();
+        _expirations = new LongAdder();
+    }
+
+    @Override
+    public String toString() {
+        return this.toJson().toString();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public JSONObject toJson() {
+        final JSONObject result = new JSONObject();
+        result.put("hits", this.hits());
+        result.put("misses", this.misses());
+        result.put("hit_rate", this.hitRate());
+        result.put("evictions", this.evictions());
+        result.put("expirations", this.expirations());
+        return result;
+    }
+
+    public long hits() {
+        return _hits.sum();
+    }
+
+    public long misses() {
+        return _misses.sum();
+    }
+
+    public long evictions() {
+        return _evictions.sum();
+    }
+
+    public long expirations() {
+        return _expirations.sum();
+    }
+
+    public double hitRate() {
+        final long hits = this.hits();
+        final long total = hits + this.misses();
+        return total > 0 ? (double) hits / total : 0;
+    }
+
+    public void reset() {
+        _hits.reset();
+        _misses.reset();
+        _evictions.reset();
+        _expirations.reset();
+    }
+
+    public void hit() {
+        _hits.increment();
+    }
+
+    public void miss() {
+        _misses.increment();
+    }
+
+    public void eviction() {
+        _evictions.increment();
+    }
+
+    public void expiration() {
+        _expirations.increment();
+    }
+
+}
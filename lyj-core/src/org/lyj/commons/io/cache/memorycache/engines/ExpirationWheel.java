@@ -0,0 +1,239 @@
+package org.lyj.commons.io.cache.memorycache.engines;
+
+import org.lyj.commons.Delegates;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel for key expiration.
+ * <p>
+ * First level has a slot per tick. Deadlines beyond its range go into an overflow
+ * level whose tick is the whole range of the level below, and so on. When time
+ * advances, due slots of upper levels are cascaded down and due slots of first
+ * level are fired. Schedule and cancel are O(1).
+ * <p>
+ * Not thread safe: callers must synchronize.
+ */
+public class ExpirationWheel {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final int WHEEL_SIZE = 64;
+    private static final long MAX_STEPS = WHEEL_SIZE * WHEEL_SIZE; // above this, rebuild instead of stepping
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final long _tick;
+    private final List<Level> _levels;
+    private final Map<String, Bucket> _positions;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public ExpirationWheel(final long tick) {
+        this(tick, System.currentTimeMillis());
+    }
+
+    public ExpirationWheel(final long tick, final long now) {
+        _tick = Math.max(1, tick);
+        _levels = new ArrayList<>();
+        _levels.add(new Level(_tick, now - (now % _tick)));
+        _positions = new HashMap<>();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public long tick() {
+        return _tick;
+    }
+
+    /**
+     * Time of next slot.
+     */
+    public long next() {
+        return _levels.get(0).current + _tick;
+    }
+
+    public int size() {
+        return _positions.size();
+    }
+
+    public int levels() {
+        return _levels.size();
+    }
+
+    public void clear() {
+        final long current = _levels.get(0).current;
+        _levels.clear();
+        _levels.add(new Level(_tick, current));
+        _positions.clear();
+    }
+
+    public void schedule(final String key, final long deadline) {
+        this.cancel(key);
+        this.add(key, deadline);
+    }
+
+    public void cancel(final String key) {
+        final Bucket bucket = _positions.remove(key);
+        if (null != bucket) {
+            bucket.entries.remove(key);
+        }
+    }
+
+    /**
+     * Move time forward and fire all keys whose slot is due.
+     *
+     * @param now      Current time in millis
+     * @param callback Invoked for each fired key
+     */
+    public void advance(final long now, final Delegates.Callback<String> callback) {
+        final Level root = _levels.get(0);
+        if ((now - root.current) / _tick > MAX_STEPS) {
+            this.rebuild(now, callback);
+            return;
+        }
+        while (root.current + _tick <= now) {
+            root.current += _tick;
+            // cascade from upper levels
+            for (int i = _levels.size() - 1; i > 0; i--) {
+                final Level level = _levels.get(i);
+                if (root.current % level.tick == 0) {
+                    level.current = root.current;
+                    final Bucket bucket = level.bucket(level.current);
+                    if (bucket.isDue(root.current)) {
+                        final Map<String, Long> entries = bucket.flush();
+                        for (final Map.Entry<String, Long> entry : entries.entrySet()) {
+                            _positions.remove(entry.getKey());
+                            this.add(entry.getKey(), entry.getValue());
+                        }
+                    }
+                }
+            }
+            // fire
+            final Bucket bucket = root.bucket(root.current);
+            if (bucket.isDue(root.current)) {
+                final Map<String, Long> entries = bucket.flush();
+                for (final String key : entries.keySet()) {
+                    _positions.remove(key);
+                    Delegates.invoke(callback, key);
+                }
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private void add(final String key, final long deadline) {
+        final Level root = _levels.get(0);
+        // never in current slot: it has been fired already
+        final long time = Math.max(deadline, root.current + _tick);
+        int index = 0;
+        while (true) {
+            final Level level = this.level(index);
+            if (time < level.current + level.range()) {
+                final Bucket bucket = level.bucket(time);
+                bucket.add(key, deadline, time - (time % level.tick));
+                _positions.put(key, bucket);
+                return;
+            }
+            index++;
+        }
+    }
+
+    /**
+     * Long pause (or clock change): fire due keys and reschedule others from scratch.
+     */
+    private void rebuild(final long now, final Delegates.Callback<String> callback) {
+        final Map<String, Long> entries = new LinkedHashMap<>();
+        for (final Level level : _levels) {
+            for (final Bucket bucket : level.buckets) {
+                entries.putAll(bucket.flush());
+            }
+        }
+        _levels.clear();
+        _levels.add(new Level(_tick, now - (now % _tick)));
+        _positions.clear();
+        for (final Map.Entry<String, Long> entry : entries.entrySet()) {
+            if (entry.getValue() <= now) {
+                Delegates.invoke(callback, entry.getKey());
+            } else {
+                this.add(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private Level level(final int index) {
+        while (_levels.size() <= index) {
+            final Level lower = _levels.get(_levels.size() - 1);
+            final long tick = lower.range();
+            final long current = _levels.get(0).current;
+            _levels.add(new Level(tick, current - (current % tick)));
+        }
+        return _levels.get(index);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    private static final class Level {
+
+        private final long tick;
+        private final Bucket[] buckets;
+        private long current;
+
+        private Level(final long tick, final long current) {
+            this.tick = tick;
+            this.current = current;
+            this.buckets = new Bucket[WHEEL_SIZE];
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                this.buckets[i] = new Bucket();
+            }
+        }
+
+        private long range() {
+            return tick * WHEEL_SIZE;
+        }
+
+        private Bucket bucket(final long time) {
+            return buckets[(int) ((time / tick) % WHEEL_SIZE)];
+        }
+    }
+
+    private static final class Bucket {
+
+        private final Map<String, Long> entries = new LinkedHashMap<>();
+        private long expiration = -1;
+
+        private void add(final String key, final long deadline, final long expiration) {
+            this.entries.put(key, deadline);
+            this.expiration = expiration;
+        }
+
+        private boolean isDue(final long now) {
+            return !entries.isEmpty() && expiration <= now;
+        }
+
+        private Map<String, Long> flush() {
+            final Map<String, Long> result = new LinkedHashMap<>(entries);
+            entries.clear();
+            expiration = -1;
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package org.lyj.commons.io.cache.memorycache.engines;
+
+import org.lyj.commons.io.cache.memorycache.MemoryCacheItem;
+import org.lyj.commons.io.cache.memorycache.MemoryCacheStats;
+
+import java.util.Set;
+
+/**
+ * Storage used from MemoryCache.
+ */
+public interface IMemoryCacheEngine<T> {
+
+    void stats(final MemoryCacheStats stats);
+
+    int size();
+
+    Set<String> keys();
+
+    void clear();
+
+    MemoryCacheItem<T> get(final String key);
+
+    /**
+     * Add item if key does not exists.
+     *
+     * @return Existing item or null if item was added.
+     */
+    MemoryCacheItem<T> putIfAbsent(final String key, final MemoryCacheItem<T> item);
+
+    /**
+     * Item of key was changed in place (new value or waked up): weight and eviction policy
+     * must be aligned with current content.
+     */
+    void update(final String key);
+
+    MemoryCacheItem<T> remove(final String key);
+
+    boolean containsKey(final String key);
+
+}
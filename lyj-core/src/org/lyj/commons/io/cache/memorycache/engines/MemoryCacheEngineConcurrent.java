@@ -0,0 +1,389 @@
+package org.lyj.commons.io.cache.memorycache.engines;
+
+import org.lyj.commons.Delegates;
+import org.lyj.commons.io.cache.memorycache.MemoryCacheItem;
+import org.lyj.commons.io.cache.memorycache.MemoryCacheStats;
+import org.lyj.commons.io.cache.memorycache.eviction.EvictionPolicyTinyLFU;
+import org.lyj.commons.io.cache.memorycache.eviction.IEvictionPolicy;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent, size-bounded storage.
+ * <p>
+ * Items live in a ConcurrentHashMap, so reads never block. Eviction policy and
+ * expiration wheel are maintained under a lock taken on writes and, when free,
+ * every few reads: reads are recorded in a lossy buffer and replayed to the
+ * policy during maintenance. Expired items are removed when the wheel fires,
+ * there is no background thread.
+ * <p>
+ * Sample usage:
+ * <code>
+ * MemoryCache&lt;String&gt; cache = new MemoryCache&lt;&gt;(new MemoryCacheEngineConcurrent&lt;String&gt;()
+ * .maximumSize(10000)
+ * .eviction(new EvictionPolicyLRU()));
+ * </code>
+ */
+public class MemoryCacheEngineConcurrent<T>
+        implements IMemoryCacheEngine<T> {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final long DEFAULT_TICK = 100; // wheel resolution in millis
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_BUFFER_DRAIN = 32;
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final ConcurrentHashMap<String, MemoryCacheItem<T>> _cache;
+    private final ReentrantLock _lock;
+    private final Queue<String> _reads;
+    private final AtomicInteger _reads_count;
+    private final Map<String, Long> _weights; // guarded by lock
+
+    private IEvictionPolicy _policy;
+    private ExpirationWheel _wheel;
+    private Delegates.FunctionArg<T, Integer> _weigher;
+    private long _maximum;
+    private long _weight; // guarded by lock
+    private volatile long _next_tick;
+    private MemoryCacheStats _stats;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public MemoryCacheEngineConcurrent() {
+        _cache = new ConcurrentHashMap<>();
+        _lock = new ReentrantLock();
+        _reads = new ConcurrentLinkedQueue<>();
+        _reads_count = new AtomicInteger(0);
+        _weights = new HashMap<>();
+        _policy = new EvictionPolicyTinyLFU();
+        _wheel = new ExpirationWheel(DEFAULT_TICK);
+        _next_tick = _wheel.next();
+        _maximum = 0;
+        _weight = 0;
+        _stats = new MemoryCacheStats();
+    }
+
+    @Override
+    public String toString() {
+        return _cache.toString();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r o p e r t i e s
+    // ------------------------------------------------------------------------
+
+    /**
+     * Maximum number of entries, or maximum total weight if a weigher is set.
+     * Zero means unbounded.
+     */
+    public MemoryCacheEngineConcurrent<T> maximumSize(final long value) {
+        _lock.lock();
+        try {
+            _maximum = value > 0 ? value : 0;
+            _policy.capacity(_maximum);
+            this.evict();
+        } finally {
+            _lock.unlock();
+        }
+        return this;
+    }
+
+    public long maximumSize() {
+        return _maximum;
+    }
+
+    /**
+     * Weight of a single entry. Default is 1 per entry.
+     */
+    public MemoryCacheEngineConcurrent<T> weigher(final Delegates.FunctionArg<T, Integer> value) {
+        _weigher = value;
+        return this;
+    }
+
+    public MemoryCacheEngineConcurrent<T> eviction(final IEvictionPolicy value) {
+        if (null != value) {
+            _lock.lock();
+            try {
+                _policy = value;
+                _policy.capacity(_maximum);
+                for (final String key : _weights.keySet()) {
+                    _policy.add(key);
+                }
+            } finally {
+                _lock.unlock();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Resolution of expiration wheel in milliseconds.
+     */
+    public MemoryCacheEngineConcurrent<T> tick(final long value) {
+        _lock.lock();
+        try {
+            _wheel = new ExpirationWheel(value);
+            _next_tick = _wheel.next();
+            for (final String key : _weights.keySet()) {
+                final MemoryCacheItem<T> item = _cache.get(key);
+                if (null != item) {
+                    _wheel.schedule(key, item.deadline());
+                }
+            }
+        } finally {
+            _lock.unlock();
+        }
+        return this;
+    }
+
+    public long weight() {
+        _lock.lock();
+        try {
+            return _weight;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    @Override
+    public void stats(final MemoryCacheStats stats) {
+        if (null != stats) {
+            _stats = stats;
+        }
+    }
+
+    @Override
+    public int size() {
+        return _cache.size();
+    }
+
+    @Override
+    public Set<String> keys() {
+        return _cache.keySet();
+    }
+
+    @Override
+    public void clear() {
+        _lock.lock();
+        try {
+            _cache.clear();
+            _weights.clear();
+            _weight = 0;
+            _policy.clear();
+            _wheel.clear();
+            _reads.clear();
+            _reads_count.set(0);
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public MemoryCacheItem<T> get(final String key) {
+        final MemoryCacheItem<T> item = _cache.get(key);
+        if (null != item) {
+            this.recordRead(key);
+        }
+        if (_reads_count.get() >= READ_BUFFER_DRAIN || System.currentTimeMillis() >= _next_tick) {
+            this.tryMaintenance();
+        }
+        return item;
+    }
+
+    @Override
+    public MemoryCacheItem<T> putIfAbsent(final String key, final MemoryCacheItem<T> item) {
+        final MemoryCacheItem<T> existing = _cache.putIfAbsent(key, item);
+        if (null == existing) {
+            _lock.lock();
+            try {
+                this.drainReads();
+                this.sync(key);
+                this.evict();
+                this.advance();
+            } finally {
+                _lock.unlock();
+            }
+        } else {
+            this.recordRead(key);
+        }
+        return existing;
+    }
+
+    @Override
+    public void update(final String key) {
+        if (_cache.containsKey(key)) {
+            _lock.lock();
+            try {
+                this.drainReads();
+                this.sync(key); // weight of new value replaces the old one
+                this.evict();
+                this.advance();
+            } finally {
+                _lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public MemoryCacheItem<T> remove(final String key) {
+        final MemoryCacheItem<T> item = _cache.remove(key);
+        if (null != item) {
+            _lock.lock();
+            try {
+                this.sync(key);
+            } finally {
+                _lock.unlock();
+            }
+        }
+        return item;
+    }
+
+    @Override
+    public boolean containsKey(final String key) {
+        return _cache.containsKey(key);
+    }
+
+    /**
+     * Replay pending reads and remove expired items now.
+     */
+    public void cleanUp() {
+        _lock.lock();
+        try {
+            this.maintenance();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private void recordRead(final String key) {
+        if (_reads_count.get() < READ_BUFFER_SIZE) {
+            _reads_count.incrementAndGet();
+            _reads.offer(key);
+        }
+        // else: buffer full, access is lost (policy is an approximation anyway)
+    }
+
+    private void tryMaintenance() {
+        if (_lock.tryLock()) {
+            try {
+                this.maintenance();
+            } finally {
+                _lock.unlock();
+            }
+        }
+    }
+
+    // -- all methods below require the lock -- //
+
+    private void maintenance() {
+        this.drainReads();
+        this.advance();
+    }
+
+    private void drainReads() {
+        String key;
+        while (null != (key = _reads.poll())) {
+            _reads_count.decrementAndGet();
+            if (_weights.containsKey(key)) {
+                _policy.access(key);
+            }
+        }
+    }
+
+    private void advance() {
+        _wheel.advance(System.currentTimeMillis(), this::expire);
+        _next_tick = _wheel.next();
+    }
+
+    /**
+     * Align policy, weights and wheel with current content of the map for passed key.
+     */
+    private void sync(final String key) {
+        final MemoryCacheItem<T> item = _cache.get(key);
+        if (null == item) {
+            this.forget(key);
+        } else {
+            final long weight = this.weigh(item);
+            final Long old = _weights.put(key, weight);
+            _weight += weight - (null != old ? old : 0);
+            if (null == old) {
+                _policy.add(key);
+            } else {
+                _policy.access(key);
+            }
+            _wheel.schedule(key, item.deadline());
+        }
+    }
+
+    private void forget(final String key) {
+        final Long weight = _weights.remove(key);
+        if (null != weight) {
+            _weight -= weight;
+            _policy.remove(key);
+        }
+        _wheel.cancel(key);
+    }
+
+    private void evict() {
+        while (_maximum > 0 && _weight > _maximum) {
+            final String key = _policy.victim();
+            if (null == key) {
+                break;
+            }
+            _cache.remove(key);
+            final Long weight = _weights.remove(key);
+            if (null != weight) {
+                _weight -= weight;
+            }
+            _wheel.cancel(key);
+            _stats.eviction();
+        }
+    }
+
+    private void expire(final String key) {
+        final MemoryCacheItem<T> item = _cache.get(key);
+        if (null != item) {
+            if (item.expired()) {
+                if (_cache.remove(key, item)) {
+                    this.forget(key);
+                    _stats.expiration();
+                }
+            } else {
+                // waked up after scheduling
+                _wheel.schedule(key, item.deadline());
+            }
+        }
+    }
+
+    private long weigh(final MemoryCacheItem<T> item) {
+        if (null != _weigher) {
+            final Integer weight = _weigher.call(item.item());
+            return null != weight && weight > 0 ? weight : 1;
+        }
+        return 1;
+    }
+
+}
@@ -0,0 +1,96 @@
+package org.lyj.commons.io.cache.memorycache.engines;
+
+import org.lyj.commons.io.cache.memorycache.MemoryCacheItem;
+import org.lyj.commons.io.cache.memorycache.MemoryCacheStats;
+
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Unbounded sorted map guarded by a single monitor.
+ * Items are never removed until explicitly requested.
+ */
+public class MemoryCacheEngineDefault<T>
+        implements IMemoryCacheEngine<T> {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final TreeMap<String, MemoryCacheItem<T>> _cache;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public MemoryCacheEngineDefault() {
+        _cache = new TreeMap<>();
+    }
+
+    @Override
+    public String toString() {
+        return _cache.toString();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    @Override
+    public void stats(final MemoryCacheStats stats) {
+        // no evictions or expirations to count
+    }
+
+    @Override
+    public int size() {
+        return _cache.size();
+    }
+
+    @Override
+    public Set<String> keys() {
+        synchronized (_cache) {
+            return _cache.keySet();
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (_cache) {
+            _cache.clear();
+        }
+    }
+
+    @Override
+    public MemoryCacheItem<T> get(final String key) {
+        synchronized (_cache) {
+            return _cache.get(key);
+        }
+    }
+
+    @Override
+    public MemoryCacheItem<T> putIfAbsent(final String key, final MemoryCacheItem<T> item) {
+        synchronized (_cache) {
+            return _cache.putIfAbsent(key, item);
+        }
+    }
+
+    @Override
+    public void update(final String key) {
+        // nothing to align
+    }
+
+    @Override
+    public MemoryCacheItem<T> remove(final String key) {
+        synchronized (_cache) {
+            return _cache.remove(key);
+        }
+    }
+
+    @Override
+    public boolean containsKey(final String key) {
+        synchronized (_cache) {
+            return _cache.containsKey(key);
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package org.lyj.commons.io.cache.memorycache.eviction;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Least Frequently Used.
+ * Ties are broken evicting the oldest key in the same frequency.
+ */
+public class EvictionPolicyLFU
+        implements IEvictionPolicy {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final Map<String, Long> _counts;
+    private final TreeMap<Long, LinkedHashSet<String>> _frequencies;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public EvictionPolicyLFU() {
+        _counts = new HashMap<>();
+        _frequencies = new TreeMap<>();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    @Override
+    public void capacity(final long value) {
+        // not used
+    }
+
+    @Override
+    public void add(final String key) {
+        if (!_counts.containsKey(key)) {
+            _counts.put(key, 1L);
+            this.bucket(1L).add(key);
+        } else {
+            this.access(key);
+        }
+    }
+
+    @Override
+    public void access(final String key) {
+        final Long count = _counts.get(key);
+        if (null != count) {
+            this.unbucket(count, key);
+            final long next = count + 1;
+            _counts.put(key, next);
+            this.bucket(next).add(key);
+        }
+    }
+
+    @Override
+    public void remove(final String key) {
+        final Long count = _counts.remove(key);
+        if (null != count) {
+            this.unbucket(count, key);
+        }
+    }
+
+    @Override
+    public String victim() {
+        if (!_frequencies.isEmpty()) {
+            final Map.Entry<Long, LinkedHashSet<String>> entry = _frequencies.firstEntry();
+            final Iterator<String> iterator = entry.getValue().iterator();
+            final String key = iterator.next();
+            this.remove(key);
+            return key;
+        }
+        return null;
+    }
+
+    @Override
+    public void clear() {
+        _counts.clear();
+        _frequencies.clear();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private LinkedHashSet<String> bucket(final long count) {
+        return _frequencies.computeIfAbsent(count, (k) -> new LinkedHashSet<>());
+    }
+
+    private void unbucket(final long count, final String key) {
+        final LinkedHashSet<String> keys = _frequencies.get(count);
+        if (null != keys) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                _frequencies.remove(count);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package org.lyj.commons.io.cache.memorycache.eviction;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Least Recently Used.
+ */
+public class EvictionPolicyLRU
+        implements IEvictionPolicy {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final LinkedHashMap<String, Boolean> _keys;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public EvictionPolicyLRU() {
+        _keys = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    @Override
+    public void capacity(final long value) {
+        // not used
+    }
+
+    @Override
+    public void add(final String key) {
+        _keys.put(key, Boolean.TRUE);
+    }
+
+    @Override
+    public void access(final String key) {
+        _keys.get(key); // move to tail
+    }
+
+    @Override
+    public void remove(final String key) {
+        _keys.remove(key);
+    }
+
+    @Override
+    public String victim() {
+        final Iterator<String> iterator = _keys.keySet().iterator();
+        if (iterator.hasNext()) {
+            final String key = iterator.next();
+            iterator.remove();
+            return key;
+        }
+        return null;
+    }
+
+    @Override
+    public void clear() {
+        _keys.clear();
+    }
+
+}
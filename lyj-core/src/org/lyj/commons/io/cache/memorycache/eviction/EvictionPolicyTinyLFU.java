@@ -0,0 +1,168 @@
+package org.lyj.commons.io.cache.memorycache.eviction;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Window TinyLFU.
+ * <p>
+ * New keys enter a small LRU window (1% of capacity). Keys leaving the window
+ * compete with the oldest key of the main segment and the one with lower
+ * estimated frequency is evicted. Main segment is a segmented LRU: keys accessed
+ * again while in probation are promoted to the protected area (80% of main).
+ */
+public class EvictionPolicyTinyLFU
+        implements IEvictionPolicy {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final FrequencySketch _sketch;
+    private final LinkedHashMap<String, Boolean> _window;
+    private final LinkedHashMap<String, Boolean> _probation;
+    private final LinkedHashMap<String, Boolean> _protected;
+
+    private long _window_capacity;
+    private long _main_capacity;
+    private long _protected_capacity;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public EvictionPolicyTinyLFU() {
+        _sketch = new FrequencySketch();
+        _window = new LinkedHashMap<>(16, 0.75f, true);
+        _probation = new LinkedHashMap<>(16, 0.75f, true);
+        _protected = new LinkedHashMap<>(16, 0.75f, true);
+        this.capacity(100);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    @Override
+    public void capacity(final long value) {
+        final long capacity = Math.max(1, value);
+        _window_capacity = Math.max(1, (long) (capacity * WINDOW_RATIO));
+        _main_capacity = Math.max(0, capacity - _window_capacity);
+        _protected_capacity = (long) (_main_capacity * PROTECTED_RATIO);
+        _sketch.capacity(capacity);
+    }
+
+    @Override
+    public void add(final String key) {
+        _sketch.increment(key);
+        if (!this.contains(key)) {
+            _window.put(key, Boolean.TRUE);
+            // while main segment has room, window overflow moves there without competing
+            while (_window.size() > _window_capacity
+                    && _probation.size() + _protected.size() < _main_capacity) {
+                _probation.put(eldest(_window), Boolean.TRUE);
+            }
+        }
+    }
+
+    @Override
+    public void access(final String key) {
+        _sketch.increment(key);
+        if (null != _window.get(key)) {
+            return;
+        }
+        if (null != _protected.get(key)) {
+            return;
+        }
+        if (null != _probation.remove(key)) {
+            // promote
+            _protected.put(key, Boolean.TRUE);
+            while (_protected.size() > _protected_capacity) {
+                final String demoted = eldest(_protected);
+                if (null == demoted) {
+                    break;
+                }
+                _probation.put(demoted, Boolean.TRUE);
+            }
+        }
+    }
+
+    @Override
+    public void remove(final String key) {
+        if (null == _window.remove(key) && null == _probation.remove(key)) {
+            _protected.remove(key);
+        }
+    }
+
+    @Override
+    public String victim() {
+        // move window overflow into main segment and let it compete
+        String candidate = null;
+        if (_window.size() > _window_capacity) {
+            candidate = eldest(_window);
+        }
+        if (null != candidate) {
+            final LinkedHashMap<String, Boolean> main = _probation.isEmpty() ? _protected : _probation;
+            final String victim = peek(main);
+            if (null == victim) {
+                // main segment is empty: nothing to compete with
+                _probation.put(candidate, Boolean.TRUE);
+                return this.victim();
+            }
+            if (_sketch.frequency(candidate) > _sketch.frequency(victim)) {
+                // admit candidate
+                main.remove(victim);
+                _probation.put(candidate, Boolean.TRUE);
+                return victim;
+            }
+            return candidate;
+        }
+        String key = eldest(_probation);
+        if (null == key) {
+            key = eldest(_protected);
+        }
+        if (null == key) {
+            key = eldest(_window);
+        }
+        return key;
+    }
+
+    @Override
+    public void clear() {
+        _window.clear();
+        _probation.clear();
+        _protected.clear();
+        _sketch.clear();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private boolean contains(final String key) {
+        return _window.containsKey(key) || _probation.containsKey(key) || _protected.containsKey(key);
+    }
+
+    private static String peek(final LinkedHashMap<String, Boolean> map) {
+        final Iterator<String> iterator = map.keySet().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private static String eldest(final LinkedHashMap<String, Boolean> map) {
+        final Iterator<String> iterator = map.keySet().iterator();
+        if (iterator.hasNext()) {
+            final String key = iterator.next();
+            iterator.remove();
+            return key;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,108 @@
+package org.lyj.commons.io.cache.memorycache.eviction;
+
+import java.util.Arrays;
+
+/**
+ * Count-Min sketch with 4 bit counters and periodic aging.
+ * Estimates how often a key was seen using a fixed amount of memory.
+ */
+public class FrequencySketch {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x97cb3127, 0x9e3779b9, 0x85ebca6b, 0xc2b2ae35};
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private byte[][] _table;
+    private int _mask;
+    private int _sample_size;
+    private int _additions;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public FrequencySketch() {
+        this.capacity(16);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public void capacity(final long value) {
+        int width = 16;
+        while (width < value && width < (1 << 30)) {
+            width <<= 1;
+        }
+        _table = new byte[DEPTH][width];
+        _mask = width - 1;
+        _sample_size = width * 10;
+        _additions = 0;
+    }
+
+    public void increment(final String key) {
+        final int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < DEPTH; i++) {
+            final int index = this.index(hash, i);
+            if (_table[i][index] < MAX_COUNT) {
+                _table[i][index]++;
+                added = true;
+            }
+        }
+        if (added && ++_additions >= _sample_size) {
+            this.reset();
+        }
+    }
+
+    public int frequency(final String key) {
+        final int hash = spread(key.hashCode());
+        int result = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++) {
+            result = Math.min(result, _table[i][this.index(hash, i)]);
+        }
+        return result;
+    }
+
+    public void clear() {
+        for (final byte[] row : _table) {
+            Arrays.fill(row, (byte) 0);
+        }
+        _additions = 0;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private int index(final int hash, final int row) {
+        final int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+        return (h ^ (h >>> 16)) & _mask;
+    }
+
+    /**
+     * Halve all counters so old popularity fades away.
+     */
+    private void reset() {
+        for (final byte[] row : _table) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = (byte) (row[i] >>> 1);
+            }
+        }
+        _additions = _additions / 2;
+    }
+
+    private static int spread(final int value) {
+        final int h = value * 0x9e3779b9;
+        return h ^ (h >>> 15);
+    }
+
+}
@@ -0,0 +1,29 @@
+package org.lyj.commons.io.cache.memorycache.eviction;
+
+/**
+ * Choose which key leaves a bounded cache.
+ * Implementations are not thread safe: the cache engine calls them under its own lock.
+ */
+public interface IEvictionPolicy {
+
+    /**
+     * Expected maximum number of entries. Used to size internal segments.
+     */
+    void capacity(final long value);
+
+    void add(final String key);
+
+    void access(final String key);
+
+    void remove(final String key);
+
+    /**
+     * Remove and return next key to evict.
+     *
+     * @return Key to evict or null if policy is empty.
+     */
+    String victim();
+
+    void clear();
+
+}
@@ -12,6 +12,18 @@ import java.util.*;
 public final class FileDB
         extends AbstractLogEmitter {
 
+    public enum StorageMode {
+        /**
+         * Each update or removal rewrites the whole collection file.
+         */
+        REWRITE,
+
+        /**
+         * Rows are appended to the collection file and located by an in-memory index.
+         * See FileDBLog.
+         */
+        APPEND
+    }
 
     // ------------------------------------------------------------------------
     //                      c o n s t
@@ -28,6 +40,7 @@ public final class FileDB
     private final String _root;
     private final String _collections_path;
     private final Map<String, FileDBCollection> _collections;
+    private final StorageMode _mode;
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
@@ -39,6 +52,13 @@ public final class FileDB
 
     public FileDB(final String root,
                   final String name) {
+        this(root, name, StorageMode.REWRITE);
+    }
+
+    public FileDB(final String root,
+                  final String name,
+                  final StorageMode mode) {
+        _mode = null != mode ? mode : StorageMode.REWRITE;
         _root = PathUtils.concat(root, name);
         _collections_path = PathUtils.concat(_root, COLLECTIONS_PATH);
         _collections = Collections.synchronizedMap(new HashMap<>());
@@ -56,6 +76,10 @@ public final class FileDB
         return _root;
     }
 
+    public StorageMode storageMode() {
+        return _mode;
+    }
+
     public String collectionsPath() {
         return _collections_path;
     }
@@ -3,6 +3,8 @@ package org.lyj.commons.io.db.filedb;
 import org.lyj.commons.Delegates;
 import org.lyj.commons.async.Locker;
 import org.lyj.commons.cryptograph.GUID;
+import org.lyj.commons.io.db.filedb.index.FileDBIndex;
+import org.lyj.commons.io.db.filedb.index.FileDBIndexes;
 import org.lyj.commons.lang.CharEncoding;
 import org.lyj.commons.lang.Counter;
 import org.lyj.commons.lang.ValueObject;
@@ -12,7 +14,11 @@ import org.lyj.commons.util.StringUtils;
 import org.lyj.commons.util.json.JsonItem;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class FileDBCollection {
@@ -24,6 +30,7 @@ public class FileDBCollection {
 
     private static final String KEY = IFileDBConstants.KEY; // "_key"
     private static final String ENCODING = CharEncoding.UTF_8;
+    private static final String KEY_PREFIX = "\"" + KEY + "\":\"";
 
     // ------------------------------------------------------------------------
     //                      f i e l d s
@@ -36,6 +43,8 @@ public class FileDBCollection {
 
     private boolean _ready;
     private final Counter _row_count;
+    private FileDBLog _log; // not null in APPEND storage mode
+    private final FileDBIndexes _indexes; // shared by collections on same file, also lock of all writes
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
@@ -49,10 +58,12 @@ public class FileDBCollection {
         _field_names = new HashSet<>();
 
         _row_count = new Counter(0);
+        _indexes = FileDBIndexes.open(_file_path);
 
         try {
             // initialize
             this.init();
+            this.initIndexes();
 
 
             _ready = true;
@@ -84,18 +95,139 @@ public class FileDBCollection {
     }
 
     public boolean exists(final Object key) {
+        if (null != _log) {
+            return _log.containsKey(StringUtils.toString(key));
+        }
         return null != this.get(key);
     }
 
     public long count() {
+        if (null != _log) {
+            return _log.count();
+        }
         return _row_count.value();
     }
 
     public String[] fields() {
-        return _field_names.toArray(new String[_field_names.size()]);
+        final Set<String> names = null != _log ? _log.fieldNames() : _field_names;
+        return names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * Remove dead rows from collection file. Only for APPEND storage mode, where it also
+     * runs automatically in background.
+     */
+    public void compact() throws IOException {
+        if (null != _log) {
+            _log.compact();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      i n d e x e s
+    // ------------------------------------------------------------------------
+
+    /**
+     * Create an index on a field, if not already exists.
+     * HASH indexes support find(), SORTED indexes support find() and range().
+     */
+    public FileDBCollection index(final String field,
+                                  final FileDBIndex.Type type) {
+        synchronized (_indexes) {
+            final FileDBIndex existing = _indexes.get(field);
+            if (null == existing || existing.type() != type) {
+                final FileDBIndex index = _indexes.add(field, type);
+                this.read((entity) -> {
+                    index.put(entity.key(), entity.get(field));
+                    return false;
+                });
+                _indexes.save();
+            }
+        }
+        return this;
+    }
+
+    public FileDBCollection dropIndex(final String field) {
+        synchronized (_indexes) {
+            if (null != _indexes.remove(field)) {
+                _indexes.save();
+            }
+        }
+        return this;
+    }
+
+    public String[] indexes() {
+        return _indexes.fields();
+    }
+
+    /**
+     * Returns all entities having field equal to value.
+     * Uses index if any, otherwise scans the collection.
+     */
+    public List<FileDBEntity> find(final String field,
+                                   final Object value) {
+        return this.find(field, value, 0, 0);
+    }
+
+    /**
+     * Returns entities having field equal to value.
+     *
+     * @param skip  Number of entities to skip
+     * @param limit Max number of entities to return. Zero or negative means no limit.
+     */
+    public List<FileDBEntity> find(final String field,
+                                   final Object value,
+                                   final int skip,
+                                   final int limit) {
+        final FileDBIndex index = _indexes.get(field);
+        if (null != index && null != FileDBIndex.normalize(value)) {
+            // null values are not indexed
+            return this.fetch(index.find(value), skip, limit);
+        }
+        final Object normalized = FileDBIndex.normalize(value);
+        return this.scan((entity) -> {
+            final Object item = FileDBIndex.normalize(entity.get(field));
+            return null == normalized ? null == item : normalized.equals(item);
+        }, skip, limit);
+    }
+
+    /**
+     * Returns all entities having field value between from and to (inclusive).
+     * A null bound means open range.
+     * Uses a SORTED index if any, otherwise scans the collection.
+     */
+    public List<FileDBEntity> range(final String field,
+                                    final Object from,
+                                    final Object to) {
+        return this.range(field, from, to, 0, 0);
+    }
+
+    public List<FileDBEntity> range(final String field,
+                                    final Object from,
+                                    final Object to,
+                                    final int skip,
+                                    final int limit) {
+        final FileDBIndex index = _indexes.get(field);
+        if (null != index && index.type() == FileDBIndex.Type.SORTED) {
+            return this.fetch(index.range(from, to), skip, limit);
+        }
+        final Object lo = FileDBIndex.normalize(from);
+        final Object hi = FileDBIndex.normalize(to);
+        final List<FileDBEntity> result = this.scan((entity) -> {
+            final Object item = FileDBIndex.normalize(entity.get(field));
+            return null != item
+                    && (null == lo || FileDBIndex.COMPARATOR.compare(item, lo) >= 0)
+                    && (null == hi || FileDBIndex.COMPARATOR.compare(item, hi) <= 0);
+        }, 0, 0);
+        result.sort((a, b) -> FileDBIndex.COMPARATOR.compare(FileDBIndex.normalize(a.get(field)),
+                FileDBIndex.normalize(b.get(field))));
+        return page(result, skip, limit);
     }
 
     public FileDBEntity get(final Object key) {
+        if (null != _log) {
+            return _log.get(StringUtils.toString(key));
+        }
         final ValueObject<FileDBEntity> result = new ValueObject<>();
         this.read((item) -> {
             final Object item_key = item.key();
@@ -149,6 +281,10 @@ public class FileDBCollection {
     // ------------------------------------------------------------------------
 
     private void init() throws IOException {
+        if (_db.storageMode() == FileDB.StorageMode.APPEND) {
+            _log = FileDBLog.open(_file_path);
+            return;
+        }
         synchronized (_row_count) {
             final File file = new File(_file_path);
             if (!file.exists()) {
@@ -166,8 +302,31 @@ public class FileDBCollection {
     }
 
 
+    private void initIndexes() {
+        synchronized (_indexes) {
+            if (_indexes.isLoaded()) {
+                // already loaded by another collection on same file
+                return;
+            }
+            if (!_indexes.load() && !_indexes.isEmpty()) {
+                // missing or out of date: rebuild
+                _indexes.clear();
+                this.read((entity) -> {
+                    _indexes.put(entity);
+                    return false;
+                });
+                _indexes.save();
+            }
+        }
+    }
+
     private boolean remove() {
         try {
+            if (null != _log) {
+                _log.close();
+            }
+            _indexes.close();
+            _indexes.delete();
             if (PathUtils.exists(_file_path)) {
                 FileUtils.delete(_file_path);
             }
@@ -178,6 +337,10 @@ public class FileDBCollection {
     }
 
     private void read(final Delegates.FunctionArg<FileDBEntity, Boolean> callback) {
+        if (null != _log) {
+            _log.forEach(callback);
+            return;
+        }
         try {
             Locker.instance().lock(_file_path);
             try {
@@ -204,6 +367,38 @@ public class FileDBCollection {
     private FileDBEntity write(final FileDBEntity entity,
                                final boolean upsert,
                                final boolean remove) throws Exception {
+        // always locked: an index built concurrently must not miss this row
+        synchronized (_indexes) {
+            final FileDBEntity response = this.writeRow(entity, upsert, remove);
+            if (null != response && !_indexes.isEmpty()) {
+                if (remove) {
+                    _indexes.removeKey(response.key());
+                } else {
+                    _indexes.put(response);
+                }
+                _indexes.saveLater();
+            }
+            return response;
+        }
+    }
+
+    private FileDBEntity removeByKey(final String key) throws Exception {
+        synchronized (_indexes) {
+            final FileDBEntity response = this.removeRow(key);
+            if (null != response && !_indexes.isEmpty()) {
+                _indexes.removeKey(key);
+                _indexes.saveLater();
+            }
+            return response;
+        }
+    }
+
+    private FileDBEntity writeRow(final FileDBEntity entity,
+                                  final boolean upsert,
+                                  final boolean remove) throws Exception {
+        if (null != _log) {
+            return _log.write(entity, upsert, remove);
+        }
         synchronized (_row_count) {
             FileDBEntity response = null;
             try {
@@ -279,7 +474,10 @@ public class FileDBCollection {
         }
     }
 
-    private FileDBEntity removeByKey(final String key) throws Exception {
+    private FileDBEntity removeRow(final String key) throws Exception {
+        if (null != _log) {
+            return _log.removeByKey(key);
+        }
         synchronized (_row_count) {
             FileDBEntity response = null;
             try {
@@ -328,6 +526,81 @@ public class FileDBCollection {
         }
     }
 
+    /**
+     * Load entities by key, preserving keys order.
+     * Paging is applied on keys, so only returned entities are loaded.
+     */
+    private List<FileDBEntity> fetch(final List<String> keys,
+                                     final int skip,
+                                     final int limit) {
+        final List<String> page = page(keys, skip, limit);
+        final List<FileDBEntity> result = new ArrayList<>(page.size());
+        if (page.isEmpty()) {
+            return result;
+        }
+        if (null != _log) {
+            for (final String key : page) {
+                final FileDBEntity entity = _log.get(key);
+                if (null != entity) {
+                    result.add(entity);
+                }
+            }
+            return result;
+        }
+
+        // single scan, parsing only lines with a wanted key
+        final Map<String, FileDBEntity> found = new HashMap<>();
+        final Set<String> wanted = new HashSet<>(page);
+        try {
+            Locker.instance().lock(_file_path);
+            try (final BufferedReader reader = new BufferedReader(new FileReader(_file_path))) {
+                long index = 0;
+                String line;
+                while (found.size() < wanted.size() && null != (line = reader.readLine())) {
+                    if (!StringUtils.isJSONObject(line)) {
+                        break;
+                    }
+                    final String key = lineKey(line);
+                    if (null == key || wanted.contains(key)) {
+                        final FileDBEntity entity = new FileDBEntity(index, line);
+                        if (wanted.contains(entity.key())) {
+                            found.put(entity.key(), entity);
+                        }
+                    }
+                    index++;
+                }
+            } catch (Throwable ignored) {
+            }
+        } finally {
+            Locker.instance().unlock(_file_path);
+        }
+        for (final String key : page) {
+            final FileDBEntity entity = found.get(key);
+            if (null != entity) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    private List<FileDBEntity> scan(final Delegates.FunctionArg<FileDBEntity, Boolean> filter,
+                                    final int skip,
+                                    final int limit) {
+        final List<FileDBEntity> result = new ArrayList<>();
+        final Counter skipped = new Counter(0);
+        this.read((entity) -> {
+            if (filter.call(entity)) {
+                if (skipped.value() < skip) {
+                    skipped.inc();
+                } else {
+                    result.add(entity);
+                }
+            }
+            return limit > 0 && result.size() >= limit;
+        });
+        return result;
+    }
+
     private void append(final FileDBEntity entity) throws IOException {
         entity.index(_row_count.value());
         final String line = this.prepareRowToWrite(entity);
@@ -347,4 +620,33 @@ public class FileDBCollection {
         _field_names.addAll(item.keys());
     }
 
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    private static <T> List<T> page(final List<T> list,
+                                    final int skip,
+                                    final int limit) {
+        final int from = Math.min(Math.max(skip, 0), list.size());
+        final int to = limit > 0 ? Math.min(from + limit, list.size()) : list.size();
+        return from == 0 && to == list.size() ? list : new ArrayList<>(list.subList(from, to));
+    }
+
+    /**
+     * Fast key lookup on a raw row.
+     *
+     * @return Key, or null if key cannot be extracted without parsing the row.
+     */
+    private static String lineKey(final String line) {
+        final int start = line.indexOf(KEY_PREFIX);
+        if (start > -1) {
+            final int from = start + KEY_PREFIX.length();
+            final int to = line.indexOf('"', from);
+            if (to > from && line.lastIndexOf('\\', to) < from) {
+                return line.substring(from, to);
+            }
+        }
+        return null;
+    }
+
 }
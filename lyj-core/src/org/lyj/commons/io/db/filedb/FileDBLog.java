@@ -0,0 +1,582 @@
+package org.lyj.commons.io.db.filedb;
+
+import org.lyj.commons.Delegates;
+import org.lyj.commons.async.Async;
+import org.lyj.commons.cryptograph.GUID;
+import org.lyj.commons.logging.AbstractLogEmitter;
+import org.lyj.commons.util.FileUtils;
+import org.lyj.commons.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Append-only storage for a FileDB collection.
+ * <p>
+ * File is still a JSON-lines file. Inserts, updates and removals are always appended:
+ * an update writes the whole merged row again and a removal writes a tombstone row
+ * ({"_key":"...", "_deleted":true}). An in-memory index (primary key -&gt; offset and length)
+ * is rebuilt scanning the file on open, so a point read is a single positional read.
+ * <p>
+ * When dead rows exceed a ratio of file size, a background compaction copies live rows
+ * to a new file while writers continue to append, then swaps files.
+ * <p>
+ * A single instance exists for each file path. Use FileDBLog.open().
+ */
+public class FileDBLog
+        extends AbstractLogEmitter {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final String KEY = IFileDBConstants.KEY;
+    private static final String DELETED = IFileDBConstants.DELETED;
+
+    private static final long COMPACT_MIN_SIZE = 1024 * 1024; // 1Mb
+    private static final double COMPACT_RATIO = 0.5; // dead bytes / file size
+    private static final int SCAN_BUFFER = 64 * 1024;
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final String _file_path;
+    private final Map<String, Entry> _index;
+    private final Set<String> _field_names;
+    private final ReentrantLock _append_lock; // serialize writers
+    private final ReentrantReadWriteLock _file_lock; // write lock only to swap file
+    private final AtomicBoolean _compacting;
+
+    private FileChannel _channel;
+    private long _size;
+    private long _garbage;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    private FileDBLog(final String file_path) throws IOException {
+        _file_path = file_path;
+        _index = new ConcurrentHashMap<>();
+        _field_names = ConcurrentHashMap.newKeySet();
+        _append_lock = new ReentrantLock();
+        _file_lock = new ReentrantReadWriteLock();
+        _compacting = new AtomicBoolean(false);
+
+        this.init();
+    }
+
+    @Override
+    public String toString() {
+        return "{path: " + _file_path + ", rows: " + _index.size() + ", size: " + _size + ", garbage: " + _garbage + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public String path() {
+        return _file_path;
+    }
+
+    public long count() {
+        return _index.size();
+    }
+
+    public Set<String> fieldNames() {
+        return _field_names;
+    }
+
+    public boolean containsKey(final String key) {
+        return null != key && _index.containsKey(key);
+    }
+
+    public Set<String> keys() {
+        return _index.keySet();
+    }
+
+    public FileDBEntity get(final String key) {
+        if (null != key) {
+            _file_lock.readLock().lock();
+            try {
+                final Entry entry = _index.get(key);
+                if (null != entry) {
+                    return this.readEntity(entry);
+                }
+            } catch (Throwable t) {
+                super.error("get", t);
+            } finally {
+                _file_lock.readLock().unlock();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Loop on live rows in insertion order.
+     *
+     * @param callback Return true to exit loop
+     */
+    public void forEach(final Delegates.FunctionArg<FileDBEntity, Boolean> callback) {
+        _file_lock.readLock().lock();
+        try {
+            final long[] index = new long[]{0};
+            this.scan(_size, (offset, length, line) -> {
+                final FileDBEntity entity = new FileDBEntity(line);
+                final Entry entry = _index.get(entity.key());
+                if (null != entry && entry.offset == offset && !isTombstone(entity)) {
+                    entity.index(index[0]++);
+                    return callback.call(entity);
+                }
+                return false;
+            });
+        } catch (Throwable t) {
+            super.error("forEach", t);
+        } finally {
+            _file_lock.readLock().unlock();
+        }
+    }
+
+    public FileDBEntity write(final FileDBEntity entity,
+                              final boolean upsert,
+                              final boolean remove) throws Exception {
+        _append_lock.lock();
+        try {
+            _file_lock.readLock().lock();
+            try {
+                if (!entity.has(KEY)) {
+                    if (!remove) {
+                        entity.put(KEY, GUID.create());
+                        entity.index(_index.size());
+                        this.append(entity);
+                        return entity;
+                    }
+                    return null;
+                }
+                final String key = entity.key();
+                final Entry entry = _index.get(key);
+                if (null != entry) {
+                    final FileDBEntity row = this.readEntity(entry);
+                    if (remove) {
+                        this.tombstone(key);
+                        return row;
+                    } else if (upsert) {
+                        row.putAll(entity);
+                        this.append(row);
+                        return row;
+                    } else {
+                        throw new Exception("Entity already exists: " + row.toString());
+                    }
+                } else if (!remove) {
+                    entity.index(_index.size());
+                    this.append(entity);
+                    return entity;
+                }
+                return null;
+            } finally {
+                _file_lock.readLock().unlock();
+                this.compactIfNeeded();
+            }
+        } finally {
+            _append_lock.unlock();
+        }
+    }
+
+    public FileDBEntity removeByKey(final String key) throws Exception {
+        _append_lock.lock();
+        try {
+            _file_lock.readLock().lock();
+            try {
+                final Entry entry = _index.get(key);
+                if (null != entry) {
+                    final FileDBEntity row = this.readEntity(entry);
+                    this.tombstone(key);
+                    return row;
+                }
+                return null;
+            } finally {
+                _file_lock.readLock().unlock();
+                this.compactIfNeeded();
+            }
+        } finally {
+            _append_lock.unlock();
+        }
+    }
+
+    /**
+     * Rewrite the file with live rows only.
+     * Writers are blocked only while the tail appended during the copy is moved.
+     */
+    public void compact() throws IOException {
+        if (!_compacting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final File tmp_file = new File(_file_path + ".compact");
+            final Map<Entry, Entry> moved = new HashMap<>();
+
+            // snapshot
+            final long limit;
+            final List<Entry> live;
+            _append_lock.lock();
+            try {
+                limit = _size;
+                live = new ArrayList<>(_index.values());
+            } finally {
+                _append_lock.unlock();
+            }
+            live.sort(Comparator.comparingLong((e) -> e.offset));
+
+            try (final FileChannel out = FileChannel.open(tmp_file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                // copy live rows without blocking writers
+                long position = 0;
+                _file_lock.readLock().lock();
+                try {
+                    for (final Entry entry : live) {
+                        final ByteBuffer buffer = this.read(entry);
+                        final Entry target = new Entry(position, entry.length);
+                        while (buffer.hasRemaining()) {
+                            position += out.write(buffer, position);
+                        }
+                        moved.put(entry, target);
+                    }
+                } finally {
+                    _file_lock.readLock().unlock();
+                }
+
+                // move tail and swap
+                this.lockAll();
+                try {
+                    final long base = position;
+                    long transferred = 0;
+                    while (limit + transferred < _size) {
+                        transferred += _channel.transferTo(limit + transferred, _size - limit - transferred, out);
+                    }
+                    out.force(true);
+
+                    long live_bytes = 0;
+                    for (final Map.Entry<String, Entry> item : _index.entrySet()) {
+                        final Entry entry = item.getValue();
+                        final Entry target = entry.offset >= limit
+                                ? new Entry(base + entry.offset - limit, entry.length)
+                                : moved.get(entry);
+                        if (null != target) {
+                            item.setValue(target);
+                            live_bytes += target.length;
+                        }
+                    }
+
+                    _channel.close();
+                    Files.move(tmp_file.toPath(), new File(_file_path).toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    _channel = openChannel(_file_path);
+                    _size = _channel.size();
+                    _garbage = _size - live_bytes;
+                } finally {
+                    _file_lock.writeLock().unlock();
+                    _append_lock.unlock();
+                }
+            } finally {
+                if (tmp_file.exists()) {
+                    FileUtils.delete(tmp_file);
+                }
+            }
+        } finally {
+            _compacting.set(false);
+        }
+    }
+
+    /**
+     * Close file and remove from registry. Instance cannot be used anymore.
+     */
+    public void close() {
+        _append_lock.lock();
+        _file_lock.writeLock().lock();
+        try {
+            __instances.remove(_file_path);
+            if (null != _channel) {
+                _channel.close();
+            }
+        } catch (Throwable ignored) {
+        } finally {
+            _file_lock.writeLock().unlock();
+            _append_lock.unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    /**
+     * Lock writers and readers. Append lock is released while waiting, so a reader
+     * writing from inside a forEach callback cannot deadlock with compaction.
+     */
+    private void lockAll() throws IOException {
+        try {
+            while (true) {
+                _append_lock.lock();
+                if (_file_lock.writeLock().tryLock(100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                _append_lock.unlock();
+                Thread.yield();
+            }
+        } catch (InterruptedException e) {
+            _append_lock.unlock();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for compaction lock", e);
+        }
+    }
+
+    private void init() throws IOException {
+        final File file = new File(_file_path);
+        if (!file.exists()) {
+            FileUtils.mkdirs(_file_path);
+        }
+        _channel = openChannel(_file_path);
+        _size = _channel.size();
+
+        // rebuild index
+        final long[] live_bytes = new long[]{0};
+        final long[] last_row = new long[]{-1};
+        final long end = this.scan(_size, (offset, length, line) -> {
+            last_row[0] = offset;
+            final FileDBEntity entity = new FileDBEntity(line);
+            final String key = entity.key();
+            if (StringUtils.hasText(key)) {
+                final Entry old = _index.remove(key);
+                if (null != old) {
+                    live_bytes[0] -= old.length;
+                }
+                if (!isTombstone(entity)) {
+                    final Entry entry = new Entry(offset, length);
+                    _index.put(key, entry);
+                    live_bytes[0] += entry.length;
+                    _field_names.addAll(entity.keys());
+                }
+            }
+            return false;
+        });
+        if (end < _size) {
+            if (last_row[0] == end) {
+                // complete row without line terminator: next append must start on a new line
+                final ByteBuffer buffer = ByteBuffer.wrap(System.getProperty("line.separator").getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    _size += _channel.write(buffer, _size);
+                }
+            } else {
+                // torn row left by a crash: discarded, otherwise next row is merged into it
+                super.warning("init", "Truncated incomplete row at offset " + end + " of file: " + _file_path);
+                _channel.truncate(end);
+                _size = end;
+            }
+        }
+        _garbage = _size - live_bytes[0];
+    }
+
+    private void append(final FileDBEntity entity) throws IOException {
+        final String key = entity.key();
+        final byte[] bytes = toLine(entity);
+        final long offset = _size;
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += _channel.write(buffer, position);
+        }
+        _size = position;
+
+        final Entry old = _index.put(key, new Entry(offset, bytes.length));
+        if (null != old) {
+            _garbage += old.length;
+        }
+        _field_names.addAll(entity.keys());
+    }
+
+    private void tombstone(final String key) throws IOException {
+        final FileDBEntity tombstone = new FileDBEntity();
+        tombstone.put(KEY, key);
+        tombstone.put(DELETED, true);
+        final byte[] bytes = toLine(tombstone);
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long position = _size;
+        while (buffer.hasRemaining()) {
+            position += _channel.write(buffer, position);
+        }
+        _size = position;
+
+        final Entry old = _index.remove(key);
+        _garbage += bytes.length + (null != old ? old.length : 0);
+    }
+
+    private void compactIfNeeded() {
+        if (_size > COMPACT_MIN_SIZE && _garbage > _size * COMPACT_RATIO && !_compacting.get()) {
+            Async.invoke((args) -> {
+                try {
+                    this.compact();
+                } catch (Throwable t) {
+                    super.error("compact", t);
+                }
+            });
+        }
+    }
+
+    private FileDBEntity readEntity(final Entry entry) throws IOException {
+        final ByteBuffer buffer = this.read(entry);
+        return new FileDBEntity(new String(buffer.array(), 0, buffer.limit(), StandardCharsets.UTF_8).trim());
+    }
+
+    private ByteBuffer read(final Entry entry) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+        long position = entry.offset;
+        while (buffer.hasRemaining()) {
+            final int count = _channel.read(buffer, position);
+            if (count < 0) {
+                break;
+            }
+            position += count;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Read lines from offset zero to limit.
+     *
+     * @return Offset following last line terminator
+     */
+    private long scan(final long limit, final LineCallback callback) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+        byte[] line = new byte[1024];
+        int line_length = 0;
+        long line_start = 0;
+        long position = 0;
+        while (position < limit) {
+            buffer.clear();
+            if (limit - position < buffer.capacity()) {
+                buffer.limit((int) (limit - position));
+            }
+            final int count = _channel.read(buffer, position);
+            if (count <= 0) {
+                break;
+            }
+            buffer.flip();
+            for (int i = 0; i < count; i++) {
+                final byte b = buffer.get(i);
+                if (b == LF) {
+                    final long next = position + i + 1;
+                    if (this.emit(callback, line_start, (int) (next - line_start), line, line_length)) {
+                        return next;
+                    }
+                    line_length = 0;
+                    line_start = next;
+                } else {
+                    if (line_length == line.length) {
+                        final byte[] grown = new byte[line.length * 2];
+                        System.arraycopy(line, 0, grown, 0, line_length);
+                        line = grown;
+                    }
+                    line[line_length++] = b;
+                }
+            }
+            position += count;
+        }
+        if (line_length > 0) {
+            this.emit(callback, line_start, (int) (limit - line_start), line, line_length);
+        }
+        return line_start;
+    }
+
+    private boolean emit(final LineCallback callback,
+                         final long offset, final int size,
+                         final byte[] line, final int length) {
+        int end = length;
+        if (end > 0 && line[end - 1] == CR) {
+            end--;
+        }
+        if (end > 0) {
+            final String text = new String(line, 0, end, StandardCharsets.UTF_8).trim();
+            if (StringUtils.isJSONObject(text)) {
+                return callback.handle(offset, size, text);
+            }
+        }
+        return false;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    private static final Map<String, FileDBLog> __instances = new HashMap<>();
+
+    /**
+     * Returns the storage for a file path. Same instance is shared among all collections
+     * opened on same file.
+     */
+    public static FileDBLog open(final String file_path) throws IOException {
+        final String path = new File(file_path).getCanonicalPath();
+        synchronized (__instances) {
+            FileDBLog instance = __instances.get(path);
+            if (null == instance) {
+                instance = new FileDBLog(path);
+                __instances.put(path, instance);
+            }
+            return instance;
+        }
+    }
+
+    private static FileChannel openChannel(final String file_path) throws IOException {
+        return FileChannel.open(new File(file_path).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static boolean isTombstone(final FileDBEntity entity) {
+        return entity.has(DELETED) && entity.getBoolean(DELETED);
+    }
+
+    private static byte[] toLine(final FileDBEntity entity) {
+        final String separator = System.getProperty("line.separator");
+        return (StringUtils.replace(entity.toString().trim(), separator, "") + separator).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    @FunctionalInterface
+    private interface LineCallback {
+        boolean handle(final long offset, final int length, final String line);
+    }
+
+    private static final class Entry {
+
+        private final long offset;
+        private final int length;
+
+        private Entry(final long offset, final int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+}
@@ -28,6 +28,7 @@ public interface IFileDBConstants {
     String KEY = "_key"; // main key
     String TIMESTAMP = "_timestamp";
     String INDEX = "_index";
+    String DELETED = "_deleted"; // tombstone flag in append-only collections
 
     String COLL_EXT = ".fdb"; // filedb extension
 
@@ -0,0 +1,207 @@
+package org.lyj.commons.io.db.filedb.index;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.lyj.commons.util.ConversionUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Secondary index on a single field of a FileDB collection.
+ * Maps field values to primary keys.
+ * <p>
+ * HASH indexes answer equality lookups. SORTED indexes also answer range lookups
+ * in value order. Numbers are compared as numbers, other values as text,
+ * numbers come before text.
+ */
+public class FileDBIndex {
+
+    public enum Type {
+        HASH,
+        SORTED
+    }
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final String FLD_FIELD = "field";
+    private static final String FLD_TYPE = "type";
+    private static final String FLD_ENTRIES = "entries";
+
+    public static final Comparator<Object> COMPARATOR = FileDBIndex::compare;
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final String _field;
+    private final Type _type;
+    private final Map<Object, Set<String>> _values; // value -> keys
+    private final Map<String, Object> _keys; // key -> value
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public FileDBIndex(final String field,
+                       final Type type) {
+        _field = field;
+        _type = null != type ? type : Type.HASH;
+        _values = _type == Type.SORTED ? new TreeMap<>(COMPARATOR) : new HashMap<>();
+        _keys = new HashMap<>();
+    }
+
+    @Override
+    public String toString() {
+        return this.toJson().toString();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public String field() {
+        return _field;
+    }
+
+    public Type type() {
+        return _type;
+    }
+
+    public synchronized int size() {
+        return _keys.size();
+    }
+
+    public synchronized void clear() {
+        _values.clear();
+        _keys.clear();
+    }
+
+    /**
+     * Add or replace value of a key.
+     */
+    public synchronized void put(final String key, final Object value) {
+        this.remove(key);
+        final Object normalized = normalize(value);
+        if (null != normalized) {
+            _values.computeIfAbsent(normalized, (k) -> new LinkedHashSet<>()).add(key);
+            _keys.put(key, normalized);
+        }
+    }
+
+    public synchronized void remove(final String key) {
+        final Object old = _keys.remove(key);
+        if (null != old) {
+            final Set<String> keys = _values.get(old);
+            if (null != keys) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    _values.remove(old);
+                }
+            }
+        }
+    }
+
+    /**
+     * Keys whose value equals passed value.
+     */
+    public synchronized List<String> find(final Object value) {
+        final Set<String> keys = _values.get(normalize(value));
+        return null != keys ? new ArrayList<>(keys) : new ArrayList<>();
+    }
+
+    /**
+     * Keys whose value is between from and to (both inclusive).
+     * Null bounds are open.
+     */
+    public synchronized List<String> range(final Object from, final Object to) {
+        final Object low = normalize(from);
+        final Object high = normalize(to);
+        final List<String> result = new ArrayList<>();
+        if (_values instanceof NavigableMap) {
+            NavigableMap<Object, Set<String>> map = (NavigableMap<Object, Set<String>>) _values;
+            if (null != low) {
+                map = map.tailMap(low, true);
+            }
+            if (null != high) {
+                map = map.headMap(high, true);
+            }
+            for (final Set<String> keys : map.values()) {
+                result.addAll(keys);
+            }
+        } else {
+            for (final Map.Entry<Object, Set<String>> entry : _values.entrySet()) {
+                final Object value = entry.getKey();
+                if ((null == low || compare(value, low) >= 0) && (null == high || compare(value, high) <= 0)) {
+                    result.addAll(entry.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    public synchronized JSONObject toJson() {
+        final JSONObject result = new JSONObject();
+        result.put(FLD_FIELD, _field);
+        result.put(FLD_TYPE, _type.name());
+        final JSONArray entries = new JSONArray();
+        for (final Map.Entry<String, Object> entry : _keys.entrySet()) {
+            entries.put(new JSONArray().put(entry.getKey()).put(entry.getValue()));
+        }
+        result.put(FLD_ENTRIES, entries);
+        return result;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    public static FileDBIndex fromJson(final JSONObject json) {
+        final FileDBIndex index = new FileDBIndex(json.optString(FLD_FIELD),
+                Type.valueOf(json.optString(FLD_TYPE, Type.HASH.name())));
+        final JSONArray entries = json.optJSONArray(FLD_ENTRIES);
+        if (null != entries) {
+            for (int i = 0; i < entries.length(); i++) {
+                final JSONArray entry = entries.optJSONArray(i);
+                if (null != entry && entry.length() == 2) {
+                    index.put(entry.optString(0), entry.opt(1));
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Index value for a field value: numbers become Double, everything else a String.
+     */
+    public static Object normalize(final Object value) {
+        if (null == value || JSONObject.NULL.equals(value)) {
+            return null;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return ConversionUtils.toString(value);
+    }
+
+    private static int compare(final Object a, final Object b) {
+        if (a instanceof Double && b instanceof Double) {
+            return ((Double) a).compareTo((Double) b);
+        } else if (a instanceof Double) {
+            return -1;
+        } else if (b instanceof Double) {
+            return 1;
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+}
@@ -0,0 +1,279 @@
+package org.lyj.commons.io.db.filedb.index;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.lyj.commons.async.Async;
+import org.lyj.commons.io.db.filedb.FileDBEntity;
+import org.lyj.commons.logging.AbstractLogEmitter;
+import org.lyj.commons.util.FileUtils;
+import org.lyj.commons.util.PathUtils;
+import org.lyj.commons.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Secondary indexes of a collection.
+ * <p>
+ * Indexes are saved in a JSON file next to the collection file, together with size and
+ * last modified date of the collection file at save time. When the collection file
+ * does not match (i.e. process stopped before saving) indexes are rebuilt.
+ * Saving is delayed to group many writes in a single save.
+ * <p>
+ * A single instance exists for each collection file, shared by all collections opened on
+ * same file. Use FileDBIndexes.open(). The instance is also the lock of writers that
+ * update indexes.
+ */
+public class FileDBIndexes
+        extends AbstractLogEmitter {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    public static final String EXT = ".fdx";
+
+    private static final int SAVE_DELAY = 1000;
+
+    private static final String FLD_SOURCE_SIZE = "source_size";
+    private static final String FLD_SOURCE_MODIFIED = "source_modified";
+    private static final String FLD_INDEXES = "indexes";
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final String _file_path;
+    private final String _source_path;
+    private final Map<String, FileDBIndex> _indexes;
+    private final AtomicBoolean _save_scheduled;
+
+    private boolean _loaded; // guarded by this
+    private boolean _closed; // guarded by this
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    /**
+     * @param source_path Path of collection file
+     */
+    private FileDBIndexes(final String source_path) {
+        _source_path = source_path;
+        _file_path = PathUtils.changeFileExtension(source_path, EXT);
+        _indexes = new ConcurrentHashMap<>();
+        _save_scheduled = new AtomicBoolean(false);
+        _loaded = false;
+        _closed = false;
+    }
+
+    @Override
+    public String toString() {
+        return _indexes.keySet().toString();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public String path() {
+        return _file_path;
+    }
+
+    /**
+     * True after first load: indexes are already in memory and kept updated by writers.
+     */
+    public synchronized boolean isLoaded() {
+        return _loaded;
+    }
+
+    public boolean isEmpty() {
+        return _indexes.isEmpty();
+    }
+
+    public String[] fields() {
+        return _indexes.keySet().toArray(new String[0]);
+    }
+
+    public Collection<FileDBIndex> values() {
+        return _indexes.values();
+    }
+
+    public boolean has(final String field) {
+        return _indexes.containsKey(field);
+    }
+
+    public FileDBIndex get(final String field) {
+        return _indexes.get(field);
+    }
+
+    public FileDBIndex add(final String field, final FileDBIndex.Type type) {
+        final FileDBIndex index = new FileDBIndex(field, type);
+        _indexes.put(field, index);
+        return index;
+    }
+
+    public FileDBIndex remove(final String field) {
+        return _indexes.remove(field);
+    }
+
+    /**
+     * Update all indexes with values of passed entity.
+     */
+    public void put(final FileDBEntity entity) {
+        final String key = entity.key();
+        if (StringUtils.hasText(key)) {
+            for (final FileDBIndex index : _indexes.values()) {
+                index.put(key, entity.get(index.field()));
+            }
+        }
+    }
+
+    public void removeKey(final String key) {
+        for (final FileDBIndex index : _indexes.values()) {
+            index.remove(key);
+        }
+    }
+
+    public void clear() {
+        for (final FileDBIndex index : _indexes.values()) {
+            index.clear();
+        }
+    }
+
+    /**
+     * Load indexes from file.
+     *
+     * @return False if indexes are missing or out of date and must be rebuilt.
+     */
+    public synchronized boolean load() {
+        _loaded = true;
+        try {
+            final File file = new File(_file_path);
+            if (file.exists()) {
+                final JSONObject json = new JSONObject(FileUtils.readFileToString(file));
+                final JSONArray items = json.optJSONArray(FLD_INDEXES);
+                if (null != items) {
+                    for (int i = 0; i < items.length(); i++) {
+                        final FileDBIndex index = FileDBIndex.fromJson(items.getJSONObject(i));
+                        _indexes.put(index.field(), index);
+                    }
+                }
+                final File source = new File(_source_path);
+                return json.optLong(FLD_SOURCE_SIZE, -1) == source.length()
+                        && json.optLong(FLD_SOURCE_MODIFIED, -1) == source.lastModified();
+            }
+        } catch (Throwable t) {
+            super.error("load", t);
+        }
+        return false;
+    }
+
+    /**
+     * Save now. Caller must ensure no write is running on collection.
+     */
+    public synchronized void save() {
+        if (_closed) {
+            return;
+        }
+        try {
+            if (_indexes.isEmpty()) {
+                this.delete();
+                return;
+            }
+            final File source = new File(_source_path);
+            final JSONObject json = new JSONObject();
+            json.put(FLD_SOURCE_SIZE, source.length());
+            json.put(FLD_SOURCE_MODIFIED, source.lastModified());
+            final JSONArray items = new JSONArray();
+            for (final FileDBIndex index : _indexes.values()) {
+                items.put(index.toJson());
+            }
+            json.put(FLD_INDEXES, items);
+
+            final File tmp = new File(_file_path + ".tmp");
+            FileUtils.writeStringToFile(tmp, json.toString(), "UTF-8");
+            final File file = new File(_file_path);
+            if (!file.exists() || file.delete()) {
+                tmp.renameTo(file);
+            }
+        } catch (Throwable t) {
+            super.error("save", t);
+        }
+    }
+
+    /**
+     * Schedule a save. Many calls in a short time produce a single save.
+     */
+    public void saveLater() {
+        if (_save_scheduled.compareAndSet(false, true)) {
+            Async.delay((args) -> {
+                synchronized (this) {
+                    _save_scheduled.set(false);
+                    this.save();
+                }
+            }, SAVE_DELAY);
+        }
+    }
+
+    /**
+     * Remove from registry and discard indexes in memory. Pending saves are ignored.
+     * Collections opened later on same file get a new instance.
+     */
+    public synchronized void close() {
+        synchronized (__instances) {
+            __instances.remove(_source_path);
+        }
+        _closed = true;
+        _indexes.clear();
+    }
+
+    public void delete() {
+        try {
+            final File file = new File(_file_path);
+            if (file.exists()) {
+                FileUtils.delete(file);
+            }
+        } catch (Throwable ignored) {
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    private static final Map<String, FileDBIndexes> __instances = new HashMap<>();
+
+    /**
+     * Returns the indexes of a collection file. Same instance is shared among all collections
+     * opened on same file, so a write through any of them updates indexes seen by others.
+     *
+     * @param source_path Path of collection file
+     */
+    public static FileDBIndexes open(final String source_path) {
+        final String path = canonicalPath(source_path);
+        synchronized (__instances) {
+            FileDBIndexes instance = __instances.get(path);
+            if (null == instance) {
+                instance = new FileDBIndexes(path);
+                __instances.put(path, instance);
+            }
+            return instance;
+        }
+    }
+
+    private static String canonicalPath(final String file_path) {
+        final File file = new File(file_path);
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException ignored) {
+            return file.getAbsolutePath();
+        }
+    }
+
+}
@@ -26,18 +26,30 @@ package org.lyj.commons.io.serialization.json.serializer;
 import org.lyj.commons.logging.Level;
 import org.lyj.commons.logging.Logger;
 import org.lyj.commons.logging.util.LoggingUtils;
+import org.lyj.commons.util.BeanMetadata;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
 /**
+ * Readable and writable properties of a bean class.
+ * Use BeanData.of() to share the analysis of a class: it is done once and getters are pre-bound.
+ *
  * @author angelo.geminiani
  */
 public class BeanData {
 
+    private static final ClassValue<BeanData> CACHE = new ClassValue<BeanData>() {
+        @Override
+        protected BeanData computeValue(final Class<?> type) {
+            return new BeanData(type);
+        }
+    };
+
     /**
      * The readable properties of the bean.
      */
@@ -46,10 +58,15 @@ public class BeanData {
      * The writable properties of the bean.
      */
     private Map<String, Method> _writableProps;
+    /**
+     * Pre-bound getters of readable properties.
+     */
+    private Map<String, BeanMetadata.Accessor> _readers;
 
     public BeanData() {
         _readableProps = new HashMap<String, Method>();
         _writableProps = new HashMap<String, Method>();
+        _readers = new HashMap<String, BeanMetadata.Accessor>();
     }
 
     public BeanData(final Class clazz) {
@@ -70,6 +87,10 @@ public class BeanData {
         return _writableProps;
     }
 
+    public Map<String, BeanMetadata.Accessor> getReaders() {
+        return _readers;
+    }
+
     // ------------------------------------------------------------------------
     //                      p r i v a t e
     // ------------------------------------------------------------------------
@@ -92,14 +113,18 @@ public class BeanData {
                 final Method[] pair = methods.get(property);
                 if (null != pair[0]) {
                     _readableProps.put(property, pair[0]);
+                    _readers.put(property, BeanMetadata.of(pair[0]));
                 }
                 if (null != pair[1]) {
-                    _writableProps.put(property, pair[0]);
+                    _writableProps.put(property, pair[1]);
                 }
             }
         } catch (Throwable t) {
             this.getlogger().log(Level.SEVERE, null, t);
         }
+        _readableProps = Collections.unmodifiableMap(_readableProps);
+        _writableProps = Collections.unmodifiableMap(_writableProps);
+        _readers = Collections.unmodifiableMap(_readers);
     }
 
     private Map<String, Method[]> getProperties(final Class klass,
@@ -179,4 +204,15 @@ public class BeanData {
         }
         return false;
     }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    /**
+     * Shared (read only) data of a class.
+     */
+    public static BeanData of(final Class clazz) {
+        return CACHE.get(clazz);
+    }
 }
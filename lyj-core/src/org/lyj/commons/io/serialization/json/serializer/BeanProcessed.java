@@ -24,8 +24,7 @@
 package org.lyj.commons.io.serialization.json.serializer;
 
 import org.json.JSONObject;
-
-import java.lang.reflect.Method;
+import org.lyj.commons.util.BeanMetadata;
 
 /**
  * @author angelo.geminiani
@@ -76,19 +75,20 @@ public class BeanProcessed {
     // ------------------------------------------------------------------------
     private void initBeanData(final Object bean) {
         if (null != _bean) {
-            _data = new BeanData(bean);
+            _data = BeanData.of(bean.getClass());
             _beanId = this.getId(_bean, _data, _bean.hashCode());
         }
     }
 
     private Object getId(final Object bean, final BeanData data,
                          final Object defaultValue) {
-        if (null != data
-                && data.getReadableProps().containsKey("id")) {
-            final Method method = data.getReadableProps().get("id");
-            try {
-                return method.invoke(bean, new Object[0]);
-            } catch (Throwable t) {
+        if (null != data) {
+            final BeanMetadata.Accessor getter = data.getReaders().get("id");
+            if (null != getter) {
+                try {
+                    return getter.get(bean);
+                } catch (Throwable t) {
+                }
             }
         }
         return defaultValue;
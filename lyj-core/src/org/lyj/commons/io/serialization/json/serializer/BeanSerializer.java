@@ -27,9 +27,9 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.lyj.IConstants;
 import org.lyj.commons.io.serialization.json.utils.JsonBeanUtils;
+import org.lyj.commons.util.BeanMetadata;
 import org.lyj.commons.util.StringUtils;
 
-import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
@@ -208,13 +208,13 @@ public class BeanSerializer {
         final JSONObject result = new JSONObject();
         if (!state.isProcessed(object)) {
             final BeanProcessed processed = state.addProcessedBean(parent, object);
-            final Map<String, Method> methods = processed.getBeanData().getReadableProps();
-            final Set<String> names = methods.keySet();
-            for (final String name : names) {
-                final Method method = methods.get(name);
+            // class data is shared and getters are pre-bound: no reflection per bean
+            final Map<String, BeanMetadata.Accessor> getters = processed.getBeanData().getReaders();
+            for (final Map.Entry<String, BeanMetadata.Accessor> entry : getters.entrySet()) {
+                final String name = entry.getKey();
                 Object resultValue;
                 try {
-                    resultValue = method.invoke(object, new Object[0]);
+                    resultValue = entry.getValue().get(object);
                     result.put(name, this.serialize(state, parent, resultValue));
                 } catch (Throwable t) {
                     JsonBeanUtils.addError(result, t);
@@ -0,0 +1,288 @@
+package org.lyj.commons.logging;
+
+import org.lyj.commons.util.FileUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous writer for a single log file.
+ * <p>
+ * Callers only put items in a bounded ring buffer. A background thread drains the
+ * buffer in batches and writes them on a stream kept open, tracking file size to
+ * rotate without asking the file system for each item.
+ * When buffer is full the OverflowPolicy decides if callers wait or items are dropped.
+ */
+public class LogFileAppender {
+
+    public enum OverflowPolicy {
+        BLOCK, // caller waits for room
+        DROP, // item is discarded
+        DROP_BELOW_LEVEL // items below a level are discarded, others wait
+    }
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final int MAX_BATCH = 512;
+    private static final int STREAM_BUFFER = 64 * 1024;
+    private static final Charset CHARSET = Charset.defaultCharset();
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(CHARSET);
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final String _file_name;
+    private final long _max_size;
+    private final boolean _create_archive;
+    private final OverflowPolicy _policy;
+    private final Level _overflow_level;
+    private final BlockingQueue<LogItem> _buffer;
+    private final Thread _thread;
+
+    private final AtomicLong _enqueued;
+    private final AtomicLong _written;
+    private final AtomicLong _dropped;
+    private final AtomicLong _batches;
+
+    private OutputStream _out; // writer thread only
+    private long _size; // writer thread only
+    private volatile boolean _closed;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public LogFileAppender(final String file_name,
+                           final long max_size,
+                           final boolean create_archive,
+                           final int capacity,
+                           final OverflowPolicy policy,
+                           final Level overflow_level) {
+        _file_name = file_name;
+        _max_size = max_size;
+        _create_archive = create_archive;
+        _policy = null != policy ? policy : OverflowPolicy.BLOCK;
+        _overflow_level = null != overflow_level ? overflow_level : Level.WARNING;
+        _buffer = new ArrayBlockingQueue<>(capacity > 0 ? capacity : DEFAULT_CAPACITY);
+
+        _enqueued = new AtomicLong();
+        _written = new AtomicLong();
+        _dropped = new AtomicLong();
+        _batches = new AtomicLong();
+
+        _thread = new Thread(this::run, "log-appender-" + new File(file_name).getName());
+        _thread.setDaemon(true);
+        _thread.setPriority(Thread.NORM_PRIORITY);
+        _thread.start();
+    }
+
+    @Override
+    public String toString() {
+        return "{file: " + _file_name
+                + ", policy: " + _policy
+                + ", pending: " + _buffer.size()
+                + ", written: " + _written.get()
+                + ", dropped: " + _dropped.get()
+                + ", batches: " + _batches.get() + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public String fileName() {
+        return _file_name;
+    }
+
+    public OverflowPolicy policy() {
+        return _policy;
+    }
+
+    public int pending() {
+        return _buffer.size();
+    }
+
+    public long written() {
+        return _written.get();
+    }
+
+    public long dropped() {
+        return _dropped.get();
+    }
+
+    public long batches() {
+        return _batches.get();
+    }
+
+    /**
+     * Put item in buffer.
+     *
+     * @return False if item was dropped
+     */
+    public boolean append(final LogItem item) {
+        if (_closed) {
+            _dropped.incrementAndGet();
+            return false;
+        }
+        if (_buffer.offer(item)) {
+            _enqueued.incrementAndGet();
+            return true;
+        }
+        // buffer is full
+        final boolean wait = _policy == OverflowPolicy.BLOCK
+                || (_policy == OverflowPolicy.DROP_BELOW_LEVEL
+                && item.getLevel().getNumValue() >= _overflow_level.getNumValue());
+        if (wait) {
+            try {
+                while (!_closed) {
+                    if (_buffer.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                        _enqueued.incrementAndGet();
+                        return true;
+                    }
+                }
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        _dropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Wait until all items appended so far are written.
+     *
+     * @return False if timeout elapsed
+     */
+    public boolean flush(final long timeout_ms) throws InterruptedException {
+        final long target = _enqueued.get();
+        final long deadline = System.currentTimeMillis() + timeout_ms;
+        synchronized (_written) {
+            while (_written.get() < target && _thread.isAlive()) {
+                final long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    return false;
+                }
+                _written.wait(wait);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write pending items and stop background thread.
+     */
+    public void close() {
+        _closed = true;
+        _thread.interrupt();
+        try {
+            _thread.join(5000);
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private void run() {
+        final List<LogItem> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            this.open(true);
+            while (!_closed) {
+                try {
+                    final LogItem first = _buffer.take();
+                    batch.add(first);
+                } catch (InterruptedException ignored) {
+                    break;
+                }
+                _buffer.drainTo(batch, MAX_BATCH - 1);
+                this.write(batch);
+                batch.clear();
+            }
+            // closing: write what is left
+            while (_buffer.drainTo(batch, MAX_BATCH) > 0) {
+                this.write(batch);
+                batch.clear();
+            }
+        } catch (Throwable t) {
+            t.printStackTrace();
+        } finally {
+            this.closeStream();
+            synchronized (_written) {
+                _written.notifyAll();
+            }
+        }
+    }
+
+    private void write(final List<LogItem> batch) {
+        try {
+            if (null == _out || !new File(_file_name).exists()) {
+                // moved by archive or rotation of another writer
+                this.closeStream();
+                this.open(false);
+            }
+            for (final LogItem item : batch) {
+                if (_size >= _max_size) {
+                    _out.flush();
+                    this.closeStream();
+                    LogFileWriter.rotate(_file_name);
+                    this.open(false);
+                }
+                final byte[] bytes = item.toString().getBytes(CHARSET);
+                _out.write(bytes);
+                _out.write(LINE_SEPARATOR);
+                _size += bytes.length + LINE_SEPARATOR.length;
+            }
+            _out.flush();
+        } catch (Throwable t) {
+            t.printStackTrace();
+        } finally {
+            _batches.incrementAndGet();
+            synchronized (_written) {
+                _written.addAndGet(batch.size());
+                _written.notifyAll();
+            }
+        }
+    }
+
+    private void open(final boolean first) throws IOException {
+        FileUtils.mkdirs(_file_name);
+        if (first) {
+            if (_create_archive) {
+                LogFileWriter.archive(_file_name);
+            } else {
+                FileUtils.delete(_file_name);
+            }
+        }
+        final File file = new File(_file_name);
+        _size = file.exists() ? file.length() : 0;
+        _out = new BufferedOutputStream(new FileOutputStream(file, true), STREAM_BUFFER);
+    }
+
+    private void closeStream() {
+        if (null != _out) {
+            try {
+                _out.close();
+            } catch (IOException ignored) {
+            }
+            _out = null;
+        }
+    }
+
+}
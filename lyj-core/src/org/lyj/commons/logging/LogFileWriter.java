@@ -1,15 +1,19 @@
 package org.lyj.commons.logging;
 
-import org.lyj.commons.cryptograph.MD5;
 import org.lyj.commons.util.*;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Writes log items on files.
+ * write() appends on the caller thread, append() hands items to an asynchronous
+ * LogFileAppender (one for each file).
+ */
 public class LogFileWriter {
 
     // ------------------------------------------------------------------------
@@ -17,13 +21,18 @@ public class LogFileWriter {
     // ------------------------------------------------------------------------
 
     private final Map<String, Object> _locks;
+    private final Map<String, LogFileAppender> _appenders;
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
     // ------------------------------------------------------------------------
 
     private LogFileWriter() {
-        _locks = new HashMap<>();
+        _locks = new ConcurrentHashMap<>();
+        _appenders = new ConcurrentHashMap<>();
+
+        final Thread hook = new Thread(this::close, "log-writer-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
     }
 
     // ------------------------------------------------------------------------
@@ -43,7 +52,7 @@ public class LogFileWriter {
             if (id == 1) {
                 // should archive?
                 if (create_archive) {
-                    this.archive(file_name);
+                    archive(file_name);
                 } else {
                     FileUtils.delete(file_name);
                 }
@@ -51,7 +60,7 @@ public class LogFileWriter {
                 // rotate if file size exceed the limit
                 final long file_size = FileUtils.getSize(file_name);
                 if (file_size >= max_size) {
-                    this.rotate(file_name);
+                    rotate(file_name);
                 }
             }
 
@@ -63,16 +72,52 @@ public class LogFileWriter {
         }
     }
 
+    /**
+     * Asynchronous write. Appender for the file is created at first call with passed options.
+     *
+     * @return False if item was dropped
+     */
+    public boolean append(final long max_size,
+                          final boolean create_archive,
+                          final String file_name,
+                          final LogItem item,
+                          final int capacity,
+                          final LogFileAppender.OverflowPolicy policy,
+                          final Level overflow_level) {
+        final LogFileAppender appender = _appenders.computeIfAbsent(file_name,
+                (key) -> new LogFileAppender(key, max_size, create_archive, capacity, policy, overflow_level));
+        return appender.append(item);
+    }
+
+    public LogFileAppender appender(final String file_name) {
+        return _appenders.get(file_name);
+    }
+
+    /**
+     * Wait until pending items of all appenders are written.
+     */
+    public void flush(final long timeout_ms) throws InterruptedException {
+        for (final LogFileAppender appender : _appenders.values()) {
+            appender.flush(timeout_ms);
+        }
+    }
+
+    /**
+     * Write pending items and stop all appenders.
+     */
+    public void close() {
+        for (final LogFileAppender appender : _appenders.values()) {
+            appender.close();
+        }
+        _appenders.clear();
+    }
+
     // ------------------------------------------------------------------------
     //                      p r i v a t e
     // ------------------------------------------------------------------------
 
     private Object getLock(final String filename) {
-        final String key = MD5.encode(filename);
-        if (!_locks.containsKey(key)) {
-            _locks.put(key, new Object()); // creates lock
-        }
-        return _locks.get(key);
+        return _locks.computeIfAbsent(filename, (key) -> new Object());
     }
 
     private void append(final String fileName,
@@ -80,7 +125,11 @@ public class LogFileWriter {
         FileUtils.append(new File(fileName), text);
     }
 
-    private void archive(final String file_name) throws IOException {
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    static void archive(final String file_name) throws IOException {
         if (FileUtils.exists(file_name)) {
             final String root = PathUtils.getParent(file_name);
             final String dir = StringUtils.replace(PathUtils.getDateTimePath(6), "/", "_");
@@ -99,7 +148,7 @@ public class LogFileWriter {
         }
     }
 
-    private void rotate(final String file_name) throws IOException {
+    static void rotate(final String file_name) throws IOException {
         if (FileUtils.exists(file_name)) {
             final String root = PathUtils.getParent(file_name);
             final String name = PathUtils.getFilename(file_name, false);
@@ -127,11 +176,7 @@ public class LogFileWriter {
         }
     }
 
-    // ------------------------------------------------------------------------
-    //                      S T A T I C
-    // ------------------------------------------------------------------------
-
-    private static final Map<String, Integer> _logger_ids = MapBuilder.createSI().toMap();
+    private static final Map<String, Integer> _logger_ids = new ConcurrentHashMap<>();
 
     private static LogFileWriter __instance;
 
@@ -143,13 +188,7 @@ public class LogFileWriter {
     }
 
     private static int nextId(final String file_name) {
-        final String key = MD5.encode(file_name);
-        if (!_logger_ids.containsKey(key)) {
-            _logger_ids.put(key, 0);
-        }
-        int value = _logger_ids.get(key) + 1;
-        _logger_ids.put(key, value);
-        return value;
+        return _logger_ids.merge(file_name, 1, Integer::sum);
     }
 
 }
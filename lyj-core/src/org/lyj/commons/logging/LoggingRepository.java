@@ -40,7 +40,12 @@ import java.util.Map;
  * <li>FileEnabled: (Boolean - default=true) Enable/Disable writing on file (./logs/logging.log)</li><br/>
  * <li>MaxSize: (Integer - default=50Mb) Maximum file size.</li><br/>
  * <li>ArchiveExisting: (Boolean - default=true) Backup and archive existing logs.</li><br/>
+ * <li>Async: (Boolean - default=false) Write files from a background thread. Callers only put items in a buffer.</li><br/>
+ * <li>AsyncCapacity: (Integer - default=8192) Items in buffer of each file.</li><br/>
+ * <li>AsyncOverflow: (OverflowPolicy - default=BLOCK) What to do when buffer is full.</li><br/>
+ * <li>AsyncOverflowLevel: (Level - default=WARNING) Lowest level never dropped with DROP_BELOW_LEVEL policy.</li><br/>
  * </ul>
+ * Async options apply to files not yet written.
  *
  * @author angelo.geminiani
  */
@@ -66,6 +71,10 @@ public final class LoggingRepository
     private boolean _enable_events;
     private long _max_size;
     private boolean _archive_existing;
+    private boolean _async;
+    private int _async_capacity;
+    private LogFileAppender.OverflowPolicy _async_overflow;
+    private Level _async_overflow_level;
 
     // ------------------------------------------------------------------------
     //                      Constructor
@@ -77,6 +86,10 @@ public final class LoggingRepository
         _enable_events = false;
         _max_size = 1024 * 1000 * 50; // 50Mb
         _archive_existing = true;
+        _async = false;
+        _async_capacity = LogFileAppender.DEFAULT_CAPACITY;
+        _async_overflow = LogFileAppender.OverflowPolicy.BLOCK;
+        _async_overflow_level = Level.WARNING;
 
         this.setFilePath(IConstants.PATH_LOG + "/logging.log");
     }
@@ -191,6 +204,45 @@ public final class LoggingRepository
         _archive_existing = value;
     }
 
+    public boolean isAsync() {
+        return _async;
+    }
+
+    public void setAsync(final boolean value) {
+        _async = value;
+    }
+
+    public int getAsyncCapacity() {
+        return _async_capacity;
+    }
+
+    public void setAsyncCapacity(final int value) {
+        _async_capacity = value;
+    }
+
+    public LogFileAppender.OverflowPolicy getAsyncOverflow() {
+        return _async_overflow;
+    }
+
+    public void setAsyncOverflow(final LogFileAppender.OverflowPolicy value) {
+        _async_overflow = value;
+    }
+
+    public Level getAsyncOverflowLevel() {
+        return _async_overflow_level;
+    }
+
+    public void setAsyncOverflowLevel(final Level value) {
+        _async_overflow_level = value;
+    }
+
+    /**
+     * Wait until items queued by async mode are written.
+     */
+    public void flush(final long timeout_ms) throws InterruptedException {
+        LogFileWriter.instance().flush(timeout_ms);
+    }
+
     public boolean isLoggable(final Level level) {
         return _level.getNumValue() <= level.getNumValue();
     }
@@ -262,10 +314,16 @@ public final class LoggingRepository
         return _custom_paths.get(DEFAULT);
     }
 
-    private synchronized void writeFile(final Logger sender, final LogItem item) {
+    private void writeFile(final Logger sender, final LogItem item) {
         if (_file_enabled) {
             final String file_name = this.getAbsoluteLogFileName(sender.getName());
+            if (_async) {
+                LogFileWriter.instance().append(_max_size, _archive_existing, file_name, item,
+                        _async_capacity, _async_overflow, _async_overflow_level);
+                return;
+            }
             try {
+                // synchronized on file by writer
                 LogFileWriter.instance().write(_max_size, _archive_existing, file_name, item);
             } catch (IOException ex) {
                 ex.printStackTrace();
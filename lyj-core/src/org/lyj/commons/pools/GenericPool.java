@@ -21,17 +21,21 @@
 package org.lyj.commons.pools;
 
 import org.lyj.commons.Delegates;
+import org.lyj.commons.async.lock.LockStats;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Blocking Pool of objects.<br/>
  * Call method "lock" to get an item from pool.<br/>
  * Call method "release" to return item to pool.<br/>
- * When pool is empty, a thread will loop until next item is released.
+ * When pool is empty, a thread is parked until next item is released.
+ * Waiting threads get items in arrival order.
  */
 public class GenericPool<T> {
 
@@ -43,6 +47,8 @@ public class GenericPool<T> {
     private final Object _syncObj;
 
     private final List<T> _pool;
+    private final Semaphore _available; // one permit for each item in pool
+    private final LockStats _stats;
 
 
     // --------------------------------------------------------------------
@@ -60,6 +66,8 @@ public class GenericPool<T> {
                        final Delegates.FunctionArgs<T> callback) {
         _syncObj = new Object();
         _pool = Collections.synchronizedList(new ArrayList<T>(capacity));
+        _available = new Semaphore(0, true);
+        _stats = new LockStats();
 
         this.init(capacity, callback);
     }
@@ -74,17 +82,48 @@ public class GenericPool<T> {
         }
     }
 
+    public LockStats stats() {
+        return _stats;
+    }
+
+    /**
+     * Wait for an item.
+     *
+     * @return Item, or null if thread was interrupted.
+     */
     public T lock() {
-        synchronized (_syncObj) {
-            while (this.size() == 0) {
-                try {
-                    Thread.sleep(100);
-                } catch (Throwable ignored) {
-                    return null;
-                }
+        try {
+            long wait = 0;
+            if (!_available.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                final long start = System.nanoTime();
+                _available.acquire();
+                wait = Math.max(1, System.nanoTime() - start);
+            }
+            _stats.acquired(wait);
+            return this.takeItem();
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Wait for an item at most timeout milliseconds.
+     *
+     * @return Item, or null if timeout elapsed or thread was interrupted.
+     */
+    public T lock(final long timeout_ms) {
+        try {
+            final long start = System.nanoTime();
+            if (_available.tryAcquire(timeout_ms, TimeUnit.MILLISECONDS)) {
+                _stats.acquired(System.nanoTime() - start);
+                return this.takeItem();
             }
-            return this.firstItem();
+            _stats.timeout();
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
         }
+        return null;
     }
 
     public void release(final T item) {
@@ -93,16 +132,19 @@ public class GenericPool<T> {
 
     public Object[] clear() {
         synchronized (_syncObj) {
-            final Object[] result = new Object[_pool.size()];
-            int i = 0;
-            for (final Object item : _pool) {
-                if (null != item) {
-                    result[i] = item;
+            synchronized (_pool) {
+                _available.drainPermits();
+                final Object[] result = new Object[_pool.size()];
+                int i = 0;
+                for (final Object item : _pool) {
+                    if (null != item) {
+                        result[i] = item;
+                    }
+                    i++;
                 }
-                i++;
+                _pool.clear();
+                return result;
             }
-            _pool.clear();
-            return result;
         }
     }
 
@@ -113,6 +155,7 @@ public class GenericPool<T> {
     private void init(final T... items) {
         synchronized (_pool) {
             _pool.addAll(Arrays.asList(items));
+            _available.release(items.length);
         }
     }
 
@@ -123,6 +166,7 @@ public class GenericPool<T> {
                     final T item = callback.handle(i);
                     if (null != item) {
                         _pool.add(item);
+                        _available.release();
                     }
                 }
             }
@@ -132,12 +176,24 @@ public class GenericPool<T> {
     private void putItem(final T item) {
         synchronized (_pool) {
             _pool.add(item);
+            _available.release();
+        }
+    }
+
+    private T takeItem() {
+        synchronized (_pool) {
+            return _pool.isEmpty() ? null : _pool.remove(0); // empty only if cleared
         }
     }
 
+    /**
+     * Get first item without waiting.
+     *
+     * @return Item or null if pool is empty.
+     */
     public T firstItem() {
         synchronized (_pool) {
-            return _pool.remove(0);
+            return _available.tryAcquire() ? _pool.remove(0) : null;
         }
     }
 }
@@ -0,0 +1,297 @@
+package org.lyj.commons.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Per-class cache of bean accessors, shared by all threads.
+ * <p>
+ * Methods and fields are looked up once per class and bound to a MethodHandle, so reading or writing
+ * a property costs a map lookup and a direct call instead of a reflective search and Method.invoke.
+ * When a call cannot be bound (i.e. class not accessible) or arguments need reflective conversions,
+ * the accessor falls back to reflection: behaviour and exceptions are the same of Method.invoke.
+ */
+public final class BeanMetadata {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final ClassValue<BeanMetadata> CACHE = new ClassValue<BeanMetadata>() {
+        @Override
+        protected BeanMetadata computeValue(final Class<?> type) {
+            return new BeanMetadata(type);
+        }
+    };
+
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final Class<?> _type;
+    private final ConcurrentMap<String, Accessor> _fields;
+    private final ConcurrentMap<String, Accessor> _getters;
+    private final ConcurrentMap<String, Accessor> _setters;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    private BeanMetadata(final Class<?> type) {
+        _type = type;
+        _fields = new ConcurrentHashMap<>();
+        _getters = new ConcurrentHashMap<>();
+        _setters = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public String toString() {
+        return "{type: " + _type.getName() +
+                ", fields: " + _fields.size() +
+                ", getters: " + _getters.size() +
+                ", setters: " + _setters.size() + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public Class<?> type() {
+        return _type;
+    }
+
+    /**
+     * Public field with given name.
+     *
+     * @return null if field does not exist
+     */
+    public Accessor field(final String name) {
+        return get(_fields, name, () -> {
+            try {
+                return new Accessor(_type.getField(name));
+            } catch (NoSuchFieldException ignored) {
+                return Accessor.NONE;
+            }
+        });
+    }
+
+    /**
+     * Getter of a property, resolved once with resolver.
+     *
+     * @return null if resolver found no method
+     */
+    public Accessor getter(final String name,
+                           final Resolver resolver) {
+        return get(_getters, name, () -> accessor(resolver.find(_type, name, null)));
+    }
+
+    /**
+     * Setter of a property for a parameter type (null if unknown), resolved once with resolver.
+     *
+     * @return null if resolver found no method
+     */
+    public Accessor setter(final String name,
+                           final Class<?> param_type,
+                           final Resolver resolver) {
+        final String key = null != param_type ? name + ":" + param_type.getName() : name;
+        return get(_setters, key, () -> accessor(resolver.find(_type, name, param_type)));
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private static Accessor get(final ConcurrentMap<String, Accessor> map,
+                                final String key,
+                                final Supplier<Accessor> factory) {
+        Accessor accessor = map.get(key);
+        if (null == accessor) {
+            accessor = factory.get();
+            final Accessor existing = map.putIfAbsent(key, accessor);
+            if (null != existing) {
+                accessor = existing;
+            }
+        }
+        return accessor != Accessor.NONE ? accessor : null;
+    }
+
+    private static Accessor accessor(final Method method) {
+        return null != method ? new Accessor(method) : Accessor.NONE;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    public static BeanMetadata of(final Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    /**
+     * Accessor bound to a method: getters have no parameters, setters have one parameter.
+     */
+    public static Accessor of(final Method method) {
+        return new Accessor(method);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    /**
+     * Find the method of a property, invoked once per class and key.
+     */
+    @FunctionalInterface
+    public interface Resolver {
+
+        Method find(final Class<?> type, final String name, final Class<?> param_type);
+
+    }
+
+    /**
+     * Pre-bound getter/setter of a method or a public field.
+     */
+    public static final class Accessor {
+
+        private static final Accessor NONE = new Accessor();
+
+        private final Member _member;
+        private final Class<?> _owner;
+        private final Class<?> _value_type;
+        private final Class<?> _boxed_type;
+        private final boolean _writable;
+        private final MethodHandle _getter;
+        private final MethodHandle _setter;
+
+        private Accessor() {
+            _member = null;
+            _owner = null;
+            _value_type = null;
+            _boxed_type = null;
+            _writable = false;
+            _getter = null;
+            _setter = null;
+        }
+
+        private Accessor(final Method method) {
+            _member = method;
+            _owner = method.getDeclaringClass();
+            final Class<?>[] params = method.getParameterTypes();
+            _value_type = params.length == 1 ? params[0] : method.getReturnType();
+            _boxed_type = BeanUtils.PrimitiveClasses.getObjectClass(_value_type);
+            _writable = params.length == 1;
+            _getter = params.length == 0 ? unreflect(method, GETTER) : null;
+            _setter = params.length == 1 ? unreflect(method, SETTER) : null;
+        }
+
+        private Accessor(final Field field) {
+            _member = field;
+            _owner = field.getDeclaringClass();
+            _value_type = field.getType();
+            _boxed_type = BeanUtils.PrimitiveClasses.getObjectClass(_value_type);
+            _writable = true;
+            _getter = unreflect(field, false);
+            _setter = unreflect(field, true);
+        }
+
+        public Member member() {
+            return _member;
+        }
+
+        /**
+         * True for fields and methods with one parameter
+         */
+        public boolean isWritable() {
+            return _writable;
+        }
+
+        /**
+         * Return type of a getter, parameter type of a setter, type of a field.
+         */
+        public Class<?> valueType() {
+            return _value_type;
+        }
+
+        /**
+         * Invoke getter or read field.
+         */
+        public Object get(final Object target) throws IllegalAccessException, InvocationTargetException {
+            if (null != _getter && _owner.isInstance(target)) {
+                try {
+                    return _getter.invokeExact(target);
+                } catch (Throwable t) {
+                    throw new InvocationTargetException(t);
+                }
+            }
+            if (_member instanceof Field) {
+                return ((Field) _member).get(target);
+            }
+            return ((Method) _member).invoke(target);
+        }
+
+        /**
+         * Invoke setter or write field.
+         */
+        public void set(final Object target,
+                        final Object value) throws IllegalAccessException, InvocationTargetException {
+            if (null != _setter && _owner.isInstance(target) && this.accepts(value)) {
+                try {
+                    _setter.invokeExact(target, value);
+                } catch (Throwable t) {
+                    throw new InvocationTargetException(t);
+                }
+                return;
+            }
+            if (_member instanceof Field) {
+                ((Field) _member).set(target, value);
+            } else {
+                ((Method) _member).invoke(target, value);
+            }
+        }
+
+        /**
+         * Values passed to the handle without conversions.
+         * Others (null for primitives, widening) go through reflection, with its rules and errors.
+         */
+        private boolean accepts(final Object value) {
+            if (_value_type.isPrimitive()) {
+                return null != value && _boxed_type == value.getClass();
+            }
+            return null == value || _value_type.isInstance(value);
+        }
+
+        private static MethodHandle unreflect(final Method method,
+                                              final MethodType type) {
+            try {
+                // static methods do not match type and are invoked by reflection
+                return MethodHandles.publicLookup().unreflect(method).asType(type);
+            } catch (Throwable ignored) {
+                return null;
+            }
+        }
+
+        private static MethodHandle unreflect(final Field field,
+                                              final boolean setter) {
+            try {
+                return setter
+                        ? MethodHandles.publicLookup().unreflectSetter(field).asType(SETTER)
+                        : MethodHandles.publicLookup().unreflectGetter(field).asType(GETTER);
+            } catch (Throwable ignored) {
+                return null;
+            }
+        }
+
+    }
+
+}
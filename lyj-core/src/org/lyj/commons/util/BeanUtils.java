@@ -292,11 +292,8 @@ public abstract class BeanUtils {
 
     public static Field findField(final Object instance,
                                   final String name) {
-        try {
-            return instance.getClass().getField(name);
-        } catch (NoSuchFieldException e) {
-            return null;
-        }
+        final BeanMetadata.Accessor field = BeanMetadata.of(instance.getClass()).field(name);
+        return null != field ? (Field) field.member() : null;
     }
 
     /**
@@ -670,32 +667,39 @@ public abstract class BeanUtils {
         }
     }
 
-    private static Method findGetter(final Object instance,
-                                     final String fieldName) {
+    /**
+     * Getter lookup, invoked once per class and field name (see BeanMetadata)
+     */
+    private static Method findGetter(final Class<?> type,
+                                     final String fieldName,
+                                     final Class<?> ignored) {
         final String name = upperCaseFirstInitial(fieldName);
-        Method result = getMethodIfAny(instance, "get".concat(name), new Class[0]);
+        Method result = getMethodIfAny(type, "get".concat(name));
         if (result == null) {
-            result = getMethodIfAny(instance, StringUtils.toCamelCase(name), new Class[0]);
+            result = getMethodIfAny(type, StringUtils.toCamelCase(name));
         }
         if (result == null) {
-            result = getMethodIfAny(instance, "is".concat(name), new Class[0]);
+            result = getMethodIfAny(type, "is".concat(name));
         }
         return result;
     }
 
-    private static Method findSetter(final Object instance,
-                                     final String fieldName, final Class paramType) {
+    /**
+     * Setter lookup, invoked once per class, field name and parameter type (see BeanMetadata)
+     */
+    private static Method findSetter(final Class<?> type,
+                                     final String fieldName, final Class<?> paramType) {
         final Class[] params = new Class[]{paramType};
         final String name = upperCaseFirstInitial(fieldName);
         Method result = getMethodIfAnyAtLeastOne(
-                instance.getClass(), "set".concat(name), params);
+                type, "set".concat(name), params);
         if (result == null) {
             result = getMethodIfAnyAtLeastOne(
-                    instance.getClass(), StringUtils.toCamelCase(name), params);
+                    type, StringUtils.toCamelCase(name), params);
         }
         if (result == null) {
             result = getMethodIfAnyAtLeastOne(
-                    instance.getClass(), "is".concat(name), params);
+                    type, "is".concat(name), params);
         }
         return result;
     }
@@ -863,13 +867,14 @@ public abstract class BeanUtils {
             } else if (instance instanceof JSONObject) {
                 result = ((JSONObject) instance).opt(fieldName);
             } else {
-                final Field field = findField(instance, fieldName);
+                final BeanMetadata metadata = BeanMetadata.of(instance.getClass());
+                final BeanMetadata.Accessor field = metadata.field(fieldName);
                 if (null != field) {
                     result = field.get(instance);
                 } else {
-                    final Method getter = findGetter(instance, fieldName);
+                    final BeanMetadata.Accessor getter = metadata.getter(fieldName, BeanUtils::findGetter);
                     if (null != getter) {
-                        result = getter.invoke(instance, new Object[0]);
+                        result = getter.get(instance);
                     }
                 }
             }
@@ -914,19 +919,19 @@ public abstract class BeanUtils {
                 }
             } else {
                 // try retrieve field
-                final Field field = findField(instance, fieldName);
+                final BeanMetadata metadata = BeanMetadata.of(instance.getClass());
+                final BeanMetadata.Accessor field = metadata.field(fieldName);
                 if (null != field) {
                     field.set(instance, value);
                     result = true;
                 } else {
                     final Class paramType = null != value ? value.getClass() : null;
-                    final Method setter = findSetter(instance, fieldName, paramType);
+                    final BeanMetadata.Accessor setter = metadata.setter(fieldName, paramType, BeanUtils::findSetter);
                     if (null != setter) {
                         // is parameter of requested type?
                         Object parameterValue = value;
-                        final Class[] types = setter.getParameterTypes();
-                        if (types.length == 1) {
-                            final Class type = types[0];
+                        if (setter.isWritable()) {
+                            final Class type = setter.valueType();
                             if (!type.equals(paramType)) {
                                 try {
                                     parameterValue = toType(value, type);
@@ -935,7 +940,7 @@ public abstract class BeanUtils {
                             }
                         }
                         //-- invoke set method passing parameter value --//
-                        setter.invoke(instance, new Object[]{parameterValue});
+                        setter.set(instance, parameterValue);
                         result = true;
                     }
                 }
@@ -0,0 +1,103 @@
+package org.lyj.commons.async;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncSchedulerTest {
+
+    @Test
+    public void invoke() throws Exception {
+        final AsyncScheduler scheduler = AsyncScheduler.instance();
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+        final AtomicInteger counter = new AtomicInteger();
+        final AsyncJob[] jobs = new AsyncJob[1000];
+        for (int i = 0; i < jobs.length; i++) {
+            jobs[i] = Async.invoke((args) -> {
+                threads.add(Thread.currentThread().getName());
+                counter.incrementAndGet();
+            });
+        }
+        for (final AsyncJob job : jobs) {
+            assertTrue(job.join(5000));
+        }
+        assertEquals(1000, counter.get());
+        // no thread per call
+        assertTrue(threads.size() <= scheduler.parallelism());
+        System.out.println(scheduler.metrics());
+    }
+
+    @Test
+    public void delay() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+        final long time = System.currentTimeMillis();
+        final AsyncJob job = Async.delay((args) -> counter.incrementAndGet(), 200);
+        final AsyncJob cancelled = Async.delay((args) -> counter.incrementAndGet(), 200);
+        cancelled.interrupt();
+        assertFalse(cancelled.isAlive());
+
+        job.join();
+        assertTrue(System.currentTimeMillis() - time >= 200);
+        Thread.sleep(100);
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void loop() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+        final AsyncJob job = Async.loop(() -> counter.incrementAndGet() == 5, 10);
+        assertTrue(job.join(5000));
+        assertEquals(5, counter.get());
+
+        // interrupt a running iteration
+        final AsyncJob endless = Async.loop(() -> {
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                counter.incrementAndGet();
+            }
+            return false;
+        }, 10);
+        Thread.sleep(100);
+        endless.interrupt();
+        assertTrue(endless.join(1000));
+        assertEquals(6, counter.get());
+    }
+
+    @Test
+    public void blocking() throws Exception {
+        final AsyncScheduler scheduler = AsyncScheduler.instance();
+        final long overflows = scheduler.stats().overflows();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final int count = scheduler.parallelism() * 2;
+        final AsyncJob[] jobs = new AsyncJob[count];
+        for (int i = 0; i < count; i++) {
+            jobs[i] = Async.invoke((args) -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+        }
+        // all workers are blocked: releasing job must run anyway
+        Async.invoke((args) -> latch.countDown());
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (final AsyncJob job : jobs) {
+            assertTrue(job.join(5000));
+        }
+        assertTrue(scheduler.stats().overflows() > overflows);
+
+        final JSONObject metrics = scheduler.metrics();
+        System.out.println(metrics);
+        assertTrue(metrics.has("steals"));
+        assertTrue(metrics.has("max_wait_ms"));
+    }
+
+}
@@ -3,6 +3,15 @@ package org.lyj.commons.async;
 import org.junit.Test;
 import org.lyj.commons.lang.Counter;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
 /**
  * Created by angelogeminiani on 03/03/17.
  */
@@ -45,4 +54,108 @@ public class FixedBlockingPoolTest {
         System.out.println(AsyncUtils.reportActiveThreads());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void policies() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final Runnable blocking = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+        };
+
+        // fail fast
+        final FixedBlockingPool failing = FixedBlockingPool.create().name("test-fail")
+                .corePoolSize(1).maximumPoolSize(1).capacity(1)
+                .rejectPolicy(FixedBlockingPool.RejectPolicy.FAIL);
+        failing.submit(blocking);
+        failing.submit(blocking);
+        try {
+            failing.submit(blocking);
+            fail("expected rejection");
+        } catch (RejectedExecutionException ignored) {
+        }
+        assertEquals(1, failing.stats().rejected());
+
+        // drop oldest
+        final FixedBlockingPool dropping = FixedBlockingPool.create().name("test-drop")
+                .corePoolSize(1).maximumPoolSize(1).capacity(2)
+                .rejectPolicy(FixedBlockingPool.RejectPolicy.DROP_OLDEST);
+        dropping.submit(blocking);
+        final List<Future<?>> queued = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            queued.add(dropping.submit(blocking));
+        }
+        assertEquals(2, dropping.stats().dropped());
+        assertTrue(queued.get(0).isCancelled());
+        assertTrue(queued.get(1).isCancelled());
+        assertFalse(queued.get(3).isCancelled());
+
+        // block with timeout
+        final FixedBlockingPool blocked = FixedBlockingPool.create().name("test-block")
+                .corePoolSize(1).maximumPoolSize(1).capacity(1)
+                .rejectPolicy(FixedBlockingPool.RejectPolicy.BLOCK).blockTimeout(100);
+        blocked.submit(blocking);
+        blocked.submit(blocking);
+        final long start = System.currentTimeMillis();
+        try {
+            blocked.submit(blocking);
+            fail("expected rejection");
+        } catch (RejectedExecutionException ignored) {
+        }
+        assertTrue(System.currentTimeMillis() - start >= 100);
+        assertEquals(1, blocked.stats().blocked());
+
+        release.countDown();
+        for (final FixedBlockingPool pool : new FixedBlockingPool[]{failing, dropping, blocked}) {
+            pool.stop(false);
+            pool.join(1000);
+            assertTrue(pool.isTerminated());
+        }
+        assertFalse(PoolMonitor.instance().pools().contains(failing));
+    }
+
+    @Test
+    public void adaptive() throws Exception {
+        final FixedBlockingPool pool = FixedBlockingPool.create().name("test-adaptive")
+                .corePoolSize(1).maximumPoolSize(8).capacity(1000)
+                .adaptive(true).targetWait(10);
+        final CountDownLatch done = new CountDownLatch(200);
+        for (int i = 0; i < 200; i++) {
+            pool.submit(() -> {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException ignored) {
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(PoolMonitor.instance().pools().contains(pool));
+
+        // queue wait grows the core
+        Thread.sleep(50);
+        pool.sample();
+        pool.sample();
+        assertTrue(pool.metrics().getInt("core_pool_size") > 2);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        // idle pool shrinks back to minimum (workers may still be ending last tasks,
+        // and the monitor samples concurrently)
+        final FixedBlockingPoolStats stats = pool.stats();
+        final long deadline = System.currentTimeMillis() + 5000;
+        while ((pool.metrics().getInt("core_pool_size") > 1 || stats.completed() < 200)
+                && System.currentTimeMillis() < deadline) {
+            pool.sample();
+            Thread.sleep(10);
+        }
+        assertEquals(1, pool.metrics().getInt("core_pool_size"));
+        assertEquals(200, stats.completed());
+        assertEquals(200, stats.waitTime().count());
+        assertTrue(stats.resizes() >= 2);
+        assertTrue(stats.runTime().percentile(50) >= 8);
+        assertTrue(stats.waitTime().percentile(99) >= stats.waitTime().percentile(50));
+        System.out.println(PoolMonitor.instance().metrics());
+        pool.stop();
+    }
+
+}
@@ -0,0 +1,112 @@
+package org.lyj.commons.async;
+
+import org.junit.Test;
+import org.lyj.commons.async.future.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FuturesTest {
+
+    @Test
+    public void map() throws Exception {
+        final List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            items.add(i);
+        }
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger max_running = new AtomicInteger();
+        final List<Integer> result = Futures.map(items, 4, (item) -> {
+            max_running.accumulateAndGet(running.incrementAndGet(), Math::max);
+            return Futures.delay(5).thenApply((ignored) -> {
+                running.decrementAndGet();
+                return item * 2;
+            });
+        }).get(10, TimeUnit.SECONDS);
+
+        assertEquals(items.size(), result.size());
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(i * 2, (int) result.get(i));
+        }
+        assertTrue(max_running.get() <= 4);
+        System.out.println("max running: " + max_running.get());
+
+        // already completed futures do not recurse
+        final List<Integer> many = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            many.add(i);
+        }
+        assertEquals(many.size(), Futures.map(many, 2, Futures::completed).get().size());
+
+        // first error fails the whole operation
+        try {
+            Futures.map(items, 4, (item) -> item == 10
+                    ? Futures.failed(new IllegalStateException("item " + item))
+                    : Futures.completed(item)).get();
+            fail("expected error");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void allOfAnyOf() throws Exception {
+        final List<CompletableFuture<String>> futures = Arrays.asList(
+                Futures.delay(100).thenApply((ignored) -> "slow"),
+                Futures.supply(() -> "fast"),
+                Futures.completed("done"));
+        assertEquals(Arrays.asList("slow", "fast", "done"), Futures.allOf(futures).get());
+
+        final List<CompletableFuture<String>> race = Arrays.asList(
+                Futures.delay(1000).thenApply((ignored) -> "slow"),
+                Futures.delay(10).thenApply((ignored) -> "fast"));
+        assertEquals("fast", Futures.anyOf(race).get());
+    }
+
+    @Test
+    public void timeout() throws Exception {
+        final CompletableFuture<String> never = new CompletableFuture<>();
+        try {
+            Futures.timeout(never, 50).get();
+            fail("expected timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        assertEquals("default", Futures.timeout(new CompletableFuture<>(), 50, "default").get());
+        assertEquals("value", Futures.timeout(Futures.supply(() -> "value"), 1000, "default").get());
+    }
+
+    @Test
+    public void compose() throws Exception {
+        final Task<String> task = new Task<String>((interruptor) -> {
+            Futures.delay(20).thenRun(() -> interruptor.success("task"));
+        });
+        final String result = Futures.from(task)
+                .thenCompose((value) -> Futures.call(() -> value + "-composed"))
+                .thenApplyAsync(String::toUpperCase, Futures.executor())
+                .get(5, TimeUnit.SECONDS);
+        assertEquals("TASK-COMPOSED", result);
+
+        final AsyncJob job = Async.invoke((args) -> {
+            throw new RuntimeException("job error");
+        });
+        try {
+            job.future().get(5, TimeUnit.SECONDS);
+            fail("expected error");
+        } catch (ExecutionException e) {
+            assertEquals("job error", e.getCause().getMessage());
+        }
+
+        assertEquals(3, (int) new FixedBlockingPool().supply(() -> 1 + 2).get());
+    }
+
+}
@@ -0,0 +1,101 @@
+package org.lyj.commons.async;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HashedWheelTimerTest {
+
+    @Test
+    public void schedule() throws Exception {
+        final HashedWheelTimer timer = HashedWheelTimer.instance();
+        final CountDownLatch latch = new CountDownLatch(3);
+        final long[] elapsed = new long[3];
+        final long start = System.nanoTime();
+        final long[] delays = {50, 120, 0};
+        for (int i = 0; i < delays.length; i++) {
+            final int index = i;
+            timer.schedule(() -> {
+                elapsed[index] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                latch.countDown();
+            }, delays[i]);
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        // never before deadline
+        for (int i = 0; i < delays.length; i++) {
+            assertTrue(elapsed[i] >= delays[i]);
+        }
+        assertTrue(elapsed[2] < elapsed[0]);
+        assertTrue(elapsed[0] < elapsed[1]);
+
+        // longer than a wheel round
+        final long round = timer.tickDuration() * timer.wheelSize();
+        final HashedWheelTimer.Timeout timeout = timer.schedule(() -> {
+        }, round + 50);
+        assertTrue(timeout.isPending());
+        assertTrue(timeout.getDelay(TimeUnit.MILLISECONDS) > round);
+        assertTrue(timeout.cancel());
+        System.out.println(timer.metrics());
+    }
+
+    @Test
+    public void cancel() throws Exception {
+        final HashedWheelTimer timer = HashedWheelTimer.instance();
+        final AtomicInteger counter = new AtomicInteger();
+        final long pending = timer.pending();
+        final HashedWheelTimer.Timeout[] timeouts = new HashedWheelTimer.Timeout[100000];
+        for (int i = 0; i < timeouts.length; i++) {
+            timeouts[i] = timer.schedule(counter::incrementAndGet, 1000 + i % 100);
+        }
+        // cancel half
+        for (int i = 0; i < timeouts.length; i += 2) {
+            assertTrue(timeouts[i].cancel());
+            assertFalse(timeouts[i].cancel());
+        }
+        Thread.sleep(1500);
+        assertEquals(timeouts.length / 2, counter.get());
+        for (int i = 0; i < timeouts.length; i++) {
+            assertEquals(i % 2 == 0, timeouts[i].isCancelled());
+            assertEquals(i % 2 == 1, timeouts[i].isExpired());
+        }
+        assertTrue(timer.pending() <= pending);
+    }
+
+    @Test
+    public void async() throws Exception {
+        final HashedWheelTimer timer = HashedWheelTimer.instance();
+        final long late = timer.stats().late();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long ticks = timer.stats().ticks();
+
+        // a slow callback does not delay the wheel
+        timer.scheduleAsync("slow", () -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException ignored) {
+            }
+        }, 0, TimeUnit.MILLISECONDS);
+        timer.scheduleAsync("fast", latch::countDown, 50, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(200, TimeUnit.MILLISECONDS));
+        assertTrue(timer.stats().ticks() > ticks);
+
+        // a slow inline callback is reported
+        timer.schedule(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+            }
+        }, 0);
+        final CountDownLatch delayed = new CountDownLatch(1);
+        timer.schedule(delayed::countDown, 0);
+        assertTrue(delayed.await(1, TimeUnit.SECONDS));
+        assertTrue(timer.stats().late() > late);
+        assertTrue(timer.stats().maxDrift() > 0);
+        System.out.println(timer.metrics());
+    }
+
+}
@@ -0,0 +1,34 @@
+package org.lyj.commons.async.future;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CiclesTest {
+
+    @Test
+    public void testRunners() throws Exception {
+        final AtomicInteger fast = new AtomicInteger();
+        final AtomicInteger slow = new AtomicInteger();
+        final Cicles cicles = new Cicles()
+                .add(50, fast::incrementAndGet)
+                .add(200, slow::incrementAndGet)
+                .start();
+        assertTrue(cicles.isRunning());
+        Thread.sleep(500);
+        cicles.stop();
+        cicles.join(0);
+        assertFalse(cicles.isRunning());
+
+        final int count = fast.get();
+        assertTrue(count >= 7 && count <= 11);
+        assertTrue(slow.get() >= 2 && slow.get() <= 3);
+
+        // stopped
+        Thread.sleep(200);
+        assertEquals(count, fast.get());
+    }
+
+}
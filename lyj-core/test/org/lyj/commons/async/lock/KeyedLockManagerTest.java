@@ -0,0 +1,106 @@
+package org.lyj.commons.async.lock;
+
+import org.junit.Test;
+import org.lyj.commons.async.Locker;
+import org.lyj.commons.pools.GenericPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+
+public class KeyedLockManagerTest {
+
+    @Test
+    public void exclusive() throws Exception {
+        final KeyedLockManager manager = new KeyedLockManager();
+        final int[] counter = new int[1];
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    try (KeyedLock ignored = manager.lock("key")) {
+                        counter[0]++;
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (final Thread t : threads) {
+            t.join();
+        }
+        assertTrue(counter[0] == 80000);
+        assertTrue(manager.size() == 0); // idle keys removed
+        System.out.println(manager.stats());
+    }
+
+    @Test
+    public void readWrite() throws Exception {
+        final KeyedLockManager manager = new KeyedLockManager();
+
+        final KeyedLock read1 = manager.readLock("file");
+        final KeyedLock read2 = manager.tryReadLock("file", 10, TimeUnit.MILLISECONDS);
+        assertTrue(null != read2); // readers share
+
+        assertTrue(null == manager.tryWriteLock("file", 50, TimeUnit.MILLISECONDS));
+        assertTrue(manager.stats().timeouts() == 1);
+
+        final CountDownLatch written = new CountDownLatch(1);
+        new Thread(() -> {
+            manager.writeLock("file").unlock();
+            written.countDown();
+        }).start();
+        Thread.sleep(50);
+
+        // writer is waiting: new readers queue behind it
+        assertTrue(null == manager.tryReadLock("file", 10, TimeUnit.MILLISECONDS));
+
+        read1.unlock();
+        read2.unlock();
+        read2.unlock(); // no effect
+        assertTrue(written.await(1, TimeUnit.SECONDS));
+        assertTrue(!manager.isLocked("file"));
+        assertTrue(manager.size() == 0);
+    }
+
+    @Test
+    public void locker() throws Exception {
+        Locker.instance().lock("A");
+        final long start = System.nanoTime();
+        new Thread(() -> Locker.instance().unlock("A")).start();
+        Locker.instance().lock("A"); // released by other thread
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Locker.instance().unlock("A");
+
+        System.out.println("LOCKER HANDOFF ms: " + elapsed);
+        assertTrue(elapsed < 100);
+        assertTrue(!Locker.instance().isLocked("A"));
+        assertTrue(!Locker.instance().tryLock("B", "b") || "b".equals(Locker.instance().unlock("B")));
+    }
+
+    @Test
+    public void pool() throws Exception {
+        final GenericPool<String> pool = new GenericPool<>("a", "b");
+        final AtomicInteger served = new AtomicInteger();
+        final String a = pool.lock();
+        final String b = pool.lock();
+        assertTrue(null == pool.lock(20));
+
+        final Thread t = new Thread(() -> {
+            if (null != pool.lock()) {
+                served.incrementAndGet();
+            }
+        });
+        t.start();
+        pool.release(a);
+        t.join(1000);
+        assertTrue(served.get() == 1);
+        pool.release(b);
+        assertTrue(pool.size() == 1);
+        System.out.println(pool.stats());
+    }
+
+}
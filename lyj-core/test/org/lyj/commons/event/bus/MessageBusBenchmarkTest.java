@@ -0,0 +1,110 @@
+package org.lyj.commons.event.bus;
+
+import org.junit.Test;
+import org.lyj.commons.event.Event;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compare latency and throughput of POLLING and PUSH dispatch modes.
+ */
+public class MessageBusBenchmarkTest {
+
+    private static final int LATENCY_ROUNDS = 20;
+    private static final int THROUGHPUT_EVENTS = 2000;
+    private static final int LISTENERS = 10;
+
+    @Test
+    public void testLatency() throws Exception {
+        final long polling = this.latency(new MessageBus(MessageBus.DispatchMode.POLLING, 2));
+        final long push = this.latency(new MessageBus(MessageBus.DispatchMode.PUSH, 2));
+
+        System.out.println("LATENCY (avg micros) POLLING: " + polling + ", PUSH: " + push);
+        assertTrue(push <= polling);
+    }
+
+    @Test
+    public void testThroughput() throws Exception {
+        final long polling = this.throughput(new MessageBus(MessageBus.DispatchMode.POLLING, 2));
+        final long push = this.throughput(new MessageBus(MessageBus.DispatchMode.PUSH, 2));
+
+        System.out.println("THROUGHPUT (events/sec) POLLING: " + polling + ", PUSH: " + push);
+        assertTrue(push >= polling);
+    }
+
+    @Test
+    public void testPushFilters() throws Exception {
+        final MessageBus bus = new MessageBus(MessageBus.DispatchMode.PUSH, 2);
+        final CountDownLatch latch = new CountDownLatch(3);
+        final AtomicLong wrong = new AtomicLong();
+
+        bus.createListener().setEventTag("tag1").on((event) -> {
+            if (!"tag1".equals(event.getTag())) {
+                wrong.incrementAndGet();
+            }
+            latch.countDown();
+        });
+        bus.createListener().setEventTag("tag2").setEventName("on_name").on((event) -> {
+            if (!"on_name".equals(event.getName())) {
+                wrong.incrementAndGet();
+            }
+            latch.countDown();
+        });
+        bus.createListener().on((event) -> latch.countDown());
+
+        bus.emit(new Event(this, "on_other").setTag("tag2"));
+        bus.emit(new Event(this, "on_name").setTag("tag1"));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(wrong.get() == 0);
+        bus.dispatcher().stop();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private long latency(final MessageBus bus) throws Exception {
+        final AtomicLong total = new AtomicLong();
+        final AtomicReference<CountDownLatch> latch = new AtomicReference<>();
+        bus.createListener().setEventTag("latency").on((event) -> {
+            total.addAndGet(System.nanoTime() - ((Number) event.getData()).longValue());
+            latch.get().countDown();
+        });
+        for (int i = 0; i < LATENCY_ROUNDS; i++) {
+            latch.set(new CountDownLatch(1));
+            bus.emit(new Event(this, "on_latency", System.nanoTime()).setTag("latency"));
+            latch.get().await(5, TimeUnit.SECONDS);
+        }
+        this.dispose(bus);
+        return total.get() / LATENCY_ROUNDS / 1000;
+    }
+
+    private long throughput(final MessageBus bus) throws Exception {
+        final CountDownLatch latch = new CountDownLatch(THROUGHPUT_EVENTS);
+        for (int i = 0; i < LISTENERS; i++) {
+            bus.createListener().setEventTag("tag_" + i).on((event) -> latch.countDown());
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < THROUGHPUT_EVENTS; i++) {
+            bus.emit(new Event(this, "on_throughput").setTag("tag_" + (i % LISTENERS)));
+        }
+        latch.await(60, TimeUnit.SECONDS);
+        final long elapsed = Math.max(1, System.nanoTime() - start);
+        this.dispose(bus);
+        return THROUGHPUT_EVENTS * 1000000000L / elapsed;
+    }
+
+    private void dispose(final MessageBus bus) {
+        bus.clearAll();
+        bus.listeners().stop();
+        bus.events().stop();
+        bus.dispatcher().stop();
+    }
+
+}
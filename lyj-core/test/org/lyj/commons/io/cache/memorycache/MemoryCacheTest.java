@@ -0,0 +1,141 @@
+package org.lyj.commons.io.cache.memorycache;
+
+import org.junit.Test;
+import org.lyj.commons.io.cache.memorycache.engines.MemoryCacheEngineConcurrent;
+import org.lyj.commons.io.cache.memorycache.eviction.EvictionPolicyLFU;
+import org.lyj.commons.io.cache.memorycache.eviction.EvictionPolicyLRU;
+
+import static org.junit.Assert.*;
+
+public class MemoryCacheTest {
+
+    @Test
+    public void testDefault() throws Exception {
+        final MemoryCache<String> cache = new MemoryCache<>();
+        cache.put("a", "A");
+        cache.put("a", "B");
+        assertEquals("B", cache.get("a").item());
+        assertFalse(cache.isExpired("a"));
+        assertTrue(cache.isExpired("b"));
+        assertEquals(1, cache.stats().hits());
+    }
+
+    @Test
+    public void testLRU() throws Exception {
+        final MemoryCache<String> cache = new MemoryCache<>(new MemoryCacheEngineConcurrent<String>()
+                .maximumSize(3)
+                .eviction(new EvictionPolicyLRU()));
+        cache.put("1", "1");
+        cache.put("2", "2");
+        cache.put("3", "3");
+        cache.get("1");
+        cache.put("4", "4");
+
+        assertEquals(3, cache.size());
+        assertTrue(cache.containsKey("1"));
+        assertFalse(cache.containsKey("2"));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    public void testLFU() throws Exception {
+        final MemoryCache<String> cache = new MemoryCache<>(new MemoryCacheEngineConcurrent<String>()
+                .maximumSize(2)
+                .eviction(new EvictionPolicyLFU()));
+        cache.put("1", "1");
+        cache.put("2", "2");
+        cache.get("2");
+        cache.get("2");
+        cache.put("3", "3");
+
+        assertTrue(cache.containsKey("2"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testTinyLFU() throws Exception {
+        final MemoryCache<Integer> cache = MemoryCache.bounded(100);
+        // hot keys
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.put("hot_" + i, i);
+                cache.get("hot_" + i);
+            }
+        }
+        // scan of one-hit keys
+        for (int i = 0; i < 1000; i++) {
+            cache.put("scan_" + i, i);
+        }
+        int hot = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.containsKey("hot_" + i)) {
+                hot++;
+            }
+        }
+        System.out.println("HOT KEYS SURVIVED: " + hot + " " + cache.stats());
+        assertTrue(cache.size() <= 100);
+        assertTrue(hot > 40);
+    }
+
+    @Test
+    public void testWeight() throws Exception {
+        final MemoryCacheEngineConcurrent<String> engine = new MemoryCacheEngineConcurrent<String>()
+                .maximumSize(10)
+                .weigher(String::length)
+                .eviction(new EvictionPolicyLRU());
+        final MemoryCache<String> cache = new MemoryCache<>(engine);
+        cache.put("1", "12345");
+        cache.put("2", "12345");
+        cache.put("3", "123");
+
+        assertEquals(2, cache.size());
+        assertTrue(engine.weight() <= 10);
+
+        // updates are weighed again
+        cache.put("3", "1");
+        assertEquals(6, engine.weight());
+        cache.put("3", "123456789");
+        assertTrue(engine.weight() <= 10);
+        assertEquals(1, cache.size());
+        assertEquals("123456789", cache.get("3").item());
+    }
+
+    @Test
+    public void testExpiration() throws Exception {
+        final MemoryCacheEngineConcurrent<String> engine = new MemoryCacheEngineConcurrent<String>().tick(10);
+        final MemoryCache<String> cache = new MemoryCache<>(engine);
+        cache.put("short", new MemoryCacheItem<String>().duration(50).item("short"));
+        cache.put("long", new MemoryCacheItem<String>().duration(60000).item("long"));
+
+        Thread.sleep(200);
+        engine.cleanUp();
+
+        assertFalse(cache.containsKey("short"));
+        assertTrue(cache.containsKey("long"));
+        assertEquals(1, cache.stats().expirations());
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        final MemoryCache<Integer> cache = MemoryCache.bounded(1000);
+        final Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    final String key = "k_" + ((i * 31 + offset) % 3000);
+                    if (null == cache.get(key)) {
+                        cache.put(key, i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        System.out.println("CONCURRENT: " + cache.size() + " " + cache.stats());
+        assertTrue(cache.size() <= 1000);
+    }
+
+}
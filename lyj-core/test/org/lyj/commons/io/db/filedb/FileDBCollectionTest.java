@@ -5,17 +5,22 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.lyj.TestInitializer;
 import org.lyj.commons.async.Async;
+import org.lyj.commons.async.AsyncJob;
 import org.lyj.commons.io.db.filedb.exporter.FileDBExporter;
 import org.lyj.commons.io.db.filedb.exporter.impl.FileDBExporterCSV;
+import org.lyj.commons.io.db.filedb.index.FileDBIndex;
+import org.lyj.commons.lang.Counter;
 import org.lyj.commons.timewatching.TimeWatcher;
 import org.lyj.commons.util.DateUtils;
 import org.lyj.commons.util.FileUtils;
+import org.lyj.commons.util.PathUtils;
 import org.lyj.commons.util.RandomUtils;
 import org.lyj.commons.util.StringUtils;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
 
 import static org.junit.Assert.assertTrue;
@@ -132,6 +137,150 @@ public class FileDBCollectionTest {
         System.out.println("ROWS: " + collection.count());
     }
 
+    @Test
+    public void append_mode() throws Exception {
+        final FileDB db = new FileDB(PathUtils.getAbsolutePath("filedb"), "test_append", FileDB.StorageMode.APPEND);
+        final FileDBCollection collection = db.collection("test_append_collection");
+        collection.drop();
+
+        final FileDBCollection coll = db.collection("test_append_collection");
+        for (int i = 0; i < 1000; i++) {
+            final FileDBEntity item = new FileDBEntity();
+            item.key("key_" + i);
+            item.put("value", i);
+            coll.upsert(item);
+        }
+        final FileDBEntity update = new FileDBEntity();
+        update.key("key_10");
+        update.put("value", "updated");
+        coll.upsert(update);
+        coll.remove("key_20");
+
+        assertTrue(coll.count() == 999);
+        assertTrue("updated".equals(coll.get("key_10").getString("value")));
+        assertTrue(null == coll.get("key_20"));
+
+        coll.compact();
+        assertTrue(coll.count() == 999);
+        assertTrue("updated".equals(coll.get("key_10").getString("value")));
+        assertTrue(coll.get("key_999").getInt("value") == 999);
+
+        final Counter rows = new Counter();
+        coll.forEach((entity) -> {
+            rows.inc();
+            return false;
+        });
+        assertTrue(rows.value() == 999);
+
+        final String path = FileDBExporter.instance().exporter(".csv").export(coll);
+        System.out.println("CSV exported: " + path);
+    }
+
+    @Test
+    public void append_recovery() throws Exception {
+        final String path = PathUtils.getAbsolutePath("filedb/test_recovery.json");
+        FileUtils.mkdirs(path);
+        // last row torn by a crash
+        FileUtils.writeStringToFile(new File(path), "{\"_key\":\"a\",\"value\":1}\n{\"_key\":\"b\",\"val", "UTF-8");
+        FileDBLog log = FileDBLog.open(path);
+        assertTrue(log.count() == 1);
+        final FileDBEntity item = new FileDBEntity();
+        item.key("c");
+        item.put("value", 3);
+        log.write(item, true, false);
+        log.close();
+
+        log = FileDBLog.open(path);
+        assertTrue(log.count() == 2);
+        assertTrue(log.get("c").getInt("value") == 3);
+        log.close();
+
+        // last row complete but not terminated
+        FileUtils.writeStringToFile(new File(path), "{\"_key\":\"a\",\"value\":1}", "UTF-8");
+        log = FileDBLog.open(path);
+        log.write(item, true, false);
+        log.close();
+
+        log = FileDBLog.open(path);
+        assertTrue(log.count() == 2);
+        assertTrue(log.get("a").getInt("value") == 1);
+        log.close();
+    }
+
+    @Test
+    public void indexes() throws Exception {
+        for (final FileDB.StorageMode mode : FileDB.StorageMode.values()) {
+            final FileDB db = new FileDB(PathUtils.getAbsolutePath("filedb"), "test_index", mode);
+            db.collection("test_index_collection").drop();
+
+            FileDBCollection coll = db.collection("test_index_collection");
+            for (int i = 0; i < 500; i++) {
+                final FileDBEntity item = new FileDBEntity();
+                item.key("key_" + i);
+                item.put("group", "group_" + (i % 5));
+                item.put("value", i);
+                coll.upsert(item);
+            }
+            coll.index("group", FileDBIndex.Type.HASH);
+            coll.index("value", FileDBIndex.Type.SORTED);
+
+            assertTrue(coll.find("group", "group_1").size() == 100);
+            assertTrue(coll.find("group", "group_1", 90, 20).size() == 10);
+            final List<FileDBEntity> range = coll.range("value", 10, 19, 2, 5);
+            assertTrue(range.size() == 5);
+            assertTrue(range.get(0).getInt("value") == 12);
+
+            // maintenance
+            final FileDBEntity update = new FileDBEntity();
+            update.key("key_1");
+            update.put("group", "group_x");
+            coll.upsert(update);
+            coll.remove("key_6");
+            assertTrue(coll.find("group", "group_x").size() == 1);
+            assertTrue(coll.find("group", "group_1").size() == 98);
+            assertTrue(coll.range("value", 0, 9).size() == 9);
+
+            // same results without index
+            assertTrue(coll.find("value", 15).size() == 1);
+            coll.dropIndex("group");
+            assertTrue(coll.find("group", "group_1").size() == 98);
+
+            // indexes reloaded from file
+            final FileDB db2 = new FileDB(PathUtils.getAbsolutePath("filedb"), "test_index", mode);
+            coll = db2.collection("test_index_collection");
+            assertTrue(coll.indexes().length == 1);
+            assertTrue(coll.range("value", 490, null).size() == 10);
+        }
+    }
+
+    @Test
+    public void shared_indexes() throws Exception {
+        for (final FileDB.StorageMode mode : FileDB.StorageMode.values()) {
+            final FileDB db = new FileDB(PathUtils.getAbsolutePath("filedb"), "test_shared_index", mode);
+            db.collection("test_shared_collection").drop();
+
+            // two instances on same file
+            final FileDBCollection first = db.collection("test_shared_collection");
+            final FileDBCollection second = new FileDB(PathUtils.getAbsolutePath("filedb"), "test_shared_index", mode)
+                    .collection("test_shared_collection");
+            first.index("group", FileDBIndex.Type.HASH);
+            assertTrue(second.indexes().length == 1);
+
+            for (int i = 0; i < 10; i++) {
+                final FileDBEntity item = new FileDBEntity();
+                item.key("key_" + i);
+                item.put("group", "group_" + (i % 2));
+                (i % 2 == 0 ? first : second).upsert(item);
+            }
+            second.remove("key_0");
+            assertTrue(first.find("group", "group_0").size() == 4);
+            assertTrue(first.find("group", "group_1").size() == 5);
+            assertTrue(second.find("group", "group_1").size() == 5);
+
+            first.drop();
+        }
+    }
+
     @Test
     public void multi_thread() throws Exception {
         final Collection<Thread> tasks = new ArrayList<>();
@@ -166,7 +315,7 @@ public class FileDBCollectionTest {
 
                 }
 
-                Thread t = Async.debounce("test", this::delayed, 1000, collection);
+                AsyncJob t = Async.debounce("test", this::delayed, 1000, collection);
                 t.join();
 
             } catch (Throwable t) {
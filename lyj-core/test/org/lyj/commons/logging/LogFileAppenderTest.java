@@ -0,0 +1,107 @@
+package org.lyj.commons.logging;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Throughput of synchronous and asynchronous file logging.
+ */
+public class LogFileAppenderTest {
+
+    private static final int THREADS = 4;
+    private static final int ITEMS = 20000; // for each thread
+    private static final long MAX_SIZE = 1024 * 1000 * 50;
+
+    @Test
+    public void throughput() throws Exception {
+        final File root = Files.createTempDirectory("log_bench").toFile();
+        final String sync_file = new File(root, "sync.log").getAbsolutePath();
+        final String async_file = new File(root, "async.log").getAbsolutePath();
+
+        final long sync = this.run(() -> {
+            try {
+                LogFileWriter.instance().write(MAX_SIZE, false, sync_file, new LogItem(Level.INFO, "sync message"));
+            } catch (Exception ignored) {
+            }
+        });
+        final long async = this.run(() -> LogFileWriter.instance().append(MAX_SIZE, false, async_file,
+                new LogItem(Level.INFO, "async message"), 0, LogFileAppender.OverflowPolicy.BLOCK, null));
+        final long start = System.nanoTime();
+        assertTrue(LogFileWriter.instance().appender(async_file).flush(60000));
+        final long flush_ms = (System.nanoTime() - start) / 1000000;
+
+        System.out.println("THROUGHPUT (items/sec) SYNC: " + sync + ", ASYNC: " + async + " (flush ms: " + flush_ms + ")");
+        System.out.println(LogFileWriter.instance().appender(async_file));
+
+        assertTrue(Files.readAllLines(new File(async_file).toPath()).size() == THREADS * ITEMS);
+        assertTrue(Files.readAllLines(new File(sync_file).toPath()).size() == THREADS * ITEMS);
+    }
+
+    @Test
+    public void overflow() throws Exception {
+        final File root = Files.createTempDirectory("log_overflow").toFile();
+        final LogFileAppender appender = new LogFileAppender(new File(root, "drop.log").getAbsolutePath(),
+                MAX_SIZE, false, 16, LogFileAppender.OverflowPolicy.DROP_BELOW_LEVEL, Level.WARNING);
+        int severe = 0;
+        for (int i = 0; i < 10000; i++) {
+            final Level level = i % 10 == 0 ? Level.SEVERE : Level.INFO;
+            if (level == Level.SEVERE) {
+                severe++;
+            }
+            appender.append(new LogItem(level, "message " + i));
+        }
+        assertTrue(appender.flush(10000));
+        appender.close();
+        System.out.println(appender);
+
+        assertTrue(appender.written() + appender.dropped() == 10000);
+        final long written_severe = Files.readAllLines(new File(root, "drop.log").toPath()).stream()
+                .filter((line) -> line.contains("SEVERE")).count();
+        assertTrue(written_severe == severe); // never dropped
+    }
+
+    @Test
+    public void rotation() throws Exception {
+        final File root = Files.createTempDirectory("log_rotate").toFile();
+        final LogFileAppender appender = new LogFileAppender(new File(root, "rotate.log").getAbsolutePath(),
+                10 * 1024, false, 0, LogFileAppender.OverflowPolicy.BLOCK, null);
+        for (int i = 0; i < 2000; i++) {
+            appender.append(new LogItem(Level.INFO, "rotating message " + i));
+        }
+        appender.close();
+        final String[] files = root.list();
+        assertTrue(null != files && files.length > 1);
+        for (final String name : files) {
+            assertTrue(new File(root, name).length() <= 11 * 1024);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private long run(final Runnable task) throws Exception {
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < ITEMS; j++) {
+                    task.run();
+                }
+            }));
+        }
+        final long start = System.nanoTime();
+        threads.forEach(Thread::start);
+        for (final Thread t : threads) {
+            t.join();
+        }
+        final long elapsed = Math.max(1, System.nanoTime() - start);
+        return THREADS * ITEMS * 1000000000L / elapsed;
+    }
+
+}
@@ -0,0 +1,229 @@
+package org.lyj.commons.util;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.lyj.commons.io.serialization.json.serializer.BeanData;
+import org.lyj.commons.io.serialization.json.serializer.BeanSerializer;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compare reflection per instance (previous path) with cached class metadata and pre-bound accessors.
+ */
+public class BeanMetadataBenchmarkTest {
+
+    private static final int WARMUP = 20000;
+    private static final int ROUNDS = 200000;
+
+    @Test
+    public void testAccessors() throws Exception {
+        final Item item = new Item();
+        assertTrue(BeanUtils.setValue(item, "name", "hello"));
+        assertTrue(BeanUtils.setValue(item, "count", 5));     // exact wrapper: handle
+        assertTrue(BeanUtils.setValue(item, "price", 3));     // widening: reflection fallback
+        assertTrue(BeanUtils.setValue(item, "count", "12"));  // converted by BeanUtils
+        assertEquals("hello", BeanUtils.getValue(item, "name"));
+        assertEquals(12, BeanUtils.getValue(item, "count"));
+        assertEquals(3.0, (Double) BeanUtils.getValue(item, "price"), 0);
+        assertNull(BeanUtils.getValue(item, "undefined"));
+
+        // same accessors for all instances
+        final BeanMetadata metadata = BeanMetadata.of(Item.class);
+        assertTrue(metadata == BeanMetadata.of(item.getClass()));
+        assertTrue(BeanData.of(Item.class) == BeanData.of(Item.class));
+        assertEquals(BeanData.of(Item.class).getReadableProps().keySet(),
+                new BeanData(Item.class).getReadableProps().keySet());
+
+        // errors of the bean are wrapped as with Method.invoke
+        try {
+            BeanUtils.setValue(item, "name", "fail");
+            fail("expected error");
+        } catch (java.lang.reflect.InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test
+    public void testSerializer() throws Exception {
+        final Item root = graph(100);
+        final JSONObject json = BeanSerializer.getInstance().rawSerialize(root);
+        assertEquals("item-0", json.getString("name"));
+        assertEquals(100, json.getJSONArray("children").length());
+
+        for (int i = 0; i < WARMUP / 100; i++) {
+            BeanSerializer.getInstance().rawSerialize(root);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS / 100; i++) {
+            BeanSerializer.getInstance().rawSerialize(root);
+        }
+        System.out.println("SERIALIZE (micros per graph of 101 beans): "
+                + (System.nanoTime() - start) / 1000 / (ROUNDS / 100));
+    }
+
+    @Test
+    public void testReadBenchmark() throws Exception {
+        final List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add(graph(0));
+        }
+        this.reflection(items, WARMUP);
+        this.cached(items, WARMUP);
+
+        long start = System.nanoTime();
+        final long reflection_sum = this.reflection(items, ROUNDS);
+        final long reflection = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        final long cached_sum = this.cached(items, ROUNDS);
+        final long cached = System.nanoTime() - start;
+
+        assertEquals(reflection_sum, cached_sum);
+        System.out.println("READ BEAN (ns per bean) REFLECTION: " + reflection / ROUNDS
+                + ", CACHED: " + cached / ROUNDS);
+        assertTrue(cached < reflection);
+    }
+
+    @Test
+    public void testBeanUtilsBenchmark() throws Exception {
+        final Item item = graph(0);
+        for (int r = 0; r < 3; r++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                this.lookup(item, "name");
+            }
+            final long lookup = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                BeanUtils.getValue(item, "name");
+            }
+            final long cached = System.nanoTime() - start;
+            System.out.println("GET VALUE (ns per call) LOOKUP: " + lookup / ROUNDS
+                    + ", CACHED: " + cached / ROUNDS);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    /**
+     * Previous serializer path: class analysed for each bean, Method.invoke for each property.
+     */
+    private long reflection(final List<Item> items, final int rounds) throws Exception {
+        long sum = 0;
+        for (int i = 0; i < rounds; i++) {
+            final Item item = items.get(i % items.size());
+            final Map<String, Method> methods = new BeanData(item).getReadableProps();
+            for (final Method method : methods.values()) {
+                sum += null != method.invoke(item) ? 1 : 0;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Previous BeanUtils path: public field lookup, then getter lookup and Method.invoke at each call.
+     */
+    private Object lookup(final Object instance, final String name) throws Exception {
+        try {
+            return instance.getClass().getField(name).get(instance);
+        } catch (NoSuchFieldException ignored) {
+        }
+        return instance.getClass().getMethod("get" + name.substring(0, 1).toUpperCase() + name.substring(1))
+                .invoke(instance);
+    }
+
+    private long cached(final List<Item> items, final int rounds) throws Exception {
+        long sum = 0;
+        for (int i = 0; i < rounds; i++) {
+            final Item item = items.get(i % items.size());
+            final Map<String, BeanMetadata.Accessor> getters = BeanData.of(item.getClass()).getReaders();
+            for (final BeanMetadata.Accessor getter : getters.values()) {
+                sum += null != getter.get(item) ? 1 : 0;
+            }
+        }
+        return sum;
+    }
+
+    private static Item graph(final int children) {
+        final Item root = new Item();
+        root.setId("id-0");
+        root.setName("item-0");
+        root.setCount(0);
+        root.setPrice(1.5);
+        for (int i = 1; i <= children; i++) {
+            final Item child = new Item();
+            child.setId("id-" + i);
+            child.setName("item-" + i);
+            child.setCount(i);
+            child.setPrice(i * 1.5);
+            root.getChildren().add(child);
+        }
+        return root;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    public static class Item {
+
+        private String _id;
+        private String _name;
+        private int _count;
+        private double _price;
+        private List<Item> _children = new ArrayList<>();
+
+        public String getId() {
+            return _id;
+        }
+
+        public void setId(final String value) {
+            _id = value;
+        }
+
+        public String getName() {
+            return _name;
+        }
+
+        public void setName(final String value) {
+            if ("fail".equals(value)) {
+                throw new IllegalArgumentException(value);
+            }
+            _name = value;
+        }
+
+        public int getCount() {
+            return _count;
+        }
+
+        public void setCount(final int value) {
+            _count = value;
+        }
+
+        public double getPrice() {
+            return _price;
+        }
+
+        public void setPrice(final double value) {
+            _price = value;
+        }
+
+        public List<Item> getChildren() {
+            return _children;
+        }
+
+        public void setChildren(final List<Item> value) {
+            _children = value;
+        }
+
+    }
+
+}
@@ -1,30 +1,37 @@
 package org.lyj.ext.html.web.grabber;
 
 import org.lyj.commons.Delegates;
-import org.lyj.commons.async.Async;
 import org.lyj.commons.async.FixedBlockingPool;
+import org.lyj.commons.async.HashedWheelTimer;
 import org.lyj.commons.util.*;
 import org.lyj.commons.util.json.JsonWrapper;
+import org.lyj.ext.html.web.grabber.frontier.CrawlerFrontier;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
-
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Base crawler.
+ * <p>
+ * Urls to visit are kept in a CrawlerFrontier: each host is requested by at most
+ * settings().hostConnections() tasks at a time, waiting settings().hostDelay() between two requests.
+ * A task is submitted as soon as a url can be requested (when a task completes or when
+ * a host delay expires), and crawl finishes when no url is left and no task is running.
+ * Each crawl runs in its own pool of settings().threads() threads, and no thread waits for the crawl:
+ * startAsync returns a future completed after onFinish handler.
+ * <p>
+ * Results are passed to onResult handler one at a time.
+ */
 public abstract class AbstractGrabber<T> {
 
     // ------------------------------------------------------------------------
     //                      c o n s t
     // ------------------------------------------------------------------------
 
-    private static final int THREAD_COUNT = 5;
-    private static final long PAUSE_TIME = 1000;
-
     private static final int MAX_DEPTH = 1000;
 
     // ------------------------------------------------------------------------
@@ -33,18 +40,22 @@ public abstract class AbstractGrabber<T> {
 
     private final String _uuid;
 
-    private final Set<URL> _master_list;
-    private final List<Future<T>> _futures;
-    //private ExecutorService _pool = Executors.newFixedThreadPool(THREAD_COUNT);
-    private final FixedBlockingPool _pool;
     private final Set<DocItem> _documents;
+    private final Object _result_lock;
+    private final AtomicBoolean _wakeup; // a delayed dispatch is scheduled
+    private final AtomicBoolean _completed; // crawl closed, finish handler invoked once
 
     private final CrawlerSettings _settings;
     private final int _max_depth;
-    private final int _max_url;
+    private int _max_url;
+
+    private volatile CrawlerFrontier _frontier;
+    private volatile FixedBlockingPool _pool;
+    private volatile CompletableFuture<AbstractGrabber<T>> _future; // completed after finish handler
 
+    private URL _start_url;
     private String _url_base;
-    private boolean _finished;
+    private volatile boolean _finished;
 
 
     private Delegates.Callback<DocItem> _callback_document;
@@ -66,17 +77,23 @@ public abstract class AbstractGrabber<T> {
         _max_depth = MAX_DEPTH;
         _max_url = settings.linkLimit();
 
-        _master_list = new HashSet<>();
-        _futures = new ArrayList<>();
-        _pool = GrabberTaskPool.instance();
         _documents = new HashSet<>();
+        _result_lock = new Object();
+        _wakeup = new AtomicBoolean(false);
+        _frontier = new CrawlerFrontier();
+        _completed = new AtomicBoolean(true);
+        _future = CompletableFuture.completedFuture(this);
 
         _finished = true; // not started yet
     }
 
     protected abstract Callable<T> buildTask(final URL url, final int depth) throws Exception;
 
-    protected abstract boolean iterateFutureTasks() throws InterruptedException;
+    /**
+     * Invoked (from a pool thread) when the task of an url completes.
+     * Add here new urls to visit (processURL) and pass documents to doResult.
+     */
+    protected abstract void processResult(final URL url, final int depth, final T result);
 
     protected abstract void startURL(final URL startURL);
 
@@ -96,18 +113,45 @@ public abstract class AbstractGrabber<T> {
         return _url_base;
     }
 
+    /**
+     * Visited urls. Empty if settings().visitedBloom() is enabled.
+     */
     public Set<URL> urls() {
-        return _master_list;
+        final Set<URL> response = new LinkedHashSet<>();
+        for (final String url : _frontier.visited()) {
+            try {
+                response.add(new URL(url));
+            } catch (MalformedURLException ignored) {
+            }
+        }
+        return response;
+    }
+
+    public int countUrls() {
+        return _frontier.countVisited();
     }
 
     public Set<DocItem> documents() {
-        return _documents;
+        synchronized (_result_lock) {
+            return new HashSet<>(_documents);
+        }
+    }
+
+    public CrawlerFrontier frontier() {
+        return _frontier;
     }
 
     public boolean finished() {
         return _finished;
     }
 
+    /**
+     * Future of current (or last) crawl.
+     */
+    public CompletableFuture<AbstractGrabber<T>> future() {
+        return _future;
+    }
+
     // ------------------------------------------------------------------------
     //                      h a n d l e r s
     // ------------------------------------------------------------------------
@@ -136,56 +180,50 @@ public abstract class AbstractGrabber<T> {
     }
 
     public void start(final URL startURL) throws IOException, InterruptedException {
-
-        _finished = false;
-
-        // stay within same site
-        _url_base = startURL.toString().replaceAll("(.*//.*/).*", "$1");
-
-
-        this.startURL(startURL); // invoke abstract, this.processURL(startURL, 0);
-
-        // wait finish grab
-        while (true) {
-            Thread.sleep(PAUSE_TIME);
-            // invoke abstract process of futures tasks
-            if (!this.iterateFutureTasks()) {
-                break;
-            }
+        try {
+            this.startAsync(startURL).get();
+        } catch (ExecutionException ignored) {
+            // errors are notified to onError handler
         }
-
-        // END
-        this.doFinish();
     }
 
-    public void startAsync(final String start) throws MalformedURLException {
-        this.startAsync(new URL(start));
+    public CompletableFuture<AbstractGrabber<T>> startAsync(final String start) throws MalformedURLException {
+        return this.startAsync(new URL(start));
     }
 
-    public void startAsync(final URL startURL) {
-        _finished = false;
-        Async.invoke((args) -> {
+    /**
+     * Start crawling and return immediately.
+     * Crawl proceeds in pool threads, and the future is completed when crawl finishes or is stopped.
+     */
+    public CompletableFuture<AbstractGrabber<T>> startAsync(final URL startURL) {
+        if (this.prepare()) {
             try {
-                this.start(startURL);
+                this.run(startURL);
             } catch (Throwable t) {
                 this.doError(startURL, t);
+                this.complete();
             }
-        });
+        }
+        return _future;
     }
 
+    /**
+     * Stop this crawler only: urls to visit are discarded and running tasks are interrupted.
+     */
     public void stop() {
-        if (!_finished && !_pool.isTerminated()) {
+        if (!_finished) {
+            _frontier.close();
             _pool.stop(true);
+            this.complete();
         }
     }
 
     public void join() {
         try {
-            while (!_finished) {
-                Thread.sleep(1000);
-            }
-        } catch (Throwable ignored) {
-
+            _future.get();
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ignored) {
         }
     }
 
@@ -195,19 +233,11 @@ public abstract class AbstractGrabber<T> {
 
     protected boolean processURL(final URL url,
                                  final int depth) {
-        if (this.shouldVisit(url, depth)) {
-            _master_list.add(url);
-
+        if (this.shouldVisit(url, depth) && _frontier.visit(url.toString(), _max_url)) {
             try {
-                final Callable<T> task = this.buildTask(url, depth); // BUILD THE FUTURE TASK
-                if (null != task) {
-                    final Future<T> future = _pool.submit(task);
-                    _futures.add(future);
-                }
-
-                return true;
-            } catch (Throwable ignored) {
-                // error building the task
+                return _frontier.add(url, depth);
+            } catch (Throwable t) {
+                this.doError(url, t);
             }
         }
         return false;
@@ -231,13 +261,9 @@ public abstract class AbstractGrabber<T> {
         return url;
     }
 
-    protected List<Future<T>> futures() {
-        return _futures;
-    }
-
     protected boolean shouldVisit(final URL url,
                                   final int depth) {
-        if (_master_list.contains(url)) {
+        if (_frontier.isVisited(url.toString())) {
             return false;
         }
 
@@ -247,7 +273,7 @@ public abstract class AbstractGrabber<T> {
         if (depth > _max_depth) {
             return false;
         }
-        if (_max_url > 0 && _master_list.size() >= _max_url) {
+        if (_max_url > 0 && _frontier.countVisited() >= _max_url) {
             return false;
         }
         if (!this.canParse(url.toString())) {
@@ -273,9 +299,14 @@ public abstract class AbstractGrabber<T> {
     //-- handlers invocation --//
 
     protected void doResult(final DocItem doc) {
-        _documents.add(doc);
-        if (null != _callback_document) {
-            _callback_document.handle(doc);
+        // handler is invoked by a single thread at a time
+        synchronized (_result_lock) {
+            if (_settings.keepDocuments()) {
+                _documents.add(doc);
+            }
+            if (null != _callback_document) {
+                _callback_document.handle(doc);
+            }
         }
     }
 
@@ -296,6 +327,130 @@ public abstract class AbstractGrabber<T> {
     //                      p r i v a t e
     // ------------------------------------------------------------------------
 
+    /**
+     * @return false if a crawl is already running
+     */
+    private synchronized boolean prepare() {
+        if (_finished) {
+            _finished = false;
+            _max_url = _settings.linkLimit();
+            _frontier = new CrawlerFrontier(_settings.visitedBloom())
+                    .maxActive(_settings.threads())
+                    .hostConnections(_settings.hostConnections())
+                    .hostDelay(_settings.hostDelay())
+                    .memoryLimit(_settings.frontierMemory());
+            _pool = GrabberTaskPool.create(_settings.threads());
+            _future = new CompletableFuture<>();
+            _completed.set(false);
+            synchronized (_result_lock) {
+                _documents.clear();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void run(final URL startURL) {
+        _start_url = startURL;
+
+        // stay within same site
+        _url_base = startURL.toString().replaceAll("(.*//.*/).*", "$1");
+
+        // start urls are added before the crawl can be considered done
+        _frontier.hold();
+        try {
+            this.startURL(startURL); // invoke abstract, this.processURL(startURL, 0);
+        } finally {
+            _frontier.release();
+        }
+        this.dispatch();
+    }
+
+    /**
+     * Invoked once per crawl, when no urls are left to visit and no tasks are running, or on stop.
+     */
+    private void complete() {
+        if (_completed.compareAndSet(false, true)) {
+            final CompletableFuture<AbstractGrabber<T>> future = _future;
+            try {
+                _frontier.close();
+                _pool.stop(false);
+
+                // END
+                this.doFinish();
+                future.complete(this);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+
+    /**
+     * Submit all urls that can be requested now and schedule next check
+     */
+    private void dispatch() {
+        try {
+            CrawlerFrontier.Entry entry;
+            while (null != (entry = _frontier.poll())) {
+                this.submit(entry);
+            }
+            this.schedule(_frontier.nextDelay());
+        } catch (Throwable t) {
+            // frontier storage error: crawl cannot continue
+            this.doError(_start_url, t);
+            _frontier.close();
+        }
+        if (_frontier.isDone()) {
+            this.complete();
+        }
+    }
+
+    private void submit(final CrawlerFrontier.Entry entry) {
+        final Callable<T> task;
+        try {
+            task = this.buildTask(entry.url(), entry.depth()); // BUILD THE TASK
+        } catch (Throwable ignored) {
+            // error building the task
+            _frontier.complete(entry);
+            return;
+        }
+        if (null == task) {
+            _frontier.complete(entry);
+            return;
+        }
+        try {
+            _pool.submit(() -> this.execute(entry, task));
+        } catch (Throwable ignored) {
+            // pool stopped
+            _frontier.complete(entry);
+        }
+    }
+
+    private void execute(final CrawlerFrontier.Entry entry,
+                         final Callable<T> task) {
+        try {
+            final T result = task.call();
+            if (!_frontier.isClosed() && null != result) {
+                this.processResult(entry.url(), entry.depth(), result);
+            }
+        } catch (Throwable t) {
+            this.doError(entry.url(), t);
+        } finally {
+            _frontier.complete(entry);
+            this.dispatch();
+        }
+    }
+
+    private void schedule(final long delay) {
+        if (delay >= 0 && _wakeup.compareAndSet(false, true)) {
+            // wakes up crawler waiting for a host delay
+            HashedWheelTimer.instance().scheduleAsync("grabber-wakeup", () -> {
+                _wakeup.set(false);
+                this.dispatch();
+            }, Math.max(1, delay), TimeUnit.MILLISECONDS);
+        }
+    }
+
     private boolean canParse(final String url) {
         try {
             final String ext = PathUtils.getFilenameExtension(url, false).toLowerCase();
@@ -17,6 +17,10 @@ public class CrawlerSettings
 
     // crawler settings
     private static final int MAX_LOOP = 3000;
+    private static final int THREADS = 10;
+    private static final int HOST_CONNECTIONS = 4;
+    private static final int HOST_DELAY = 100;      // ms between two requests to same host
+    private static final int FRONTIER_MEMORY = 10000;
 
     // document settings
     private static final int AUTODETECT_CONTENT_THREASHOLD = 200; // min content size;
@@ -32,6 +36,12 @@ public class CrawlerSettings
     private static final String FLD_PAGING_MODE = "paging_mode";    // only  for RSS
     private static final String FLD_PAGE_EXCLUDE = "page_exclude";
     private static final String FLD_DOCUMENT = "document";          // document settings
+    private static final String FLD_THREADS = "threads";
+    private static final String FLD_HOST_CONNECTIONS = "host_connections";
+    private static final String FLD_HOST_DELAY = "host_delay";
+    private static final String FLD_FRONTIER_MEMORY = "frontier_memory";
+    private static final String FLD_VISITED_BLOOM = "visited_bloom";
+    private static final String FLD_KEEP_DOCUMENTS = "keep_documents";
 
 
     // ------------------------------------------------------------------------
@@ -118,6 +128,82 @@ public class CrawlerSettings
         return this;
     }
 
+    /**
+     * Max number of pages downloaded at same time.
+     */
+    public int threads() {
+        return super.getInt(FLD_THREADS, THREADS);
+    }
+
+    public CrawlerSettings threads(final int value) {
+        super.put(FLD_THREADS, value > 0 ? value : THREADS);
+        return this;
+    }
+
+    /**
+     * Max number of pages downloaded at same time from same host.
+     */
+    public int hostConnections() {
+        return super.getInt(FLD_HOST_CONNECTIONS, HOST_CONNECTIONS);
+    }
+
+    public CrawlerSettings hostConnections(final int value) {
+        super.put(FLD_HOST_CONNECTIONS, value > 0 ? value : HOST_CONNECTIONS);
+        return this;
+    }
+
+    /**
+     * Min milliseconds between two requests to same host (politeness).
+     */
+    public int hostDelay() {
+        return super.getInt(FLD_HOST_DELAY, HOST_DELAY);
+    }
+
+    public CrawlerSettings hostDelay(final int value) {
+        super.put(FLD_HOST_DELAY, Math.max(0, value));
+        return this;
+    }
+
+    /**
+     * Max number of urls to visit kept in memory for each host.
+     * Others are stored in temporary files.
+     */
+    public int frontierMemory() {
+        return super.getInt(FLD_FRONTIER_MEMORY, FRONTIER_MEMORY);
+    }
+
+    public CrawlerSettings frontierMemory(final int value) {
+        super.put(FLD_FRONTIER_MEMORY, value > 0 ? value : FRONTIER_MEMORY);
+        return this;
+    }
+
+    /**
+     * Expected number of urls for large crawls (DEFAULT 0 = disabled).
+     * If greater than zero, visited urls are not stored but remembered in a Bloom filter
+     * (about 1% of urls may be skipped) and crawler urls() is empty.
+     */
+    public int visitedBloom() {
+        return super.getInt(FLD_VISITED_BLOOM, 0);
+    }
+
+    public CrawlerSettings visitedBloom(final int value) {
+        super.put(FLD_VISITED_BLOOM, Math.max(0, value));
+        return this;
+    }
+
+    /**
+     * Keep grabbed documents in crawler documents() (DEFAULT true).
+     * Disable when documents are consumed by onResult handler.
+     */
+    public boolean keepDocuments() {
+        return super.getBoolean(FLD_KEEP_DOCUMENTS, true);
+    }
+
+    public CrawlerSettings keepDocuments(final boolean value) {
+        super.put(FLD_KEEP_DOCUMENTS, value);
+        return this;
+    }
+
     public CrawlerDocumentSettings document() {
         if (!super.has(FLD_DOCUMENT)) {
             super.put(FLD_DOCUMENT, new JSONObject());
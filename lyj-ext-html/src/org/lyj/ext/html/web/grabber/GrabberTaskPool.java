@@ -3,7 +3,9 @@ package org.lyj.ext.html.web.grabber;
 import org.lyj.commons.async.FixedBlockingPool;
 
 /**
- *
+ * Pool of grabber tasks.
+ * Each crawler creates its own pool (see create()), so stopping a crawler does not stop others.
+ * When queue is full, submitting threads wait for room instead of running the task themselves.
  */
 public class GrabberTaskPool
         extends FixedBlockingPool {
@@ -13,12 +15,23 @@ public class GrabberTaskPool
     // ------------------------------------------------------------------------
 
     private GrabberTaskPool() {
+        super.name("grabber");
+        super.rejectPolicy(RejectPolicy.BLOCK);
         super.capacity(100); // starts with 100 threads in queue
 
         super.corePoolSize(10);     // min 10 threads
         super.maximumPoolSize(30);  // max 100 threads
     }
 
+    private GrabberTaskPool(final int threads) {
+        super.name("grabber-" + super.name());
+        super.rejectPolicy(RejectPolicy.BLOCK);
+        super.capacity(threads * 2);
+
+        super.corePoolSize(threads);
+        super.maximumPoolSize(threads);
+    }
+
     // ------------------------------------------------------------------------
     //                      S T A T I C
     // ------------------------------------------------------------------------
@@ -32,4 +45,11 @@ public class GrabberTaskPool
         return __instance;
     }
 
+    /**
+     * New pool with a fixed number of threads.
+     */
+    public static GrabberTaskPool create(final int threads) {
+        return new GrabberTaskPool(Math.max(1, threads));
+    }
+
 }
@@ -0,0 +1,140 @@
+package org.lyj.ext.html.web.grabber.frontier;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe Bloom filter of strings.
+ * <p>
+ * Uses a fixed amount of memory for any number of items: a large crawl can remember visited
+ * urls without keeping them. An item never added may be reported as present
+ * (false positive) with the configured probability, an added item is never reported as absent.
+ */
+public class BloomFilter {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    public static final double DEFAULT_FPP = 0.01;
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final AtomicLongArray _bits;
+    private final long _size;   // number of bits
+    private final int _hashes;  // number of hash functions
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public BloomFilter(final long expected_items) {
+        this(expected_items, DEFAULT_FPP);
+    }
+
+    /**
+     * @param expected_items Number of items to add
+     * @param fpp            False positive probability when expected items are added (ex: 0.01)
+     */
+    public BloomFilter(final long expected_items,
+                       final double fpp) {
+        final long n = Math.max(1, expected_items);
+        final double p = Math.min(0.5, Math.max(Double.MIN_VALUE, fpp));
+        final long bits = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        final int words = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (bits + 63) / 64));
+        _bits = new AtomicLongArray(words);
+        _size = words * 64L;
+        _hashes = (int) Math.max(1, Math.round((double) _size / n * Math.log(2)));
+    }
+
+    @Override
+    public String toString() {
+        return "{bits: " + _size +
+                ", hashes: " + _hashes + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    /**
+     * @return True if item was not in filter (item is surely new)
+     */
+    public boolean add(final String item) {
+        final long hash1 = hash1(item);
+        final long hash2 = hash2(item);
+        boolean added = false;
+        for (int i = 0; i < _hashes; i++) {
+            final long bit = index(hash1, hash2, i);
+            final int word = (int) (bit >>> 6);
+            final long mask = 1L << (bit & 63);
+            while (true) {
+                final long value = _bits.get(word);
+                if ((value & mask) != 0) {
+                    break;
+                }
+                if (_bits.compareAndSet(word, value, value | mask)) {
+                    added = true;
+                    break;
+                }
+            }
+        }
+        return added;
+    }
+
+    public boolean mightContain(final String item) {
+        final long hash1 = hash1(item);
+        final long hash2 = hash2(item);
+        for (int i = 0; i < _hashes; i++) {
+            final long bit = index(hash1, hash2, i);
+            if ((_bits.get((int) (bit >>> 6)) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private long index(final long hash1,
+                       final long hash2,
+                       final int i) {
+        // double hashing: h1 + i * h2
+        return ((hash1 + i * hash2) & Long.MAX_VALUE) % _size;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    private static long hash1(final String item) {
+        // FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < item.length(); i++) {
+            hash ^= item.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long hash2(final String item) {
+        long hash = 1125899906842597L;
+        for (int i = 0; i < item.length(); i++) {
+            hash = 31 * hash + item.charAt(i);
+        }
+        return mix(hash) | 1; // odd: never zero
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
@@ -0,0 +1,378 @@
+package org.lyj.ext.html.web.grabber.frontier;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.*;
+
+/**
+ * Urls visited and to visit of a crawler.
+ * <p>
+ * Urls to visit are grouped by host. Each host has its own queue (backed by disk, see UrlQueue),
+ * a max number of concurrent requests and a min delay between two requests (politeness).
+ * poll() returns next url that can be requested now, rotating between hosts.
+ * <p>
+ * Visited urls are kept in a set or, for large crawls, in a Bloom filter.
+ * <p>
+ * Frontier knows urls in progress (polled and not completed), so it knows when crawl is
+ * finished: isDone() is true when there are no urls to visit and no urls in progress.
+ * Thread safe.
+ */
+public class CrawlerFrontier
+        implements AutoCloseable {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    public static final int DEFAULT_MAX_ACTIVE = 10;
+    public static final int DEFAULT_HOST_CONNECTIONS = 4;
+    public static final long DEFAULT_HOST_DELAY = 100;
+    public static final int DEFAULT_MEMORY_LIMIT = 10000;
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final Map<String, Host> _hosts; // insertion order is rotation order
+    private final Set<String> _visited;     // null if bloom filter is used
+    private final BloomFilter _bloom;
+
+    private int _max_active;
+    private int _host_connections;
+    private long _host_delay;
+    private int _memory_limit;
+
+    private int _count_visited;
+    private long _size;     // urls to visit
+    private int _active;    // urls in progress (and holds)
+    private boolean _closed;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public CrawlerFrontier() {
+        this(0);
+    }
+
+    /**
+     * @param expected_urls If greater than zero, visited urls are kept in a Bloom filter sized for this
+     *                      number of urls, instead of a set. A few urls may be skipped as already visited
+     *                      (1% when expected urls are visited).
+     */
+    public CrawlerFrontier(final long expected_urls) {
+        _hosts = new LinkedHashMap<>();
+        _bloom = expected_urls > 0 ? new BloomFilter(expected_urls) : null;
+        _visited = null == _bloom ? new HashSet<>() : null;
+
+        _max_active = DEFAULT_MAX_ACTIVE;
+        _host_connections = DEFAULT_HOST_CONNECTIONS;
+        _host_delay = DEFAULT_HOST_DELAY;
+        _memory_limit = DEFAULT_MEMORY_LIMIT;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "{visited: " + _count_visited +
+                ", size: " + _size +
+                ", active: " + _active +
+                ", hosts: " + _hosts.size() + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r o p e r t i e s
+    // ------------------------------------------------------------------------
+
+    /**
+     * Max number of urls in progress, for all hosts.
+     */
+    public synchronized CrawlerFrontier maxActive(final int value) {
+        _max_active = Math.max(1, value);
+        return this;
+    }
+
+    public synchronized int maxActive() {
+        return _max_active;
+    }
+
+    /**
+     * Max number of urls in progress for same host.
+     */
+    public synchronized CrawlerFrontier hostConnections(final int value) {
+        _host_connections = Math.max(1, value);
+        return this;
+    }
+
+    public synchronized int hostConnections() {
+        return _host_connections;
+    }
+
+    /**
+     * Min milliseconds between two requests to same host.
+     */
+    public synchronized CrawlerFrontier hostDelay(final long value) {
+        _host_delay = Math.max(0, value);
+        return this;
+    }
+
+    public synchronized long hostDelay() {
+        return _host_delay;
+    }
+
+    /**
+     * Max urls to visit kept in memory for each host. Others are stored on disk.
+     * Change before adding urls.
+     */
+    public synchronized CrawlerFrontier memoryLimit(final int value) {
+        _memory_limit = Math.max(1, value);
+        return this;
+    }
+
+    public synchronized int memoryLimit() {
+        return _memory_limit;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    /**
+     * Mark an url as visited.
+     *
+     * @param max_urls Max number of visited urls. 0 or less for no limit.
+     * @return False if url was already visited or limit has been reached.
+     */
+    public synchronized boolean visit(final String url,
+                                      final int max_urls) {
+        if (_closed || (max_urls > 0 && _count_visited >= max_urls)) {
+            return false;
+        }
+        final boolean added = null != _bloom ? _bloom.add(url) : _visited.add(url);
+        if (added) {
+            _count_visited++;
+        }
+        return added;
+    }
+
+    public synchronized boolean isVisited(final String url) {
+        return null != _bloom ? _bloom.mightContain(url) : _visited.contains(url);
+    }
+
+    public synchronized int countVisited() {
+        return _count_visited;
+    }
+
+    /**
+     * @return Visited urls. Empty if a Bloom filter is used.
+     */
+    public synchronized Set<String> visited() {
+        return null != _visited ? new LinkedHashSet<>(_visited) : new LinkedHashSet<>();
+    }
+
+    /**
+     * Add an url to visit.
+     */
+    public synchronized boolean add(final URL url,
+                                    final int depth) throws IOException {
+        if (_closed) {
+            return false;
+        }
+        final String key = hostKey(url);
+        Host host = _hosts.get(key);
+        if (null == host) {
+            host = new Host(_memory_limit);
+            _hosts.put(key, host);
+        }
+        host.queue.add(new Entry(url, depth));
+        _size++;
+        return true;
+    }
+
+    /**
+     * Next url that can be requested now.
+     * Returned url is in progress until complete() is invoked.
+     *
+     * @return Url or null if there are no urls or no host can be requested now.
+     */
+    public synchronized Entry poll() throws IOException {
+        if (_closed || _size == 0 || _active >= _max_active) {
+            return null;
+        }
+        final long now = System.currentTimeMillis();
+        final Iterator<Map.Entry<String, Host>> iterator = _hosts.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Host> item = iterator.next();
+            final Host host = item.getValue();
+            if (host.isReady(now, _host_connections)) {
+                final Entry entry = host.queue.poll();
+                if (null != entry) {
+                    host.active++;
+                    host.next_time = now + _host_delay;
+                    _size--;
+                    _active++;
+
+                    // rotate: host goes at the end
+                    iterator.remove();
+                    _hosts.put(item.getKey(), host);
+                    return entry;
+                }
+            } else if (host.isExpired(now)) {
+                // idle host past its delay: nothing left to remember
+                iterator.remove();
+                host.queue.close();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Url is no longer in progress.
+     */
+    public synchronized void complete(final Entry entry) {
+        _active = Math.max(0, _active - 1);
+        final String key = hostKey(entry.url());
+        final Host host = _hosts.get(key);
+        if (null != host) {
+            host.active = Math.max(0, host.active - 1);
+            // keep host (and its next_time) until delay is elapsed, or a new url
+            // for same host could be requested at once. poll() evicts it later.
+            if (host.isExpired(System.currentTimeMillis())) {
+                _hosts.remove(key);
+                host.queue.close();
+            }
+        }
+    }
+
+    /**
+     * Count a work in progress without url (ex: crawler is adding start urls), so
+     * frontier is not done meanwhile. Invoke release() when finished.
+     */
+    public synchronized void hold() {
+        _active++;
+    }
+
+    public synchronized void release() {
+        _active = Math.max(0, _active - 1);
+    }
+
+    /**
+     * @return Milliseconds before a url can be polled, 0 if a url can be polled now,
+     * -1 if no url can be polled until some url in progress is completed.
+     */
+    public synchronized long nextDelay() {
+        if (_closed || _size == 0 || _active >= _max_active) {
+            return -1;
+        }
+        final long now = System.currentTimeMillis();
+        long response = -1;
+        for (final Host host : _hosts.values()) {
+            if (!host.queue.isEmpty() && host.active < _host_connections) {
+                final long delay = Math.max(0, host.next_time - now);
+                response = response < 0 ? delay : Math.min(response, delay);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * @return Number of urls to visit
+     */
+    public synchronized long size() {
+        return _size;
+    }
+
+    /**
+     * @return Number of urls in progress
+     */
+    public synchronized int active() {
+        return _active;
+    }
+
+    /**
+     * @return True if there are no urls to visit and no urls in progress
+     */
+    public synchronized boolean isDone() {
+        return (_closed || _size == 0) && _active == 0;
+    }
+
+    /**
+     * Remove all urls to visit and delete disk storage. Frontier does not accept new urls.
+     */
+    @Override
+    public synchronized void close() {
+        _closed = true;
+        for (final Host host : _hosts.values()) {
+            host.queue.close();
+        }
+        _hosts.clear();
+        _size = 0;
+    }
+
+    public synchronized boolean isClosed() {
+        return _closed;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    private static String hostKey(final URL url) {
+        return url.getHost().toLowerCase() + ":" + url.getPort();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    /**
+     * Url to visit
+     */
+    public static class Entry {
+
+        private final URL _url;
+        private final int _depth;
+
+        public Entry(final URL url,
+                     final int depth) {
+            _url = url;
+            _depth = depth;
+        }
+
+        @Override
+        public String toString() {
+            return "{url: " + _url +
+                    ", depth: " + _depth + "}";
+        }
+
+        public URL url() {
+            return _url;
+        }
+
+        public int depth() {
+            return _depth;
+        }
+
+    }
+
+    private static class Host {
+
+        private final UrlQueue queue;
+        private int active;
+        private long next_time;
+
+        private Host(final int memory_limit) {
+            queue = new UrlQueue(memory_limit);
+        }
+
+        private boolean isReady(final long now,
+                                final int max_connections) {
+            return !queue.isEmpty() && active < max_connections && next_time <= now;
+        }
+
+        private boolean isExpired(final long now) {
+            return queue.isEmpty() && active == 0 && next_time <= now;
+        }
+
+    }
+
+}
@@ -0,0 +1,148 @@
+package org.lyj.ext.html.web.grabber.frontier;
+
+import java.io.*;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * FIFO queue of urls to visit, backed by disk.
+ * <p>
+ * At most memoryLimit urls are kept in heap. Other urls are appended to a temporary
+ * file and read back, in order, when urls in heap are consumed.
+ * File is deleted when it has been read completely or when queue is closed.
+ * Not thread safe: used under the lock of CrawlerFrontier.
+ */
+public class UrlQueue
+        implements AutoCloseable {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final String PREFIX = "lyj_frontier_";
+    private static final String SUFFIX = ".queue";
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final int _memory_limit;
+    private final Deque<CrawlerFrontier.Entry> _memory;
+
+    private File _file;
+    private DataOutputStream _out;
+    private DataInputStream _in;
+    private long _spilled; // urls in file not read yet
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public UrlQueue(final int memory_limit) {
+        _memory_limit = Math.max(1, memory_limit);
+        _memory = new ArrayDeque<>();
+        _spilled = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "{memory: " + _memory.size() +
+                ", spilled: " + _spilled + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public long size() {
+        return _memory.size() + _spilled;
+    }
+
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    /**
+     * @return Number of urls on disk
+     */
+    public long spilled() {
+        return _spilled;
+    }
+
+    public void add(final CrawlerFrontier.Entry entry) throws IOException {
+        if (_spilled == 0 && _memory.size() < _memory_limit) {
+            _memory.add(entry);
+        } else {
+            // keep order: once a url is on disk, next ones go to disk too
+            this.out().writeInt(entry.depth());
+            this.out().writeUTF(entry.url().toString());
+            _spilled++;
+        }
+    }
+
+    public CrawlerFrontier.Entry poll() throws IOException {
+        if (_memory.isEmpty() && _spilled > 0) {
+            this.load();
+        }
+        return _memory.poll();
+    }
+
+    @Override
+    public void close() {
+        _memory.clear();
+        this.deleteFile();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private DataOutputStream out() throws IOException {
+        if (null == _out) {
+            _file = File.createTempFile(PREFIX, SUFFIX);
+            _out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_file)));
+        }
+        return _out;
+    }
+
+    private void load() throws IOException {
+        _out.flush();
+        if (null == _in) {
+            _in = new DataInputStream(new BufferedInputStream(new FileInputStream(_file)));
+        }
+        while (_spilled > 0 && _memory.size() < _memory_limit) {
+            final int depth = _in.readInt();
+            final String url = _in.readUTF();
+            _spilled--;
+            _memory.add(new CrawlerFrontier.Entry(new URL(url), depth));
+        }
+        if (_spilled == 0) {
+            // file read completely: next urls start a new file
+            this.deleteFile();
+        }
+    }
+
+    private void deleteFile() {
+        try {
+            if (null != _in) {
+                _in.close();
+            }
+        } catch (Throwable ignored) {
+        }
+        try {
+            if (null != _out) {
+                _out.close();
+            }
+        } catch (Throwable ignored) {
+        }
+        if (null != _file && _file.exists() && !_file.delete()) {
+            _file.deleteOnExit();
+        }
+        _in = null;
+        _out = null;
+        _file = null;
+        _spilled = 0;
+    }
+
+}
@@ -5,12 +5,8 @@ import org.lyj.ext.html.web.grabber.AbstractGrabber;
 import org.lyj.ext.html.web.grabber.DocItem;
 
 import java.net.URL;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 
 public class HtmlGrabber
         extends AbstractGrabber<DocItem> {
@@ -52,30 +48,12 @@ public class HtmlGrabber
         return new HtmlGrabberTask(settings(), url, depth);
     }
 
-    protected boolean iterateFutureTasks() throws InterruptedException {
-
-        final Set<DocItem> pageSet = new HashSet<>();
-        final Iterator<Future<DocItem>> iterator = super.futures().iterator();
-
-        while (iterator.hasNext()) {
-            final Future<DocItem> future = iterator.next();
-            if (future.isDone()) {
-                iterator.remove();
-                try {
-                    final DocItem doc = future.get();
-                    pageSet.add(doc);
-                    this.doResult(doc);
-                } catch (InterruptedException e) {  // skip pages that load too slow
-                } catch (ExecutionException e) {
-                }
-            }
-        }
-
-        for (final DocItem page : pageSet) {
-            this.addDocURLs(page);
-        }
-
-        return (super.futures().size() > 0); // return FALSE to exit
+    @Override
+    protected void processResult(final URL url,
+                                 final int depth,
+                                 final DocItem doc) {
+        this.doResult(doc);
+        this.addDocURLs(doc);
     }
 
 
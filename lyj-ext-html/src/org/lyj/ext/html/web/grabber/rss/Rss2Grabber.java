@@ -9,13 +9,8 @@ import org.lyj.ext.html.web.grabber.DocItem;
 import org.lyj.ext.html.web.webindexer.WebIndexerSettings;
 
 import java.net.URL;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 
 public class Rss2Grabber
         extends AbstractGrabber<List<DocItem>> {
@@ -61,28 +56,12 @@ public class Rss2Grabber
     }
 
     @Override
-    protected boolean iterateFutureTasks() throws InterruptedException {
-
-        final Set<DocItem> pageSet = new HashSet<>();
-        final Iterator<Future<List<DocItem>>> iterator = super.futures().iterator();
-
-        while (iterator.hasNext()) {
-            final Future<List<DocItem>> future = iterator.next();
-            if (future.isDone()) {
-                iterator.remove();
-                try {
-                    final List<DocItem> docs = future.get();
-                    for (final DocItem doc : docs) {
-                        pageSet.add(doc);
-                        this.doResult(doc);
-                    }
-                } catch (InterruptedException e) {  // skip pages that load too slow
-                } catch (ExecutionException e) {
-                }
-            }
+    protected void processResult(final URL url,
+                                 final int depth,
+                                 final List<DocItem> docs) {
+        for (final DocItem doc : docs) {
+            this.doResult(doc);
         }
-
-        return (super.futures().size() > 0);
     }
 
 
@@ -10,9 +10,13 @@ import org.lyj.ext.html.web.WebKeywordDetector;
 import org.lyj.ext.html.web.grabber.AbstractGrabber;
 import org.lyj.ext.html.web.grabber.DocItem;
 import org.lyj.ext.html.web.grabber.GrabberFactory;
+import org.lyj.ext.html.web.webindexer.index.WebIndex;
+import org.lyj.ext.html.web.webindexer.index.WebIndexDocument;
 
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Inheritable class to create a web indexer
@@ -27,9 +31,11 @@ public abstract class WebIndexer {
     private final List<WebIndexerSettings> _sites;
     private final Map<String, AbstractGrabber> _crawlers;
 
-    private int _count_indexed_pages;
+    private final AtomicInteger _count_indexed_pages;
 
-    private boolean _finished;
+    private volatile boolean _finished;
+
+    private WebIndex _search_index;
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
@@ -42,8 +48,8 @@ public abstract class WebIndexer {
      */
     public WebIndexer(final JSONArray settings) {
         _sites = new ArrayList<>();
-        _crawlers = new HashMap<>();
-        _count_indexed_pages = 0;
+        _crawlers = new ConcurrentHashMap<>();
+        _count_indexed_pages = new AtomicInteger(0);
 
         this.init(settings);
     }
@@ -68,13 +74,26 @@ public abstract class WebIndexer {
     }
 
     public int countIndexedPages() {
-        return _count_indexed_pages;
+        return _count_indexed_pages.get();
     }
 
     public boolean isFinished() {
         return _finished;
     }
 
+    public WebIndex searchIndex() {
+        return _search_index;
+    }
+
+    /**
+     * Optional embedded index: indexed pages are added to the index, that is flushed when
+     * all sites are indexed.
+     */
+    public WebIndexer searchIndex(final WebIndex value) {
+        _search_index = value;
+        return this;
+    }
+
     // ------------------------------------------------------------------------
     //                      a b s t r a c t
     // ------------------------------------------------------------------------
@@ -126,6 +145,10 @@ public abstract class WebIndexer {
 
                 crawler.settings().pagingMode(setting.rssPaging());     // only for RSS
                 crawler.settings().pageExclude(setting.pageExclude());  // exclude from crawler
+                crawler.settings().hostDelay(setting.hostDelay());
+                crawler.settings().hostConnections(setting.hostConnections());
+                crawler.settings().visitedBloom(setting.visitedBloom());
+                crawler.settings().keepDocuments(false);                // documents are indexed by onResult
                 crawler.settings().document().type(param_type);
                 crawler.settings().document().minKeywordSize(setting.keySize());
                 crawler.settings().document().autodetectContentThreashold(setting.contentSize());
@@ -162,8 +185,7 @@ public abstract class WebIndexer {
 
             final int page_limit = setting.pageLimit();
 
-            if (page_limit == -1 || (page_limit > 0 && _count_indexed_pages < page_limit)) {
-                _count_indexed_pages++;
+            if (this.countPage(page_limit)) {
 
                 final String title = document.title();
                 final String description = document.description();
@@ -177,6 +199,10 @@ public abstract class WebIndexer {
                         keyword_detector.detect(description));
 
                 if (!keywords.isEmpty()) {
+                    if (null != _search_index) {
+                        this.addToIndex(task_group_id, task_id, setting, keywords,
+                                title, description, image, date, document.urlNoHash());
+                    }
                     this.onTaskIndex(task_group_id, task_id, setting, keywords,
                             title, description, image, date, document.urlNoHash());
                 }
@@ -187,6 +213,22 @@ public abstract class WebIndexer {
         }
     }
 
+    /**
+     * Count a new indexed page, unless page limit (-1 = no limit) has been reached.
+     * Pages are indexed by many crawlers at same time.
+     */
+    private boolean countPage(final int page_limit) {
+        while (true) {
+            final int count = _count_indexed_pages.get();
+            if (page_limit != -1 && (page_limit <= 0 || count >= page_limit)) {
+                return false;
+            }
+            if (_count_indexed_pages.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
     private WebKeywordDetector keywordTool(final WebIndexerSettings settings) {
         final WebKeywordDetector detector = new WebKeywordDetector(settings.keySize());
         detector.keyReplace().putAll(settings.keyReplaceMap());
@@ -194,16 +236,41 @@ public abstract class WebIndexer {
         return detector;
     }
 
-    private void finish(final String task_group_id,
-                        final String task_id,
-                        final AbstractGrabber crawler,
-                        final Set<URL> url_list) {
+    private void addToIndex(final String task_group_id, final String task_id, final WebIndexerSettings setting,
+                            final Map<String, Double> keywords, final String title,
+                            final String description, final String image,
+                            final Date date, final String url) {
+        try {
+            _search_index.add(new WebIndexDocument(url)
+                    .site(setting.url())
+                    .title(title)
+                    .description(description)
+                    .image(image)
+                    .date(date)
+                    .keywords(keywords));
+        } catch (Throwable t) {
+            this.onTaskError(task_group_id, task_id, url, t);
+        }
+    }
+
+    private synchronized void finish(final String task_group_id,
+                                     final String task_id,
+                                     final AbstractGrabber crawler,
+                                     final Set<URL> url_list) {
         if (!_finished) {
             if (null != crawler) {
                 _crawlers.remove(crawler.uuid());
             }
             _finished = _crawlers.isEmpty();
 
+            if (_finished && null != _search_index) {
+                try {
+                    _search_index.flush();
+                } catch (Throwable t) {
+                    this.onError(t);
+                }
+            }
+
             this.onTaskFinished(task_group_id, task_id, url_list);
         }
     }
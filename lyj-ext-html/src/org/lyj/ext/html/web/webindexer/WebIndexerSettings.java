@@ -36,6 +36,9 @@ public class WebIndexerSettings
     private final String FLD_PAGE_KEY_LIMIT = "page_key_limit";   // max number of keywords per page
     private final String FLD_CONTENT_SIZE = "content_size"; // min content threashold
     private final String FLD_DEFAULT_IMAGE = "default_image";
+    private final String FLD_HOST_DELAY = "host_delay"; // ms between two requests to the site
+    private final String FLD_HOST_CONNECTIONS = "host_connections"; // max concurrent requests to the site
+    private final String FLD_VISITED_BLOOM = "visited_bloom"; // expected pages of large sites (0 = disabled)
 
     public static final String RSS_PAGING_NONE = "none";
     public static final String RSS_PAGING_PAGED = "paged";
@@ -181,6 +184,33 @@ public class WebIndexerSettings
         return this;
     }
 
+    public int hostDelay() {
+        return super.getInt(FLD_HOST_DELAY, 100);
+    }
+
+    public WebIndexerSettings hostDelay(final int value) {
+        super.put(FLD_HOST_DELAY, value);
+        return this;
+    }
+
+    public int hostConnections() {
+        return super.getInt(FLD_HOST_CONNECTIONS, 4);
+    }
+
+    public WebIndexerSettings hostConnections(final int value) {
+        super.put(FLD_HOST_CONNECTIONS, value);
+        return this;
+    }
+
+    public int visitedBloom() {
+        return super.getInt(FLD_VISITED_BLOOM, 0);
+    }
+
+    public WebIndexerSettings visitedBloom(final int value) {
+        super.put(FLD_VISITED_BLOOM, value);
+        return this;
+    }
+
     public JSONArray pageExclude() {
         if (!super.has(FLD_PAGE_EXCLUDE)) {
             super.put(FLD_PAGE_EXCLUDE, new JSONArray());
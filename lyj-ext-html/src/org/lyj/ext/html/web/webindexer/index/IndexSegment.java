@@ -0,0 +1,507 @@
+package org.lyj.ext.html.web.webindexer.index;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Immutable file of a WebIndex.
+ * <p>
+ * Layout of a segment file:
+ * <pre>
+ * header:     magic, version
+ * postings:   for each term, docs as (doc id delta, weight * 100) varints
+ * documents:  url, site, title, description, image, date, number of keywords
+ * dictionary: sorted terms with document frequency, postings offset and length
+ * footer:     document count, documents offset, term count, dictionary offset, magic
+ * </pre>
+ * Urls, dictionary and document lengths are kept in memory, postings and stored
+ * fields are read from file when needed.
+ * Deleted documents are a bitset stored in a separate file, because segment file never changes.
+ */
+final class IndexSegment
+        implements AutoCloseable {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final int MAGIC = 0x4c594a49; // LYJI
+    private static final int VERSION = 1;
+    private static final int FOOTER_SIZE = 4 + 8 + 4 + 8 + 4;
+
+    private static final String PREFIX = "seg_";
+    private static final String EXT_SEGMENT = ".idx";
+    private static final String EXT_DELETED = ".del";
+    private static final String EXT_TMP = ".tmp";
+
+    private static final double WEIGHT_SCALE = 100;
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final File _root;
+    private final long _generation;
+    private final FileChannel _channel;
+
+    // documents
+    private final String[] _urls;
+    private final String[] _sites;
+    private final long[] _doc_offsets; // one more item: end of documents
+    private final int[] _doc_lengths;
+    private final Map<String, Integer> _doc_ids;
+
+    // dictionary
+    private final String[] _terms;
+    private final int[] _doc_freqs;
+    private final long[] _postings_offsets;
+    private final int[] _postings_lengths;
+
+    // deletions
+    private final BitSet _deleted;
+    private long _deleted_generation;
+    private long _live_length; // sum of lengths of live documents
+    private boolean _dirty;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    private IndexSegment(final File root,
+                         final long generation,
+                         final long deleted_generation) throws IOException {
+        _root = root;
+        _generation = generation;
+        _deleted_generation = deleted_generation;
+        _channel = FileChannel.open(segmentFile(root, generation).toPath(), StandardOpenOption.READ);
+        try {
+            final long size = _channel.size();
+            final ByteBuffer footer = this.read(size - FOOTER_SIZE, FOOTER_SIZE);
+            final int doc_count = footer.getInt();
+            final long docs_offset = footer.getLong();
+            final int term_count = footer.getInt();
+            final long dict_offset = footer.getLong();
+            if (footer.getInt() != MAGIC) {
+                throw new IOException("Invalid index segment: " + segmentFile(root, generation));
+            }
+
+            // documents
+            _urls = new String[doc_count];
+            _sites = new String[doc_count];
+            _doc_offsets = new long[doc_count + 1];
+            _doc_lengths = new int[doc_count];
+            _doc_ids = new HashMap<>();
+            final Map<String, String> sites = new HashMap<>();
+            final ByteBuffer docs = this.read(docs_offset, (int) (dict_offset - docs_offset));
+            for (int i = 0; i < doc_count; i++) {
+                _doc_offsets[i] = docs_offset + docs.position();
+                _urls[i] = readString(docs);
+                final String site = readString(docs);
+                _sites[i] = null != site ? sites.computeIfAbsent(site, (key) -> key) : null;
+                skipString(docs); // title
+                skipString(docs); // description
+                skipString(docs); // image
+                docs.getLong();   // date
+                _doc_lengths[i] = docs.getInt();
+                _doc_ids.put(_urls[i], i);
+            }
+            _doc_offsets[doc_count] = dict_offset;
+
+            // dictionary
+            _terms = new String[term_count];
+            _doc_freqs = new int[term_count];
+            _postings_offsets = new long[term_count];
+            _postings_lengths = new int[term_count];
+            final ByteBuffer dict = this.read(dict_offset, (int) (size - FOOTER_SIZE - dict_offset));
+            for (int i = 0; i < term_count; i++) {
+                _terms[i] = readString(dict);
+                _doc_freqs[i] = dict.getInt();
+                _postings_offsets[i] = dict.getLong();
+                _postings_lengths[i] = dict.getInt();
+            }
+
+            // deletions
+            _deleted = readDeleted(root, generation, deleted_generation);
+            for (int i = 0; i < doc_count; i++) {
+                if (!_deleted.get(i)) {
+                    _live_length += _doc_lengths[i];
+                }
+            }
+        } catch (Throwable t) {
+            _channel.close();
+            throw t instanceof IOException ? (IOException) t : new IOException(t);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "{generation: " + _generation +
+                ", docs: " + _urls.length +
+                ", deleted: " + _deleted.cardinality() +
+                ", terms: " + _terms.length + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public long generation() {
+        return _generation;
+    }
+
+    public long deletedGeneration() {
+        return _deleted_generation;
+    }
+
+    /**
+     * @return Number of documents, deleted included
+     */
+    public int size() {
+        return _urls.length;
+    }
+
+    public int liveSize() {
+        return _urls.length - _deleted.cardinality();
+    }
+
+    public long liveLength() {
+        return _live_length;
+    }
+
+    public boolean isDeleted(final int doc) {
+        return _deleted.get(doc);
+    }
+
+    /**
+     * Mark url as deleted.
+     *
+     * @return True if url was a live document of this segment
+     */
+    public boolean delete(final String url) {
+        final Integer doc = _doc_ids.get(url);
+        if (null != doc && !_deleted.get(doc)) {
+            _deleted.set(doc);
+            _live_length -= _doc_lengths[doc];
+            _dirty = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Write deleted documents if changed.
+     *
+     * @return True if a new deletions file has been written: commit a new manifest and remove old file.
+     */
+    public boolean writeDeleted() throws IOException {
+        if (_dirty) {
+            final long generation = _deleted_generation + 1;
+            final File file = deletedFile(_root, _generation, generation);
+            final File tmp = new File(file.getPath() + EXT_TMP);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                final long[] words = _deleted.toLongArray();
+                out.writeInt(words.length);
+                for (final long word : words) {
+                    out.writeLong(word);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            _deleted_generation = generation;
+            _dirty = false;
+            return true;
+        }
+        return false;
+    }
+
+    public int length(final int doc) {
+        return _doc_lengths[doc];
+    }
+
+    public String site(final int doc) {
+        return _sites[doc];
+    }
+
+    public int docFreq(final String term) {
+        final int index = Arrays.binarySearch(_terms, term);
+        return index >= 0 ? _doc_freqs[index] : 0;
+    }
+
+    /**
+     * Invoke callback for each document containing term, deleted included.
+     */
+    public void postings(final String term,
+                         final PostingCallback callback) throws IOException {
+        final int index = Arrays.binarySearch(_terms, term);
+        if (index >= 0) {
+            this.postings(index, callback);
+        }
+    }
+
+    /**
+     * Stored fields of a document. Keywords are not loaded.
+     */
+    public WebIndexDocument document(final int doc) throws IOException {
+        final ByteBuffer buffer = this.read(_doc_offsets[doc], (int) (_doc_offsets[doc + 1] - _doc_offsets[doc]));
+        final WebIndexDocument document = new WebIndexDocument(readString(buffer));
+        document.site(readString(buffer));
+        document.title(readString(buffer));
+        document.description(readString(buffer));
+        document.image(readString(buffer));
+        final long time = buffer.getLong();
+        document.date(time >= 0 ? new Date(time) : null);
+        return document;
+    }
+
+    /**
+     * Live documents with their keywords.
+     */
+    public List<WebIndexDocument> documents() throws IOException {
+        final WebIndexDocument[] documents = new WebIndexDocument[_urls.length];
+        for (int i = 0; i < _urls.length; i++) {
+            if (!_deleted.get(i)) {
+                documents[i] = this.document(i);
+            }
+        }
+        for (int i = 0; i < _terms.length; i++) {
+            final String term = _terms[i];
+            this.postings(i, (doc, weight) -> {
+                if (null != documents[doc]) {
+                    documents[doc].keywords().put(term, weight);
+                }
+            });
+        }
+        final List<WebIndexDocument> response = new ArrayList<>();
+        for (final WebIndexDocument document : documents) {
+            if (null != document) {
+                response.add(document);
+            }
+        }
+        return response;
+    }
+
+    @Override
+    public void close() {
+        try {
+            _channel.close();
+        } catch (Throwable ignored) {
+        }
+    }
+
+    /**
+     * Close and remove files
+     */
+    public void delete() {
+        this.close();
+        segmentFile(_root, _generation).delete();
+        deletedFile(_root, _generation, _deleted_generation).delete();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private void postings(final int index,
+                          final PostingCallback callback) throws IOException {
+        final ByteBuffer buffer = this.read(_postings_offsets[index], _postings_lengths[index]);
+        int doc = 0;
+        for (int i = 0; i < _doc_freqs[index]; i++) {
+            doc += readVarInt(buffer);
+            callback.handle(doc, readVarInt(buffer) / WEIGHT_SCALE);
+        }
+    }
+
+    private ByteBuffer read(final long position,
+                            final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (_channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    static IndexSegment open(final File root,
+                             final long generation,
+                             final long deleted_generation) throws IOException {
+        return new IndexSegment(root, generation, deleted_generation);
+    }
+
+    /**
+     * Write a new segment and open it.
+     */
+    static IndexSegment write(final File root,
+                              final long generation,
+                              final Collection<WebIndexDocument> documents) throws IOException {
+        final File file = segmentFile(root, generation);
+        final File tmp = new File(file.getPath() + EXT_TMP);
+
+        // inverted lists: term -> (doc, weight) in doc order
+        final TreeMap<String, List<long[]>> inverted = new TreeMap<>();
+        int doc = 0;
+        for (final WebIndexDocument document : documents) {
+            for (final Map.Entry<String, Double> keyword : document.keywords().entrySet()) {
+                final long weight = Math.max(0, Math.round(null != keyword.getValue() ? keyword.getValue() * WEIGHT_SCALE : 0));
+                inverted.computeIfAbsent(keyword.getKey(), (key) -> new ArrayList<>()).add(new long[]{doc, weight});
+            }
+            doc++;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            // postings
+            final long[] offsets = new long[inverted.size()];
+            final int[] lengths = new int[inverted.size()];
+            int index = 0;
+            for (final List<long[]> postings : inverted.values()) {
+                offsets[index] = out.size();
+                long last = 0;
+                for (final long[] posting : postings) {
+                    writeVarInt(out, posting[0] - last);
+                    writeVarInt(out, posting[1]);
+                    last = posting[0];
+                }
+                lengths[index] = (int) (out.size() - offsets[index]);
+                index++;
+            }
+
+            // documents
+            final long docs_offset = out.size();
+            for (final WebIndexDocument document : documents) {
+                writeString(out, document.url());
+                writeString(out, document.site());
+                writeString(out, document.title());
+                writeString(out, document.description());
+                writeString(out, document.image());
+                out.writeLong(null != document.date() ? document.date().getTime() : -1);
+                out.writeInt(document.keywords().size());
+            }
+
+            // dictionary
+            final long dict_offset = out.size();
+            index = 0;
+            for (final Map.Entry<String, List<long[]>> entry : inverted.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().size());
+                out.writeLong(offsets[index]);
+                out.writeInt(lengths[index]);
+                index++;
+            }
+
+            // footer
+            out.writeInt(documents.size());
+            out.writeLong(docs_offset);
+            out.writeInt(inverted.size());
+            out.writeLong(dict_offset);
+            out.writeInt(MAGIC);
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Index segment too large: " + file);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return open(root, generation, 0);
+    }
+
+    static boolean isIndexFile(final String name) {
+        return name.startsWith(PREFIX);
+    }
+
+    static File segmentFile(final File root,
+                            final long generation) {
+        return new File(root, PREFIX + generation + EXT_SEGMENT);
+    }
+
+    static File deletedFile(final File root,
+                            final long generation,
+                            final long deleted_generation) {
+        return new File(root, PREFIX + generation + "_" + deleted_generation + EXT_DELETED);
+    }
+
+    private static BitSet readDeleted(final File root,
+                                      final long generation,
+                                      final long deleted_generation) throws IOException {
+        final File file = deletedFile(root, generation, deleted_generation);
+        if (deleted_generation > 0 && file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                final long[] words = new long[in.readInt()];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = in.readLong();
+                }
+                return BitSet.valueOf(words);
+            }
+        }
+        return new BitSet();
+    }
+
+    private static void writeString(final DataOutputStream out,
+                                    final String value) throws IOException {
+        if (null == value) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final String response = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return response;
+    }
+
+    private static void skipString(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length > 0) {
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    private static void writeVarInt(final DataOutputStream out,
+                                    long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static int readVarInt(final ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    @FunctionalInterface
+    interface PostingCallback {
+        void handle(final int doc, final double weight);
+    }
+
+}
@@ -0,0 +1,543 @@
+package org.lyj.ext.html.web.webindexer.index;
+
+import org.lyj.commons.util.RegExpUtils;
+import org.lyj.commons.util.StringUtils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Embedded inverted index of web pages, stored in a directory.
+ * <p>
+ * Pages are indexed by their keywords (see WebKeywordDetector.level()) and searched by words.
+ * Added pages are buffered in memory and written as a new immutable segment on flush()
+ * (automatically every bufferSize() pages): pages are searchable after flush.
+ * Adding an url already indexed replaces the old page.
+ * When there are more than mergeFactor() segments, smallest segments are merged into one.
+ * <p>
+ * Results are ranked with BM25 (keyword weight is used as term frequency) or
+ * by sum of weights of matching keywords.
+ * <p>
+ * Usage:
+ * <pre>
+ * final WebIndex index = new WebIndex("./index");
+ * indexer.searchIndex(index).startIndexing();
+ * ...
+ * final List&lt;WebIndexDocument&gt; pages = index.search("red shoes", 10);
+ * </pre>
+ */
+public class WebIndex
+        implements AutoCloseable {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    public enum Scoring {
+        BM25,
+        WEIGHT
+    }
+
+    public static final int DEFAULT_BUFFER_SIZE = 1000;
+    public static final int DEFAULT_MERGE_FACTOR = 10;
+
+    private static final String MANIFEST = "segments";
+    private static final String EXT_TMP = ".tmp";
+    private static final int MAGIC = 0x4c594a4d; // LYJM
+
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double TF_SCALE = 0.1; // keyword weight 0-100 is term frequency 0-10
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final File _root;
+    private final ReentrantReadWriteLock _lock;
+    private final List<IndexSegment> _segments;         // oldest first
+    private final Map<String, WebIndexDocument> _buffer;
+    private final Set<String> _removed;                  // urls to remove from segments
+
+    private long _next_generation;
+    private int _buffer_size;
+    private int _merge_factor;
+    private Scoring _scoring;
+    private boolean _closed;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public WebIndex(final String path) throws IOException {
+        _root = new File(path);
+        _lock = new ReentrantReadWriteLock();
+        _segments = new ArrayList<>();
+        _buffer = new LinkedHashMap<>();
+        _removed = new HashSet<>();
+
+        _next_generation = 1;
+        _buffer_size = DEFAULT_BUFFER_SIZE;
+        _merge_factor = DEFAULT_MERGE_FACTOR;
+        _scoring = Scoring.BM25;
+
+        this.init();
+    }
+
+    @Override
+    public String toString() {
+        _lock.readLock().lock();
+        try {
+            return "{path: " + _root.getPath() +
+                    ", docs: " + this.liveDocs() +
+                    ", buffered: " + _buffer.size() +
+                    ", segments: " + _segments + "}";
+        } finally {
+            _lock.readLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r o p e r t i e s
+    // ------------------------------------------------------------------------
+
+    public String path() {
+        return _root.getPath();
+    }
+
+    public int bufferSize() {
+        return _buffer_size;
+    }
+
+    /**
+     * Number of pages kept in memory before a flush.
+     */
+    public WebIndex bufferSize(final int value) {
+        _buffer_size = Math.max(1, value);
+        return this;
+    }
+
+    public int mergeFactor() {
+        return _merge_factor;
+    }
+
+    /**
+     * Max number of segments. Smallest segments are merged when there are more.
+     */
+    public WebIndex mergeFactor(final int value) {
+        _merge_factor = Math.max(2, value);
+        return this;
+    }
+
+    public Scoring scoring() {
+        return _scoring;
+    }
+
+    public WebIndex scoring(final Scoring value) {
+        _scoring = null != value ? value : Scoring.BM25;
+        return this;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    /**
+     * @return Number of searchable pages
+     */
+    public int count() {
+        _lock.readLock().lock();
+        try {
+            return this.liveDocs();
+        } finally {
+            _lock.readLock().unlock();
+        }
+    }
+
+    public int countSegments() {
+        _lock.readLock().lock();
+        try {
+            return _segments.size();
+        } finally {
+            _lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add or replace a page.
+     */
+    public void add(final WebIndexDocument document) throws IOException {
+        if (null != document && StringUtils.hasText(document.url())) {
+            _lock.writeLock().lock();
+            try {
+                this.checkOpen();
+                _buffer.put(document.url(), document);
+                if (_buffer.size() >= _buffer_size) {
+                    this.commit();
+                }
+            } finally {
+                _lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public void remove(final String url) {
+        if (StringUtils.hasText(url)) {
+            _lock.writeLock().lock();
+            try {
+                _buffer.remove(url);
+                _removed.add(url);
+            } finally {
+                _lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Write buffered pages and removals to disk.
+     */
+    public void flush() throws IOException {
+        _lock.writeLock().lock();
+        try {
+            this.checkOpen();
+            this.commit();
+        } finally {
+            _lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flush and merge all segments into one.
+     */
+    public void merge() throws IOException {
+        _lock.writeLock().lock();
+        try {
+            this.checkOpen();
+            this.commit();
+            if (_segments.size() > 1) {
+                this.merge(new ArrayList<>(_segments));
+            }
+        } finally {
+            _lock.writeLock().unlock();
+        }
+    }
+
+    public List<WebIndexDocument> search(final String query,
+                                         final int limit) throws IOException {
+        return this.search(query, null, limit);
+    }
+
+    /**
+     * Pages matching at least one word of query, best first.
+     *
+     * @param query Words to search
+     * @param site  Optional root url of site (see WebIndexerSettings.url())
+     * @param limit Max number of pages
+     */
+    public List<WebIndexDocument> search(final String query,
+                                         final String site,
+                                         final int limit) throws IOException {
+        final List<WebIndexDocument> response = new ArrayList<>();
+        final Set<String> terms = terms(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return response;
+        }
+        _lock.readLock().lock();
+        try {
+            this.checkOpen();
+            final int docs = this.liveDocs();
+            if (docs == 0) {
+                return response;
+            }
+            long length = 0;
+            for (final IndexSegment segment : _segments) {
+                length += segment.liveLength();
+            }
+            final double avg_length = Math.max(1, (double) length / docs);
+
+            // best hits in a min-heap
+            final PriorityQueue<Hit> hits = new PriorityQueue<>(limit + 1, Comparator.comparingDouble((Hit hit) -> hit.score));
+            for (final IndexSegment segment : _segments) {
+                final Map<Integer, Double> scores = new HashMap<>();
+                for (final String term : terms) {
+                    final double idf = this.idf(term, docs);
+                    segment.postings(term, (doc, weight) -> {
+                        if (!segment.isDeleted(doc) && (null == site || site.equals(segment.site(doc)))) {
+                            scores.merge(doc, this.score(weight, idf, segment.length(doc), avg_length), Double::sum);
+                        }
+                    });
+                }
+                for (final Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                    hits.add(new Hit(segment, entry.getKey(), entry.getValue()));
+                    if (hits.size() > limit) {
+                        hits.poll();
+                    }
+                }
+            }
+
+            while (!hits.isEmpty()) {
+                final Hit hit = hits.poll();
+                response.add(hit.segment.document(hit.doc).score(hit.score));
+            }
+            Collections.reverse(response);
+            return response;
+        } finally {
+            _lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flush and close files.
+     */
+    @Override
+    public void close() throws IOException {
+        _lock.writeLock().lock();
+        try {
+            if (!_closed) {
+                try {
+                    this.commit();
+                } finally {
+                    _closed = true;
+                    for (final IndexSegment segment : _segments) {
+                        segment.close();
+                    }
+                    _segments.clear();
+                }
+            }
+        } finally {
+            _lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all pages and index files.
+     */
+    public void clear() throws IOException {
+        _lock.writeLock().lock();
+        try {
+            this.checkOpen();
+            _buffer.clear();
+            _removed.clear();
+            final List<IndexSegment> segments = new ArrayList<>(_segments);
+            _segments.clear();
+            this.writeManifest();
+            for (final IndexSegment segment : segments) {
+                segment.delete();
+            }
+        } finally {
+            _lock.writeLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private void init() throws IOException {
+        if (!_root.isDirectory() && !_root.mkdirs()) {
+            throw new IOException("Unable to create Directory: " + _root.getAbsolutePath());
+        }
+        final File manifest = new File(_root, MANIFEST);
+        if (manifest.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(manifest)))) {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("Invalid index manifest: " + manifest);
+                }
+                _next_generation = in.readLong();
+                final int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    _segments.add(IndexSegment.open(_root, in.readLong(), in.readLong()));
+                }
+            }
+        }
+        this.removeUnusedFiles();
+    }
+
+    private void checkOpen() throws IOException {
+        if (_closed) {
+            throw new IOException("Index is closed: " + _root);
+        }
+    }
+
+    private int liveDocs() {
+        int response = 0;
+        for (final IndexSegment segment : _segments) {
+            response += segment.liveSize();
+        }
+        return response;
+    }
+
+    private double idf(final String term,
+                       final int docs) {
+        int doc_freq = 0;
+        for (final IndexSegment segment : _segments) {
+            doc_freq += segment.docFreq(term);
+        }
+        return Math.log(1 + (docs - doc_freq + 0.5) / (doc_freq + 0.5));
+    }
+
+    private double score(final double weight,
+                         final double idf,
+                         final int length,
+                         final double avg_length) {
+        if (_scoring == Scoring.WEIGHT) {
+            return weight;
+        }
+        final double tf = weight * TF_SCALE;
+        return idf * (tf * (K1 + 1)) / (tf + K1 * (1 - B + B * length / avg_length));
+    }
+
+    /**
+     * Apply buffered changes: old versions of pages are deleted, new pages are written in a new segment.
+     */
+    private void commit() throws IOException {
+        if (_buffer.isEmpty() && _removed.isEmpty()) {
+            return;
+        }
+        final Set<String> deleted = new HashSet<>(_removed);
+        deleted.addAll(_buffer.keySet());
+        for (final IndexSegment segment : _segments) {
+            for (final String url : deleted) {
+                segment.delete(url);
+            }
+        }
+
+        if (!_buffer.isEmpty()) {
+            _segments.add(IndexSegment.write(_root, _next_generation++, _buffer.values()));
+        }
+
+        final List<IndexSegment> empty = this.writeDeleted();
+        this.writeManifest();
+        for (final IndexSegment segment : empty) {
+            segment.delete();
+        }
+        this.removeUnusedFiles();
+        _buffer.clear();
+        _removed.clear();
+
+        this.mergeIfNeeded();
+    }
+
+    /**
+     * Write deletions of changed segments.
+     *
+     * @return Segments without live pages, already removed from index
+     */
+    private List<IndexSegment> writeDeleted() throws IOException {
+        final List<IndexSegment> empty = new ArrayList<>();
+        final Iterator<IndexSegment> iterator = _segments.iterator();
+        while (iterator.hasNext()) {
+            final IndexSegment segment = iterator.next();
+            if (segment.liveSize() == 0) {
+                iterator.remove();
+                empty.add(segment);
+            } else {
+                segment.writeDeleted();
+            }
+        }
+        return empty;
+    }
+
+    private void mergeIfNeeded() throws IOException {
+        while (_segments.size() > _merge_factor) {
+            final List<IndexSegment> smallest = new ArrayList<>(_segments);
+            smallest.sort(Comparator.comparingInt(IndexSegment::liveSize));
+            this.merge(smallest.subList(0, _merge_factor));
+        }
+    }
+
+    private void merge(final List<IndexSegment> segments) throws IOException {
+        final List<WebIndexDocument> documents = new ArrayList<>();
+        for (final IndexSegment segment : segments) {
+            documents.addAll(segment.documents());
+        }
+        final int index = _segments.indexOf(segments.get(0));
+        _segments.removeAll(segments);
+        if (!documents.isEmpty()) {
+            _segments.add(Math.max(0, Math.min(index, _segments.size())),
+                    IndexSegment.write(_root, _next_generation++, documents));
+        }
+        this.writeManifest();
+        for (final IndexSegment segment : segments) {
+            segment.delete();
+        }
+    }
+
+    /**
+     * Atomically replace list of segments
+     */
+    private void writeManifest() throws IOException {
+        final File file = new File(_root, MANIFEST);
+        final File tmp = new File(_root, MANIFEST + EXT_TMP);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(_next_generation);
+            out.writeInt(_segments.size());
+            for (final IndexSegment segment : _segments) {
+                out.writeLong(segment.generation());
+                out.writeLong(segment.deletedGeneration());
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Remove files not in manifest (old deletions, segments of an interrupted flush or merge).
+     */
+    private void removeUnusedFiles() {
+        final Set<String> used = new HashSet<>();
+        for (final IndexSegment segment : _segments) {
+            used.add(IndexSegment.segmentFile(_root, segment.generation()).getName());
+            used.add(IndexSegment.deletedFile(_root, segment.generation(), segment.deletedGeneration()).getName());
+        }
+        final File[] files = _root.listFiles();
+        if (null != files) {
+            for (final File file : files) {
+                if (IndexSegment.isIndexFile(file.getName()) && !used.contains(file.getName())) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    /**
+     * Words of a query, tokenized as WebKeywordDetector does.
+     */
+    public static Set<String> terms(final String query) {
+        final Set<String> response = new LinkedHashSet<>();
+        if (StringUtils.hasText(query)) {
+            final String clear_text = RegExpUtils.replaceLineTerminators(query).replaceAll("([:;,.!?\"'])", "").toLowerCase();
+            response.addAll(Arrays.asList(StringUtils.split(clear_text, " ", true, true)));
+        }
+        return response;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    private static class Hit {
+
+        private final IndexSegment segment;
+        private final int doc;
+        private final double score;
+
+        private Hit(final IndexSegment segment,
+                    final int doc,
+                    final double score) {
+            this.segment = segment;
+            this.doc = doc;
+            this.score = score;
+        }
+
+    }
+
+}
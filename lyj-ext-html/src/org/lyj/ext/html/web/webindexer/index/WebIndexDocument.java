@@ -0,0 +1,127 @@
+package org.lyj.ext.html.web.webindexer.index;
+
+import org.lyj.commons.util.DateUtils;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Page stored in a WebIndex.
+ * Documents returned from a search have a score and no keywords.
+ */
+public class WebIndexDocument {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final String _url;
+    private final Map<String, Double> _keywords;
+
+    private String _site;
+    private String _title;
+    private String _description;
+    private String _image;
+    private Date _date;
+    private double _score;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public WebIndexDocument(final String url) {
+        _url = url;
+        _keywords = new HashMap<>();
+        _date = DateUtils.now();
+    }
+
+    @Override
+    public String toString() {
+        return "{url: " + _url +
+                ", site: " + _site +
+                ", title: " + _title +
+                ", score: " + _score + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public String url() {
+        return _url;
+    }
+
+    /**
+     * Keywords and their weight (see WebKeywordDetector.level(), from 0 to 100)
+     */
+    public Map<String, Double> keywords() {
+        return _keywords;
+    }
+
+    public WebIndexDocument keywords(final Map<String, Double> value) {
+        _keywords.clear();
+        if (null != value) {
+            _keywords.putAll(value);
+        }
+        return this;
+    }
+
+    /**
+     * Root url of indexed site. Searches can be filtered by site.
+     */
+    public String site() {
+        return _site;
+    }
+
+    public WebIndexDocument site(final String value) {
+        _site = value;
+        return this;
+    }
+
+    public String title() {
+        return _title;
+    }
+
+    public WebIndexDocument title(final String value) {
+        _title = value;
+        return this;
+    }
+
+    public String description() {
+        return _description;
+    }
+
+    public WebIndexDocument description(final String value) {
+        _description = value;
+        return this;
+    }
+
+    public String image() {
+        return _image;
+    }
+
+    public WebIndexDocument image(final String value) {
+        _image = value;
+        return this;
+    }
+
+    public Date date() {
+        return _date;
+    }
+
+    public WebIndexDocument date(final Date value) {
+        _date = value;
+        return this;
+    }
+
+    public double score() {
+        return _score;
+    }
+
+    WebIndexDocument score(final double value) {
+        _score = value;
+        return this;
+    }
+
+}
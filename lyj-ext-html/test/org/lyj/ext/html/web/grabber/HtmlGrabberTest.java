@@ -1,12 +1,20 @@
 package org.lyj.ext.html.web.grabber;
 
+import com.sun.net.httpserver.HttpServer;
 import org.junit.Test;
 import org.lyj.commons.async.AsyncUtils;
 import org.lyj.ext.html.IHtmlConstants;
 import org.lyj.ext.html.web.grabber.html.HtmlGrabber;
 import org.lyj.ext.html.web.grabber.rss.Rss2Grabber;
 
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by angelogeminiani on 04/03/17.
@@ -62,6 +70,62 @@ public class HtmlGrabberTest {
     }
 
 
+    @Test
+    public void testLocal() throws Exception {
+        // local site: each page links index and next 3 pages
+        final int pages = 50;
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger max_active = new AtomicInteger();
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+        server.createContext("/", (exchange) -> {
+            max_active.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                final String path = exchange.getRequestURI().getPath();
+                final int n = path.startsWith("/page") ? Integer.parseInt(path.replaceAll("\\D", "")) : 0;
+                final StringBuilder html = new StringBuilder("<html><head><title>page " + n + "</title></head><body>");
+                html.append("<a href=\"/index.html\">index</a>");
+                for (int i = n + 1; i <= Math.min(pages, n + 3); i++) {
+                    html.append("<a href=\"/page").append(i).append(".html\">page ").append(i).append("</a>");
+                }
+                html.append("</body></html>");
+                final byte[] bytes = html.toString().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } catch (InterruptedException ignored) {
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+        server.start();
+        try {
+            final String root = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+
+            final HtmlGrabber crawler = new HtmlGrabber();
+            crawler.settings().linkLimit(-1);
+            crawler.settings().hostConnections(2);
+            crawler.settings().hostDelay(0);
+            crawler.settings().frontierMemory(5); // spill to disk
+            crawler.onFinish(this::finish);
+
+            final long time = System.currentTimeMillis();
+            crawler.start(root + "index.html");
+            crawler.join();
+            System.out.println("ELAPSED ms: " + (System.currentTimeMillis() - time) + ", max active: " + max_active.get());
+
+            assertTrue(crawler.finished());
+            assertEquals(pages + 1, crawler.documents().size());
+            assertEquals(pages + 1, crawler.countUrls());
+            assertTrue(max_active.get() <= 2);
+        } finally {
+            server.stop(0);
+        }
+    }
+
     // ------------------------------------------------------------------------
     //                      p r i v a t e
     // ------------------------------------------------------------------------
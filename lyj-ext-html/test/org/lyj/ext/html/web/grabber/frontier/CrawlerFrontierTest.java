@@ -0,0 +1,127 @@
+package org.lyj.ext.html.web.grabber.frontier;
+
+import org.junit.Test;
+
+import java.net.URL;
+
+import static org.junit.Assert.*;
+
+public class CrawlerFrontierTest {
+
+    @Test
+    public void politeness() throws Exception {
+        final CrawlerFrontier frontier = new CrawlerFrontier()
+                .maxActive(10)
+                .hostConnections(2)
+                .hostDelay(200);
+        for (int i = 0; i < 5; i++) {
+            frontier.add(new URL("http://a.com/" + i + ".html"), 0);
+            frontier.add(new URL("http://b.com/" + i + ".html"), 0);
+        }
+
+        // one url for each host, then hosts must wait
+        final CrawlerFrontier.Entry first = frontier.poll();
+        final CrawlerFrontier.Entry second = frontier.poll();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertFalse(first.url().getHost().equals(second.url().getHost()));
+        assertNull(frontier.poll());
+        assertTrue(frontier.nextDelay() > 0);
+
+        Thread.sleep(250);
+        assertNotNull(frontier.poll());
+        assertNotNull(frontier.poll());
+
+        // two connections for each host are in progress
+        Thread.sleep(250);
+        assertNull(frontier.poll());
+        assertEquals(-1, frontier.nextDelay());
+        assertEquals(4, frontier.active());
+
+        frontier.complete(first);
+        assertNotNull(frontier.poll());
+        assertFalse(frontier.isDone());
+        frontier.close();
+    }
+
+    @Test
+    public void idleHost() throws Exception {
+        final CrawlerFrontier frontier = new CrawlerFrontier().hostDelay(200);
+        frontier.add(new URL("http://a.com/0.html"), 0);
+        final CrawlerFrontier.Entry entry = frontier.poll();
+        assertNotNull(entry);
+        frontier.complete(entry);
+
+        // host is idle, but its delay is still running
+        frontier.add(new URL("http://a.com/1.html"), 0);
+        assertNull(frontier.poll());
+        assertTrue(frontier.nextDelay() > 0);
+
+        Thread.sleep(250);
+        assertNotNull(frontier.poll());
+        frontier.close();
+    }
+
+    @Test
+    public void done() throws Exception {
+        final CrawlerFrontier frontier = new CrawlerFrontier().hostDelay(0);
+        assertTrue(frontier.isDone());
+
+        frontier.hold();
+        frontier.add(new URL("http://a.com/index.html"), 0);
+        frontier.release();
+        assertFalse(frontier.isDone());
+
+        final CrawlerFrontier.Entry entry = frontier.poll();
+        assertFalse(frontier.isDone());
+        frontier.complete(entry);
+        assertTrue(frontier.isDone());
+    }
+
+    @Test
+    public void spill() throws Exception {
+        final CrawlerFrontier frontier = new CrawlerFrontier()
+                .hostDelay(0)
+                .memoryLimit(10);
+        for (int i = 0; i < 1000; i++) {
+            frontier.add(new URL("http://a.com/" + i + ".html"), i);
+        }
+        assertEquals(1000, frontier.size());
+
+        for (int i = 0; i < 1000; i++) {
+            final CrawlerFrontier.Entry entry = frontier.poll();
+            assertNotNull(entry);
+            assertEquals(i, entry.depth());
+            assertEquals("http://a.com/" + i + ".html", entry.url().toString());
+            frontier.complete(entry);
+        }
+        assertNull(frontier.poll());
+        assertTrue(frontier.isDone());
+    }
+
+    @Test
+    public void visited() throws Exception {
+        final CrawlerFrontier exact = new CrawlerFrontier();
+        final CrawlerFrontier bloom = new CrawlerFrontier(10000);
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(exact.visit("http://a.com/" + i + ".html", 0));
+            bloom.visit("http://a.com/" + i + ".html", 0);
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertFalse(exact.visit("http://a.com/" + i + ".html", 0));
+            assertFalse(bloom.visit("http://a.com/" + i + ".html", 0));
+        }
+        assertEquals(10000, exact.countVisited());
+        assertEquals(10000, exact.visited().size());
+        // false positives
+        assertTrue(bloom.countVisited() > 9800);
+        assertTrue(bloom.visited().isEmpty());
+
+        // limit
+        final CrawlerFrontier limited = new CrawlerFrontier();
+        assertTrue(limited.visit("http://a.com/1.html", 2));
+        assertTrue(limited.visit("http://a.com/2.html", 2));
+        assertFalse(limited.visit("http://a.com/3.html", 2));
+    }
+
+}
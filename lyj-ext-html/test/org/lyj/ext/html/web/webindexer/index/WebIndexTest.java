@@ -0,0 +1,115 @@
+package org.lyj.ext.html.web.webindexer.index;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class WebIndexTest {
+
+    @Test
+    public void search() throws Exception {
+        final File root = Files.createTempDirectory("web_index").toFile();
+        try (WebIndex index = new WebIndex(root.getPath())) {
+            index.add(doc("http://shop.com/red.html", "http://shop.com", "scarpe", 100, "rosse", 80));
+            index.add(doc("http://shop.com/blue.html", "http://shop.com", "scarpe", 100, "blu", 80));
+            index.add(doc("http://shop.com/bags.html", "http://shop.com", "borse", 100, "rosse", 20));
+            index.add(doc("http://blog.com/shoes.html", "http://blog.com", "scarpe", 30, "moda", 100));
+
+            // buffered pages are not searchable
+            assertTrue(index.search("scarpe", 10).isEmpty());
+            index.flush();
+            assertEquals(4, index.count());
+
+            final List<WebIndexDocument> red = index.search("Scarpe rosse!", 10);
+            assertEquals(4, red.size());
+            assertEquals("http://shop.com/red.html", red.get(0).url());
+            assertEquals("title of http://shop.com/red.html", red.get(0).title());
+            assertTrue(red.get(0).score() >= red.get(1).score());
+
+            // site filter and limit
+            assertEquals(1, index.search("scarpe", "http://blog.com", 10).size());
+            assertEquals(2, index.search("scarpe", 2).size());
+            assertTrue(index.search("unknown", 10).isEmpty());
+
+            // weights
+            index.scoring(WebIndex.Scoring.WEIGHT);
+            final List<WebIndexDocument> weighted = index.search("scarpe rosse", 10);
+            assertEquals(180, weighted.get(0).score(), 0.01);
+        }
+    }
+
+    @Test
+    public void update() throws Exception {
+        final File root = Files.createTempDirectory("web_index").toFile();
+        try (WebIndex index = new WebIndex(root.getPath())) {
+            index.add(doc("http://shop.com/red.html", "http://shop.com", "scarpe", 100, "rosse", 80));
+            index.add(doc("http://shop.com/blue.html", "http://shop.com", "scarpe", 100, "blu", 80));
+            index.flush();
+
+            // replace and remove
+            index.add(doc("http://shop.com/red.html", "http://shop.com", "stivali", 100, "rossi", 80));
+            index.remove("http://shop.com/blue.html");
+            index.flush();
+            assertEquals(1, index.count());
+            assertTrue(index.search("scarpe", 10).isEmpty());
+            assertEquals(1, index.search("stivali", 10).size());
+        }
+
+        // reopen
+        try (WebIndex index = new WebIndex(root.getPath())) {
+            assertEquals(1, index.count());
+            assertEquals("http://shop.com/red.html", index.search("rossi", 10).get(0).url());
+            assertTrue(index.search("blu", 10).isEmpty());
+        }
+    }
+
+    @Test
+    public void merge() throws Exception {
+        final File root = Files.createTempDirectory("web_index").toFile();
+        try (WebIndex index = new WebIndex(root.getPath()).bufferSize(10).mergeFactor(4)) {
+            for (int i = 0; i < 1000; i++) {
+                index.add(doc("http://shop.com/" + i + ".html", "http://shop.com", "page" + i, 100, "common", i % 100));
+            }
+            index.flush();
+            assertEquals(1000, index.count());
+            assertTrue(index.countSegments() <= 4);
+            assertEquals(1, index.search("page500", 10).size());
+            assertEquals(1000, index.search("common", 1000).size());
+
+            index.merge();
+            assertEquals(1, index.countSegments());
+            assertEquals(1000, index.search("common", 1000).size());
+            final List<WebIndexDocument> best = index.search("common", 1);
+            assertTrue(best.get(0).url().matches("http://shop.com/\\d*99.html"));
+        }
+        try (WebIndex index = new WebIndex(root.getPath())) {
+            assertEquals(1000, index.count());
+            // only files of current segment and manifest
+            assertEquals(2, root.list().length);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private static WebIndexDocument doc(final String url,
+                                        final String site,
+                                        final String key1, final double weight1,
+                                        final String key2, final double weight2) {
+        final Map<String, Double> keywords = new HashMap<>();
+        keywords.put(key1, weight1);
+        keywords.put(key2, weight2);
+        return new WebIndexDocument(url)
+                .site(site)
+                .title("title of " + url)
+                .keywords(keywords);
+    }
+
+}
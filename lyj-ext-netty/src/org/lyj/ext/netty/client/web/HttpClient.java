@@ -7,6 +7,8 @@ import org.lyj.ext.netty.client.web.executor.HttpClientExecutor;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Client for Http requests.
@@ -23,6 +25,7 @@ public class HttpClient {
 
     private Delegates.Callback<Throwable> _fail_callback;
     private Delegates.Callback<HttpClientResponse> _success_callback;
+    private Delegates.Callback<ByteBuffer> _stream_callback;
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
@@ -98,6 +101,32 @@ public class HttpClient {
         return this;
     }
 
+    public int timeout() {
+        return this.info().timeout();
+    }
+
+    /**
+     * @param value Request timeout in milliseconds
+     */
+    public HttpClient timeout(final int value) {
+        this.info().timeout(value);
+        return this;
+    }
+
+    public Delegates.Callback<ByteBuffer> stream() {
+        return _stream_callback;
+    }
+
+    /**
+     * Receive body parts as they arrive.
+     * Parts are not retained and response content is empty.
+     * Callback runs on client event loop and must not block.
+     */
+    public HttpClient stream(final Delegates.Callback<ByteBuffer> stream_callback) {
+        _stream_callback = stream_callback;
+        return this;
+    }
+
     // ------------------------------------------------------------------------
     //                      p u b l i c
     // ------------------------------------------------------------------------
@@ -125,6 +154,20 @@ public class HttpClient {
         return this.executeRequest();
     }
 
+    /**
+     * Send request without blocking caller.
+     * Success and fail callbacks, if any, are invoked on completion.
+     */
+    public CompletableFuture<HttpClientResponse> sendAsync() {
+        return new HttpClientExecutor(this).executeAsync().whenComplete((response, t) -> {
+            if (null != t) {
+                this.doFail(null != t.getCause() ? t.getCause() : t);
+            } else {
+                this.doSuccess(response);
+            }
+        });
+    }
+
     // ------------------------------------------------------------------------
     //                      p r i v a t e
     // ------------------------------------------------------------------------
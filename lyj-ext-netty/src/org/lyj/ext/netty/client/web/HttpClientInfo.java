@@ -25,6 +25,7 @@ public class HttpClientInfo
     private static final String FLD_ENCODING = "encoding";
     private static final String FLD_BODY = "body";
     private static final String FLD_HEADERS = "headers";
+    private static final String FLD_TIMEOUT = "timeout";
 
 
     // ------------------------------------------------------------------------
@@ -72,6 +73,18 @@ public class HttpClientInfo
     }
 
 
+    /**
+     * Request timeout in milliseconds. Zero uses HttpClientManager default.
+     */
+    public int timeout() {
+        return super.getInt(FLD_TIMEOUT);
+    }
+
+    public HttpClientInfo timeout(final int value) {
+        super.put(FLD_TIMEOUT, value);
+        return this;
+    }
+
     public Object body() {
         return super.get(FLD_BODY);
     }
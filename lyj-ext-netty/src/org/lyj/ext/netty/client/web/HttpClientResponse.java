@@ -2,8 +2,12 @@ package org.lyj.ext.netty.client.web;
 
 import org.lyj.commons.logging.AbstractLogEmitter;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Response
@@ -16,7 +20,9 @@ public class HttpClientResponse
     // ------------------------------------------------------------------------
 
     private final HttpClientInfo _info;
+    private final Map<String, String> _headers;
 
+    private int _status_code;
     private ByteArrayOutputStream __data;
 
     // ------------------------------------------------------------------------
@@ -25,12 +31,40 @@ public class HttpClientResponse
 
     public HttpClientResponse(final HttpClientInfo info) {
         _info = info;
+        _headers = new LinkedHashMap<>();
+    }
+
+    @Override
+    public String toString() {
+        return "{status: " + _status_code + ", length: " + (null != __data ? __data.size() : 0) + "}";
     }
 
     // ------------------------------------------------------------------------
     //                      p u b l i c
     // ------------------------------------------------------------------------
 
+    public int statusCode() {
+        return _status_code;
+    }
+
+    public HttpClientResponse statusCode(final int value) {
+        _status_code = value;
+        return this;
+    }
+
+    public Map<String, String> headers() {
+        return _headers;
+    }
+
+    public String header(final String name) {
+        for (final Map.Entry<String, String> entry : _headers.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
     public HttpClientResponse content(final String value) {
         try {
             return this.content(value.getBytes(_info.encoding()));
@@ -55,6 +89,10 @@ public class HttpClientResponse
         return new byte[0];
     }
 
+    public InputStream contentAsStream() {
+        return new ByteArrayInputStream(this.content());
+    }
+
     public String contentAsString() {
         final byte[] content = this.content();
         try {
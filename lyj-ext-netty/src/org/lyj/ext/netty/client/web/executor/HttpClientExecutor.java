@@ -1,18 +1,24 @@
 package org.lyj.ext.netty.client.web.executor;
 
+import io.netty.handler.codec.http.HttpHeaders;
 import org.asynchttpclient.*;
+import org.lyj.commons.Delegates;
 import org.lyj.commons.network.http.IHttpConstants;
 import org.lyj.commons.util.FormatUtils;
 import org.lyj.ext.netty.client.web.HttpClient;
 import org.lyj.ext.netty.client.web.HttpClientInfo;
 import org.lyj.ext.netty.client.web.HttpClientResponse;
 
+import java.nio.ByteBuffer;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Executor implementation.
  * This is the class containig all client implementation dependencies.
+ * Requests run on the shared client of HttpClientManager.
  */
 public class HttpClientExecutor {
 
@@ -36,9 +42,30 @@ public class HttpClientExecutor {
     // ------------------------------------------------------------------------
 
     public HttpClientResponse execute() throws Exception {
-        final HttpClientResponse response = new HttpClientResponse(_client.info());
-        response.content(this.executeRequest());
-        return response;
+        try {
+            return this.executeAsync().get();
+        } catch (ExecutionException e) {
+            throw null != e.getCause() && e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Send request without blocking.
+     * Future is completed on client event loop when the whole response is received.
+     */
+    public CompletableFuture<HttpClientResponse> executeAsync() {
+        final HttpClientManager manager = HttpClientManager.instance();
+        return manager.submit(_client.info().url(), () -> {
+            try {
+                final HttpClientResponse response = new HttpClientResponse(_client.info());
+                final BoundRequestBuilder request = this.prepareRequest(manager.client());
+                return request.execute(new ResponseHandler(response, _client.stream())).toCompletableFuture();
+            } catch (Throwable t) {
+                final CompletableFuture<HttpClientResponse> result = new CompletableFuture<>();
+                result.completeExceptionally(t);
+                return result;
+            }
+        });
     }
 
     // ------------------------------------------------------------------------
@@ -46,25 +73,6 @@ public class HttpClientExecutor {
     // ------------------------------------------------------------------------
 
 
-    private String executeRequest() throws Exception {
-        // creates configuration
-        final DefaultAsyncHttpClientConfig.Builder builder =  new DefaultAsyncHttpClientConfig.Builder();
-        // allow insecure certificates
-        builder.setUseInsecureTrustManager(true);
-
-        final DefaultAsyncHttpClientConfig config =  builder.build();
-        final AsyncHttpClient asyncHttpClient = new DefaultAsyncHttpClient(config);
-        try {
-            final BoundRequestBuilder request = this.prepareRequest(asyncHttpClient);
-            Future<Response> f = request.execute();
-            Response r = f.get();
-
-            return r.getResponseBody();
-        } finally {
-            asyncHttpClient.close();
-        }
-    }
-
     private BoundRequestBuilder prepareRequest(final AsyncHttpClient asyncHttpClient) throws Exception {
         final String method = _client.method();
         final HttpClientInfo info = _client.info();
@@ -93,6 +101,10 @@ public class HttpClientExecutor {
             request.setBody(info.body().toString());
         }
 
+        if (info.timeout() > 0) {
+            request.setRequestTimeout(info.timeout());
+        }
+
         if (info.headers().length() > 0) {
             final Set<String> keys = info.headers().keySet();
             for (final String key : keys) {
@@ -104,5 +116,60 @@ public class HttpClientExecutor {
         return request;
     }
 
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    /**
+     * Collect response parts without converting body to string.
+     * If a stream callback is set, body parts are passed to it and not retained.
+     */
+    private static class ResponseHandler
+            implements AsyncHandler<HttpClientResponse> {
+
+        private final HttpClientResponse _response;
+        private final Delegates.Callback<ByteBuffer> _stream;
+
+        private ResponseHandler(final HttpClientResponse response,
+                                final Delegates.Callback<ByteBuffer> stream) {
+            _response = response;
+            _stream = stream;
+        }
+
+        @Override
+        public State onStatusReceived(final HttpResponseStatus status) throws Exception {
+            _response.statusCode(status.getStatusCode());
+            return State.CONTINUE;
+        }
+
+        @Override
+        public State onHeadersReceived(final HttpHeaders headers) throws Exception {
+            for (final Map.Entry<String, String> header : headers) {
+                _response.headers().put(header.getKey(), header.getValue());
+            }
+            return State.CONTINUE;
+        }
+
+        @Override
+        public State onBodyPartReceived(final HttpResponseBodyPart part) throws Exception {
+            if (null != _stream) {
+                _stream.handle(part.getBodyByteBuffer());
+            } else {
+                _response.content(part.getBodyPartBytes());
+            }
+            return State.CONTINUE;
+        }
+
+        @Override
+        public void onThrowable(final Throwable t) {
+            // future is completed exceptionally by client
+        }
+
+        @Override
+        public HttpClientResponse onCompleted() throws Exception {
+            return _response;
+        }
+
+    }
 
 }
@@ -0,0 +1,377 @@
+package org.lyj.ext.netty.client.web.executor;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.ClientStats;
+import org.asynchttpclient.DefaultAsyncHttpClient;
+import org.asynchttpclient.DefaultAsyncHttpClientConfig;
+import org.asynchttpclient.HostStats;
+import org.json.JSONObject;
+import org.lyj.commons.async.Futures;
+import org.lyj.commons.logging.AbstractLogEmitter;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Shared AsyncHttpClient used by all HttpClient requests.
+ * <p>
+ * One event loop and one connection pool for the whole process: connections are kept
+ * alive and reused per host, so requests do not pay thread creation, TCP connect and
+ * TLS handshake every time.
+ * Requests exceeding max connections per host wait in a queue instead of failing.
+ * <p>
+ * Settings are applied when the client is created: change them at startup or call
+ * reset() to recreate the client (pending requests of old client are aborted).
+ */
+public class HttpClientManager
+        extends AbstractLogEmitter {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final String THREAD_NAME = "lyj-http-client";
+
+    private static final int MAX_CONNECTIONS = 200;
+    private static final int MAX_CONNECTIONS_PER_HOST = 20;
+    private static final int CONNECT_TIMEOUT = 5 * 1000;
+    private static final int READ_TIMEOUT = 60 * 1000;
+    private static final int REQUEST_TIMEOUT = 60 * 1000;
+    private static final int IDLE_TIMEOUT = 60 * 1000; // pooled connection is closed after this idle time
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private int _max_connections;
+    private int _max_connections_per_host;
+    private int _connect_timeout;
+    private int _read_timeout;
+    private int _request_timeout;
+    private int _idle_timeout;
+    private boolean _keep_alive;
+    private boolean _insecure;
+
+    private final Map<String, HostQueue> _hosts;
+
+    private volatile AsyncHttpClient __client;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    private HttpClientManager() {
+        _max_connections = MAX_CONNECTIONS;
+        _max_connections_per_host = MAX_CONNECTIONS_PER_HOST;
+        _connect_timeout = CONNECT_TIMEOUT;
+        _read_timeout = READ_TIMEOUT;
+        _request_timeout = REQUEST_TIMEOUT;
+        _idle_timeout = IDLE_TIMEOUT;
+        _keep_alive = true;
+        _insecure = true; // allow insecure certificates
+        _hosts = new ConcurrentHashMap<>();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, THREAD_NAME + "-shutdown"));
+    }
+
+    @Override
+    public String toString() {
+        return this.toJson().toString();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r o p e r t i e s
+    // ------------------------------------------------------------------------
+
+    public int maxConnections() {
+        return _max_connections;
+    }
+
+    /**
+     * @param value Max open connections, -1 for no limit
+     */
+    public HttpClientManager maxConnections(final int value) {
+        _max_connections = value;
+        return this;
+    }
+
+    public int maxConnectionsPerHost() {
+        return _max_connections_per_host;
+    }
+
+    /**
+     * @param value Max concurrent requests (and so connections) to same host, -1 for no limit.
+     *              Further requests are queued.
+     */
+    public HttpClientManager maxConnectionsPerHost(final int value) {
+        _max_connections_per_host = value;
+        return this;
+    }
+
+    public int connectTimeout() {
+        return _connect_timeout;
+    }
+
+    public HttpClientManager connectTimeout(final int value) {
+        _connect_timeout = value;
+        return this;
+    }
+
+    public int readTimeout() {
+        return _read_timeout;
+    }
+
+    public HttpClientManager readTimeout(final int value) {
+        _read_timeout = value;
+        return this;
+    }
+
+    public int requestTimeout() {
+        return _request_timeout;
+    }
+
+    /**
+     * Default timeout of a whole request. Can be overridden per request with HttpClient.timeout()
+     */
+    public HttpClientManager requestTimeout(final int value) {
+        _request_timeout = value;
+        return this;
+    }
+
+    public int idleTimeout() {
+        return _idle_timeout;
+    }
+
+    public HttpClientManager idleTimeout(final int value) {
+        _idle_timeout = value;
+        return this;
+    }
+
+    public boolean keepAlive() {
+        return _keep_alive;
+    }
+
+    public HttpClientManager keepAlive(final boolean value) {
+        _keep_alive = value;
+        return this;
+    }
+
+    public boolean insecure() {
+        return _insecure;
+    }
+
+    public HttpClientManager insecure(final boolean value) {
+        _insecure = value;
+        return this;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public AsyncHttpClient client() {
+        AsyncHttpClient client = __client;
+        if (null == client || client.isClosed()) {
+            synchronized (this) {
+                client = __client;
+                if (null == client || client.isClosed()) {
+                    client = this.create();
+                    __client = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Run a request when a slot for its host is free.
+     *
+     * @param url     Request url, used to group requests by host
+     * @param request Start request on shared client
+     */
+    public <T> CompletableFuture<T> submit(final String url,
+                                           final Supplier<CompletableFuture<T>> request) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final HostQueue queue = _hosts.computeIfAbsent(host(url), (key) -> new HostQueue());
+        final Runnable task = () -> {
+            CompletableFuture<T> future;
+            try {
+                future = request.get();
+            } catch (Throwable t) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(t);
+            }
+            future.whenComplete((value, t) -> {
+                if (null != t) {
+                    result.completeExceptionally(t);
+                } else {
+                    result.complete(value);
+                }
+                queue.release();
+            });
+        };
+        if (queue.acquire(task)) {
+            task.run();
+        }
+        return result;
+    }
+
+    /**
+     * Close current client. Next request creates a new one with current settings.
+     */
+    public void reset() {
+        this.close();
+    }
+
+    public void close() {
+        final AsyncHttpClient client;
+        synchronized (this) {
+            client = __client;
+            __client = null;
+        }
+        if (null != client) {
+            try {
+                client.close();
+            } catch (Throwable t) {
+                super.error("close", t);
+            }
+        }
+    }
+
+    /**
+     * Open connections, total and per host.
+     */
+    public JSONObject toJson() {
+        final JSONObject result = new JSONObject();
+        result.put("max_connections", _max_connections);
+        result.put("max_connections_per_host", _max_connections_per_host);
+        final AsyncHttpClient client = __client;
+        if (null != client && !client.isClosed()) {
+            final ClientStats stats = client.getClientStats();
+            result.put("total", stats.getTotalConnectionCount());
+            result.put("active", stats.getTotalActiveConnectionCount());
+            result.put("idle", stats.getTotalIdleConnectionCount());
+            final JSONObject hosts = new JSONObject();
+            for (final Map.Entry<String, HostStats> entry : stats.getStatsPerHost().entrySet()) {
+                final JSONObject host = new JSONObject();
+                host.put("active", entry.getValue().getHostActiveConnectionCount());
+                host.put("idle", entry.getValue().getHostIdleConnectionCount());
+                hosts.put(entry.getKey(), host);
+            }
+            result.put("hosts", hosts);
+        }
+        int pending = 0;
+        for (final HostQueue queue : _hosts.values()) {
+            pending += queue.pending();
+        }
+        result.put("pending", pending);
+        return result;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private AsyncHttpClient create() {
+        final DefaultAsyncHttpClientConfig.Builder builder = new DefaultAsyncHttpClientConfig.Builder();
+        builder.setUseInsecureTrustManager(_insecure);
+        builder.setKeepAlive(_keep_alive);
+        builder.setMaxConnections(_max_connections);
+        builder.setMaxConnectionsPerHost(-1); // limited by host queues
+        builder.setConnectTimeout(_connect_timeout);
+        builder.setReadTimeout(_read_timeout);
+        builder.setRequestTimeout(_request_timeout);
+        builder.setPooledConnectionIdleTimeout(_idle_timeout);
+        builder.setThreadPoolName(THREAD_NAME);
+        // daemon: shared client must not keep application alive
+        builder.setThreadFactory(new DefaultThreadFactory(THREAD_NAME, true));
+
+        return new DefaultAsyncHttpClient(builder.build());
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    private static String host(final String url) {
+        try {
+            final URI uri = new URI(url);
+            return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+        } catch (Throwable ignored) {
+            return "";
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    /**
+     * Requests running on a host and requests waiting for a free slot.
+     */
+    private final class HostQueue {
+
+        private final Queue<Runnable> _pending = new ArrayDeque<>();
+        private int _active;
+
+        private synchronized int pending() {
+            return _pending.size();
+        }
+
+        /**
+         * @return True if task can run now, false if it was queued
+         */
+        private synchronized boolean acquire(final Runnable task) {
+            if (_max_connections_per_host <= 0 || _active < _max_connections_per_host) {
+                _active++;
+                return true;
+            }
+            _pending.add(task);
+            return false;
+        }
+
+        /**
+         * Pass the slot to next queued task, if any.
+         * Next task starts on shared executor, not on completing thread: requests failing
+         * synchronously would otherwise chain into a recursion as deep as the queue.
+         */
+        private void release() {
+            final Runnable next;
+            synchronized (this) {
+                next = _pending.poll();
+                if (null == next) {
+                    _active--;
+                }
+            }
+            if (null != next) {
+                try {
+                    Futures.executor().execute(next);
+                } catch (RejectedExecutionException ignored) {
+                    next.run();
+                }
+            }
+        }
+
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S I N G L E T O N
+    // ------------------------------------------------------------------------
+
+    private static HttpClientManager __instance;
+
+    public static synchronized HttpClientManager instance() {
+        if (null == __instance) {
+            __instance = new HttpClientManager();
+        }
+        return __instance;
+    }
+
+}
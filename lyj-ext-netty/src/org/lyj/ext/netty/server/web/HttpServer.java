@@ -16,6 +16,7 @@ import io.netty.handler.ssl.util.SelfSignedCertificate;
 import org.lyj.commons.logging.AbstractLogEmitter;
 import org.lyj.commons.util.*;
 import org.lyj.ext.netty.server.web.base.web.WebServerInitializer;
+import org.lyj.ext.netty.server.web.cache.AssetCache;
 import org.lyj.ext.netty.server.web.controllers.HttpServerRequestDelegates;
 import org.lyj.ext.netty.server.web.handlers.AbstractRequestHandler;
 
@@ -272,6 +273,7 @@ public class HttpServer extends AbstractLogEmitter {
         } finally {
             _bossGroup.shutdownGracefully();
             _workerGroup.shutdownGracefully();
+            AssetCache.release(_config.root());
         }
     }
 
@@ -283,6 +285,7 @@ public class HttpServer extends AbstractLogEmitter {
         } finally {
             _bossGroup.shutdownGracefully();
             _workerGroup.shutdownGracefully();
+            AssetCache.release(_config.root());
         }
     }
 
@@ -44,6 +44,9 @@ public class HttpServerConfig {
     private String _root;
     private boolean _use_compression;
     private int _cache_seconds;
+    private long _asset_cache_size; // bytes of static files kept in memory, 0 to disable
+    private long _asset_cache_max_file_size;
+    private boolean _asset_cache_deflate;
     // ssl
     private boolean _use_ssl;
     private String _ssl_path;
@@ -78,6 +81,9 @@ public class HttpServerConfig {
         _port_autodect = false;
         _port_detection_try = 100; // try 100 times to get a free port
         _cache_seconds = 60;
+        _asset_cache_size = 32 * 1024 * 1024;
+        _asset_cache_max_file_size = 1024 * 1024;
+        _asset_cache_deflate = false;
         _host = "localhost";
         _not_found_404 = "";
 
@@ -110,6 +116,7 @@ public class HttpServerConfig {
         result.put("ssl_cert_file", _ssl_pem_file);
         result.put("ssl_p12_file", _ssl_p12_file);
         result.put("compression", _use_compression);
+        result.put("asset_cache_size", _asset_cache_size);
         result.put("uri", this.uri());
 
         return result.getJSONObject().toString();
@@ -314,6 +321,44 @@ public class HttpServerConfig {
         return _cache_seconds;
     }
 
+    /**
+     * Max bytes of static files kept in memory by ResourceHandler (compressed variants included).
+     *
+     * @param value 0 to disable asset cache
+     */
+    public HttpServerConfig assetCacheSize(final long value) {
+        _asset_cache_size = value;
+        return this;
+    }
+
+    public long assetCacheSize() {
+        return _asset_cache_size;
+    }
+
+    /**
+     * Files larger than this are always streamed from disk.
+     */
+    public HttpServerConfig assetCacheMaxFileSize(final long value) {
+        _asset_cache_max_file_size = value;
+        return this;
+    }
+
+    public long assetCacheMaxFileSize() {
+        return _asset_cache_max_file_size;
+    }
+
+    /**
+     * Precompute also "deflate" variant of cached assets, for clients not accepting "gzip".
+     */
+    public HttpServerConfig assetCacheDeflate(final boolean value) {
+        _asset_cache_deflate = value;
+        return this;
+    }
+
+    public boolean assetCacheDeflate() {
+        return _asset_cache_deflate;
+    }
+
     /**
      * Set "Access-Control-Allow-Origin" header for all response
      *
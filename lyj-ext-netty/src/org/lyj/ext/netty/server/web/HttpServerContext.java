@@ -304,6 +304,9 @@ public class HttpServerContext
         _response.flush();
     }
 
+    /**
+     * Send a file streaming it from disk. Supports "Range" requests.
+     */
     public void writeFile(final File file) {
         _response.writeFile(file);
         _response.flush();
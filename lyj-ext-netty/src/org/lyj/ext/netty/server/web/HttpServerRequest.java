@@ -224,6 +224,13 @@ public class HttpServerRequest {
         return _cache.isModifiedSince(_context.nativeHttpRequest(), file);
     }
 
+    /**
+     * Check "If-None-Match" and "If-Modified-Since" headers.
+     */
+    public boolean isModified(final String etag, final long last_modified) {
+        return _cache.isModified(_context.nativeHttpRequest(), etag, last_modified);
+    }
+
     // ------------------------------------------------------------------------
     //                      p r i v a t e
     // ------------------------------------------------------------------------
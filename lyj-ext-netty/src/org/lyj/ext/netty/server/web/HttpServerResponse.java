@@ -1,21 +1,34 @@
 package org.lyj.ext.netty.server.web;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.DefaultFileRegion;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpChunkedInput;
 import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedNioFile;
 import org.lyj.commons.logging.AbstractLogEmitter;
 import org.lyj.commons.network.http.client.HttpBuffer;
 import org.lyj.commons.util.FileUtils;
 import org.lyj.commons.util.MimeTypeUtils;
 import org.lyj.commons.util.StringUtils;
+import org.lyj.ext.netty.server.web.cache.Asset;
 import org.lyj.ext.netty.server.web.controllers.CacheController;
 import org.lyj.ext.netty.server.web.controllers.HttpServerRequestContext;
 import org.lyj.ext.netty.server.web.utils.CookieUtil;
+import org.lyj.ext.netty.server.web.utils.RangeUtil;
 
 import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.HashMap;
@@ -23,6 +36,8 @@ import java.util.Map;
 
 import static io.netty.handler.codec.http.HttpResponseStatus.FOUND;
 import static io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED;
+import static io.netty.handler.codec.http.HttpResponseStatus.PARTIAL_CONTENT;
+import static io.netty.handler.codec.http.HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
 /**
@@ -32,6 +47,12 @@ public class HttpServerResponse
         extends AbstractLogEmitter
         implements IHeaderNames {
 
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final int CHUNK_SIZE = 8192;
+
     // ------------------------------------------------------------------------
     //                      f i e l d s
     // ------------------------------------------------------------------------
@@ -43,6 +64,8 @@ public class HttpServerResponse
     private final Map<String, String> _headers;
 
     private boolean _handled; // when true chain handlers is interrupted
+    private File _file; // file to stream on flush, if buffer is not used
+    private Asset _asset; // cached file to send on flush, if buffer is not used
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
@@ -68,9 +91,24 @@ public class HttpServerResponse
     }
 
     public HttpBuffer buffer() {
+        this.loadFile();
         return _buffer;
     }
 
+    /**
+     * File to send. Null if response has no file or file was loaded in buffer.
+     */
+    public File file() {
+        return _file;
+    }
+
+    /**
+     * Cached asset to send. Null if response has no asset or asset was loaded in buffer.
+     */
+    public Asset asset() {
+        return _asset;
+    }
+
     public Map<String, String> headers() {
         return _headers;
     }
@@ -103,12 +141,12 @@ public class HttpServerResponse
     }
 
     public HttpServerResponse write(final String text) {
-        _buffer.write(text);
+        this.buffer().write(text);
         return this;
     }
 
     public HttpServerResponse write(final byte[] data) {
-        _buffer.write(data);
+        this.buffer().write(data);
         return this;
     }
 
@@ -166,27 +204,43 @@ public class HttpServerResponse
     //                      f i l e s
     // ------------------------------------------------------------------------
 
+    /**
+     * Send a file.
+     * File is not read here: on flush it is streamed from disk (zero-copy on plain
+     * connections), supporting "Range" requests.
+     * Content is loaded in memory only if someone reads or writes the response buffer.
+     */
     public void writeFile(final File file) {
         if (file.exists()) {
             this.setContentTypeHeader(file);
             this.setContentLength(file);
-
-            try {
-                if (this.getContentTypeHeader().startsWith("text")) {
-                    final String text = FileUtils.readFileToString(file, this.config().encoding());
-                    _buffer.write(text);
-                } else {
-                    final byte[] bytes = Files.readAllBytes(Paths.get(file.getPath()));
-                    _buffer.write(bytes);
-                }
-            } catch (Throwable t) {
-                this.writeErrorINTERNAL_SERVER_ERROR(t);
-            }
+            _buffer.clear();
+            _file = file;
+            _asset = null;
         } else {
             this.writeErrorNOT_FOUND();
         }
     }
 
+    /**
+     * Send a cached file.
+     * Content is written from memory choosing the compressed variant accepted by client.
+     * Assets without content (too large for cache) are streamed from disk like in writeFile.
+     */
+    public void writeAsset(final Asset asset) {
+        _headers.put(CONTENT_TYPE, asset.mimeType());
+        _headers.put(CONTENT_LENGTH, asset.length() + "");
+        _headers.put(ETAG, asset.etag());
+        _buffer.clear();
+        if (asset.hasContent()) {
+            _asset = asset;
+            _file = null;
+        } else {
+            _asset = null;
+            _file = asset.file();
+        }
+    }
+
     // ------------------------------------------------------------------------
     //                      e r r o r s
     // ------------------------------------------------------------------------
@@ -260,6 +314,8 @@ public class HttpServerResponse
     }
 
     private void writeError(final HttpResponseStatus status, final String content) {
+        _file = null;
+        _asset = null;
         final FullHttpResponse response = new DefaultFullHttpResponse(
                 HTTP_1_1, status, Unpooled.copiedBuffer("Failure: " + status + "\r\n", _context.charset()));
 
@@ -283,6 +339,8 @@ public class HttpServerResponse
     private void writeStatus(final HttpResponseStatus status,
                              final String content) {
         // reset buffer
+        _file = null;
+        _asset = null;
         _buffer.clear();
         this.removeContentLength();
 
@@ -298,6 +356,14 @@ public class HttpServerResponse
 
 
     private void writeAndFlushBuffer(final HttpResponseStatus status) {
+        if (null != _asset) {
+            this.writeAndFlushAsset(status);
+            return;
+        }
+        if (null != _file) {
+            this.writeAndFlushFile(status);
+            return;
+        }
 
         final boolean keep_alive = _context.keepAlive();
 
@@ -337,5 +403,188 @@ public class HttpServerResponse
         }
     }
 
+    /**
+     * Load pending file in buffer, for handlers that change response content.
+     */
+    private void loadFile() {
+        if (null != _asset) {
+            final Asset asset = _asset;
+            _asset = null;
+            final byte[] bytes = asset.bytes();
+            if (null == bytes) {
+                // evicted meanwhile
+                _file = asset.file();
+            } else if (this.getContentTypeHeader().startsWith("text")) {
+                _buffer.write(new String(bytes, _context.charset()));
+            } else {
+                _buffer.write(bytes);
+            }
+        }
+        if (null != _file) {
+            final File file = _file;
+            _file = null;
+            try {
+                if (this.getContentTypeHeader().startsWith("text")) {
+                    final String text = FileUtils.readFileToString(file, this.config().encoding());
+                    _buffer.write(text);
+                } else {
+                    final byte[] bytes = Files.readAllBytes(Paths.get(file.getPath()));
+                    _buffer.write(bytes);
+                }
+            } catch (Throwable t) {
+                this.writeErrorINTERNAL_SERVER_ERROR(t);
+            }
+        }
+    }
+
+    private void writeAndFlushFile(final HttpResponseStatus status) {
+        final File file = _file;
+        _file = null;
+
+        final RandomAccessFile raf;
+        try {
+            raf = new RandomAccessFile(file, "r");
+        } catch (Throwable t) {
+            this.writeErrorNOT_FOUND();
+            return;
+        }
+
+        try {
+            final boolean keep_alive = _context.keepAlive();
+            final long length = raf.length();
+            final long[] range = RangeUtil.parse(_context.headerValue(RANGE), length);
+            if (range == RangeUtil.UNSATISFIABLE) {
+                raf.close();
+                this.writeRangeNotSatisfiable(length);
+                return;
+            }
+            final long offset = null != range ? range[0] : 0;
+            final long count = null != range ? range[1] - range[0] + 1 : length;
+
+            final HttpResponse response = new DefaultHttpResponse(HTTP_1_1,
+                    null != range ? PARTIAL_CONTENT : null != status ? status : _context.status());
+            for (final Map.Entry<String, String> e : _headers.entrySet()) {
+                response.headers().set(e.getKey(), e.getValue());
+            }
+            response.headers().set(ACCEPT_RANGES, HttpHeaderValues.BYTES);
+            response.headers().set(CONTENT_LENGTH, count);
+            if (null != range) {
+                response.headers().set(CONTENT_RANGE, RangeUtil.contentRange(range[0], range[1], length));
+            }
+
+            // compress only whole text files, other bytes are sent as they are
+            final boolean compress = _config.useCompression() && null == range
+                    && this.getContentTypeHeader().startsWith("text");
+            if (!compress) {
+                response.headers().set(CONTENT_ENCODING, HttpHeaderValues.IDENTITY);
+            }
+            if (keep_alive) {
+                response.headers().set(CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            }
+            CookieUtil.encodeCookies(_context.nativeHttpRequest(), response);
+
+            _context.write(response);
+
+            final ChannelFuture last;
+            if ("HEAD".equalsIgnoreCase(_context.method())) {
+                raf.close();
+                last = _context.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+            } else if (compress || null != _context.nativeChannel().pipeline().get(SslHandler.class)) {
+                // chunks go through compressor and SSL
+                final FileChannel channel = raf.getChannel();
+                last = _context.writeAndFlush(new HttpChunkedInput(new ChunkedNioFile(channel, offset, count, CHUNK_SIZE)));
+            } else {
+                // zero-copy: sendfile from disk to socket
+                _context.write(new DefaultFileRegion(raf.getChannel(), offset, count));
+                last = _context.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+            }
+
+            if (!keep_alive) {
+                last.addListener(ChannelFutureListener.CLOSE);
+            }
+        } catch (Throwable t) {
+            try {
+                raf.close();
+            } catch (Throwable ignored) {
+            }
+            super.error("writeAndFlushFile", t);
+            _context.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private void writeAndFlushAsset(final HttpResponseStatus status) {
+        final Asset asset = _asset;
+        _asset = null;
+
+        final long length = asset.length();
+        final long[] range = RangeUtil.parse(_context.headerValue(RANGE), length);
+        if (range == RangeUtil.UNSATISFIABLE) {
+            this.writeRangeNotSatisfiable(length);
+            return;
+        }
+
+        // ranges are served from uncompressed content
+        final String encoding = null != range ? Asset.IDENTITY : asset.encoding(_context.headerValue(ACCEPT_ENCODING));
+        ByteBuf content = asset.retainedContent(encoding);
+        if (null == content) {
+            // evicted meanwhile
+            _file = asset.file();
+            this.writeAndFlushFile(status);
+            return;
+        }
+
+        try {
+            if (null != range) {
+                final ByteBuf slice = content.retainedSlice(content.readerIndex() + (int) range[0], (int) (range[1] - range[0] + 1));
+                content.release();
+                content = slice;
+            }
+            final int count = content.readableBytes();
+            if ("HEAD".equalsIgnoreCase(_context.method())) {
+                content.release();
+                content = Unpooled.EMPTY_BUFFER;
+            }
+
+            final boolean keep_alive = _context.keepAlive();
+            final FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1,
+                    null != range ? PARTIAL_CONTENT : null != status ? status : _context.status(), content);
+            for (final Map.Entry<String, String> e : _headers.entrySet()) {
+                response.headers().set(e.getKey(), e.getValue());
+            }
+            _cache.setDateAndCacheHeaders(response, asset.lastModified());
+            response.headers().set(ACCEPT_RANGES, HttpHeaderValues.BYTES);
+            response.headers().set(CONTENT_LENGTH, count);
+            if (null != range) {
+                response.headers().set(CONTENT_RANGE, RangeUtil.contentRange(range[0], range[1], length));
+            }
+            // already encoded: compressor in pipeline does not touch content with an encoding
+            response.headers().set(CONTENT_ENCODING, encoding);
+            if (asset.hasEncoding(Asset.GZIP) || asset.hasEncoding(Asset.DEFLATE)) {
+                response.headers().set(VARY, ACCEPT_ENCODING);
+            }
+            if (keep_alive) {
+                response.headers().set(CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            }
+            CookieUtil.encodeCookies(_context.nativeHttpRequest(), response);
+
+            final ChannelFuture future = _context.writeAndFlush(response);
+            if (!keep_alive) {
+                future.addListener(ChannelFutureListener.CLOSE);
+            }
+        } catch (Throwable t) {
+            if (content.refCnt() > 0) {
+                content.release();
+            }
+            super.error("writeAndFlushAsset", t);
+            _context.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private void writeRangeNotSatisfiable(final long length) {
+        final FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, REQUESTED_RANGE_NOT_SATISFIABLE);
+        response.headers().set(CONTENT_RANGE, RangeUtil.contentRangeUnsatisfiable(length));
+        response.headers().set(CONTENT_LENGTH, 0);
+        _context.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
 
 }
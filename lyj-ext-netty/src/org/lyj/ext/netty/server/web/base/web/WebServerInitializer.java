@@ -22,6 +22,7 @@ import io.netty.handler.codec.http.HttpContentCompressor;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpRequestDecoder;
 import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.stream.ChunkedWriteHandler;
 import org.lyj.ext.netty.server.web.HttpServer;
 
 public class WebServerInitializer
@@ -46,6 +47,7 @@ public class WebServerInitializer
         p.addLast(new HttpRequestDecoder());
 
         // CHUNKS: Uncomment the following line if you don't want to handle HttpChunks.
+        // (aggregates requests only: file responses are streamed)
         p.addLast(new HttpObjectAggregator(_server.config().maxChunkSize()));
 
         // ENCODER
@@ -56,6 +58,9 @@ public class WebServerInitializer
             p.addLast(new HttpContentCompressor());
         }
 
+        // STREAMS: chunked file responses (SSL or compressed)
+        p.addLast(new ChunkedWriteHandler());
+
         // FINAL HANDLER
         p.addLast(new WebServerHandler(_server));
     }
@@ -0,0 +1,228 @@
+package org.lyj.ext.netty.server.web.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.IllegalReferenceCountException;
+import org.lyj.commons.util.MimeTypeUtils;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cached static file.
+ * Content and its compressed variants live in direct buffers owned by the cache.
+ * Files larger than cache limit have no content: only lookup and headers are cached
+ * and body is streamed from disk.
+ */
+public class Asset {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    public static final String IDENTITY = "identity";
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    private static final int OVERHEAD = 256; // approximate weight of an entry without content
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final String _key;
+    private final File _file;
+    private final String _path;
+    private final String _mime_type;
+    private final long _length;
+    private final long _last_modified;
+    private final String _etag;
+    private final ByteBuf _content;
+    private final ByteBuf _gzip;
+    private final ByteBuf _deflate;
+    private final AtomicBoolean _released;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    Asset(final String key,
+          final File file,
+          final String path,
+          final long length,
+          final long last_modified,
+          final ByteBuf content,
+          final ByteBuf gzip,
+          final ByteBuf deflate) {
+        _key = key;
+        _file = file;
+        _path = path;
+        _mime_type = MimeTypeUtils.getMimeType(file.getPath());
+        _length = length;
+        _last_modified = last_modified;
+        _etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(last_modified) + "\"";
+        _content = content;
+        _gzip = gzip;
+        _deflate = deflate;
+        _released = new AtomicBoolean(false);
+    }
+
+    @Override
+    public String toString() {
+        return "{path: " + _path +
+                ", length: " + _length +
+                ", cached: " + this.hasContent() +
+                ", gzip: " + (null != _gzip ? _gzip.readableBytes() : 0) +
+                ", deflate: " + (null != _deflate ? _deflate.readableBytes() : 0) + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    /**
+     * Requested path. May be a directory resolved to its index file.
+     */
+    public String key() {
+        return _key;
+    }
+
+    public File file() {
+        return _file;
+    }
+
+    public String path() {
+        return _path;
+    }
+
+    public String mimeType() {
+        return _mime_type;
+    }
+
+    public long length() {
+        return _length;
+    }
+
+    public long lastModified() {
+        return _last_modified;
+    }
+
+    public String etag() {
+        return _etag;
+    }
+
+    public boolean hasContent() {
+        return null != _content;
+    }
+
+    public boolean hasEncoding(final String encoding) {
+        return null != this.buffer(encoding);
+    }
+
+    /**
+     * Best encoding accepted by client.
+     *
+     * @param accept_encoding "Accept-Encoding" header value
+     */
+    public String encoding(final String accept_encoding) {
+        if (null != accept_encoding && !accept_encoding.isEmpty()) {
+            final String value = accept_encoding.toLowerCase();
+            if (null != _gzip && accepts(value, GZIP)) {
+                return GZIP;
+            }
+            if (null != _deflate && accepts(value, DEFLATE)) {
+                return DEFLATE;
+            }
+        }
+        return IDENTITY;
+    }
+
+    /**
+     * Content in required encoding.
+     * Returned buffer must be released by caller (writing it to a channel does).
+     *
+     * @return Null if there's no content or asset was evicted meanwhile.
+     */
+    public ByteBuf retainedContent(final String encoding) {
+        final ByteBuf buffer = this.buffer(encoding);
+        if (null != buffer) {
+            try {
+                return buffer.retainedDuplicate();
+            } catch (IllegalReferenceCountException ignored) {
+                // released by cache
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Uncompressed content as byte array.
+     */
+    public byte[] bytes() {
+        final ByteBuf buffer = this.retainedContent(IDENTITY);
+        if (null != buffer) {
+            try {
+                final byte[] result = new byte[buffer.readableBytes()];
+                buffer.getBytes(buffer.readerIndex(), result);
+                return result;
+            } finally {
+                buffer.release();
+            }
+        }
+        return null;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p a c k a g e
+    // ------------------------------------------------------------------------
+
+    long weight() {
+        return OVERHEAD + size(_content) + size(_gzip) + size(_deflate);
+    }
+
+    void release() {
+        if (_released.compareAndSet(false, true)) {
+            release(_content);
+            release(_gzip);
+            release(_deflate);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private ByteBuf buffer(final String encoding) {
+        if (GZIP.equals(encoding)) {
+            return _gzip;
+        } else if (DEFLATE.equals(encoding)) {
+            return _deflate;
+        }
+        return _content;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    private static boolean accepts(final String accept_encoding, final String encoding) {
+        final int index = accept_encoding.indexOf(encoding);
+        if (index > -1) {
+            // refused with "q=0"
+            final int end = accept_encoding.indexOf(',', index);
+            final String params = accept_encoding.substring(index + encoding.length(), end > -1 ? end : accept_encoding.length());
+            return !params.replace(" ", "").matches(";q=0(\\.0*)?");
+        }
+        return false;
+    }
+
+    private static long size(final ByteBuf buffer) {
+        return null != buffer ? buffer.capacity() : 0;
+    }
+
+    private static void release(final ByteBuf buffer) {
+        if (null != buffer) {
+            buffer.release();
+        }
+    }
+
+}
@@ -0,0 +1,360 @@
+package org.lyj.ext.netty.server.web.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.lyj.commons.io.FileObserver;
+import org.lyj.commons.io.IFileObserverListener;
+import org.lyj.commons.logging.AbstractLogEmitter;
+import org.lyj.commons.util.MimeTypeUtils;
+import org.lyj.commons.util.PathUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bounded in-memory cache of static files, keyed by requested path.
+ * <p>
+ * Content is kept in pooled direct buffers with precomputed gzip (and optionally
+ * deflate) variants, so hot assets are served without touching the filesystem
+ * and without compressing on every request.
+ * Least recently used assets are evicted when cache exceeds its size.
+ * <p>
+ * Entries are invalidated by a FileObserver watching the root. If observer cannot
+ * be started, each hit is checked against file timestamp and length.
+ * <p>
+ * A single instance exists for each root, shared by all handlers serving it. Use AssetCache.open()
+ * and AssetCache.release() when the server stops.
+ */
+public class AssetCache
+        extends AbstractLogEmitter
+        implements IFileObserverListener {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final double MIN_COMPRESSION_RATIO = 0.9; // keep compressed variant only if smaller than 90%
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final String _root;
+    private final long _max_size;
+    private final long _max_file_size;
+    private final boolean _compress;
+    private final boolean _deflate;
+    private final LinkedHashMap<String, Asset> _assets; // access ordered
+    private final AssetCacheStats _stats;
+
+    private FileObserver _observer;
+    private volatile boolean _watching;
+    private long _size;
+    private long _generation; // incremented on each invalidation
+    private boolean _closed;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    /**
+     * @param root          Directory to watch for changes
+     * @param max_size      Max bytes of cached content (compressed variants included)
+     * @param max_file_size Files larger than this are streamed from disk, only their lookup is cached
+     * @param compress      Precompute gzip variant of compressible files
+     * @param deflate       Precompute also deflate variant
+     */
+    private AssetCache(final String root,
+                       final long max_size,
+                       final long max_file_size,
+                       final boolean compress,
+                       final boolean deflate) {
+        _root = normalize(root);
+        _max_size = max_size;
+        _max_file_size = Math.min(max_file_size, max_size);
+        _compress = compress;
+        _deflate = compress && deflate;
+        _assets = new LinkedHashMap<>(64, 0.75f, true);
+        _stats = new AssetCacheStats();
+
+        this.watch();
+    }
+
+    @Override
+    public String toString() {
+        return "{root: " + _root +
+                ", watching: " + _watching +
+                ", count: " + this.count() +
+                ", size: " + this.size() +
+                ", stats: " + _stats + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public AssetCacheStats stats() {
+        return _stats;
+    }
+
+    public boolean watching() {
+        return _watching;
+    }
+
+    public synchronized int count() {
+        return _assets.size();
+    }
+
+    /**
+     * Bytes of cached content.
+     */
+    public synchronized long size() {
+        return _size;
+    }
+
+    /**
+     * Return cached asset or load it.
+     *
+     * @param path     Requested path
+     * @param resolver Resolve requested path to an existing file (ex: a directory to its index file)
+     * @return Null if resolver does not find a file.
+     */
+    public Asset get(final String path,
+                     final Function<String, File> resolver) {
+        final String key = normalize(path);
+        final long generation;
+        synchronized (this) {
+            final Asset asset = _assets.get(key);
+            if (null != asset) {
+                if (_watching || isValid(asset)) {
+                    _stats.hit();
+                    return asset;
+                }
+                this.remove(key);
+                _stats.invalidation();
+            }
+            generation = _generation;
+        }
+
+        _stats.miss();
+        final File file = resolver.apply(path);
+        if (null == file) {
+            return null;
+        }
+        final Asset asset = this.load(key, file);
+        if (null != asset) {
+            synchronized (this) {
+                if (!_closed && generation == _generation && !_assets.containsKey(key)) {
+                    _assets.put(key, asset);
+                    _size += asset.weight();
+                    this.evict();
+                } else {
+                    // changed while loading or cache closed: serve it once, but do not cache
+                    asset.release();
+                    return new Asset(key, file, asset.path(), asset.length(), asset.lastModified(), null, null, null);
+                }
+            }
+        }
+        return asset;
+    }
+
+    /**
+     * Remove a path and all assets depending on it.
+     */
+    public void invalidate(final String path) {
+        final String target = normalize(path);
+        final String parent = PathUtils.getParent(target);
+        final String prefix = target + "/";
+        synchronized (this) {
+            _generation++;
+            final List<String> keys = new ArrayList<>();
+            for (final Map.Entry<String, Asset> entry : _assets.entrySet()) {
+                final String key = entry.getKey();
+                final Asset asset = entry.getValue();
+                if (key.equals(target) || key.startsWith(prefix)
+                        || asset.path().equals(target) || asset.path().startsWith(prefix)
+                        || key.equals(parent)) { // a new index file may replace resolved one
+                    keys.add(key);
+                }
+            }
+            for (final String key : keys) {
+                this.remove(key);
+                _stats.invalidation();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        _generation++;
+        for (final Asset asset : _assets.values()) {
+            asset.release();
+        }
+        _assets.clear();
+        _size = 0;
+    }
+
+    /**
+     * Stop watching root and release cached content. Next AssetCache.open() on same root creates a new cache.
+     */
+    public void close() {
+        __instances.remove(_root, this);
+        synchronized (this) {
+            _closed = true;
+            if (null != _observer) {
+                _observer.stopWatching();
+                _observer = null;
+            }
+            _watching = false;
+            this.clear();
+        }
+    }
+
+    @Override
+    public void onEvent(final int event, final String path) {
+        this.invalidate(path);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private void watch() {
+        try {
+            if (PathUtils.isDirectory(_root)) {
+                _observer = new FileObserver(_root, true, false, this);
+                _observer.startWatching();
+                _watching = true;
+            }
+        } catch (Throwable t) {
+            _watching = false;
+            super.warning("watch", "Unable to watch '" + _root + "', assets are validated on each request: " + t);
+        }
+    }
+
+    private Asset load(final String key, final File file) {
+        try {
+            final long last_modified = file.lastModified();
+            final long length = file.length();
+            final String path = normalize(file.getPath());
+            if (length > _max_file_size) {
+                return new Asset(key, file, path, length, last_modified, null, null, null);
+            }
+
+            final byte[] bytes = Files.readAllBytes(file.toPath());
+            final ByteBuf content = direct(bytes);
+            ByteBuf gzip = null;
+            ByteBuf deflate = null;
+            if (_compress && isCompressible(MimeTypeUtils.getMimeType(file.getPath()))) {
+                gzip = direct(compress(bytes, false));
+                deflate = _deflate ? direct(compress(bytes, true)) : null;
+                _stats.compression();
+            }
+            return new Asset(key, file, path, bytes.length, last_modified, content, gzip, deflate);
+        } catch (Throwable t) {
+            super.error("load", t);
+            return null;
+        }
+    }
+
+    private void remove(final String key) {
+        final Asset asset = _assets.remove(key);
+        if (null != asset) {
+            _size -= asset.weight();
+            asset.release();
+        }
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<String, Asset>> iterator = _assets.entrySet().iterator();
+        while (_size > _max_size && iterator.hasNext()) {
+            final Asset asset = iterator.next().getValue();
+            iterator.remove();
+            _size -= asset.weight();
+            asset.release();
+            _stats.eviction();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    private static final Map<String, AssetCache> __instances = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cache of a root, creating it on first call.
+     * Parameters are used only to create the cache: handlers of same root share first settings.
+     *
+     * @param root          Directory to watch for changes
+     * @param max_size      Max bytes of cached content (compressed variants included)
+     * @param max_file_size Files larger than this are streamed from disk, only their lookup is cached
+     * @param compress      Precompute gzip variant of compressible files
+     * @param deflate       Precompute also deflate variant
+     */
+    public static AssetCache open(final String root,
+                                  final long max_size,
+                                  final long max_file_size,
+                                  final boolean compress,
+                                  final boolean deflate) {
+        return __instances.computeIfAbsent(normalize(root),
+                (key) -> new AssetCache(root, max_size, max_file_size, compress, deflate));
+    }
+
+    /**
+     * Close the cache of a root, if any.
+     */
+    public static void release(final String root) {
+        final AssetCache instance = __instances.get(normalize(root));
+        if (null != instance) {
+            instance.close();
+        }
+    }
+
+    private static String normalize(final String path) {
+        return PathUtils.toUnixPath(new File(path).getAbsolutePath());
+    }
+
+    private static boolean isValid(final Asset asset) {
+        final File file = asset.file();
+        return file.lastModified() == asset.lastModified() && file.length() == asset.length();
+    }
+
+    private static boolean isCompressible(final String mime_type) {
+        return null != mime_type && (mime_type.startsWith("text")
+                || mime_type.contains("javascript")
+                || mime_type.contains("json")
+                || mime_type.contains("xml"));
+    }
+
+    /**
+     * @return Compressed bytes, or null if compression does not save enough space.
+     */
+    private static byte[] compress(final byte[] bytes, final boolean deflate) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 64);
+        try (OutputStream zip = deflate ? new DeflaterOutputStream(out) : new GZIPOutputStream(out)) {
+            zip.write(bytes);
+        }
+        return out.size() < bytes.length * MIN_COMPRESSION_RATIO ? out.toByteArray() : null;
+    }
+
+    private static ByteBuf direct(final byte[] bytes) {
+        if (null != bytes) {
+            final ByteBuf buffer = PooledByteBufAllocator.DEFAULT.directBuffer(bytes.length, bytes.length);
+            buffer.writeBytes(bytes);
+            return buffer;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,108 @@
+package org.lyj.ext.netty.server.web.cache;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asset cache counters for monitoring.
+ */
+public class AssetCacheStats {
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final LongAdder _hits;
+    private final LongAdder _misses;
+    private final LongAdder _evictions;
+    private final LongAdder _invalidations;
+    private final LongAdder _compressions;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public AssetCacheStats() {
+        _hits = new LongAdder();
+        _misses = new LongAdder();
+        _evictions = new LongAdder();
+        _invalidations = new LongAdder();
+        _compressions = new LongAdder();
+    }
+
+    @Override
+    public String toString() {
+        return this.toJson().toString();
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public JSONObject toJson() {
+        final JSONObject result = new JSONObject();
+        result.put("hits", this.hits());
+        result.put("misses", this.misses());
+        result.put("hit_rate", this.hitRate());
+        result.put("evictions", this.evictions());
+        result.put("invalidations", this.invalidations());
+        result.put("compressions", this.compressions());
+        return result;
+    }
+
+    public long hits() {
+        return _hits.sum();
+    }
+
+    public long misses() {
+        return _misses.sum();
+    }
+
+    public long evictions() {
+        return _evictions.sum();
+    }
+
+    public long invalidations() {
+        return _invalidations.sum();
+    }
+
+    public long compressions() {
+        return _compressions.sum();
+    }
+
+    public double hitRate() {
+        final long hits = this.hits();
+        final long total = hits + this.misses();
+        return total > 0 ? (double) hits / total : 0;
+    }
+
+    public void reset() {
+        _hits.reset();
+        _misses.reset();
+        _evictions.reset();
+        _invalidations.reset();
+        _compressions.reset();
+    }
+
+    public void hit() {
+        _hits.increment();
+    }
+
+    public void miss() {
+        _misses.increment();
+    }
+
+    public void eviction() {
+        _evictions.increment();
+    }
+
+    public void invalidation() {
+        _invalidations.increment();
+    }
+
+    public void compression() {
+        _compressions.increment();
+    }
+
+}
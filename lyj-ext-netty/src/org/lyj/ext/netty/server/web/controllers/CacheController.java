@@ -63,7 +63,34 @@ public class CacheController {
         return true;
     }
 
+    /**
+     * Validate "If-None-Match" against entity tag, or "If-Modified-Since" if client did not send a tag.
+     */
+    public boolean isModified(final HttpRequest request,
+                              final String etag,
+                              final long lastModified) {
+        final String ifNoneMatch = request.headers().get(IHeaderNames.IF_NONE_MATCH);
+        if (ifNoneMatch != null && !ifNoneMatch.isEmpty()) {
+            if ("*".equals(ifNoneMatch.trim())) {
+                return false;
+            }
+            for (final String tag : ifNoneMatch.split(",")) {
+                // weak comparison
+                final String value = tag.trim();
+                if (value.equals(etag) || value.equals("W/" + etag)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return this.isModifiedSince(request, lastModified);
+    }
+
     public void setDateAndCacheHeaders(final HttpResponse response, File fileToCache) {
+        this.setDateAndCacheHeaders(response, fileToCache.lastModified());
+    }
+
+    public void setDateAndCacheHeaders(final HttpResponse response, final long lastModified) {
         SimpleDateFormat dateFormatter = new SimpleDateFormat(IHttpConstants.HTTP_DATE_FORMAT, Locale.US);
         dateFormatter.setTimeZone(TimeZone.getTimeZone(IHttpConstants.HTTP_DATE_GMT_TIMEZONE));
 
@@ -76,7 +103,7 @@ public class CacheController {
         response.headers().set(IHeaderNames.EXPIRES, dateFormatter.format(time.getTime()));
         response.headers().set(IHeaderNames.CACHE_CONTROL, "private, max-age=" + _config.cacheSeconds());
         response.headers().set(
-                IHeaderNames.LAST_MODIFIED, dateFormatter.format(new Date(fileToCache.lastModified())));
+                IHeaderNames.LAST_MODIFIED, dateFormatter.format(new Date(lastModified)));
     }
 
     public void setDateHeader(final FullHttpResponse response) {
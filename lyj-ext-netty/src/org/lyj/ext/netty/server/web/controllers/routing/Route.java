@@ -25,6 +25,7 @@ public class Route
 
     private final Set<String> _methods;
     private final RouteUrl _url;
+    private String[] _param_names;
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
@@ -35,6 +36,7 @@ public class Route
         _id = id(path);
         _methods = new HashSet<>();
         _url = new RouteUrl(path, encoding);
+        _param_names = new String[0];
     }
 
     @Override
@@ -66,6 +68,17 @@ public class Route
         return this;
     }
 
+    public boolean hasMethod(final String method) {
+        return _methods.contains(method);
+    }
+
+    /**
+     * Names of ":param" segments, in path order.
+     */
+    public String[] paramNames() {
+        return _param_names;
+    }
+
     public RouteParsedPath match(final String method,
                          final String path) {
         if (_methods.contains(method) || _methods.contains("*")) {
@@ -74,6 +87,10 @@ public class Route
         return null;
     }
 
+    void paramNames(final String[] value) {
+        _param_names = value;
+    }
+
     void handle(final HttpServerContext context) throws Throwable {
         if(null!=_handler){
             try{
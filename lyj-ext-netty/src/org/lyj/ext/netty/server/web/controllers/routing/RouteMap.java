@@ -15,6 +15,7 @@ public class RouteMap {
 
     private final String _encoding;
     private final Map<String, Route> _routes;
+    private final RouteTree _tree;
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
@@ -23,6 +24,7 @@ public class RouteMap {
     public RouteMap(final String encoding) {
         _routes = new HashMap<>();
         _encoding = encoding;
+        _tree = new RouteTree(encoding);
     }
 
     // ------------------------------------------------------------------------
@@ -47,23 +49,30 @@ public class RouteMap {
         return _routes.values();
     }
 
+    /**
+     * Find route for a request.
+     *
+     * @return Match or null. Match is reused by next call from the same thread.
+     */
+    public RouteTree.Match match(final String method, final String uri) {
+        return _tree.match(method, uri);
+    }
+
     // ------------------------------------------------------------------------
     //                      p r i v a t e
     // ------------------------------------------------------------------------
 
-    private void addNewRoute(final String method, final String path) {
+    private synchronized void addNewRoute(final String method, final String path) {
         final String key = Route.id(path);
         if (!_routes.containsKey(key)) {
             final Route route = new Route(path, _encoding);
             route.method(method);
             _routes.put(key, route);
+            _tree.add(route);
         } else {
             final Route route = _routes.get(key);
             route.method(method);
         }
     }
 
-
-
-
 }
@@ -0,0 +1,304 @@
+package org.lyj.ext.netty.server.web.controllers.routing;
+
+import org.lyj.commons.lang.CharEncoding;
+
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled route matcher.
+ * <p>
+ * Route templates are split in segments and stored in a tree:
+ * <ul>
+ * <li>static segment: /api/users</li>
+ * <li>parameter: /api/users/:id (a single segment)</li>
+ * <li>wildcard: /api/* (zero or more segments, only at the end)</li>
+ * </ul>
+ * Matching walks the uri in place and at each segment tries static children first,
+ * then parameter, then wildcard, backtracking when a branch fails.
+ * On a node, a route declared for the request method wins over a route for all methods.
+ * <p>
+ * Matching does not allocate: returned Match is reused by the calling thread and
+ * only params() creates a map.
+ * Routes can be added while matching; readers see a node update entirely or not at all.
+ */
+public class RouteTree {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final String ALL_METHODS = "*";
+    private static final String PARAM = ":";
+    private static final String WILDCARD = "*";
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final String _encoding;
+    private final Node _root;
+    private final ThreadLocal<Match> _matches;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public RouteTree(final String encoding) {
+        _encoding = CharEncoding.isSupported(encoding) ? encoding : CharEncoding.getDefault();
+        _root = new Node();
+        _matches = ThreadLocal.withInitial(() -> new Match(_encoding));
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    public synchronized void add(final Route route) {
+        final List<String> names = new ArrayList<>();
+        Node node = _root;
+        boolean wildcard = false;
+        final String[] segments = route.path().split("/");
+        for (int i = 0; i < segments.length; i++) {
+            final String segment = segments[i].trim();
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (segment.equals(WILDCARD) && i == segments.length - 1) {
+                wildcard = true;
+            } else if (segment.startsWith(PARAM)) {
+                names.add(segment.substring(1));
+                node = node.param();
+            } else {
+                node = node.child(segment);
+            }
+        }
+        route.paramNames(names.toArray(new String[0]));
+        if (wildcard) {
+            node.wildcards = append(node.wildcards, route);
+        } else {
+            node.routes = append(node.routes, route);
+        }
+    }
+
+    /**
+     * Find route for a request.
+     *
+     * @param method Http method
+     * @param uri    Request uri, may contain a query string
+     * @return Match, or null if no route matches. Match is reused by next call from the same thread.
+     */
+    public Match match(final String method,
+                       final String uri) {
+        int end = uri.indexOf('?');
+        if (end < 0) {
+            end = uri.length();
+        }
+        final Match match = _matches.get();
+        match.reset(uri);
+        return this.match(_root, uri, 0, end, method, match, 0) ? match : null;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private boolean match(final Node node,
+                          final String uri,
+                          int pos,
+                          final int end,
+                          final String method,
+                          final Match match,
+                          final int depth) {
+        while (pos < end && uri.charAt(pos) == '/') {
+            pos++;
+        }
+        if (pos >= end) {
+            // wildcard matches also its parent path: /api/* matches /api
+            return match.found(accept(node.routes, method), depth)
+                    || match.found(accept(node.wildcards, method), depth);
+        }
+
+        int segment_end = uri.indexOf('/', pos);
+        if (segment_end < 0 || segment_end > end) {
+            segment_end = end;
+        }
+
+        final Node child = node.find(uri, pos, segment_end);
+        if (null != child && this.match(child, uri, segment_end, end, method, match, depth)) {
+            return true;
+        }
+        final Node param = node.param;
+        if (null != param) {
+            match.capture(depth, pos, segment_end);
+            if (this.match(param, uri, segment_end, end, method, match, depth + 1)) {
+                return true;
+            }
+        }
+        return match.found(accept(node.wildcards, method), depth);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    private static Route accept(final Route[] routes,
+                                final String method) {
+        for (final Route route : routes) {
+            if (route.hasMethod(method)) {
+                return route;
+            }
+        }
+        for (final Route route : routes) {
+            if (route.hasMethod(ALL_METHODS)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private static Route[] append(final Route[] routes, final Route route) {
+        final Route[] result = Arrays.copyOf(routes, routes.length + 1);
+        result[routes.length] = route;
+        return result;
+    }
+
+    private static int hash(final String text, final int from, final int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return h;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    private static final class Node {
+
+        // static children: parallel arrays replaced on write
+        private volatile String[] labels = new String[0];
+        private volatile int[] hashes = new int[0];
+        private volatile Node[] children = new Node[0];
+
+        private volatile Node param;
+        private volatile Route[] routes = new Route[0];
+        private volatile Route[] wildcards = new Route[0];
+
+        Node find(final String uri, final int from, final int to) {
+            final Node[] children = this.children;
+            final String[] labels = this.labels;
+            final int[] hashes = this.hashes;
+            final int length = to - from;
+            final int hash = hash(uri, from, to);
+            for (int i = 0; i < children.length; i++) {
+                if (hashes[i] == hash && labels[i].length() == length
+                        && uri.regionMatches(from, labels[i], 0, length)) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node child(final String label) {
+            final Node existing = this.find(label, 0, label.length());
+            if (null != existing) {
+                return existing;
+            }
+            final Node node = new Node();
+            final int size = children.length;
+            final String[] new_labels = Arrays.copyOf(labels, size + 1);
+            final int[] new_hashes = Arrays.copyOf(hashes, size + 1);
+            final Node[] new_children = Arrays.copyOf(children, size + 1);
+            new_labels[size] = label;
+            new_hashes[size] = label.hashCode();
+            new_children[size] = node;
+            // children last: readers use its length
+            labels = new_labels;
+            hashes = new_hashes;
+            children = new_children;
+            return node;
+        }
+
+        Node param() {
+            if (null == param) {
+                param = new Node();
+            }
+            return param;
+        }
+    }
+
+    /**
+     * Result of a match.
+     */
+    public static final class Match {
+
+        private final String _encoding;
+        private Route _route;
+        private String _uri;
+        private int[] _bounds; // start and end of each parameter value
+        private int _count;
+
+        private Match(final String encoding) {
+            _encoding = encoding;
+            _bounds = new int[16];
+        }
+
+        public Route route() {
+            return _route;
+        }
+
+        public boolean hasParams() {
+            return _count > 0;
+        }
+
+        /**
+         * Url decoded parameter values by name.
+         */
+        public Map<String, String> params() {
+            final Map<String, String> result = new LinkedHashMap<>();
+            final String[] names = _route.paramNames();
+            for (int i = 0; i < _count && i < names.length; i++) {
+                result.put(names[i], decode(_uri.substring(_bounds[i * 2], _bounds[i * 2 + 1]), _encoding));
+            }
+            return result;
+        }
+
+        private void reset(final String uri) {
+            _uri = uri;
+            _route = null;
+            _count = 0;
+        }
+
+        private void capture(final int index, final int start, final int end) {
+            if (_bounds.length < (index + 1) * 2) {
+                _bounds = Arrays.copyOf(_bounds, _bounds.length * 2);
+            }
+            _bounds[index * 2] = start;
+            _bounds[index * 2 + 1] = end;
+        }
+
+        private boolean found(final Route route, final int count) {
+            if (null != route) {
+                _route = route;
+                _count = count;
+                return true;
+            }
+            return false;
+        }
+
+        private static String decode(final String value, final String encoding) {
+            try {
+                return URLDecoder.decode(value, encoding);
+            } catch (Throwable ignored) {
+                return value;
+            }
+        }
+    }
+
+}
@@ -5,8 +5,6 @@ import org.lyj.commons.logging.AbstractLogEmitter;
 import org.lyj.ext.netty.server.web.HttpServerContext;
 import org.lyj.ext.netty.server.web.IHttpConstants;
 
-import java.util.Collection;
-
 
 /**
  * Router
@@ -75,30 +73,22 @@ public class Router
     }
 
     private void handleContext(final HttpServerContext context) {
-        final String uri = context.uri();
-        final String method = context.method();
-
-        final Collection<Route> routes = _routes.routes();
-        for (final Route route : routes) {
-            final RouteParsedPath match = route.match(method, uri);
-            if (null != match && match.matchTemplate()) {
-
-                // add url REST parameters to contest
-                if (match.params().size() > 0) {
-                    context.addParams(match.params());
-                }
-
-                try {
-                    route.handle(context);
-                    context.handled(true);
-                } catch (Throwable t) {
-                    super.error("handle", t);
-                }
-                // handled: must break chain
-                break;
+        final RouteTree.Match match = _routes.match(context.method(), context.uri());
+        if (null != match) {
+            final Route route = match.route();
+
+            // add url REST parameters to contest
+            if (match.hasParams()) {
+                context.addParams(match.params());
             }
-        }
 
+            try {
+                route.handle(context);
+                context.handled(true);
+            } catch (Throwable t) {
+                super.error("handle", t);
+            }
+        }
     }
 
 }
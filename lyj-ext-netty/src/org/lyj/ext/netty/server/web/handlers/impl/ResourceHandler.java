@@ -7,12 +7,16 @@ import org.lyj.commons.util.StringUtils;
 import org.lyj.ext.netty.server.web.HttpServerConfig;
 import org.lyj.ext.netty.server.web.HttpServerRequest;
 import org.lyj.ext.netty.server.web.HttpServerResponse;
+import org.lyj.ext.netty.server.web.cache.Asset;
+import org.lyj.ext.netty.server.web.cache.AssetCache;
 import org.lyj.ext.netty.server.web.handlers.AbstractRequestHandler;
 
 import java.io.File;
 
 /**
- * Manage resource requests returning files to browsers
+ * Manage resource requests returning files to browsers.
+ * Hot files are served from an in-memory AssetCache (see HttpServerConfig.assetCacheSize()),
+ * shared by all handlers of same root and released when HttpServer stops.
  */
 public class ResourceHandler
         extends AbstractRequestHandler {
@@ -43,12 +47,77 @@ public class ResourceHandler
     // ------------------------------------------------------------------------
 
     @Override
-    public void close(){
+    public void close() {
+        // invoked when a connection is closed: asset cache is shared and survives
+    }
 
+    /**
+     * Release cached assets of root and stop watching it. Also invoked when HttpServer stops.
+     */
+    public void dispose() {
+        AssetCache.release(_root);
+    }
+
+    /**
+     * Cache shared by all handlers of root, created on first request
+     * (config may change after handler creation).
+     *
+     * @return Null if asset cache is disabled.
+     */
+    public AssetCache assets() {
+        if (super.config().assetCacheSize() > 0) {
+            return AssetCache.open(_root,
+                    super.config().assetCacheSize(),
+                    super.config().assetCacheMaxFileSize(),
+                    super.config().useCompression(),
+                    super.config().assetCacheDeflate());
+        }
+        return null;
     }
 
     @Override
     public void handle(final HttpServerRequest request, final HttpServerResponse response) {
+        final AssetCache assets = this.assets();
+        if (null != assets) {
+            this.handle(assets, request, response);
+        } else {
+            this.handleFile(request, response);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private void handle(final AssetCache assets,
+                        final HttpServerRequest request,
+                        final HttpServerResponse response) {
+        final String path = super.config().filePath(request.uri());
+        if (StringUtils.hasText(path)) {
+            final Asset asset = assets.get(path, this::lookupFile);
+            if (null == asset) {
+                if (!PathUtils.exists(_root)) {
+                    response.writeErrorINTERNAL_SERVER_ERROR();
+                    response.handled(true);
+                    super.error("handle", "Bad configuration: missing HTDOCS root");
+                } else {
+                    response.writeErrorNOT_FOUND();
+                    response.handled(true);
+                }
+            } else if (!request.isModified(asset.etag(), asset.lastModified())) {
+                response.writeNotModified();
+                response.handled(true);
+            } else {
+                response.writeAsset(asset);
+                response.handled(false); // allow other chain handlers to modify response content
+            }
+        } else {
+            response.writeErrorFORBIDDEN();
+            response.handled(true);
+        }
+    }
+
+    private void handleFile(final HttpServerRequest request, final HttpServerResponse response) {
         this.validate((err, valid) -> {
             if (null != err) {
                 response.writeErrorINTERNAL_SERVER_ERROR();
@@ -82,10 +151,6 @@ public class ResourceHandler
         });
     }
 
-    // ------------------------------------------------------------------------
-    //                      p r i v a t e
-    // ------------------------------------------------------------------------
-
     private void validate(final Delegates.SingleResultCallback<Boolean> callback) {
         try {
             if (!PathUtils.exists(_root)) {
@@ -0,0 +1,87 @@
+package org.lyj.ext.netty.server.web.utils;
+
+import org.lyj.commons.util.StringUtils;
+
+/**
+ * Http "Range" header helper.
+ * Only single byte ranges are supported: "bytes=0-99", "bytes=100-", "bytes=-100".
+ */
+public class RangeUtil {
+
+    // ------------------------------------------------------------------------
+    //                      const
+    // ------------------------------------------------------------------------
+
+    public static final long[] UNSATISFIABLE = new long[0];
+
+    private static final String UNIT = "bytes=";
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    /**
+     * Parse a range header.
+     *
+     * @param header Value of "Range" header
+     * @param length Length of resource
+     * @return {first, last} (inclusive), null if whole resource must be sent (missing, invalid or
+     * multiple ranges) or UNSATISFIABLE
+     */
+    public static long[] parse(final String header,
+                               final long length) {
+        if (!StringUtils.hasText(header) || !header.startsWith(UNIT) || header.indexOf(',') > -1) {
+            return null;
+        }
+        final String spec = header.substring(UNIT.length()).trim();
+        final int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            final String first_text = spec.substring(0, dash).trim();
+            final String last_text = spec.substring(dash + 1).trim();
+            long first;
+            long last;
+            if (first_text.isEmpty()) {
+                // suffix: last n bytes
+                if (last_text.isEmpty()) {
+                    return null;
+                }
+                final long suffix = Long.parseLong(last_text);
+                if (suffix <= 0) {
+                    return UNSATISFIABLE;
+                }
+                first = Math.max(0, length - suffix);
+                last = length - 1;
+            } else {
+                first = Long.parseLong(first_text);
+                if (first >= length) {
+                    return UNSATISFIABLE;
+                }
+                last = last_text.isEmpty() ? length - 1 : Long.parseLong(last_text);
+                if (last < first) {
+                    return null; // invalid: ignore
+                }
+                last = Math.min(last, length - 1);
+            }
+            if (length == 0) {
+                return UNSATISFIABLE;
+            }
+            return new long[]{first, last};
+        } catch (NumberFormatException ignored) {
+            return null;
+        }
+    }
+
+    public static String contentRange(final long first,
+                                      final long last,
+                                      final long length) {
+        return "bytes " + first + "-" + last + "/" + length;
+    }
+
+    public static String contentRangeUnsatisfiable(final long length) {
+        return "bytes */" + length;
+    }
+
+}
@@ -5,8 +5,17 @@ import org.junit.Test;
 import org.lyj.commons.async.future.Task;
 import org.lyj.commons.lang.CharEncoding;
 import org.lyj.ext.netty.TestInitializer;
+import org.lyj.ext.netty.client.web.executor.HttpClientManager;
+import org.lyj.ext.netty.server.web.HttpServer;
+import org.lyj.ext.netty.server.web.handlers.impl.ResourceHandler;
 
+import java.io.File;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.*;
 
@@ -53,6 +62,47 @@ public class HttpClientTest {
         System.out.println(response);
     }
 
+    @Test
+    public void asyncTest() throws Exception {
+        final File root = Files.createTempDirectory("htdocs").toFile();
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("line ").append(i).append("\n");
+        }
+        Files.write(new File(root, "text.txt").toPath(), text.toString().getBytes("UTF-8"));
+
+        final HttpServer server = new HttpServer();
+        server.config().port(4100).portAutodetect(true).root(root.getAbsolutePath());
+        server.handler(ResourceHandler.create(server.config()));
+        server.start();
+        try {
+            final String url = server.config().uri("text.txt");
+
+            final long time = System.currentTimeMillis();
+            final List<CompletableFuture<HttpClientResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                futures.add(this.client(url).get().sendAsync());
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+            System.out.println("200 requests in " + (System.currentTimeMillis() - time) + "ms: " + HttpClientManager.instance());
+            for (final CompletableFuture<HttpClientResponse> future : futures) {
+                assertEquals(200, future.get().statusCode());
+                assertEquals(text.toString(), future.get().contentAsString());
+            }
+            // connections are pooled per host
+            assertTrue(HttpClientManager.instance().toJson().getLong("total") <= HttpClientManager.instance().maxConnectionsPerHost());
+
+            final AtomicLong streamed = new AtomicLong();
+            final HttpClientResponse response = this.client(url).get()
+                    .stream((buffer) -> streamed.addAndGet(buffer.remaining()))
+                    .send();
+            assertEquals(0, response.content().length);
+            assertEquals(text.length(), streamed.get());
+        } finally {
+            server.stop();
+        }
+    }
+
     // ------------------------------------------------------------------------
     //                      p r i v a t e
     // ------------------------------------------------------------------------
@@ -0,0 +1,158 @@
+package org.lyj.ext.netty.server.web;
+
+import org.junit.Test;
+import org.lyj.ext.netty.server.web.cache.AssetCache;
+import org.lyj.ext.netty.server.web.handlers.impl.ResourceHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Static files streamed from disk, with and without "Range", and served from asset cache.
+ */
+public class HttpServerFileTest {
+
+    @Test
+    public void streamFile() throws Exception {
+        final File root = Files.createTempDirectory("htdocs").toFile();
+        final byte[] data = new byte[1024 * 1024 + 17];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 251);
+        }
+        Files.write(new File(root, "data.bin").toPath(), data);
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            text.append("line ").append(i).append("\n");
+        }
+        Files.write(new File(root, "text.txt").toPath(), text.toString().getBytes("UTF-8"));
+
+        final HttpServer server = new HttpServer();
+        server.config().port(4100).portAutodetect(true).root(root.getAbsolutePath());
+        server.handler(ResourceHandler.create(server.config()));
+        server.start();
+        try {
+            final String url = server.config().uri("data.bin");
+
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            assertTrue(connection.getResponseCode() == 200);
+            assertTrue("bytes".equals(connection.getHeaderField("Accept-Ranges")));
+            assertTrue(Arrays.equals(data, read(connection.getInputStream())));
+
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestProperty("Range", "bytes=100-199");
+            assertTrue(connection.getResponseCode() == 206);
+            assertTrue(("bytes 100-199/" + data.length).equals(connection.getHeaderField("Content-Range")));
+            assertTrue(Arrays.equals(Arrays.copyOfRange(data, 100, 200), read(connection.getInputStream())));
+
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestProperty("Range", "bytes=-10");
+            assertTrue(connection.getResponseCode() == 206);
+            assertTrue(Arrays.equals(Arrays.copyOfRange(data, data.length - 10, data.length), read(connection.getInputStream())));
+
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestProperty("Range", "bytes=" + data.length + "-");
+            assertTrue(connection.getResponseCode() == 416);
+
+            // text files are compressed
+            connection = (HttpURLConnection) new URL(server.config().uri("text.txt")).openConnection();
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            assertTrue("gzip".equals(connection.getHeaderField("Content-Encoding")));
+            final byte[] unzipped = read(new GZIPInputStream(connection.getInputStream()));
+            assertTrue(text.toString().equals(new String(unzipped, "UTF-8")));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void cachedAsset() throws Exception {
+        final File root = Files.createTempDirectory("htdocs").toFile();
+        final File css = new File(root, "style.css");
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            text.append(".class_").append(i).append(" { color: red; }\n");
+        }
+        Files.write(css.toPath(), text.toString().getBytes("UTF-8"));
+        Files.write(new File(root, "index.html").toPath(), "<html>index</html>".getBytes("UTF-8"));
+
+        final HttpServer server = new HttpServer();
+        server.config().port(4100).portAutodetect(true).root(root.getAbsolutePath()).assetCacheDeflate(true);
+        final ResourceHandler handler = ResourceHandler.create(server.config());
+        server.handler(handler);
+        server.start();
+        AssetCache assets = null;
+        try {
+            final String url = server.config().uri("style.css");
+
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+            assertTrue(connection.getResponseCode() == 200);
+            assertTrue("gzip".equals(connection.getHeaderField("Content-Encoding")));
+            final String etag = connection.getHeaderField("ETag");
+            assertTrue(null != etag);
+            assertTrue(text.toString().equals(new String(read(new GZIPInputStream(connection.getInputStream())), "UTF-8")));
+
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestProperty("Accept-Encoding", "deflate");
+            assertTrue("deflate".equals(connection.getHeaderField("Content-Encoding")));
+            assertTrue(text.toString().equals(new String(read(new InflaterInputStream(connection.getInputStream())), "UTF-8")));
+
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestProperty("Range", "bytes=0-5");
+            assertTrue(connection.getResponseCode() == 206);
+            assertTrue(".class".equals(new String(read(connection.getInputStream()), "UTF-8")));
+
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestProperty("If-None-Match", etag);
+            assertTrue(connection.getResponseCode() == 304);
+
+            // directory resolved to index file
+            connection = (HttpURLConnection) new URL(server.config().uri("/")).openConnection();
+            assertTrue("<html>index</html>".equals(new String(read(connection.getInputStream()), "UTF-8")));
+
+            assets = handler.assets();
+            System.out.println(assets);
+            assertTrue(assets == ResourceHandler.create(server.config()).assets()); // shared by handlers of root
+            assertTrue(assets.count() == 2);
+            assertTrue(assets.stats().hits() >= 3);
+
+            // changes are observed
+            Thread.sleep(1100); // timestamp resolution
+            Files.write(css.toPath(), "body { color: blue; }".getBytes("UTF-8"));
+            String content = "";
+            for (int i = 0; i < 50 && !content.startsWith("body"); i++) {
+                Thread.sleep(100);
+                connection = (HttpURLConnection) new URL(url).openConnection();
+                content = new String(read(connection.getInputStream()), "UTF-8");
+            }
+            assertTrue("body { color: blue; }".equals(content));
+            assertTrue(assets.stats().invalidations() > 0);
+        } finally {
+            server.stop();
+        }
+        // released when server stops
+        assertTrue(null != assets && assets.count() == 0);
+    }
+
+    private static byte[] read(final InputStream in) throws Exception {
+        try (InputStream is = in) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int len;
+            while ((len = is.read(buffer)) > 0) {
+                out.write(buffer, 0, len);
+            }
+            return out.toByteArray();
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package org.lyj.ext.netty.server.web.controllers.routing;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compare linear scan of routes with compiled route tree.
+ */
+public class RouterBenchmarkTest {
+
+    private static final String ENCODING = "UTF-8";
+    private static final int RESOURCES = 100; // 3 routes each
+    private static final int ROUNDS = 200000;
+
+    @Test
+    public void precedence() throws Exception {
+        final RouteMap routes = new RouteMap(ENCODING);
+        routes.put("GET", "/api/*");
+        routes.put("GET", "/api/users/:id");
+        routes.put("GET", "/api/users/me");
+        routes.put("*", "/api/users/:id/orders");
+        routes.put("POST", "/api/users/:user/orders");
+        routes.put("GET", "/");
+
+        assertTrue(match(routes, "GET", "/api/users/me").route().path().equals("/api/users/me"));
+        assertTrue(match(routes, "GET", "/api/users/12").route().path().equals("/api/users/:id"));
+        assertTrue(match(routes, "GET", "/api/users/12/").route().path().equals("/api/users/:id"));
+        assertTrue(match(routes, "GET", "/api/users/12/other").route().path().equals("/api/*"));
+        assertTrue(match(routes, "GET", "/api").route().path().equals("/api/*"));
+        assertTrue(match(routes, "GET", "/").route().path().equals("/"));
+        assertTrue(null == match(routes, "POST", "/api/users/12"));
+
+        // method specific route wins over all methods
+        final RouteTree.Match post = match(routes, "POST", "/api/users/a%20b/orders?x=1");
+        assertTrue(post.route().path().equals("/api/users/:user/orders"));
+        final Map<String, String> params = post.params();
+        assertTrue(params.get("user").equals("a b"));
+        assertTrue(match(routes, "GET", "/api/users/7/orders").params().get("id").equals("7"));
+    }
+
+    @Test
+    public void benchmark() throws Exception {
+        final RouteMap routes = new RouteMap(ENCODING);
+        for (int i = 0; i < RESOURCES; i++) {
+            routes.put("GET", "/api/resource" + i + "/list");
+            routes.put("GET", "/api/resource" + i + "/item/:id");
+            routes.put("POST", "/api/resource" + i + "/item/:id/:action");
+        }
+        routes.put("GET", "/static/*");
+
+        final String[] uris = new String[]{
+                "/api/resource" + (RESOURCES - 1) + "/list",
+                "/api/resource" + (RESOURCES / 2) + "/item/1234?format=json",
+                "/static/css/site.css",
+        };
+
+        // warm up
+        linear(routes, uris, ROUNDS / 10);
+        tree(routes, uris, ROUNDS / 10);
+
+        long start = System.nanoTime();
+        final int linear_found = linear(routes, uris, ROUNDS);
+        final long linear = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        final int tree_found = tree(routes, uris, ROUNDS);
+        final long tree = System.nanoTime() - start;
+
+        System.out.println("ROUTES: " + routes.routes().size()
+                + " LINEAR ns/match: " + linear / ROUNDS
+                + ", TREE ns/match: " + tree / ROUNDS);
+        assertTrue(linear_found == ROUNDS);
+        assertTrue(tree_found == ROUNDS);
+        assertTrue(tree < linear);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private static RouteTree.Match match(final RouteMap routes, final String method, final String uri) {
+        return routes.match(method, uri);
+    }
+
+    private static String method(final String uri) {
+        return uri.contains("/item/") || uri.startsWith("/static") || uri.endsWith("/list") ? "GET" : "POST";
+    }
+
+    // previous implementation: first route whose template matches
+    private static int linear(final RouteMap routes, final String[] uris, final int rounds) {
+        int found = 0;
+        for (int i = 0; i < rounds; i++) {
+            final String uri = uris[i % uris.length];
+            for (final Route route : routes.routes()) {
+                final RouteParsedPath match = route.match(method(uri), uri);
+                if (null != match && match.matchTemplate()) {
+                    match.params();
+                    found++;
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    private static int tree(final RouteMap routes, final String[] uris, final int rounds) {
+        int found = 0;
+        for (int i = 0; i < rounds; i++) {
+            final String uri = uris[i % uris.length];
+            final RouteTree.Match match = routes.match(method(uri), uri);
+            if (null != match) {
+                if (match.hasParams()) {
+                    match.params();
+                }
+                found++;
+            }
+        }
+        return found;
+    }
+
+}
@@ -7,6 +7,7 @@ import org.lyj.commons.util.StringUtils;
 import org.lyj.ext.script.IScriptConstants;
 import org.lyj.ext.script.program.engines.AbstractEngine;
 import org.lyj.ext.script.program.engines.javascript.EngineJavascript;
+import org.lyj.ext.script.program.engines.javascript.ScriptEnginePool;
 import org.lyj.ext.script.program.tools.sys.ToolConsole;
 import org.lyj.ext.script.program.tools.sys.ToolEngine;
 import org.lyj.ext.script.program.tools.sys.ToolRequirer;
@@ -41,6 +42,8 @@ public class Program
     private String _engine_name;
     private ProgramFiles _files;
     private String _script;
+    private String _script_hash;
+    private long _script_modified; // last modified of index file, 0 if script is text
     private AbstractEngine _engine_impl;
 
     // ------------------------------------------------------------------------
@@ -149,10 +152,19 @@ public class Program
         return this;
     }
 
-    public String script() {
-        if (!StringUtils.hasText(_script) && null != this.files()) {
+    /**
+     * Script of program. Script of a program based on a directory is read again if index file changed.
+     */
+    public synchronized String script() {
+        if (null != this.files() && (!StringUtils.hasText(_script) || _script_modified > 0)) {
             try {
-                _script = FileUtils.readFileToString(new File(this.files().indexFilename()));
+                final File file = new File(this.files().indexFilename());
+                final long modified = file.lastModified();
+                if (!StringUtils.hasText(_script) || modified != _script_modified) {
+                    _script = FileUtils.readFileToString(file);
+                    _script_hash = null;
+                    _script_modified = modified;
+                }
             } catch (Throwable t) {
                 this.logger().error("script", t);
             }
@@ -160,21 +172,43 @@ public class Program
         return _script;
     }
 
-    public Program script(final String value) {
+    public synchronized Program script(final String value) {
         _script = value;
+        _script_hash = null;
+        _script_modified = 0;
         return this;
     }
 
-    public AbstractEngine engine() {
+    /**
+     * Content hash of script, used to cache compiled script.
+     */
+    public synchronized String scriptHash() {
+        if (null == _script_hash) {
+            final String script = this.script();
+            _script_hash = StringUtils.hasText(script) ? ScriptEnginePool.hash(script) : "";
+        }
+        return _script_hash;
+    }
+
+    /**
+     * Name of script: index file of a program based on a directory.
+     */
+    public String scriptName() {
+        return null != this.files() ? this.files().indexFilename() : "program";
+    }
+
+    public synchronized AbstractEngine engine() {
         return this.getEngine();
     }
 
     /**
-     * Start the program
+     * Start the program.
+     * Each run has its own scope and compiled script is reused, so program can run
+     * in many threads at same time.
      * @return Return ScriptObjectMirror or throw a NullScriptException
      */
-    public synchronized Object run() throws Exception {
-        return this.engine().eval();
+    public Object run() throws Exception {
+        return this.engine().run();
     }
 
     public String absolutePath(final String raw_relative_path) {
@@ -239,6 +273,7 @@ public class Program
      */
     public static void clearCache() {
         ProgramScriptCache.instance().clear();
+        ScriptEnginePool.instance().clear();
     }
 
     public static void clearCache(final String root) {
@@ -1,7 +1,10 @@
 package org.lyj.ext.script.program;
 
+import org.lyj.commons.util.FileUtils;
 import org.lyj.commons.util.PathUtils;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -13,6 +16,7 @@ public class ProgramScriptCache {
     // ------------------------------------------------------------------------
 
     private final Map<String, String> _cache_script;
+    private final Map<String, Long> _modified; // last modified of cached files
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
@@ -20,6 +24,7 @@ public class ProgramScriptCache {
 
     public ProgramScriptCache() {
         _cache_script = new ConcurrentHashMap<>();
+        _modified = new ConcurrentHashMap<>();
     }
 
     // ------------------------------------------------------------------------
@@ -29,6 +34,7 @@ public class ProgramScriptCache {
     public void clear() {
         synchronized (_cache_script) {
             _cache_script.clear();
+            _modified.clear();
         }
     }
 
@@ -39,6 +45,7 @@ public class ProgramScriptCache {
             for (final String key : keys) {
                 if (PathUtils.pathMatch(key, pattern)) {
                     _cache_script.remove(key);
+                    _modified.remove(key);
                 }
             }
         }
@@ -62,6 +69,22 @@ public class ProgramScriptCache {
         }
     }
 
+    /**
+     * Get content of a file, reading it again only if file changed.
+     */
+    public String read(final String path) throws IOException {
+        final File file = new File(path);
+        final long modified = file.lastModified();
+        synchronized (_cache_script) {
+            final Long cached = _modified.get(path);
+            if (!_cache_script.containsKey(path) || null == cached || cached != modified) {
+                _cache_script.put(path, FileUtils.readFileToString(file));
+                _modified.put(path, modified);
+            }
+            return _cache_script.get(path);
+        }
+    }
+
     // ------------------------------------------------------------------------
     //                      p r i v a t e
     // ------------------------------------------------------------------------
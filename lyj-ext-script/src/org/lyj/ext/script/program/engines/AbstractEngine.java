@@ -79,4 +79,17 @@ public abstract class AbstractEngine
         throw new NullScriptException(this);
     }
 
+    public Object run() throws Exception {
+        return this.run(new HashMap<>());
+    }
+
+    /**
+     * Run program script.
+     * Unlike eval, engines may run each call in its own scope, so a program can run
+     * in many threads at same time. Default implementation is same as eval.
+     */
+    public Object run(final Map<String, Object> context) throws Exception {
+        return this.eval(context);
+    }
+
 }
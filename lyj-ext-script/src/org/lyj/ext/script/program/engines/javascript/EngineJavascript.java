@@ -4,12 +4,10 @@ import org.lyj.commons.util.CollectionUtils;
 import org.lyj.commons.util.StringUtils;
 import org.lyj.ext.script.program.Program;
 import org.lyj.ext.script.program.engines.AbstractEngine;
+import org.lyj.ext.script.program.exceptions.NullScriptException;
 import org.lyj.ext.script.program.exceptions.ScriptEvalException;
 
-import javax.script.ScriptContext;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
+import javax.script.*;
 import java.util.Map;
 
 /**
@@ -28,13 +26,18 @@ public class EngineJavascript
     // ------------------------------------------------------------------------
 
     private static final String EXTENSION_FILE = "extend.js";
+    private static final String EXTENSION_HASH = "resource"; // extension never changes at runtime
+    private static final String INLINE_SCRIPT = "inline";
 
     // ------------------------------------------------------------------------
     //                      f i e l d s
     // ------------------------------------------------------------------------
 
-    private final ScriptEngine _engine;
-    private boolean _initialized;
+    private final ScriptEnginePool _pool;
+    private final ThreadLocal<ScriptContext> _current; // context of running script, if any
+
+    private ScriptEnginePool.PooledEngine _engine; // engine of program context
+    private ScriptContext _context; // program context, kept between eval calls
 
     // ------------------------------------------------------------------------
     //                      c o n s t r u c t o r
@@ -42,10 +45,8 @@ public class EngineJavascript
 
     public EngineJavascript(final Program program) {
         super(program);
-        _engine = engine();
-
-        _engine.getContext().setErrorWriter(program.logger());
-        _engine.getContext().setWriter(program.logger());
+        _pool = ScriptEnginePool.instance();
+        _current = new ThreadLocal<>();
     }
 
     // ------------------------------------------------------------------------
@@ -58,58 +59,151 @@ public class EngineJavascript
 
     @Override
     public void addRuntimeAttribute(final String key, Object value) {
-        _engine.getContext().setAttribute(key, value, ScriptContext.ENGINE_SCOPE);
+        this.context(_current.get()).setAttribute(key, value, ScriptContext.ENGINE_SCOPE);
     }
 
     @Override
     public Object getRuntimeAttribute(final String key) {
-        return _engine.getContext().getAttribute(key);
+        return this.context(_current.get()).getAttribute(key);
     }
 
     @Override
     public Object eval(final String script) throws Exception {
-        this.mergeContext(null);
-        this.init();
-        return _engine.eval(script);
+        return this.evalProgramContext(script, null);
     }
 
     @Override
     public Object eval(String script, final Map<String, Object> context) throws ScriptEvalException {
         try {
-            this.mergeContext(context);
-            this.init();
-            return _engine.eval(script);
+            return this.evalProgramContext(script, context);
         } catch (Exception t) {
             throw new ScriptEvalException(t);
         }
     }
 
+    /**
+     * Run program script in a new global scope, on any free engine of pool.
+     * Compiled script is reused, so only first run pays compilation.
+     * Many threads can run same program at same time.
+     */
+    @Override
+    public Object run(final Map<String, Object> context) throws Exception {
+        final Program program = super.program();
+        final String script;
+        final String hash;
+        synchronized (program) {
+            // script and hash must match: file may change meanwhile
+            script = program.script();
+            hash = program.scriptHash();
+        }
+        if (!StringUtils.hasText(script)) {
+            throw new NullScriptException(this);
+        }
+        final ScriptEnginePool.PooledEngine engine = _pool.acquire();
+        try {
+            final ScriptContext script_context = this.createContext(engine);
+            this.mergeContext(script_context, context);
+            return this.eval(engine, script_context, program.scriptName(), hash, script);
+        } finally {
+            _pool.release(engine);
+        }
+    }
+
     // ------------------------------------------------------------------------
     //                      p r i v a t e
     // ------------------------------------------------------------------------
 
-    private void init() {
-        synchronized (this) {
-            if (!_initialized) {
-                try {
-                    // eval extended scripts
-                    final String extension = super.loadResource(EXTENSION_FILE);
-                    if (StringUtils.hasText(extension)) {
-                        _engine.eval(extension);
-                    } else {
-                        super.program().logger().warn("[ScriptEngine.init]", "EXTENSION 'ly' not loaded!");
-                    }
-                    _initialized = true;
-                } catch (Throwable t) {
-                    super.program().logger().error("[ScriptEngine.init]", t);
-                }
+    /**
+     * Eval in program context: variables declared by a script are visible to next scripts.
+     */
+    private Object evalProgramContext(final String script,
+                                      final Map<String, Object> context) throws ScriptException {
+        final ScriptEnginePool.PooledEngine engine = this.programEngine();
+        engine.lock();
+        try {
+            if (null == _context) {
+                _context = this.createContext(engine);
+            }
+            this.mergeContext(_context, context);
+            return this.eval(engine, _context, INLINE_SCRIPT, ScriptEnginePool.hash(script), script);
+        } finally {
+            engine.unlock();
+        }
+    }
+
+    private Object eval(final ScriptEnginePool.PooledEngine engine,
+                        final ScriptContext context,
+                        final String name,
+                        final String hash,
+                        final String script) throws ScriptException {
+        final ScriptContext previous = _current.get();
+        _current.set(context);
+        try {
+            return engine.compile(name, hash, script).eval(context);
+        } finally {
+            _current.set(previous);
+        }
+    }
+
+    private synchronized ScriptEnginePool.PooledEngine programEngine() {
+        if (null == _engine) {
+            _engine = _pool.assign();
+        }
+        return _engine;
+    }
+
+    private ScriptContext context(final ScriptContext current) {
+        if (null != current) {
+            return current;
+        }
+        final ScriptEnginePool.PooledEngine engine = this.programEngine();
+        engine.lock();
+        try {
+            if (null == _context) {
+                _context = this.createContext(engine);
             }
+            return _context;
+        } finally {
+            engine.unlock();
         }
     }
 
-    private ScriptContext mergeContext(final Map<String, Object> context) {
-        final ScriptContext result = _engine.getContext();
+    /**
+     * New global scope with program context and extensions.
+     */
+    private ScriptContext createContext(final ScriptEnginePool.PooledEngine engine) {
+        final ScriptContext result = new SimpleScriptContext();
+        result.setBindings(engine.createBindings(), ScriptContext.ENGINE_SCOPE);
+        result.setErrorWriter(super.program().logger());
+        result.setWriter(super.program().logger());
+
+        this.mergeContext(result, null);
+
+        // eval extended scripts
+        try {
+            final String extension = this.extension();
+            if (StringUtils.hasText(extension)) {
+                this.eval(engine, result, EXTENSION_FILE, EXTENSION_HASH, extension);
+            } else {
+                super.program().logger().warn("[ScriptEngine.init]", "EXTENSION 'ly' not loaded!");
+            }
+        } catch (Throwable t) {
+            super.program().logger().error("[ScriptEngine.init]", t);
+        }
+        return result;
+    }
+
+    private String extension() {
+        synchronized (EngineJavascript.class) {
+            if (null == __extension) {
+                __extension = super.loadResource(EXTENSION_FILE);
+            }
+            return __extension;
+        }
+    }
 
+    private ScriptContext mergeContext(final ScriptContext result,
+                                       final Map<String, Object> context) {
         // merge with global context
         CollectionUtils.forEach(super.context(), (value, index, key) -> {
             result.setAttribute((String) key, value, ScriptContext.ENGINE_SCOPE);
@@ -130,6 +224,7 @@ public class EngineJavascript
     // ------------------------------------------------------------------------
 
     private static ScriptEngine __engine;
+    private static String __extension;
 
     public static Object evalScript(final String script) throws ScriptException {
         return engine().eval(script);
@@ -0,0 +1,261 @@
+package org.lyj.ext.script.program.engines.javascript;
+
+import org.lyj.commons.cryptograph.MD5;
+
+import javax.script.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded pool of javascript engines shared by all programs.
+ * <p>
+ * Creating an engine is expensive and an engine caches classes of scripts it compiled,
+ * so engines are created once and reused.
+ * Each engine keeps its own cache of compiled scripts (a CompiledScript is bound to engine
+ * that compiled it), keyed by name and content hash: a changed script is compiled again.
+ * An engine is used by one thread at a time; programs running in same engine are isolated
+ * because each one has its own global scope (Bindings).
+ */
+public class ScriptEnginePool {
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t
+    // ------------------------------------------------------------------------
+
+    private static final String ENGINE_NAME = "nashorn";
+    private static final int DEFAULT_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final int MAX_COMPILED = 256; // compiled scripts for each engine
+
+    // ------------------------------------------------------------------------
+    //                      f i e l d s
+    // ------------------------------------------------------------------------
+
+    private final ScriptEngineManager _manager;
+    private final List<PooledEngine> _engines;
+    private final AtomicInteger _next;
+    private int _size;
+
+    // ------------------------------------------------------------------------
+    //                      c o n s t r u c t o r
+    // ------------------------------------------------------------------------
+
+    public ScriptEnginePool() {
+        _manager = new ScriptEngineManager();
+        _engines = new ArrayList<>();
+        _next = new AtomicInteger(0);
+        _size = DEFAULT_SIZE;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "{size: " + _size +
+                ", engines: " + _engines.size() + "}";
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r o p e r t i e s
+    // ------------------------------------------------------------------------
+
+    public synchronized int size() {
+        return _size;
+    }
+
+    /**
+     * Max number of engines. Change before first use.
+     */
+    public synchronized ScriptEnginePool size(final int value) {
+        _size = Math.max(1, value);
+        return this;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p u b l i c
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get an engine to use in a single thread. Call release() when finished.
+     * A free engine is returned, or a new one if pool is not full, otherwise
+     * caller waits for an engine.
+     */
+    public PooledEngine acquire() {
+        final PooledEngine engine = this.assign();
+        if (!engine.tryLock()) {
+            // try others before waiting
+            for (final PooledEngine other : this.engines()) {
+                if (other.tryLock()) {
+                    return other;
+                }
+            }
+            final PooledEngine created = this.create();
+            if (null != created) {
+                created.lock();
+                return created;
+            }
+            engine.lock();
+        }
+        return engine;
+    }
+
+    public void release(final PooledEngine engine) {
+        if (null != engine) {
+            engine.unlock();
+        }
+    }
+
+    /**
+     * Assign an engine without locking it (ex: engine of a program). Lock engine before use.
+     */
+    public PooledEngine assign() {
+        final List<PooledEngine> engines = this.engines();
+        if (engines.isEmpty()) {
+            final PooledEngine created = this.create();
+            if (null != created) {
+                return created;
+            }
+            return this.engines().get(0);
+        }
+        return engines.get(Math.abs(_next.getAndIncrement() % engines.size()));
+    }
+
+    /**
+     * Remove all compiled scripts.
+     */
+    public void clear() {
+        for (final PooledEngine engine : this.engines()) {
+            engine.clear();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //                      p r i v a t e
+    // ------------------------------------------------------------------------
+
+    private synchronized List<PooledEngine> engines() {
+        return new ArrayList<>(_engines);
+    }
+
+    /**
+     * @return New engine, or null if pool is full
+     */
+    private synchronized PooledEngine create() {
+        if (_engines.size() < _size) {
+            final PooledEngine engine = new PooledEngine(_manager.getEngineByName(ENGINE_NAME));
+            _engines.add(engine);
+            return engine;
+        }
+        return null;
+    }
+
+    // ------------------------------------------------------------------------
+    //                      S T A T I C
+    // ------------------------------------------------------------------------
+
+    private static ScriptEnginePool __instance;
+
+    public static synchronized ScriptEnginePool instance() {
+        if (null == __instance) {
+            __instance = new ScriptEnginePool();
+        }
+        return __instance;
+    }
+
+    public static String hash(final String script) {
+        return MD5.encode(script);
+    }
+
+    // ------------------------------------------------------------------------
+    //                      E M B E D D E D
+    // ------------------------------------------------------------------------
+
+    public static class PooledEngine {
+
+        // ------------------------------------------------------------------------
+        //                      f i e l d s
+        // ------------------------------------------------------------------------
+
+        private final ScriptEngine _engine;
+        private final ReentrantLock _lock;
+        private final Map<String, CompiledScript> _compiled;
+
+        // ------------------------------------------------------------------------
+        //                      c o n s t r u c t o r
+        // ------------------------------------------------------------------------
+
+        private PooledEngine(final ScriptEngine engine) {
+            _engine = engine;
+            _lock = new ReentrantLock();
+            _compiled = new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, CompiledScript> eldest) {
+                    return size() > MAX_COMPILED;
+                }
+            };
+        }
+
+        // ------------------------------------------------------------------------
+        //                      p u b l i c
+        // ------------------------------------------------------------------------
+
+        public ScriptEngine engine() {
+            return _engine;
+        }
+
+        /**
+         * New global scope: a program running with these bindings does not see
+         * variables of other programs.
+         */
+        public Bindings createBindings() {
+            return _engine.createBindings();
+        }
+
+        /**
+         * Compile a script or get it from cache.
+         *
+         * @param name Name of script (ex: path). Used with hash as cache key.
+         * @param hash Content hash of script
+         */
+        public CompiledScript compile(final String name,
+                                      final String hash,
+                                      final String script) throws ScriptException {
+            final String key = name + ":" + hash;
+            synchronized (_compiled) {
+                CompiledScript compiled = _compiled.get(key);
+                if (null == compiled) {
+                    compiled = ((Compilable) _engine).compile(script);
+                    _compiled.put(key, compiled);
+                }
+                return compiled;
+            }
+        }
+
+        public Object eval(final String name,
+                           final String script,
+                           final ScriptContext context) throws ScriptException {
+            return this.compile(name, hash(script), script).eval(context);
+        }
+
+        public void lock() {
+            _lock.lock();
+        }
+
+        public boolean tryLock() {
+            return _lock.tryLock();
+        }
+
+        public void unlock() {
+            _lock.unlock();
+        }
+
+        public void clear() {
+            synchronized (_compiled) {
+                _compiled.clear();
+            }
+        }
+
+    }
+
+}
@@ -1,11 +1,8 @@
 package org.lyj.ext.script.program.tools.sys;
 
-import org.lyj.commons.util.FileUtils;
 import org.lyj.ext.script.program.Program;
 import org.lyj.ext.script.program.ProgramScriptCache;
 
-import java.io.File;
-
 /**
  * System Tool.
  * <p>
@@ -45,11 +42,8 @@ public class ToolRequirer {
     public String require(final String raw_relative_path) {
         try {
             final String path = _program.absolutePath(raw_relative_path);
-            // update cache
-            if (!_cache_script.contains(path)) {
-                _cache_script.put(path, FileUtils.readFileToString(new File(path)));
-            }
-            return _cache_script.get(path); //FileUtils.readFileToString(new File(path));
+            // read from cache, or from file if changed
+            return _cache_script.read(path);
         } catch (Throwable t) {
             _program.logger().error("require", t);
         }
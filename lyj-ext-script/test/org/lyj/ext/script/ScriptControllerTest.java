@@ -6,6 +6,10 @@ import org.lyj.commons.util.MapBuilder;
 import org.lyj.commons.util.PathUtils;
 import org.lyj.ext.script.program.Program;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -90,4 +94,53 @@ public class ScriptControllerTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void runCached() throws Exception {
+        final String script = "(function(){ var total = 0; for (var i = 0; i < 100; i++) { total += ly.isArray([i]) ? i : 0; } return total + VALUE; })();";
+
+        // cold: new program, script never compiled
+        final Program cold = ScriptController.instance().create();
+        cold.script(script);
+        cold.context().put("VALUE", 1);
+        long time = System.nanoTime();
+        assertEquals(4951, ((Number) cold.run()).intValue());
+        System.out.println("COLD RUN: " + (System.nanoTime() - time) / 1000 + " us");
+
+        // warm: new programs with same script reuse engines and compiled script
+        final int COUNT = 200;
+        time = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            final Program warm = ScriptController.instance().create();
+            warm.script(script);
+            warm.context().put("VALUE", 1);
+            assertEquals(4951, ((Number) warm.run()).intValue());
+        }
+        System.out.println("WARM RUN: " + (System.nanoTime() - time) / 1000 / COUNT + " us");
+
+        // same program in many threads: each run has its own scope
+        final Program shared = ScriptController.instance().create();
+        shared.script("var count = (typeof count === 'undefined') ? 1 : count + 1; count;");
+        final AtomicInteger errors = new AtomicInteger(0);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    try {
+                        if (((Number) shared.run()).intValue() != 1) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+    }
+
+}